@@ -0,0 +1,110 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.ArrayIndexedCollection;
+
+/**
+ * Compares {@link ArrayIndexedCollection} with {@link ArrayList}.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayIndexedCollectionBenchmark {
+
+	@Param({ "1000", "10000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyDistribution distribution;
+
+	private Integer[] elements;
+	private Integer[] searchedElements;
+	private ArrayIndexedCollection<Integer> collection;
+	private ArrayList<Integer> arrayList;
+
+	@Setup
+	public void setup() {
+		elements = distribution.keys(size);
+		searchedElements = KeyDistribution.shuffled(elements);
+		collection = new ArrayIndexedCollection<>();
+		arrayList = new ArrayList<>();
+		for (Integer element : elements) {
+			collection.add(element);
+			arrayList.add(element);
+		}
+	}
+
+	/** Adds all elements to the end of collection that grows from default capacity. */
+	@Benchmark
+	public ArrayIndexedCollection<Integer> arrayIndexedCollectionAdd() {
+		ArrayIndexedCollection<Integer> newCollection = new ArrayIndexedCollection<>();
+		for (Integer element : elements) {
+			newCollection.add(element);
+		}
+		return newCollection;
+	}
+
+	@Benchmark
+	public ArrayList<Integer> arrayListAdd() {
+		ArrayList<Integer> list = new ArrayList<>();
+		for (Integer element : elements) {
+			list.add(element);
+		}
+		return list;
+	}
+
+	/** Inserts every element in the middle, so half of elements are shifted on every insert. */
+	@Benchmark
+	public ArrayIndexedCollection<Integer> arrayIndexedCollectionInsert() {
+		ArrayIndexedCollection<Integer> newCollection = new ArrayIndexedCollection<>();
+		for (Integer element : elements) {
+			newCollection.insert(element, newCollection.size() / 2);
+		}
+		return newCollection;
+	}
+
+	@Benchmark
+	public ArrayList<Integer> arrayListInsert() {
+		ArrayList<Integer> list = new ArrayList<>();
+		for (Integer element : elements) {
+			list.add(list.size() / 2, element);
+		}
+		return list;
+	}
+
+	/** Searches for 100 elements, index of each is found by linear search. */
+	@Benchmark
+	public void arrayIndexedCollectionIndexOf(Blackhole blackhole) {
+		for (int i = 0; i < 100; i++) {
+			blackhole.consume(collection.indexOf(searchedElements[i]));
+		}
+	}
+
+	@Benchmark
+	public void arrayListIndexOf(Blackhole blackhole) {
+		for (int i = 0; i < 100; i++) {
+			blackhole.consume(arrayList.indexOf(searchedElements[i]));
+		}
+	}
+}
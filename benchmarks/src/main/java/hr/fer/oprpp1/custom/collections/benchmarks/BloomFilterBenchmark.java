@@ -0,0 +1,82 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+/**
+ * Measures lookups into {@link SimpleHashtable} where 90% of keys are not
+ * stored, as in a hash join, with and without Bloom filter in front of table.
+ * False positive rate 0 means that filter is disabled.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BloomFilterBenchmark {
+
+	/** Every tenth lookup is a hit. */
+	private static final int HIT_EVERY = 10;
+
+	@Param({ "100000", "1000000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyDistribution distribution;
+
+	@Param({ "0", "0.01" })
+	private double falsePositiveRate;
+
+	private Integer[] lookupKeys;
+	private SimpleHashtable<Integer, Integer> table;
+
+	@Setup
+	public void setup() {
+		Integer[] allKeys = distribution.keys(2 * size);
+		table = new SimpleHashtable<>();
+		if (falsePositiveRate > 0) {
+			table.enableBloomFilter(falsePositiveRate);
+		}
+		for (int i = 0; i < size; i++) {
+			table.put(allKeys[i], i);
+		}
+		Integer[] keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			// hits come from stored first half, misses from second half
+			keys[i] = (i % HIT_EVERY == 0) ? allKeys[i] : allKeys[size + i];
+		}
+		lookupKeys = KeyDistribution.shuffled(keys);
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(table.get(key));
+		}
+	}
+
+	@Benchmark
+	public void containsKey(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(table.containsKey(key));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.Dictionary;
+
+/**
+ * Compares {@link Dictionary} with {@link HashMap}. Dictionary searches its
+ * entries linearly, so sizes are smaller than in {@link HashtableBenchmark}.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+	@Param({ "100", "1000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyDistribution distribution;
+
+	private Integer[] keys;
+	private Integer[] lookupKeys;
+	private Dictionary<Integer, Integer> dictionary;
+	private HashMap<Integer, Integer> hashMap;
+
+	@Setup
+	public void setup() {
+		keys = distribution.keys(size);
+		lookupKeys = KeyDistribution.shuffled(keys);
+		dictionary = new Dictionary<>();
+		hashMap = new HashMap<>();
+		for (Integer key : keys) {
+			dictionary.put(key, key);
+			hashMap.put(key, key);
+		}
+	}
+
+	@Benchmark
+	public Dictionary<Integer, Integer> dictionaryPut() {
+		Dictionary<Integer, Integer> newDictionary = new Dictionary<>();
+		for (Integer key : keys) {
+			newDictionary.put(key, key);
+		}
+		return newDictionary;
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> hashMapPut() {
+		HashMap<Integer, Integer> map = new HashMap<>();
+		for (Integer key : keys) {
+			map.put(key, key);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public void dictionaryGet(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(dictionary.get(key));
+		}
+	}
+
+	@Benchmark
+	public void hashMapGet(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(hashMap.get(key));
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.DurableHashtable;
+import hr.fer.oprpp1.custom.collections.DurableHashtable.Durability;
+
+/**
+ * Measures latency of a single durable put. Benchmark runs in several threads,
+ * so that puts of different threads share forces of the log. Run it with
+ * <code>-t 1</code> to see the cost of a force that is not shared.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DurableHashtableBenchmark {
+
+	/** Number of distinct keys, so that log is compacted from time to time. */
+	private static final int KEY_COUNT = 10_000;
+
+	@Param({ "SYNC", "ASYNC" })
+	private Durability durability;
+
+	private Path directory;
+	private DurableHashtable<Integer, Integer> table;
+	private final AtomicInteger counter = new AtomicInteger();
+
+	@Setup
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("durable-hashtable");
+		table = DurableHashtable.open(directory.resolve("table.log"), Codec.INTEGER, Codec.INTEGER, durability);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		table.close();
+		Files.deleteIfExists(directory.resolve("table.log"));
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public Object put() {
+		int i = counter.getAndIncrement();
+		return table.put(i % KEY_COUNT, i);
+	}
+}
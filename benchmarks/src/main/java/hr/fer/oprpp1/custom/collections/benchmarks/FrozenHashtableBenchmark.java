@@ -0,0 +1,94 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.Map;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Compares read-only operations of {@link SimpleHashtable} and its frozen copy.
+ * Frozen map can not be changed, so it is measured separately from
+ * {@link MapBenchmark}.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrozenHashtableBenchmark {
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "STRIDED" })
+	private KeyDistribution distribution;
+
+	@Param({ "false", "true" })
+	private boolean frozen;
+
+	private Integer[] lookupKeys;
+
+	/** Keys of the same distribution that are not in map. */
+	private Integer[] missingKeys;
+	private SimpleHashtable<Integer, Integer> table;
+	private Map<Integer, Integer> map;
+
+	@Setup
+	public void setup() {
+		Integer[] allKeys = distribution.keys(2 * size);
+		Integer[] keys = Arrays.copyOf(allKeys, size);
+		lookupKeys = KeyDistribution.shuffled(keys);
+		missingKeys = KeyDistribution.shuffled(Arrays.copyOfRange(allKeys, size, 2 * size));
+		table = new SimpleHashtable<>();
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		map = frozen ? table.freeze() : table;
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+
+	@Benchmark
+	public void getMissing(Blackhole blackhole) {
+		for (Integer key : missingKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (TableEntry<Integer, Integer> entry : map) {
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+	/** Cost of building frozen copy, paid once at startup. */
+	@Benchmark
+	public Object freeze() {
+		return table.freeze();
+	}
+}
@@ -0,0 +1,143 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Compares {@link SimpleHashtable} with {@link HashMap}. Every operation is
+ * measured over all keys, so scores are times for <code>size</code>
+ * operations.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashtableBenchmark {
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "STRIDED" })
+	private KeyDistribution distribution;
+
+	private Integer[] keys;
+	private Integer[] lookupKeys;
+	private SimpleHashtable<Integer, Integer> simpleHashtable;
+	private HashMap<Integer, Integer> hashMap;
+
+	@Setup
+	public void setup() {
+		keys = distribution.keys(size);
+		lookupKeys = KeyDistribution.shuffled(keys);
+		simpleHashtable = new SimpleHashtable<>();
+		hashMap = new HashMap<>();
+		for (Integer key : keys) {
+			simpleHashtable.put(key, key);
+			hashMap.put(key, key);
+		}
+	}
+
+	/** Fills empty map that grows from default capacity, so resizes are included. */
+	@Benchmark
+	public SimpleHashtable<Integer, Integer> simpleHashtablePut() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		return table;
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> hashMapPut() {
+		HashMap<Integer, Integer> map = new HashMap<>();
+		for (Integer key : keys) {
+			map.put(key, key);
+		}
+		return map;
+	}
+
+	/** Fills map that is big enough from the start, difference to put is cost of resizing. */
+	@Benchmark
+	public SimpleHashtable<Integer, Integer> simpleHashtablePutPresized() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>(size * 2);
+		for (Integer key : keys) {
+			table.put(key, key);
+		}
+		return table;
+	}
+
+	@Benchmark
+	public HashMap<Integer, Integer> hashMapPutPresized() {
+		HashMap<Integer, Integer> map = new HashMap<>(size * 2);
+		for (Integer key : keys) {
+			map.put(key, key);
+		}
+		return map;
+	}
+
+	@Benchmark
+	public void simpleHashtableGet(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(simpleHashtable.get(key));
+		}
+	}
+
+	@Benchmark
+	public void hashMapGet(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(hashMap.get(key));
+		}
+	}
+
+	/** Removes every key and puts it back, so map is the same after each call. */
+	@Benchmark
+	public void simpleHashtableRemove(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(simpleHashtable.remove(key));
+			simpleHashtable.put(key, key);
+		}
+	}
+
+	@Benchmark
+	public void hashMapRemove(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(hashMap.remove(key));
+			hashMap.put(key, key);
+		}
+	}
+
+	@Benchmark
+	public void simpleHashtableIterate(Blackhole blackhole) {
+		for (TableEntry<Integer, Integer> entry : simpleHashtable) {
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+	@Benchmark
+	public void hashMapIterate(Blackhole blackhole) {
+		for (java.util.Map.Entry<Integer, Integer> entry : hashMap.entrySet()) {
+			blackhole.consume(entry.getValue());
+		}
+	}
+}
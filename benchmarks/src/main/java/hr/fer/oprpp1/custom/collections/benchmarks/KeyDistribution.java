@@ -0,0 +1,78 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Ways in which benchmark keys are generated. Hash maps choose slot from low
+ * bits of hash code, so distributions differ in how well they spread over
+ * slots.
+ *
+ * @author gorsicleo
+ *
+ */
+public enum KeyDistribution {
+
+	/** Keys 0, 1, 2, ... */
+	SEQUENTIAL,
+
+	/** Uniformly random integers. */
+	RANDOM,
+
+	/** Multiples of 1024, low bits of keys are all equal. */
+	STRIDED;
+
+	private static final long SEED = 42;
+
+	/**
+	 * Generates distinct keys. Same distribution and count always give the same
+	 * keys.
+	 *
+	 * @param count number of keys.
+	 * @return array of distinct keys.
+	 */
+	public Integer[] keys(int count) {
+		Integer[] keys = new Integer[count];
+		switch (this) {
+		case SEQUENTIAL:
+			for (int i = 0; i < count; i++) {
+				keys[i] = i;
+			}
+			break;
+		case RANDOM:
+			java.util.HashSet<Integer> used = new java.util.HashSet<>();
+			Random random = new Random(SEED);
+			for (int i = 0; i < count; i++) {
+				int key;
+				do {
+					key = random.nextInt();
+				} while (!used.add(key));
+				keys[i] = key;
+			}
+			break;
+		case STRIDED:
+			for (int i = 0; i < count; i++) {
+				keys[i] = i * 1024;
+			}
+			break;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns keys in random order, so lookups do not follow insertion order.
+	 *
+	 * @param keys to shuffle.
+	 * @return new array with same keys in random order.
+	 */
+	public static Integer[] shuffled(Integer[] keys) {
+		Integer[] shuffled = keys.clone();
+		Random random = new Random(SEED);
+		for (int i = shuffled.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer temp = shuffled[i];
+			shuffled[i] = shuffled[j];
+			shuffled[j] = temp;
+		}
+		return shuffled;
+	}
+}
@@ -0,0 +1,92 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.LinkedListIndexedCollection;
+
+/**
+ * Compares {@link LinkedListIndexedCollection} with {@link LinkedList}.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkedListIndexedCollectionBenchmark {
+
+	@Param({ "1000", "10000" })
+	private int size;
+
+	private Integer[] elements;
+	private int[] indexes;
+	private LinkedListIndexedCollection<Integer> collection;
+	private LinkedList<Integer> linkedList;
+
+	@Setup
+	public void setup() {
+		elements = KeyDistribution.SEQUENTIAL.keys(size);
+		Integer[] shuffled = KeyDistribution.shuffled(elements);
+		indexes = new int[100];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = shuffled[i % size];
+		}
+		collection = new LinkedListIndexedCollection<>();
+		linkedList = new LinkedList<>();
+		for (Integer element : elements) {
+			collection.add(element);
+			linkedList.add(element);
+		}
+	}
+
+	/** Gets 100 elements at random indexes. */
+	@Benchmark
+	public void linkedListIndexedCollectionGet(Blackhole blackhole) {
+		for (int index : indexes) {
+			blackhole.consume(collection.get(index));
+		}
+	}
+
+	@Benchmark
+	public void linkedListGet(Blackhole blackhole) {
+		for (int index : indexes) {
+			blackhole.consume(linkedList.get(index));
+		}
+	}
+
+	/** Builds list by inserting every element in the middle. */
+	@Benchmark
+	public LinkedListIndexedCollection<Integer> linkedListIndexedCollectionInsert() {
+		LinkedListIndexedCollection<Integer> newCollection = new LinkedListIndexedCollection<>();
+		for (Integer element : elements) {
+			newCollection.insert(element, newCollection.size() / 2);
+		}
+		return newCollection;
+	}
+
+	@Benchmark
+	public LinkedList<Integer> linkedListInsert() {
+		LinkedList<Integer> list = new LinkedList<>();
+		for (Integer element : elements) {
+			list.add(list.size() / 2, element);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,196 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.CompactHashtable;
+import hr.fer.oprpp1.custom.collections.ConcurrentSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.ExpiringHashtable;
+import hr.fer.oprpp1.custom.collections.LinkedSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.LockFreeHashtable;
+import hr.fer.oprpp1.custom.collections.Map;
+import hr.fer.oprpp1.custom.collections.OffHeapHashtable;
+import hr.fer.oprpp1.custom.collections.PersistentHashtable;
+import hr.fer.oprpp1.custom.collections.RobinHoodHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SwissHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Compares all implementations of {@link Map} on the same operations. Every
+ * implementation runs in its own fork, so calls through the interface are not
+ * slowed down by other implementations.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+	/** Implementations that can be measured. */
+	public enum Implementation {
+		SIMPLE {
+			@Override
+			Map<Integer, Integer> create() {
+				return new SimpleHashtable<>();
+			}
+		},
+		ROBIN_HOOD {
+			@Override
+			Map<Integer, Integer> create() {
+				return new RobinHoodHashtable<>();
+			}
+		},
+		CONCURRENT {
+			@Override
+			Map<Integer, Integer> create() {
+				return new ConcurrentSimpleHashtable<>();
+			}
+		},
+		LOCK_FREE {
+			@Override
+			Map<Integer, Integer> create() {
+				return new LockFreeHashtable<>();
+			}
+		},
+		OFF_HEAP {
+			@Override
+			Map<Integer, Integer> create() {
+				return new OffHeapHashtable<>(Codec.INTEGER, Codec.INTEGER);
+			}
+		},
+		LINKED {
+			@Override
+			Map<Integer, Integer> create() {
+				return new LinkedSimpleHashtable<>();
+			}
+		},
+		EXPIRING {
+			@Override
+			Map<Integer, Integer> create() {
+				return new ExpiringHashtable<>(1, TimeUnit.HOURS);
+			}
+		},
+		COMPACT {
+			@Override
+			Map<Integer, Integer> create() {
+				return new CompactHashtable<>();
+			}
+		},
+		SWISS {
+			@Override
+			Map<Integer, Integer> create() {
+				return new SwissHashtable<>();
+			}
+		},
+		PERSISTENT_BUILDER {
+			@Override
+			Map<Integer, Integer> create() {
+				return PersistentHashtable.builder();
+			}
+		};
+
+		abstract Map<Integer, Integer> create();
+	}
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "STRIDED" })
+	private KeyDistribution distribution;
+
+	@Param({ "SIMPLE", "ROBIN_HOOD", "CONCURRENT", "LOCK_FREE", "OFF_HEAP", "LINKED", "EXPIRING", "COMPACT", "SWISS",
+			"PERSISTENT_BUILDER" })
+	private Implementation implementation;
+
+	private Integer[] keys;
+	private Integer[] lookupKeys;
+
+	/** Keys of the same distribution that are not in map. */
+	private Integer[] missingKeys;
+	private Map<Integer, Integer> map;
+
+	@Setup
+	public void setup() {
+		// first half of generated keys is the same as keys(size) would return
+		Integer[] allKeys = distribution.keys(2 * size);
+		keys = Arrays.copyOf(allKeys, size);
+		lookupKeys = KeyDistribution.shuffled(keys);
+		missingKeys = KeyDistribution.shuffled(Arrays.copyOfRange(allKeys, size, 2 * size));
+		map = implementation.create();
+		for (Integer key : keys) {
+			map.put(key, key);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		close(map);
+	}
+
+	@Benchmark
+	public void put() throws Exception {
+		Map<Integer, Integer> newMap = implementation.create();
+		for (Integer key : keys) {
+			newMap.put(key, key);
+		}
+		close(newMap);
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+
+	@Benchmark
+	public void getMissing(Blackhole blackhole) {
+		for (Integer key : missingKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+
+	/** Removes every key and puts it back, so map is the same after each call. */
+	@Benchmark
+	public void remove(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(map.remove(key));
+			map.put(key, key);
+		}
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (TableEntry<Integer, Integer> entry : map) {
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+	/** Releases memory of maps that hold it outside of heap. */
+	private static void close(Map<Integer, Integer> map) throws Exception {
+		if (map instanceof AutoCloseable) {
+			((AutoCloseable) map).close();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.ObjectStack;
+
+/**
+ * Compares {@link ObjectStack} with {@link ArrayDeque} used as a stack.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectStackBenchmark {
+
+	@Param({ "1000", "100000" })
+	private int size;
+
+	private Integer[] elements;
+
+	@Setup
+	public void setup() {
+		elements = KeyDistribution.SEQUENTIAL.keys(size);
+	}
+
+	/** Pushes all elements onto new stack and then pops them all. */
+	@Benchmark
+	public void objectStackPushPop(Blackhole blackhole) {
+		ObjectStack<Integer> stack = new ObjectStack<>();
+		for (Integer element : elements) {
+			stack.push(element);
+		}
+		while (!stack.isEmpty()) {
+			blackhole.consume(stack.pop());
+		}
+	}
+
+	@Benchmark
+	public void arrayDequePushPop(Blackhole blackhole) {
+		ArrayDeque<Integer> stack = new ArrayDeque<>();
+		for (Integer element : elements) {
+			stack.push(element);
+		}
+		while (!stack.isEmpty()) {
+			blackhole.consume(stack.pop());
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package hr.fer.oprpp1.custom.collections.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.Map;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.TieredHashtable;
+
+/**
+ * Measures skewed lookups, where 5% of keys get 95% of reads, in
+ * {@link TieredHashtable} whose hot tier holds those 5%, compared with
+ * {@link SimpleHashtable} holding all keys on heap.
+ *
+ * @author gorsicleo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TieredHashtableBenchmark {
+
+	/** Percentage of keys that are hot. */
+	private static final int HOT_PERCENT = 5;
+
+	/** Percentage of reads that go to hot keys. */
+	private static final int HOT_READ_PERCENT = 95;
+
+	private static final int LOOKUPS = 100_000;
+
+	@Param({ "1000000" })
+	private int size;
+
+	@Param({ "false", "true" })
+	private boolean tiered;
+
+	private Integer[] lookupKeys;
+
+	/** Only hot keys, to measure hot tier alone. */
+	private Integer[] hotKeys;
+	private Path directory;
+	private Map<Integer, Integer> map;
+
+	@Setup
+	public void setup() throws IOException {
+		int hotCount = size / 100 * HOT_PERCENT;
+		if (tiered) {
+			directory = Files.createTempDirectory("tiered-hashtable");
+			map = TieredHashtable.open(directory.resolve("table.spill"), Codec.INTEGER, Codec.INTEGER, hotCount);
+		} else {
+			map = new SimpleHashtable<>();
+		}
+		// hot keys are put last, so they start in hot tier
+		for (int i = size - 1; i >= 0; i--) {
+			map.put(i, i);
+		}
+		Random random = new Random(42);
+		lookupKeys = new Integer[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookupKeys[i] = (random.nextInt(100) < HOT_READ_PERCENT) ? random.nextInt(hotCount)
+					: hotCount + random.nextInt(size - hotCount);
+		}
+		hotKeys = new Integer[LOOKUPS];
+		for (int i = 0; i < LOOKUPS; i++) {
+			hotKeys[i] = random.nextInt(hotCount);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (map instanceof AutoCloseable) {
+			((AutoCloseable) map).close();
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	@Benchmark
+	public void get(Blackhole blackhole) {
+		for (Integer key : lookupKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+
+	@Benchmark
+	public void getHot(Blackhole blackhole) {
+		for (Integer key : hotKeys) {
+			blackhole.consume(map.get(key));
+		}
+	}
+}
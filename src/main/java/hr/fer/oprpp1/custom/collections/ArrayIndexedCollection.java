@@ -201,8 +201,8 @@ public class ArrayIndexedCollection<T> implements List<T> {
 	 */
 	private void shiftElelemnts(int position) {
 		reportModification();
-		for (int i = size; i > position; i--) {
-			elements[i - 1] = elements[i - 2];
+		for (int i = size - 1; i > position; i--) {
+			elements[i] = elements[i - 1];
 		}
 	}
 
@@ -322,7 +322,9 @@ public class ArrayIndexedCollection<T> implements List<T> {
 	 * @throws NullPointerException      for <code>value</code> that is null.
 	 */
 	public void insert(T value, int position) {
-		checkIndexOutOfBounds(position);
+		if (position < 0 || position > occupied) {
+			throw new IndexOutOfBoundsException();
+		}
 		checkIfValueIsNull(value);
 		occupied++;
 		if (elements[size - 1] == null) {
@@ -0,0 +1,126 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter whose bits of one key all lie in the same 512-bit block, which is
+ * one cache line. Adding or testing a key therefore reads a single cache line,
+ * unlike ordinary Bloom filter that reads one line for every bit. Block is
+ * split into 8 words and key sets one bit in every word, so test is a fixed
+ * sequence of 8 word checks without branches. False positive rate is set by
+ * number of bits per key.
+ * <p>
+ * Keys are not spread evenly over blocks, which makes false positive rate of
+ * blocked filter somewhat higher than of ordinary filter with the same number
+ * of bits. It is compensated by giving the filter a few more bits.
+ * <p>
+ * Keys can't be removed, so filter that saw many removals has to be cleared
+ * and filled again.
+ *
+ * @author gorsicleo
+ *
+ */
+final class BlockedBloomFilter {
+
+	/** Number of <code>long</code> words in one block, 8 x 64 = 512 bits. */
+	private static final int BLOCK_LONGS = 8;
+
+	/** Number of bits set for every key, one in every word of block. */
+	private static final int HASH_COUNT = BLOCK_LONGS;
+
+	/** Extra bits that compensate uneven load of blocks. */
+	private static final double BLOCK_OVERHEAD = 1.1;
+
+	/** Multiplier whose product with mixed hash gives positions of bits in words. */
+	private static final long POSITION_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/** Blocks stored one after another. */
+	private final long[] bits;
+
+	private final int blockCount;
+
+	/**
+	 * Creates filter for given number of keys.
+	 *
+	 * @param expectedEntries   number of keys for which false positive rate holds.
+	 * @param falsePositiveRate wanted probability that missing key is reported as
+	 *                          present.
+	 * @param maxBytes          upper bound on memory of filter. When it is smaller
+	 *                          than memory needed for wanted rate, rate is higher.
+	 *                          Filter has at least one block of 64 bytes.
+	 */
+	BlockedBloomFilter(int expectedEntries, double falsePositiveRate, long maxBytes) {
+		// rate of filter with k bits per key and m / n bits per key is
+		// (1 - e^(-k n / m))^k, solved for m / n
+		double bitsPerEntry = -HASH_COUNT / Math.log(1 - Math.pow(falsePositiveRate, 1.0 / HASH_COUNT))
+				* BLOCK_OVERHEAD;
+		long wantedBytes = (long) Math.ceil(Math.max(expectedEntries, 1) * bitsPerEntry / Byte.SIZE);
+		long blockBytes = BLOCK_LONGS * Long.BYTES;
+		long blocks = Math.min((wantedBytes + blockBytes - 1) / blockBytes, maxBytes / blockBytes);
+		blockCount = (int) Math.max(1, Math.min(blocks, Integer.MAX_VALUE / BLOCK_LONGS));
+		bits = new long[blockCount * BLOCK_LONGS];
+	}
+
+	/**
+	 * Adds key with given hash code.
+	 *
+	 * @param hash hash code of key.
+	 */
+	void add(int hash) {
+		long mixed = mix(hash);
+		int offset = blockOffset(mixed);
+		long positions = mixed * POSITION_MULTIPLIER;
+		for (int i = 0; i < BLOCK_LONGS; i++) {
+			// 6 bits of positions choose bit in every word
+			bits[offset + i] |= 1L << (positions >>> (6 * i));
+		}
+	}
+
+	/**
+	 * Returns false if key with given hash code was certainly never added.
+	 *
+	 * @param hash hash code of key.
+	 * @return false for key that is not in filter, true for key that was added or
+	 *         for a false positive.
+	 */
+	boolean mightContain(int hash) {
+		long mixed = mix(hash);
+		int offset = blockOffset(mixed);
+		long positions = mixed * POSITION_MULTIPLIER;
+		long missing = 0;
+		for (int i = 0; i < BLOCK_LONGS; i++) {
+			missing |= ~bits[offset + i] & (1L << (positions >>> (6 * i)));
+		}
+		return missing == 0;
+	}
+
+	/** Removes all keys. */
+	void clear() {
+		Arrays.fill(bits, 0);
+	}
+
+	/**
+	 * Returns memory taken by bits of filter.
+	 *
+	 * @return size of filter in bytes.
+	 */
+	long byteSize() {
+		return (long) bits.length * Long.BYTES;
+	}
+
+	/** Index of first element of block chosen by high bits of mixed hash. */
+	private int blockOffset(long mixed) {
+		return (int) (((mixed >>> 32) * blockCount) >>> 32) * BLOCK_LONGS;
+	}
+
+	/**
+	 * Spreads 32-bit hash into 64 bits, high bits choose block and all of them
+	 * choose bits inside of it.
+	 */
+	private static long mix(int hash) {
+		long x = hash * 0x9E3779B97F4A7C15L;
+		x ^= x >>> 32;
+		x *= 0xD6E8FEB86659FD93L;
+		return x ^ (x >>> 32);
+	}
+}
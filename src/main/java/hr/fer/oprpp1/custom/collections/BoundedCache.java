@@ -0,0 +1,384 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Map with maximum number of entries. Entries are linked in order of access,
+ * and when cache is full the least recently used entry is evicted in constant
+ * time. Optionally, new keys are admitted only if they were accessed more often
+ * than the entry they would evict (TinyLFU), which keeps keys that are used
+ * only once from pushing out popular ones.
+ * <p>
+ * Both get and put count as access, so get changes order of entries and is
+ * treated as modification by iterators.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class BoundedCache<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String CAPACITY_TOO_SMALL_ERROR = "Capacity must not be smaller than 1";
+
+	/** Decides whether new key may evict an existing entry. */
+	public enum AdmissionPolicy {
+		/** New keys are always stored, least recently used entry is evicted. */
+		ALWAYS,
+		/**
+		 * New key is stored only if it was accessed more often than least recently
+		 * used entry, according to frequency sketch.
+		 */
+		TINY_LFU
+	}
+
+	/** Reason for which entry left the cache. */
+	public enum RemovalCause {
+		/** Entry was removed by remove, clear or iterator. */
+		EXPLICIT,
+		/** Value was overwritten by put. */
+		REPLACED,
+		/** Entry was evicted to make room for new entry. */
+		EVICTED,
+		/** New entry was not admitted by admission policy. */
+		REJECTED
+	}
+
+	/**
+	 * Receives entries that left the cache.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 */
+	public interface RemovalListener<K, V> {
+		/**
+		 * Called after entry left the cache.
+		 *
+		 * @param key   of entry.
+		 * @param value of entry, for {@link RemovalCause#REPLACED} the old value.
+		 * @param cause why entry left the cache.
+		 */
+		void onRemoval(K key, V value, RemovalCause cause);
+	}
+
+	/** Entry that is also node of access order list. */
+	private static class Node<K, V> extends TableEntry<K, V> {
+		private Node<K, V> previous;
+		private Node<K, V> next;
+
+		private Node(K key, V value) {
+			super(key, value);
+		}
+	}
+
+	/** Iterates from most to least recently used entry. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private Node<K, V> nextNode = head.next;
+		private Node<K, V> lastNode;
+		private int savedModificationCount = modificationCount;
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			return nextNode != head;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastNode = nextNode;
+			nextNode = nextNode.next;
+			return lastNode;
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastNode == null) {
+				throw new IllegalStateException();
+			}
+			removeNode(lastNode, RemovalCause.EXPLICIT);
+			lastNode = null;
+			savedModificationCount = modificationCount;
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	private final int capacity;
+	private final AdmissionPolicy admissionPolicy;
+
+	/** Finds node of key. */
+	private final SimpleHashtable<K, Node<K, V>> index;
+
+	/**
+	 * Sentinel of circular access order list. Its next node is the most recently
+	 * used, its previous node the least recently used.
+	 */
+	private final Node<K, V> head = new Node<>(null, null);
+
+	/** Access frequencies, null when admission policy does not use them. */
+	private final FrequencySketch sketch;
+
+	private RemovalListener<? super K, ? super V> removalListener = (key, value, cause) -> {
+	};
+
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+	private long rejectionCount = 0;
+
+	/** Stores number of modifications, including changes of access order. */
+	private int modificationCount = 0;
+
+	/**
+	 * Creates LRU cache that holds at most given number of entries.
+	 *
+	 * @param capacity maximum number of entries.
+	 * @throws IllegalArgumentException if capacity is smaller than 1.
+	 */
+	public BoundedCache(int capacity) {
+		this(capacity, AdmissionPolicy.ALWAYS);
+	}
+
+	/**
+	 * Creates cache that holds at most given number of entries.
+	 *
+	 * @param capacity        maximum number of entries.
+	 * @param admissionPolicy decides whether new keys evict old entries.
+	 * @throws IllegalArgumentException if capacity is smaller than 1.
+	 */
+	public BoundedCache(int capacity, AdmissionPolicy admissionPolicy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException(CAPACITY_TOO_SMALL_ERROR);
+		}
+		this.capacity = capacity;
+		this.admissionPolicy = Objects.requireNonNull(admissionPolicy);
+		index = new SimpleHashtable<>((int) Math.min(capacity * 4L / 3 + 1, 1 << 30));
+		sketch = (admissionPolicy == AdmissionPolicy.TINY_LFU) ? new FrequencySketch(capacity) : null;
+		head.previous = head.next = head;
+	}
+
+	/**
+	 * Sets listener that is called whenever entry leaves the cache.
+	 *
+	 * @param removalListener to call.
+	 * @throws NullPointerException if listener is null.
+	 */
+	public void setRemovalListener(RemovalListener<? super K, ? super V> removalListener) {
+		this.removalListener = Objects.requireNonNull(removalListener);
+	}
+
+	/**
+	 * @return maximum number of entries.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of get calls that found the key.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return number of get calls that did not find the key.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return share of get calls that found the key, 0 if there were none.
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return number of entries evicted to make room for new entries.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return number of new entries that admission policy did not store.
+	 */
+	public long getRejectionCount() {
+		return rejectionCount;
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Stores key-value pair as most recently used entry. If cache is full least
+	 * recently used entry is evicted, unless admission policy rejects the new
+	 * entry.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key, null if there was
+	 *         none.
+	 * @throws NullPointerException if given key is null.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		recordAccess(key);
+		Node<K, V> node = index.get(key);
+		if (node != null) {
+			V previousValue = node.getValue();
+			node.setValue(value);
+			moveToFront(node);
+			removalListener.onRemoval(key, previousValue, RemovalCause.REPLACED);
+			return previousValue;
+		}
+
+		if (index.size() >= capacity) {
+			Node<K, V> victim = head.previous;
+			if (sketch != null && sketch.frequency(key.hashCode()) <= sketch.frequency(victim.getKey().hashCode())) {
+				rejectionCount++;
+				removalListener.onRemoval(key, value, RemovalCause.REJECTED);
+				return null;
+			}
+			evictionCount++;
+			removeNode(victim, RemovalCause.EVICTED);
+		}
+
+		node = new Node<>(key, value);
+		index.put(key, node);
+		linkFirst(node);
+		modificationCount++;
+		return null;
+	}
+
+	/**
+	 * Returns value for given key and marks its entry as most recently used.
+	 */
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		recordAccess(key);
+		Node<K, V> node = index.get(key);
+		if (node == null) {
+			missCount++;
+			return null;
+		}
+		hitCount++;
+		moveToFront(node);
+		return node.getValue();
+	}
+
+	/** Does not count as access. */
+	@Override
+	public boolean containsKey(Object key) {
+		return index.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			if (Objects.equals(value, node.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		Node<K, V> node = index.get(key);
+		if (node == null) {
+			return null;
+		}
+		removeNode(node, RemovalCause.EXPLICIT);
+		return node.getValue();
+	}
+
+	/** Removes all entries, listener is called for every one of them. */
+	@Override
+	public void clear() {
+		while (head.next != head) {
+			removeNode(head.next, RemovalCause.EXPLICIT);
+		}
+	}
+
+	/**
+	 * Returns iterator over entries from most to least recently used. Setting
+	 * value of returned entry does not change order.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			if (node != head.next) {
+				builder.append(", ");
+			}
+			builder.append(node.getKey()).append('=').append(node.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	private void recordAccess(Object key) {
+		if (sketch != null) {
+			sketch.increment(key.hashCode());
+		}
+	}
+
+	/** Unlinks node from list and index, then notifies listener. */
+	private void removeNode(Node<K, V> node, RemovalCause cause) {
+		index.remove(node.getKey());
+		unlink(node);
+		modificationCount++;
+		removalListener.onRemoval(node.getKey(), node.getValue(), cause);
+	}
+
+	private void moveToFront(Node<K, V> node) {
+		if (head.next != node) {
+			unlink(node);
+			linkFirst(node);
+		}
+		modificationCount++;
+	}
+
+	private void linkFirst(Node<K, V> node) {
+		node.previous = head;
+		node.next = head.next;
+		head.next.previous = node;
+		head.next = node;
+	}
+
+	private static <K, V> void unlink(Node<K, V> node) {
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		node.previous = node.next = null;
+	}
+}
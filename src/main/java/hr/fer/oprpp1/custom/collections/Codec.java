@@ -0,0 +1,97 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts objects to bytes and back. Used by maps that keep their contents
+ * outside of Java heap. Two objects that are equal must be written as the same
+ * bytes, since such maps compare keys by their bytes.
+ *
+ * @author gorsicleo
+ *
+ * @param <T> the type of objects this codec converts
+ */
+public interface Codec<T> {
+
+	/** Codec for strings, written as UTF-8 bytes. */
+	Codec<String> STRING = new Codec<String>() {
+		@Override
+		public void write(String value, ByteBuffer buffer) {
+			buffer.put(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public String read(ByteBuffer buffer, int length) {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/** Codec for integers, always written as 4 bytes. */
+	Codec<Integer> INTEGER = new Codec<Integer>() {
+		@Override
+		public void write(Integer value, ByteBuffer buffer) {
+			buffer.putInt(value);
+		}
+
+		@Override
+		public Integer read(ByteBuffer buffer, int length) {
+			return buffer.getInt();
+		}
+
+		@Override
+		public int fixedSize() {
+			return Integer.BYTES;
+		}
+	};
+
+	/** Codec for longs, always written as 8 bytes. */
+	Codec<Long> LONG = new Codec<Long>() {
+		@Override
+		public void write(Long value, ByteBuffer buffer) {
+			buffer.putLong(value);
+		}
+
+		@Override
+		public Long read(ByteBuffer buffer, int length) {
+			return buffer.getLong();
+		}
+
+		@Override
+		public int fixedSize() {
+			return Long.BYTES;
+		}
+	};
+
+	/**
+	 * Writes given object at current position of buffer.
+	 *
+	 * @param value  to write. <b>Never null.</b>
+	 * @param buffer to write into.
+	 * @throws java.nio.BufferOverflowException if there is not enough space in
+	 *                                          buffer. Caller then retries with
+	 *                                          bigger buffer.
+	 */
+	void write(T value, ByteBuffer buffer);
+
+	/**
+	 * Reads object from current position of buffer.
+	 *
+	 * @param buffer to read from.
+	 * @param length number of bytes object was written as.
+	 * @return object that was read.
+	 */
+	T read(ByteBuffer buffer, int length);
+
+	/**
+	 * Returns number of bytes every object is written as, or -1 if it differs
+	 * between objects. When size is fixed, length of objects is not stored.
+	 *
+	 * @return fixed size of written objects or -1.
+	 */
+	default int fixedSize() {
+		return -1;
+	}
+}
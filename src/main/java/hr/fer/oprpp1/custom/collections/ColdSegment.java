@@ -0,0 +1,619 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cold tier of {@link TieredHashtable}. Entries are appended one after another
+ * into chunks of a memory-mapped file, so they take page cache instead of Java
+ * heap and operating system can write pages that are not used to disk. Index
+ * is a set of direct buffers with linear probing, each slot holding hash of
+ * key, number of reads since entry became cold and address of its entry. Index
+ * is split into pages of {@value #INDEX_PAGE_SLOTS} slots and has at most 2^30
+ * slots.
+ * <p>
+ * Replaced and removed entries are left in the file as garbage. When there is
+ * more garbage than live data, live entries are slid towards the start of the
+ * file, in the order in which they were written, and chunks are reused. File
+ * never shrinks, it is only a spill area and is deleted when segment is
+ * closed.
+ * <p>
+ * Slots of index are used as handles of entries. They stay the same until
+ * entry is inserted or removed, compaction changes only addresses.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class ColdSegment<K, V> {
+
+	/** Number of bytes in one index slot: hash (int), reads (int) and address (long). */
+	private static final int INDEX_SLOT_SIZE = 16;
+
+	private static final int HITS_OFFSET = Integer.BYTES;
+
+	private static final int ADDRESS_OFFSET = 2 * Integer.BYTES;
+
+	/** Number of slots in one page of index, page takes 1 GiB. */
+	private static final int INDEX_PAGE_SLOTS = 1 << 26;
+
+	/** Largest number of slots in index. */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private static final String FULL_ERROR = "Cold tier is full";
+
+	/** Maximal ratio of occupied index slots before index is doubled. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/** Entry header: hash (int) and flags (byte). */
+	private static final int ENTRY_HEADER_SIZE = Integer.BYTES + 1;
+
+	private static final byte NULL_VALUE_FLAG = 1;
+
+	/**
+	 * Pages of index of entries, {@link #INDEX_SLOT_SIZE} bytes per slot. Slot is
+	 * in page <code>slot / INDEX_PAGE_SLOTS</code>.
+	 */
+	private ByteBuffer[] index;
+
+	/** Number of slots in index, always power of two. */
+	private int capacity;
+
+	/** Used for calculating slot, always equals capacity - 1 */
+	private int mask;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+
+	/** Mapped chunks of file, position of every chunk is end of its entries. */
+	private MappedByteBuffer[] chunks = new MappedByteBuffer[4];
+
+	/** Number of mapped chunks. */
+	private int chunkCount;
+
+	/** Chunk into which entries are appended, earlier chunks are full. */
+	private int writeChunk;
+
+	/** Number of bytes in one chunk. */
+	private final int chunkSize;
+
+	/** Number of mapped bytes of file. */
+	private long mappedBytes;
+
+	/** Bytes of file taken by entries that are still in the segment. */
+	private long liveBytes = 0;
+
+	/** Bytes of file taken by replaced or removed entries. */
+	private long garbageBytes = 0;
+
+	/** Reused buffers for converting keys and values to bytes. */
+	private ByteBuffer keyScratch = ByteBuffer.allocate(64);
+	private ByteBuffer valueScratch = ByteBuffer.allocate(64);
+
+	/** Reused buffer for moving entries during compaction. */
+	private byte[] moveScratch = new byte[64];
+
+	private int size = 0;
+
+	/**
+	 * Creates empty segment in given file. Existing file is truncated.
+	 *
+	 * @param path       of spill file.
+	 * @param keyCodec   converts keys to bytes.
+	 * @param valueCodec converts values to bytes.
+	 * @param chunkSize  number of bytes mapped at once. Entries bigger than that
+	 *                   get a chunk of their own.
+	 * @throws IOException if file can't be created.
+	 */
+	ColdSegment(Path path, Codec<K> keyCodec, Codec<V> valueCodec, int chunkSize) throws IOException {
+		this.path = path;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.chunkSize = chunkSize;
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		allocateIndex(16);
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Returns number of slots of index, for iterating over them. */
+	int capacity() {
+		return capacity;
+	}
+
+	/** Returns true if there is an entry in given slot. */
+	boolean occupied(int slot) {
+		return address(slot) != 0;
+	}
+
+	/**
+	 * Returns true if there is an entry with given key in given slot. Key bytes
+	 * are left in {@link #keyScratch}.
+	 *
+	 * @param slot of index.
+	 * @param key  not null.
+	 */
+	boolean holds(int slot, K key) {
+		long address = address(slot);
+		if (address == 0 || hash(index, slot) != hash(key)) {
+			return false;
+		}
+		keyScratch = encode(keyCodec, key, keyScratch);
+		return keyEquals(address);
+	}
+
+	/** Returns number of bytes of file that are mapped. */
+	long mappedBytes() {
+		return mappedBytes;
+	}
+
+	/**
+	 * Searches index for given key.
+	 *
+	 * @param key to search for, not null.
+	 * @return slot of key, or -1 if key is not in segment.
+	 */
+	int find(Object key) {
+		int slot = probe(hash(key), key);
+		return (slot < 0) ? -1 : slot;
+	}
+
+	K key(int slot) {
+		long address = address(slot);
+		ByteBuffer chunk = chunk(address);
+		return read(keyCodec, chunk, offset(address) + ENTRY_HEADER_SIZE);
+	}
+
+	V value(int slot) {
+		long address = address(slot);
+		ByteBuffer chunk = chunk(address);
+		int position = offset(address);
+		if ((chunk.get(position + Integer.BYTES) & NULL_VALUE_FLAG) != 0) {
+			return null;
+		}
+		position += ENTRY_HEADER_SIZE;
+		return read(valueCodec, chunk, position + storedLength(keyCodec, chunk, position));
+	}
+
+	/**
+	 * Counts read of entry in given slot.
+	 *
+	 * @return number of reads since entry was inserted.
+	 */
+	int recordHit(int slot) {
+		ByteBuffer page = page(index, slot);
+		int position = position(slot) + HITS_OFFSET;
+		int hits = page.getInt(position);
+		if (hits < Integer.MAX_VALUE) {
+			page.putInt(position, ++hits);
+		}
+		return hits;
+	}
+
+	/**
+	 * Appends entry for key that is not in segment.
+	 *
+	 * @param key   to be stored, not null.
+	 * @param value to be stored.
+	 * @throws IllegalStateException if index of 2^30 slots is full.
+	 */
+	void insert(K key, V value) {
+		if (capacity == MAXIMUM_CAPACITY && size + 1 >= capacity) {
+			// linear probing needs at least one empty slot
+			throw new IllegalStateException(FULL_ERROR);
+		}
+		int hash = hash(key);
+		// probe leaves bytes of key in keyScratch
+		int slot = -probe(hash, key) - 1;
+		setSlot(slot, hash, append(hash, value));
+		size++;
+		if (size > LOAD_FACTOR * capacity && capacity < MAXIMUM_CAPACITY) {
+			doubleIndexSize();
+		}
+		compactIfNeeded();
+	}
+
+	/**
+	 * Appends new version of entry in given slot with given value. Slot keeps its
+	 * number of reads.
+	 *
+	 * @param slot  of entry.
+	 * @param key   of entry, equal to the stored one.
+	 * @param value new value.
+	 */
+	void replace(int slot, K key, V value) {
+		long address = address(slot);
+		int hash = hash(index, slot);
+		keyScratch = encode(keyCodec, key, keyScratch);
+		long newAddress = append(hash, value);
+		discardEntry(address);
+		setAddress(slot, newAddress);
+		compactIfNeeded();
+	}
+
+	/**
+	 * Removes entry in given index slot. Following entries of the same cluster
+	 * that would become unreachable are shifted back into the freed slot.
+	 *
+	 * @param slot of entry to be removed.
+	 */
+	void removeAt(int slot) {
+		discardEntry(address(slot));
+		int freeSlot = slot;
+		int currentSlot = (slot + 1) & mask;
+		while (address(currentSlot) != 0) {
+			int hash = hash(index, currentSlot);
+			// entry can fill free slot only if its home slot is not between the two
+			if (((currentSlot - (hash & mask)) & mask) >= ((currentSlot - freeSlot) & mask)) {
+				copySlot(currentSlot, freeSlot);
+				freeSlot = currentSlot;
+			}
+			currentSlot = (currentSlot + 1) & mask;
+		}
+		setSlot(freeSlot, 0, 0);
+		size--;
+		compactIfNeeded();
+	}
+
+	/** Removes all entries, mapped chunks are kept for reuse. */
+	void clear() {
+		for (int i = 0; i < capacity; i++) {
+			setSlot(i, 0, 0);
+		}
+		for (int i = 0; i < chunkCount; i++) {
+			chunks[i].clear();
+		}
+		writeChunk = 0;
+		liveBytes = garbageBytes = 0;
+		size = 0;
+	}
+
+	/**
+	 * Closes and deletes spill file. On Java 9 and later index is freed and
+	 * chunks are unmapped at once, on older runtimes their memory is given back
+	 * when garbage collector collects them.
+	 *
+	 * @throws IOException if file can't be closed or deleted.
+	 */
+	void close() throws IOException {
+		freeIndex(index);
+		for (int i = 0; i < chunkCount; i++) {
+			DirectBuffers.free(chunks[i]);
+		}
+		index = null;
+		chunks = null;
+		channel.close();
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Searches index for given key. Key is written to {@link #keyScratch} and its
+	 * bytes are compared only with entries whose hash matches.
+	 *
+	 * @return slot of key if it is found, otherwise <code>-(emptySlot + 1)</code>
+	 *         where emptySlot is slot at which key would be stored.
+	 */
+	@SuppressWarnings("unchecked")
+	private int probe(int hash, Object key) {
+		try {
+			keyScratch = encode(keyCodec, (K) key, keyScratch);
+		} catch (ClassCastException e) {
+			return -1 - (hash & mask);
+		}
+		int slot = hash & mask;
+		long address;
+		while ((address = address(slot)) != 0) {
+			if (hash(index, slot) == hash && keyEquals(address)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -slot - 1;
+	}
+
+	/**
+	 * Compares bytes of key in {@link #keyScratch} with bytes of key of entry at
+	 * given address.
+	 */
+	private boolean keyEquals(long address) {
+		ByteBuffer chunk = chunk(address);
+		int position = offset(address) + ENTRY_HEADER_SIZE;
+		int length = keyScratch.remaining();
+		if (keyCodec.fixedSize() < 0) {
+			if (chunk.getInt(position) != length) {
+				return false;
+			}
+			position += Integer.BYTES;
+		}
+		for (int i = 0; i < length; i++) {
+			if (chunk.get(position + i) != keyScratch.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes entry with key from {@link #keyScratch} and given value at the end of
+	 * segment.
+	 *
+	 * @return address of written entry.
+	 */
+	private long append(int hash, V value) {
+		boolean nullValue = value == null;
+		int length = ENTRY_HEADER_SIZE + encodedLength(keyCodec, keyScratch.remaining());
+		if (!nullValue) {
+			valueScratch = encode(valueCodec, value, valueScratch);
+			length += encodedLength(valueCodec, valueScratch.remaining());
+		}
+		ByteBuffer chunk = chunkWithSpace(length);
+		long address = ((long) (writeChunk + 1) << 32) | chunk.position();
+		chunk.putInt(hash).put(nullValue ? NULL_VALUE_FLAG : 0);
+		putEncoded(chunk, keyCodec, keyScratch);
+		if (!nullValue) {
+			putEncoded(chunk, valueCodec, valueScratch);
+		}
+		liveBytes += length;
+		return address;
+	}
+
+	/**
+	 * Returns first chunk from {@link #writeChunk} on that has enough space for
+	 * entry of given length, mapping new chunk at the end of file if there is
+	 * none.
+	 */
+	private ByteBuffer chunkWithSpace(int length) {
+		while (writeChunk < chunkCount && chunks[writeChunk].remaining() < length) {
+			writeChunk++;
+		}
+		if (writeChunk == chunkCount) {
+			if (chunkCount == chunks.length) {
+				MappedByteBuffer[] newChunks = new MappedByteBuffer[chunks.length * 2];
+				System.arraycopy(chunks, 0, newChunks, 0, chunks.length);
+				chunks = newChunks;
+			}
+			int size = Math.max(chunkSize, length);
+			try {
+				// mapping past the end of file extends it
+				chunks[chunkCount++] = channel.map(FileChannel.MapMode.READ_WRITE, mappedBytes, size);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			mappedBytes += size;
+		}
+		return chunks[writeChunk];
+	}
+
+	/** Marks entry at given address as garbage. */
+	private void discardEntry(long address) {
+		int length = storedEntryLength(chunk(address), offset(address));
+		liveBytes -= length;
+		garbageBytes += length;
+	}
+
+	/**
+	 * Slides live entries towards the start of file when more than half of used
+	 * space is garbage. Entries keep their order, so entry is never written over
+	 * one that was not moved yet. Slots of index stay the same, only addresses
+	 * change.
+	 */
+	private void compactIfNeeded() {
+		if (garbageBytes <= liveBytes || garbageBytes < chunkSize) {
+			return;
+		}
+		int[] ends = new int[chunkCount];
+		for (int i = 0; i < chunkCount; i++) {
+			ends[i] = chunks[i].position();
+			chunks[i].clear();
+		}
+		int target = 0;
+		for (int chunk = 0; chunk < chunkCount; chunk++) {
+			ByteBuffer source = chunks[chunk];
+			int position = 0;
+			while (position < ends[chunk]) {
+				int length = storedEntryLength(source, position);
+				int slot = slotOf(((long) (chunk + 1) << 32) | position, source.getInt(position));
+				if (slot >= 0) {
+					// target chunk is before source or it is the same chunk and its end is
+					// not after this entry, so entry always fits
+					while (chunks[target].remaining() < length) {
+						target++;
+					}
+					if (moveScratch.length < length) {
+						moveScratch = new byte[Math.max(length, moveScratch.length * 2)];
+					}
+					ByteBuffer entry = source.duplicate();
+					entry.limit(position + length).position(position);
+					entry.get(moveScratch, 0, length);
+					ByteBuffer destination = chunks[target];
+					setAddress(slot, ((long) (target + 1) << 32) | destination.position());
+					destination.put(moveScratch, 0, length);
+				}
+				position += length;
+			}
+		}
+		writeChunk = target;
+		garbageBytes = 0;
+	}
+
+	/** Returns slot that points to entry at given address, -1 if entry is garbage. */
+	private int slotOf(long address, int hash) {
+		int slot = hash & mask;
+		long slotAddress;
+		while ((slotAddress = address(slot)) != 0) {
+			if (slotAddress == address) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/** Creates index two times bigger than current one and moves all slots into it. */
+	private void doubleIndexSize() {
+		ByteBuffer[] oldIndex = index;
+		int oldCapacity = capacity;
+		allocateIndex(capacity * 2);
+		for (int i = 0; i < oldCapacity; i++) {
+			long address = page(oldIndex, i).getLong(position(i) + ADDRESS_OFFSET);
+			if (address != 0) {
+				int hash = hash(oldIndex, i);
+				int slot = hash & mask;
+				while (address(slot) != 0) {
+					slot = (slot + 1) & mask;
+				}
+				setSlot(slot, hash, address);
+				page(index, slot).putInt(position(slot) + HITS_OFFSET,
+						page(oldIndex, i).getInt(position(i) + HITS_OFFSET));
+			}
+		}
+		freeIndex(oldIndex);
+	}
+
+	private void allocateIndex(int capacity) {
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		int pageSlots = Math.min(capacity, INDEX_PAGE_SLOTS);
+		index = new ByteBuffer[capacity / pageSlots];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = ByteBuffer.allocateDirect(pageSlots * INDEX_SLOT_SIZE);
+		}
+	}
+
+	private static void freeIndex(ByteBuffer[] index) {
+		for (ByteBuffer page : index) {
+			DirectBuffers.free(page);
+		}
+	}
+
+	/** Sets slot to given hash and address, with no reads counted. */
+	private void setSlot(int slot, int hash, long address) {
+		ByteBuffer page = page(index, slot);
+		int position = position(slot);
+		page.putInt(position, hash);
+		page.putInt(position + HITS_OFFSET, 0);
+		page.putLong(position + ADDRESS_OFFSET, address);
+	}
+
+	private void setAddress(int slot, long address) {
+		page(index, slot).putLong(position(slot) + ADDRESS_OFFSET, address);
+	}
+
+	private void copySlot(int from, int to) {
+		ByteBuffer fromPage = page(index, from);
+		ByteBuffer toPage = page(index, to);
+		int fromPosition = position(from);
+		int toPosition = position(to);
+		toPage.putInt(toPosition, fromPage.getInt(fromPosition));
+		toPage.putInt(toPosition + HITS_OFFSET, fromPage.getInt(fromPosition + HITS_OFFSET));
+		toPage.putLong(toPosition + ADDRESS_OFFSET, fromPage.getLong(fromPosition + ADDRESS_OFFSET));
+	}
+
+	/** Returns address of entry in given index slot, 0 if slot is empty. */
+	private long address(int slot) {
+		return page(index, slot).getLong(position(slot) + ADDRESS_OFFSET);
+	}
+
+	/** Returns spread hash of key in given index slot. */
+	private static int hash(ByteBuffer[] index, int slot) {
+		return page(index, slot).getInt(position(slot));
+	}
+
+	/** Returns page of index that holds given slot. */
+	private static ByteBuffer page(ByteBuffer[] index, int slot) {
+		return index[slot / INDEX_PAGE_SLOTS];
+	}
+
+	/** Returns position of given slot within its page. */
+	private static int position(int slot) {
+		return (slot % INDEX_PAGE_SLOTS) * INDEX_SLOT_SIZE;
+	}
+
+	private ByteBuffer chunk(long address) {
+		return chunks[(int) (address >>> 32) - 1];
+	}
+
+	private static int offset(long address) {
+		return (int) address;
+	}
+
+	private static <T> T read(Codec<T> codec, ByteBuffer chunk, int position) {
+		int length = codec.fixedSize();
+		if (length < 0) {
+			length = chunk.getInt(position);
+			position += Integer.BYTES;
+		}
+		ByteBuffer view = chunk.duplicate();
+		view.limit(position + length).position(position);
+		return codec.read(view, length);
+	}
+
+	/** Returns number of bytes object at given position takes, including its length. */
+	private static int storedLength(Codec<?> codec, ByteBuffer chunk, int position) {
+		int length = codec.fixedSize();
+		return (length < 0) ? Integer.BYTES + chunk.getInt(position) : length;
+	}
+
+	/** Returns number of bytes entry at given position takes. */
+	private int storedEntryLength(ByteBuffer chunk, int position) {
+		int length = ENTRY_HEADER_SIZE + storedLength(keyCodec, chunk, position + ENTRY_HEADER_SIZE);
+		if ((chunk.get(position + Integer.BYTES) & NULL_VALUE_FLAG) == 0) {
+			length += storedLength(valueCodec, chunk, position + length);
+		}
+		return length;
+	}
+
+	private static int encodedLength(Codec<?> codec, int length) {
+		return (codec.fixedSize() < 0) ? Integer.BYTES + length : length;
+	}
+
+	/** Writes encoded object, prefixed with its length if codec has no fixed size. */
+	private static void putEncoded(ByteBuffer out, Codec<?> codec, ByteBuffer bytes) {
+		if (codec.fixedSize() < 0) {
+			out.putInt(bytes.remaining());
+		}
+		out.put(bytes.duplicate());
+	}
+
+	/**
+	 * Writes object into given buffer using codec, doubling buffer until object
+	 * fits.
+	 *
+	 * @return flipped buffer holding bytes of object, not necessarily the one
+	 *         given.
+	 */
+	private static <T> ByteBuffer encode(Codec<T> codec, T value, ByteBuffer buffer) {
+		while (true) {
+			buffer.clear();
+			try {
+				codec.write(value, buffer);
+				buffer.flip();
+				return buffer;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 */
+	private static int hash(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
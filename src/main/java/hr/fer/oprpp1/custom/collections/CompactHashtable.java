@@ -0,0 +1,407 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map with separate chaining that stores entries in parallel arrays
+ * instead of entry objects. Entry is an index into arrays of hashes, keys,
+ * values and links to next entry of the chain, and every slot holds index of
+ * the first entry of its chain. Indexes of removed entries are kept in free list
+ * and reused by later puts.
+ * <p>
+ * Entry takes 16 bytes of arrays (with compressed references), about half of
+ * {@link SimpleHashtable.TableEntry} with its object header. Walking a chain
+ * reads hashes and links from two arrays, and key is read only when hash
+ * matches.
+ * <p>
+ * Iterator returns views of entries, whose {@link TableEntry#setValue(Object)}
+ * writes into this map.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class CompactHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+
+	/** Index that marks end of chain, empty slot or end of free list. */
+	private static final int NONE = -1;
+
+	/** Maximal ratio of entries and slots before internal arrays are doubled. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/**
+	 * Entry returned by iterator, holding key and value read from given index.
+	 * Setting its value writes into this map.
+	 */
+	private class EntryView extends TableEntry<K, V> {
+
+		/** Index from which entry was read. */
+		private final int index;
+
+		private EntryView(int index) {
+			super(keyAt(index), valueAt(index));
+			this.index = index;
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			// index can be freed and reused by another key since entry was read
+			if (keys[index] == getKey()) {
+				values[index] = value;
+			} else {
+				put(getKey(), value);
+			}
+		}
+	}
+
+	/** Iterates over used indexes of entry arrays, skipping free ones. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private int nextIndex = -1;
+		private int lastIndex = NONE;
+		private int savedModificationCount = modificationCount;
+
+		private IteratorImpl() {
+			findNext();
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			return nextIndex < entryCount;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastIndex = nextIndex;
+			findNext();
+			return new EntryView(lastIndex);
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastIndex == NONE) {
+				throw new IllegalStateException();
+			}
+			removeEntry(hashes[lastIndex], keys[lastIndex]);
+			lastIndex = NONE;
+			savedModificationCount = modificationCount;
+		}
+
+		private void findNext() {
+			do {
+				nextIndex++;
+			} while (nextIndex < entryCount && keys[nextIndex] == null);
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/** Index of first entry of every slot's chain. */
+	private int[] heads;
+
+	/** Spread hash code of key of every entry. */
+	private int[] hashes;
+
+	/** Keys of entries, null marks free index. */
+	private Object[] keys;
+
+	private Object[] values;
+
+	/** Index of next entry in chain, or in free list for free indexes. */
+	private int[] next;
+
+	/** Number of indexes of entry arrays that were ever used. */
+	private int entryCount = 0;
+
+	/** First free index below {@link #entryCount}. */
+	private int freeHead = NONE;
+
+	/** Number of key-value pairs stored in this map */
+	private int size = 0;
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	/** Creates new CompactHashtable object with 16 slots. */
+	public CompactHashtable() {
+		this(16);
+	}
+
+	/**
+	 * Creates new CompactHashtable object with given number of slots.
+	 *
+	 * @param size number of slots. <b>Note: size will be rounded to nearest power
+	 *             of two.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public CompactHashtable(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = 2;
+		while (nearestPowerOfTwo < size) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+
+		heads = new int[nearestPowerOfTwo];
+		Arrays.fill(heads, NONE);
+		int capacity = (int) (nearestPowerOfTwo * LOAD_FACTOR);
+		hashes = new int[capacity];
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		next = new int[capacity];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair in hash map.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         null is returned.
+	 * @throws NullPointerException if given key is null.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hash = hash(key);
+		int index = findIndex(hash, key);
+		if (index != NONE) {
+			V previousValue = valueAt(index);
+			values[index] = value;
+			return previousValue;
+		}
+
+		if (freeHead == NONE && entryCount == keys.length) {
+			doubleTableSize();
+		}
+		if (freeHead != NONE) {
+			index = freeHead;
+			freeHead = next[index];
+		} else {
+			index = entryCount++;
+		}
+		int slot = hash & (heads.length - 1);
+		hashes[index] = hash;
+		keys[index] = key;
+		values[index] = value;
+		next[index] = heads[slot];
+		heads[slot] = index;
+		size++;
+		modificationCount++;
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int index = findIndex(hash(key), key);
+		return (index == NONE) ? null : valueAt(index);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		return findIndex(hash(key), key) != NONE;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < entryCount; i++) {
+			if (keys[i] != null && Objects.equals(value, values[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		return removeEntry(hash(key), key);
+	}
+
+	/** Removes all elements from hash map. <b>It doesn't change size of internal arrays.</b> */
+	@Override
+	public void clear() {
+		Arrays.fill(heads, NONE);
+		Arrays.fill(keys, 0, entryCount, null);
+		Arrays.fill(values, 0, entryCount, null);
+		entryCount = 0;
+		freeHead = NONE;
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Returns iterator over entries in order of their indexes. Every call of
+	 * next creates a small view of entry.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Gives key and value of every entry to given action, without creating any
+	 * objects. Action must not modify this map.
+	 *
+	 * @param action to call for every key-value pair.
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		int savedModificationCount = modificationCount;
+		for (int i = 0; i < entryCount; i++) {
+			if (keys[i] != null) {
+				action.accept(keyAt(i), valueAt(i));
+				if (modificationCount != savedModificationCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns string representation of this hash map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		forEach((key, value) -> {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(key).append('=').append(value);
+		});
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Finds index of entry with given key.
+	 *
+	 * @param hash spread hash code of key.
+	 * @param key  to search for.
+	 * @return index of entry or {@link #NONE} if key is not stored.
+	 */
+	private int findIndex(int hash, Object key) {
+		for (int i = heads[hash & (heads.length - 1)]; i != NONE; i = next[i]) {
+			if (hashes[i] == hash && (keys[i] == key || key.equals(keys[i]))) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	/**
+	 * Unlinks entry with given key from its chain and puts its index into free
+	 * list.
+	 *
+	 * @param hash spread hash code of key.
+	 * @param key  of entry to be removed.
+	 * @return value of removed entry or null if key is not stored.
+	 */
+	private V removeEntry(int hash, Object key) {
+		int slot = hash & (heads.length - 1);
+		int previous = NONE;
+		for (int i = heads[slot]; i != NONE; previous = i, i = next[i]) {
+			if (hashes[i] == hash && (keys[i] == key || key.equals(keys[i]))) {
+				if (previous == NONE) {
+					heads[slot] = next[i];
+				} else {
+					next[previous] = next[i];
+				}
+				V value = valueAt(i);
+				keys[i] = null;
+				values[i] = null;
+				next[i] = freeHead;
+				freeHead = i;
+				size--;
+				modificationCount++;
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Doubles number of slots and capacity of entry arrays. Entries keep their
+	 * indexes, only chains are linked again using stored hashes.
+	 */
+	private void doubleTableSize() {
+		int capacity = keys.length * 2;
+		hashes = Arrays.copyOf(hashes, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+		next = Arrays.copyOf(next, capacity);
+
+		heads = new int[heads.length * 2];
+		Arrays.fill(heads, NONE);
+		int mask = heads.length - 1;
+		for (int i = 0; i < entryCount; i++) {
+			if (keys[i] != null) {
+				int slot = hashes[i] & mask;
+				next[i] = heads[slot];
+				heads[slot] = i;
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private K keyAt(int index) {
+		return (K) keys[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueAt(int index) {
+		return (V) values[index];
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 *
+	 * @param key to calculate hash for
+	 * @return spread hash code of key
+	 */
+	private static int hash(Object key) {
+		int hashCode = key.hashCode();
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
@@ -0,0 +1,434 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.lang.reflect.Array;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Thread-safe hash map. Slots are divided into segments and every segment is
+ * guarded by its own lock, so threads that write into different segments do
+ * not wait for each other. Each segment also has its own array of slots and
+ * its own count of entries, so it is resized and counted independently.
+ * <p>
+ * Reads do not lock at all. Chains are modified so that reader walking them
+ * at the same time always sees a valid chain, and resize copies entries into
+ * new array instead of relinking them. Iterators are weakly consistent: they
+ * never throw {@link java.util.ConcurrentModificationException} and may or may
+ * not reflect modifications made after they were created.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class ConcurrentSimpleHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+	private static final String CONCURRENCY_LEVEL_ERROR = "Concurrency level must not be smaller than 1";
+
+	/** Number of segments used when concurrency level is not given. */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/** Maximal ratio of entries and slots in segment before it is resized. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/**
+	 * Single key-value pair in a chain. Key and hash never change, value and next
+	 * entry are volatile so that readers without lock see latest writes.
+	 *
+	 * @param <K> the type of keys in this node
+	 * @param <V> the type of values in this node
+	 */
+	private static final class Node<K, V> {
+		private final int hash;
+		private final K key;
+		private volatile V value;
+		private volatile Node<K, V> next;
+
+		private Node(int hash, K key, V value, Node<K, V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Group of slots guarded by one lock. Writers lock the segment, readers only
+	 * read volatile fields.
+	 *
+	 * @param <K> the type of keys in this segment
+	 * @param <V> the type of values in this segment
+	 */
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends ReentrantLock {
+
+		/** Slots of this segment. Replaced as a whole on resize. */
+		private volatile AtomicReferenceArray<Node<K, V>> table;
+
+		/** Number of key-value pairs stored in this segment. */
+		private volatile int count;
+
+		private Segment(int capacity) {
+			table = new AtomicReferenceArray<>(capacity);
+		}
+
+		private Node<K, V> find(int hash, Object key) {
+			AtomicReferenceArray<Node<K, V>> currentTable = table;
+			Node<K, V> node = currentTable.get(hash & (currentTable.length() - 1));
+			while (node != null && !(node.hash == hash && (node.key == key || key.equals(node.key)))) {
+				node = node.next;
+			}
+			return node;
+		}
+
+		private V put(int hash, K key, V value) {
+			lock();
+			try {
+				Node<K, V> node = find(hash, key);
+				if (node != null) {
+					V previousValue = node.value;
+					node.value = value;
+					return previousValue;
+				}
+				if (count + 1 > table.length() * LOAD_FACTOR) {
+					doubleTableSize();
+				}
+				AtomicReferenceArray<Node<K, V>> currentTable = table;
+				int slot = hash & (currentTable.length() - 1);
+				currentTable.set(slot, new Node<K, V>(hash, key, value, currentTable.get(slot)));
+				count++;
+				return null;
+			} finally {
+				unlock();
+			}
+		}
+
+		private V remove(int hash, Object key) {
+			lock();
+			try {
+				AtomicReferenceArray<Node<K, V>> currentTable = table;
+				int slot = hash & (currentTable.length() - 1);
+				Node<K, V> previous = null;
+				Node<K, V> node = currentTable.get(slot);
+				while (node != null && !(node.hash == hash && (node.key == key || key.equals(node.key)))) {
+					previous = node;
+					node = node.next;
+				}
+				if (node == null) {
+					return null;
+				}
+				// removed node keeps its next, so readers standing on it can continue
+				if (previous == null) {
+					currentTable.set(slot, node.next);
+				} else {
+					previous.next = node.next;
+				}
+				count--;
+				return node.value;
+			} finally {
+				unlock();
+			}
+		}
+
+		/**
+		 * Creates array two times bigger than current and copies entries into it.
+		 * Entries are copied, not relinked, because readers may still be walking
+		 * chains of old array. Must be called while holding the lock.
+		 */
+		private void doubleTableSize() {
+			AtomicReferenceArray<Node<K, V>> oldTable = table;
+			AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(oldTable.length() * 2);
+			int mask = newTable.length() - 1;
+			for (int i = 0; i < oldTable.length(); i++) {
+				for (Node<K, V> node = oldTable.get(i); node != null; node = node.next) {
+					int slot = node.hash & mask;
+					newTable.set(slot, new Node<K, V>(node.hash, node.key, node.value, newTable.get(slot)));
+				}
+			}
+			table = newTable;
+		}
+
+		private void clear() {
+			lock();
+			try {
+				table = new AtomicReferenceArray<>(table.length());
+				count = 0;
+			} finally {
+				unlock();
+			}
+		}
+	}
+
+	/**
+	 * Entry returned by iterator. Setting its value stores new value in the map.
+	 */
+	private final class EntryView extends TableEntry<K, V> {
+
+		public EntryView(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			put(getKey(), value);
+		}
+	}
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/** Index of segment whose slots are being visited. */
+		private int segmentIndex = -1;
+
+		/** Slots of current segment, as they were when iterator reached it. */
+		private AtomicReferenceArray<Node<K, V>> currentTable;
+
+		/** Next slot to visit in current segment. */
+		private int slot;
+
+		/** Node that will be returned next. */
+		private Node<K, V> nextNode;
+
+		/** Node that was returned last. */
+		private Node<K, V> lastReturned;
+
+		public IteratorImpl() {
+			advance();
+		}
+
+		/** Moves to next node, crossing into following slots and segments as needed. */
+		private void advance() {
+			if (nextNode != null) {
+				nextNode = nextNode.next;
+			}
+			while (nextNode == null) {
+				if (currentTable != null && slot < currentTable.length()) {
+					nextNode = currentTable.get(slot++);
+				} else if (segmentIndex + 1 < segments.length) {
+					currentTable = segments[++segmentIndex].table;
+					slot = 0;
+				} else {
+					return;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (nextNode == null) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = nextNode;
+			advance();
+			return new EntryView(lastReturned.key, lastReturned.value);
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			ConcurrentSimpleHashtable.this.remove(lastReturned.key);
+			lastReturned = null;
+		}
+	}
+
+	/** Segments of this map, their number never changes. */
+	private final Segment<K, V>[] segments;
+
+	/** Number of bits hash is shifted right to get index of segment. */
+	private final int segmentShift;
+
+	/** Creates new map with 16 slots and 16 segments. */
+	public ConcurrentSimpleHashtable() {
+		this(16, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Creates new map with given number of slots and 16 segments.
+	 *
+	 * @param size total number of slots. <b>Note: size will be rounded to nearest
+	 *             power of two.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public ConcurrentSimpleHashtable(int size) {
+		this(size, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Creates new map with given number of slots and segments.
+	 *
+	 * @param size             total number of slots. <b>Note: size will be
+	 *                         rounded to nearest power of two.</b>
+	 * @param concurrencyLevel estimated number of threads writing at the same
+	 *                         time, used as number of segments. <b>Note: it will
+	 *                         be rounded to nearest power of two.</b>
+	 * @throws IllegalArgumentException if size or concurrencyLevel is smaller than
+	 *                                  1
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentSimpleHashtable(int size, int concurrencyLevel) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+		if (concurrencyLevel < 1) {
+			throw new IllegalArgumentException(CONCURRENCY_LEVEL_ERROR);
+		}
+
+		int segmentCount = 1;
+		int segmentBits = 0;
+		while (segmentCount < concurrencyLevel && segmentBits < 16) {
+			segmentCount = segmentCount << 1;
+			segmentBits++;
+		}
+		int segmentCapacity = 1;
+		while (segmentCapacity * segmentCount < size) {
+			segmentCapacity = segmentCapacity << 1;
+		}
+
+		segmentShift = 32 - segmentBits;
+		segments = (Segment<K, V>[]) Array.newInstance(Segment.class, segmentCount);
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<K, V>(segmentCapacity);
+		}
+	}
+
+	/**
+	 * Returns segment responsible for given hash. Segment is chosen by high bits
+	 * of hash, while slot inside segment is chosen by low bits.
+	 *
+	 * @param hash spread hash code of key.
+	 * @return segment for hash.
+	 */
+	private Segment<K, V> segmentFor(int hash) {
+		return (segmentShift == 32) ? segments[0] : segments[hash >>> segmentShift];
+	}
+
+	/**
+	 * Returns sum of entry counts of all segments. When other threads are
+	 * modifying the map result is only an estimate.
+	 */
+	@Override
+	public int size() {
+		long sum = 0;
+		for (Segment<K, V> segment : segments) {
+			sum += segment.count;
+		}
+		return (int) Math.min(sum, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		int hash = hash(key);
+		return segmentFor(hash).put(hash, key, value);
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int hash = hash(key);
+		Node<K, V> node = segmentFor(hash).find(hash, key);
+		return (node == null) ? null : node.value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int hash = hash(key);
+		return segmentFor(hash).find(hash, key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (Segment<K, V> segment : segments) {
+			AtomicReferenceArray<Node<K, V>> currentTable = segment.table;
+			for (int i = 0; i < currentTable.length(); i++) {
+				for (Node<K, V> node = currentTable.get(i); node != null; node = node.next) {
+					V nodeValue = node.value;
+					if (value == null ? nodeValue == null : value.equals(nodeValue)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int hash = hash(key);
+		return segmentFor(hash).remove(hash, key);
+	}
+
+	/**
+	 * Removes all elements from map. Segments are cleared one by one, so entries
+	 * put by other threads at the same time may remain.
+	 */
+	@Override
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Returns weakly consistent iterator over this map. Setting value of returned
+	 * entry stores it in the map.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (TableEntry<K, V> entry : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes all of its bits, since high
+	 * bits choose segment and low bits choose slot.
+	 *
+	 * @param key to calculate hash for.
+	 * @return spread hash code of key.
+	 * @throws NullPointerException if key is null.
+	 */
+	private static int hash(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		return hash ^ (hash >>> 16);
+	}
+
+}
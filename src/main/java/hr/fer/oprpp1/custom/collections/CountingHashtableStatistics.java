@@ -0,0 +1,272 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics that count operations, hits, probe lengths and resizes. Counters
+ * can be read at any time, from any thread, as a {@link Snapshot} or through
+ * JMX after {@link #registerMBean(String)}.
+ *
+ * @author gorsicleo
+ *
+ */
+public class CountingHashtableStatistics implements HashtableStatistics, HashtableStatisticsMXBean {
+
+	/** Number of probe lengths counted separately, longer probes share last bucket. */
+	public static final int HISTOGRAM_SIZE = 17;
+
+	/** Immutable copy of counters at one moment. */
+	public static class Snapshot {
+		private final long[] operationCounts;
+		private final long[] hitCounts;
+		private final long probeLengthSum;
+		private final long equalsCallSum;
+		private final long resizeCount;
+		private final long resizeNanos;
+		private final long[] probeLengthHistogram;
+
+		private Snapshot(CountingHashtableStatistics statistics) {
+			int operations = Operation.values().length;
+			operationCounts = new long[operations];
+			hitCounts = new long[operations];
+			for (int i = 0; i < operations; i++) {
+				operationCounts[i] = statistics.operationCounts[i].sum();
+				hitCounts[i] = statistics.hitCounts[i].sum();
+			}
+			probeLengthSum = statistics.probeLengthSum.sum();
+			equalsCallSum = statistics.equalsCallSum.sum();
+			resizeCount = statistics.resizeCount.sum();
+			resizeNanos = statistics.resizeNanos.sum();
+			probeLengthHistogram = new long[HISTOGRAM_SIZE];
+			for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+				probeLengthHistogram[i] = statistics.probeLengthHistogram[i].sum();
+			}
+		}
+
+		/**
+		 * @param operation to count.
+		 * @return number of calls of given operation.
+		 */
+		public long getCount(Operation operation) {
+			return operationCounts[operation.ordinal()];
+		}
+
+		/**
+		 * @param operation to count.
+		 * @return number of calls of given operation that found the key.
+		 */
+		public long getHitCount(Operation operation) {
+			return hitCounts[operation.ordinal()];
+		}
+
+		/**
+		 * @return number of all recorded probes.
+		 */
+		public long getProbeCount() {
+			long count = 0;
+			for (long operationCount : operationCounts) {
+				count += operationCount;
+			}
+			return count;
+		}
+
+		/**
+		 * @return share of get and containsKey calls that found the key, 0 if there
+		 *         were none.
+		 */
+		public double getHitRatio() {
+			long lookups = getCount(Operation.GET) + getCount(Operation.CONTAINS_KEY);
+			long hits = getHitCount(Operation.GET) + getHitCount(Operation.CONTAINS_KEY);
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+
+		/**
+		 * @return average number of entries examined per probe.
+		 */
+		public double getAverageProbeLength() {
+			long probes = getProbeCount();
+			return probes == 0 ? 0 : (double) probeLengthSum / probes;
+		}
+
+		/**
+		 * @return average number of equals calls per probe.
+		 */
+		public double getAverageEqualsCalls() {
+			long probes = getProbeCount();
+			return probes == 0 ? 0 : (double) equalsCallSum / probes;
+		}
+
+		/**
+		 * @return number of started resizes.
+		 */
+		public long getResizeCount() {
+			return resizeCount;
+		}
+
+		/**
+		 * @return total time spent moving entries during resizes, in nanoseconds.
+		 */
+		public long getResizeNanos() {
+			return resizeNanos;
+		}
+
+		/**
+		 * @return number of probes by length. Last element counts all probes of
+		 *         that length or longer.
+		 */
+		public long[] getProbeLengthHistogram() {
+			return probeLengthHistogram.clone();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"get=%d containsKey=%d put=%d remove=%d hitRatio=%.3f avgProbe=%.2f avgEquals=%.2f resizes=%d resizeNanos=%d",
+					getCount(Operation.GET), getCount(Operation.CONTAINS_KEY), getCount(Operation.PUT),
+					getCount(Operation.REMOVE), getHitRatio(), getAverageProbeLength(), getAverageEqualsCalls(),
+					resizeCount, resizeNanos);
+		}
+	}
+
+	private final LongAdder[] operationCounts = newAdders(Operation.values().length);
+	private final LongAdder[] hitCounts = newAdders(Operation.values().length);
+	private final LongAdder probeLengthSum = new LongAdder();
+	private final LongAdder equalsCallSum = new LongAdder();
+	private final LongAdder resizeCount = new LongAdder();
+	private final LongAdder resizeNanos = new LongAdder();
+	private final LongAdder[] probeLengthHistogram = newAdders(HISTOGRAM_SIZE);
+
+	@Override
+	public void recordProbe(Operation operation, boolean hit, int probeLength, int equalsCalls) {
+		operationCounts[operation.ordinal()].increment();
+		if (hit) {
+			hitCounts[operation.ordinal()].increment();
+		}
+		probeLengthSum.add(probeLength);
+		equalsCallSum.add(equalsCalls);
+		probeLengthHistogram[Math.min(probeLength, HISTOGRAM_SIZE - 1)].increment();
+	}
+
+	@Override
+	public void recordResizeStarted(int newCapacity) {
+		resizeCount.increment();
+	}
+
+	@Override
+	public void recordResizeFinished(long migrationNanos) {
+		resizeNanos.add(migrationNanos);
+	}
+
+	/**
+	 * Returns copy of all counters. Counters are read one by one while they may
+	 * be changing, so snapshot taken during operations is only approximately
+	 * consistent.
+	 *
+	 * @return snapshot of counters.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this);
+	}
+
+	/**
+	 * Registers these statistics on platform MBean server under name
+	 * <code>hr.fer.oprpp1.custom.collections:type=HashtableStatistics,name=</code>
+	 * followed by given name.
+	 *
+	 * @param name to tell apart statistics of different maps.
+	 * @return name under which statistics are registered.
+	 * @throws IllegalStateException if registration fails, for example if name
+	 *                               is already taken.
+	 */
+	public ObjectName registerMBean(String name) {
+		try {
+			ObjectName objectName = new ObjectName(
+					"hr.fer.oprpp1.custom.collections:type=HashtableStatistics,name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Statistics can't be registered", e);
+		}
+	}
+
+	@Override
+	public long getGetCount() {
+		return operationCounts[Operation.GET.ordinal()].sum();
+	}
+
+	@Override
+	public long getContainsKeyCount() {
+		return operationCounts[Operation.CONTAINS_KEY.ordinal()].sum();
+	}
+
+	@Override
+	public long getPutCount() {
+		return operationCounts[Operation.PUT.ordinal()].sum();
+	}
+
+	@Override
+	public long getRemoveCount() {
+		return operationCounts[Operation.REMOVE.ordinal()].sum();
+	}
+
+	@Override
+	public double getHitRatio() {
+		return snapshot().getHitRatio();
+	}
+
+	@Override
+	public double getAverageProbeLength() {
+		return snapshot().getAverageProbeLength();
+	}
+
+	@Override
+	public double getAverageEqualsCalls() {
+		return snapshot().getAverageEqualsCalls();
+	}
+
+	@Override
+	public long getResizeCount() {
+		return resizeCount.sum();
+	}
+
+	@Override
+	public long getResizeNanos() {
+		return resizeNanos.sum();
+	}
+
+	@Override
+	public long[] getProbeLengthHistogram() {
+		return snapshot().getProbeLengthHistogram();
+	}
+
+	@Override
+	public void reset() {
+		for (LongAdder adder : operationCounts) {
+			adder.reset();
+		}
+		for (LongAdder adder : hitCounts) {
+			adder.reset();
+		}
+		for (LongAdder adder : probeLengthHistogram) {
+			adder.reset();
+		}
+		probeLengthSum.reset();
+		equalsCallSum.reset();
+		resizeCount.reset();
+		resizeNanos.reset();
+	}
+
+	private static LongAdder[] newAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+}
@@ -0,0 +1,62 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees memory of direct and mapped {@link ByteBuffer}s at once, instead of
+ * waiting for garbage collector to collect them. Maps that allocate gigabytes
+ * outside of heap release them in close this way, since small heap can go a
+ * long time without a collection that would find the buffers.
+ * <p>
+ * Freeing uses <code>sun.misc.Unsafe.invokeCleaner</code>, which exists since
+ * Java 9. On older runtimes {@link #free(ByteBuffer)} does nothing and memory
+ * is given back by garbage collector as before.
+ *
+ * @author gorsicleo
+ *
+ */
+final class DirectBuffers {
+
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private DirectBuffers() {
+	}
+
+	/**
+	 * Frees memory of given buffer. Buffer must not be used afterwards, nor any
+	 * of its duplicates or slices.
+	 *
+	 * @param buffer to be freed, allocated directly or mapped. Heap buffers and
+	 *               null are ignored.
+	 */
+	static void free(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null || buffer == null || !buffer.isDirect()) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// buffer is freed by garbage collector
+		}
+	}
+}
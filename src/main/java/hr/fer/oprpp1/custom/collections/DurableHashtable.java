@@ -0,0 +1,934 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Thread-safe {@link SimpleHashtable} whose contents survive a crash. Every
+ * put, remove and clear is appended to write-ahead log file before it returns,
+ * and {@link #open(Path, Codec, Codec, Durability)} rebuilds the map by
+ * replaying the log.
+ * <p>
+ * Log starts with magic number and version, followed by records. Every record
+ * holds length and CRC32 checksum of its body, and body holds operation code,
+ * key and value. Record that was only partly written when program crashed
+ * fails the checksum, so replay stops there and log is truncated to the last
+ * complete record.
+ * <p>
+ * Records are first appended to a buffer in memory. Writer then waits until
+ * the buffer is written and forced to disk. Only one thread writes at a time,
+ * and it writes everything other threads appended in the meantime, so
+ * concurrent writers share one fsync (group commit). With
+ * {@link Durability#ASYNC} writers do not wait, and buffer is forced by
+ * background thread every {@value #ASYNC_SYNC_MILLIS} ms.
+ * <p>
+ * Log is compacted in background once it holds more than twice as many
+ * records as there are entries. Live entries are written into a new file,
+ * records appended in the meantime are copied after them, and new file
+ * atomically replaces the old one.
+ * <p>
+ * All operations hold one short lock, only writing and forcing the log is
+ * done outside of it. Iterator walks a copy of entries, and removal or
+ * {@link TableEntry#setValue(Object)} through it is logged as well.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class DurableHashtable<K, V> implements Map<K, V>, AutoCloseable {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String CLOSED_ERROR = "Hashtable is closed";
+	private static final String FORMAT_ERROR = "File is not a hashtable log";
+	private static final String FAILED_ERROR = "Log could not be written";
+
+	/** Number written at the start of every log file ("SHWL"). */
+	private static final int MAGIC = 0x5348574C;
+
+	private static final int VERSION = 1;
+
+	/** Header: magic and version. */
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+	/** Record header: length and checksum of body. */
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+	private static final byte PUT = 0;
+	private static final byte PUT_NULL_VALUE = 1;
+	private static final byte REMOVE = 2;
+	private static final byte CLEAR = 3;
+
+	/** Log is compacted when it holds more than this many records per entry. */
+	private static final int COMPACTION_FACTOR = 2;
+
+	/** Smallest number of records in log before it is compacted. */
+	private static final int MIN_COMPACTION_RECORDS = 1024;
+
+	/** Period of forcing log to disk in {@link Durability#ASYNC} mode. */
+	private static final long ASYNC_SYNC_MILLIS = 10;
+
+	/**
+	 * Most bytes of records that can wait for background force in
+	 * {@link Durability#ASYNC} mode, writer that exceeds it forces them itself.
+	 */
+	private static final int MAX_ASYNC_PENDING = 1 << 20;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Suffix of file into which log is compacted. */
+	private static final String COMPACTION_SUFFIX = ".compact";
+
+	/** When write returns compared to moment its record reaches the disk. */
+	public enum Durability {
+		/** Write returns after its record is forced to disk. */
+		SYNC,
+		/**
+		 * Write returns as soon as its record is appended to buffer. Writes of last
+		 * {@value DurableHashtable#ASYNC_SYNC_MILLIS} ms, or last megabyte of records
+		 * when they come faster, can be lost in a crash, but log is never left
+		 * inconsistent.
+		 */
+		ASYNC
+	}
+
+	/** Copy of entry, whose value is set through the map so that change is logged. */
+	private class EntryView extends TableEntry<K, V> {
+		private EntryView(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public void setValue(V value) {
+			put(getKey(), value);
+			super.setValue(value);
+		}
+	}
+
+	/** Iterates over copy of entries, made when iterator is created. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private final TableEntry<K, V>[] entries;
+		private int index = 0;
+		private TableEntry<K, V> lastEntry;
+
+		private IteratorImpl(TableEntry<K, V>[] entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < entries.length;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			TableEntry<K, V> entry = entries[index++];
+			lastEntry = new EntryView(entry.getKey(), entry.getValue());
+			return lastEntry;
+		}
+
+		@Override
+		public void remove() {
+			if (lastEntry == null) {
+				throw new IllegalStateException();
+			}
+			DurableHashtable.this.remove(lastEntry.getKey());
+			lastEntry = null;
+		}
+	}
+
+	private final Path path;
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final Durability durability;
+
+	/** Guards map, pending buffer and counters of appended records. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Guards log file. Thread holding it writes and forces records of all writers. */
+	private final ReentrantLock fileLock = new ReentrantLock();
+
+	/** Allows only one compaction at a time. */
+	private final ReentrantLock compactionLock = new ReentrantLock();
+
+	private final SimpleHashtable<K, V> map = new SimpleHashtable<>();
+
+	/** Records appended but not yet written. */
+	private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** Buffer being written while new records are appended to pending one. */
+	private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** Used for records appended under {@link #lock}. */
+	private final CRC32 checksum = new CRC32();
+
+	/**
+	 * Number of bytes of records appended since log was opened. It is a position
+	 * in the sequence of records, independent of file that holds them.
+	 */
+	private long appendedPosition;
+
+	/** Position up to which records are forced to disk. */
+	private volatile long durablePosition;
+
+	/** Position of first record of current log file. */
+	private long filePosition;
+
+	/** Number of records in current log file, including pending ones. */
+	private int logRecords;
+
+	/** Number of records appended since log was opened. */
+	private long appendedRecords;
+
+	/** Minimal number of records before log is compacted, raised if compaction fails. */
+	private int minCompactionRecords = MIN_COMPACTION_RECORDS;
+
+	/** Whether background compaction is submitted and not finished yet. */
+	private boolean compactionScheduled;
+
+	private FileChannel channel;
+
+	private final ScheduledExecutorService executor;
+
+	private volatile long syncCount;
+
+	private volatile boolean closed;
+
+	/** Error that stopped writing of the log, later writes fail as well. */
+	private volatile IOException failure;
+
+	/**
+	 * Opens durable map stored in given log file. If the file exists its records
+	 * are replayed, otherwise new log is created. Every write returns only after
+	 * it is on disk.
+	 *
+	 * @param <K>        the type of keys
+	 * @param <V>        the type of values
+	 * @param path       of log file.
+	 * @param keyCodec   converts keys to bytes and back.
+	 * @param valueCodec converts values to bytes and back.
+	 * @return map with contents of the log.
+	 * @throws IOException if file can't be read or created, or if it is not a
+	 *                     hashtable log.
+	 */
+	public static <K, V> DurableHashtable<K, V> open(Path path, Codec<K> keyCodec, Codec<V> valueCodec)
+			throws IOException {
+		return open(path, keyCodec, valueCodec, Durability.SYNC);
+	}
+
+	/**
+	 * Opens durable map stored in given log file. If the file exists its records
+	 * are replayed, otherwise new log is created.
+	 *
+	 * @param <K>        the type of keys
+	 * @param <V>        the type of values
+	 * @param path       of log file.
+	 * @param keyCodec   converts keys to bytes and back.
+	 * @param valueCodec converts values to bytes and back.
+	 * @param durability when writes return.
+	 * @return map with contents of the log.
+	 * @throws IOException if file can't be read or created, or if it is not a
+	 *                     hashtable log.
+	 */
+	public static <K, V> DurableHashtable<K, V> open(Path path, Codec<K> keyCodec, Codec<V> valueCodec,
+			Durability durability) throws IOException {
+		DurableHashtable<K, V> table = new DurableHashtable<>(path, keyCodec, valueCodec, durability);
+		try {
+			table.recover();
+		} catch (IOException | RuntimeException e) {
+			table.executor.shutdownNow();
+			if (table.channel != null) {
+				table.channel.close();
+			}
+			throw e;
+		}
+		if (durability == Durability.ASYNC) {
+			table.executor.scheduleWithFixedDelay(table::backgroundSync, ASYNC_SYNC_MILLIS, ASYNC_SYNC_MILLIS,
+					TimeUnit.MILLISECONDS);
+		}
+		return table;
+	}
+
+	private DurableHashtable(Path path, Codec<K> keyCodec, Codec<V> valueCodec, Durability durability) {
+		this.path = path;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.durability = durability;
+		executor = Executors.newScheduledThreadPool(2, runnable -> {
+			Thread thread = new Thread(runnable, "durable-hashtable-" + path.getFileName());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return map.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair and logs it.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key.
+	 * @throws NullPointerException  if given key is null.
+	 * @throws IllegalStateException if map is closed.
+	 * @throws UncheckedIOException  if log can't be written.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		V previousValue;
+		long position;
+		lock.lock();
+		try {
+			checkWritable();
+			position = append((value == null) ? PUT_NULL_VALUE : PUT, key, value);
+			previousValue = map.put(key, value);
+		} finally {
+			lock.unlock();
+		}
+		afterWrite(position);
+		return previousValue;
+	}
+
+	@Override
+	public V get(Object key) {
+		lock.lock();
+		try {
+			checkOpen();
+			return map.get(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		lock.lock();
+		try {
+			checkOpen();
+			return map.containsKey(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		lock.lock();
+		try {
+			checkOpen();
+			return map.containsValue(value);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes key-value pair with given key and logs removal. Removal of key that
+	 * is not stored is not logged.
+	 *
+	 * @throws IllegalStateException if map is closed.
+	 * @throws UncheckedIOException  if log can't be written.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		V value;
+		long position;
+		lock.lock();
+		try {
+			checkWritable();
+			if (!map.containsKey(key)) {
+				return null;
+			}
+			// key equals stored key, so it is written the same way
+			position = append(REMOVE, (K) key, null);
+			value = map.remove(key);
+		} finally {
+			lock.unlock();
+		}
+		afterWrite(position);
+		return value;
+	}
+
+	/**
+	 * Removes all entries and logs it.
+	 *
+	 * @throws IllegalStateException if map is closed.
+	 * @throws UncheckedIOException  if log can't be written.
+	 */
+	@Override
+	public void clear() {
+		long position;
+		lock.lock();
+		try {
+			checkWritable();
+			position = append(CLEAR, null, null);
+			map.clear();
+		} finally {
+			lock.unlock();
+		}
+		afterWrite(position);
+	}
+
+	/**
+	 * Returns iterator over copy of entries. Changes of map after iterator is
+	 * created are not visible to it.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		lock.lock();
+		try {
+			checkOpen();
+			return new IteratorImpl(map.toArray());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forces all records appended so far to disk.
+	 *
+	 * @throws IllegalStateException if map is closed.
+	 * @throws UncheckedIOException  if log can't be written.
+	 */
+	public void sync() {
+		long position;
+		lock.lock();
+		try {
+			checkOpen();
+			position = appendedPosition;
+		} finally {
+			lock.unlock();
+		}
+		awaitDurable(position);
+	}
+
+	/**
+	 * Rewrites log so that it holds only live entries. Compaction is also started
+	 * automatically in background, this method runs it at once and waits for it.
+	 * Other operations can run meanwhile, they are blocked only while the new
+	 * file replaces the old one.
+	 *
+	 * @throws IllegalStateException if map is closed.
+	 * @throws UncheckedIOException  if new log can't be written. Old log is then
+	 *                               still used.
+	 */
+	public void compact() {
+		compactionLock.lock();
+		try {
+			doCompact();
+		} finally {
+			compactionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns number of times log was forced to disk. With concurrent writers it
+	 * is smaller than number of writes, since they share forces.
+	 *
+	 * @return number of forces since map was opened.
+	 */
+	public long syncCount() {
+		return syncCount;
+	}
+
+	/**
+	 * Forces remaining records to disk and closes log file. Closing closed map
+	 * has no effect.
+	 *
+	 * @throws IOException if log could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		} finally {
+			lock.unlock();
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		fileLock.lock();
+		try {
+			if (failure == null && durablePosition < appendedPosition) {
+				writePending();
+			}
+			channel.close();
+		} catch (UncheckedIOException e) {
+			channel.close();
+			throw e.getCause();
+		} finally {
+			fileLock.unlock();
+		}
+		if (failure != null) {
+			throw new IOException(FAILED_ERROR, failure);
+		}
+	}
+
+	/**
+	 * Appends record to pending buffer. Must be called while holding
+	 * {@link #lock}.
+	 *
+	 * @return position after the record.
+	 */
+	private long append(byte operation, K key, V value) {
+		int start = pending.position();
+		pending = encodeRecord(pending, checksum, operation, key, value);
+		appendedPosition += pending.position() - start;
+		appendedRecords++;
+		logRecords++;
+		return appendedPosition;
+	}
+
+	/** Waits until record is durable if needed and starts compaction if log grew too long. */
+	private void afterWrite(long position) {
+		if (durability == Durability.SYNC || position - durablePosition > MAX_ASYNC_PENDING) {
+			awaitDurable(position);
+		}
+		lock.lock();
+		try {
+			if (compactionScheduled || logRecords <= COMPACTION_FACTOR * map.size() + minCompactionRecords) {
+				return;
+			}
+			compactionScheduled = true;
+		} finally {
+			lock.unlock();
+		}
+		try {
+			executor.execute(this::backgroundCompact);
+		} catch (RejectedExecutionException e) {
+			// map is being closed
+		}
+	}
+
+	/**
+	 * Returns once records up to given position are on disk. Thread that gets the
+	 * file lock first writes records of all threads waiting behind it.
+	 */
+	private void awaitDurable(long position) {
+		while (durablePosition < position) {
+			fileLock.lock();
+			try {
+				if (durablePosition < position) {
+					checkFailure();
+					writePending();
+				}
+			} finally {
+				fileLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes pending records to log and forces them to disk. Must be called while
+	 * holding {@link #fileLock}. Buffers are swapped, so other threads keep
+	 * appending while records are written.
+	 */
+	private void writePending() {
+		long end;
+		lock.lock();
+		try {
+			ByteBuffer full = pending;
+			pending = spare;
+			spare = full;
+			end = appendedPosition;
+		} finally {
+			lock.unlock();
+		}
+		writeAndForce(spare, end);
+	}
+
+	/**
+	 * Writes given records at the end of log, forces them and marks them durable.
+	 * Must be called while holding {@link #fileLock}.
+	 *
+	 * @param records buffer with records, cleared afterwards.
+	 * @param end     position after the last record.
+	 */
+	private void writeAndForce(ByteBuffer records, long end) {
+		try {
+			flush(channel, records, fileOffset(durablePosition));
+			channel.force(false);
+		} catch (IOException e) {
+			failure = e;
+			throw new UncheckedIOException(FAILED_ERROR, e);
+		}
+		syncCount++;
+		durablePosition = end;
+	}
+
+	private void backgroundSync() {
+		try {
+			sync();
+		} catch (RuntimeException e) {
+			// failure is kept and reported to writers
+		}
+	}
+
+	private void backgroundCompact() {
+		compactionLock.lock();
+		try {
+			doCompact();
+		} catch (RuntimeException e) {
+			if (!closed) {
+				// old log is still valid, next attempt waits for twice as many records
+				lock.lock();
+				try {
+					minCompactionRecords = (int) Math.min(Integer.MAX_VALUE,
+							2L * Math.max(minCompactionRecords, logRecords));
+				} finally {
+					lock.unlock();
+				}
+			}
+		} finally {
+			lock.lock();
+			compactionScheduled = false;
+			lock.unlock();
+			compactionLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes live entries into new file, then blocks writers, copies records
+	 * appended in the meantime after them and replaces old log with new file.
+	 * Must be called while holding {@link #compactionLock}.
+	 */
+	private void doCompact() {
+		TableEntry<K, V>[] entries;
+		long tailStart;
+		long tailStartRecords;
+		lock.lock();
+		try {
+			checkOpen();
+			entries = map.toArray();
+			for (int i = 0; i < entries.length; i++) {
+				entries[i] = new TableEntry<>(entries[i].getKey(), entries[i].getValue());
+			}
+			tailStart = appendedPosition;
+			tailStartRecords = appendedRecords;
+		} finally {
+			lock.unlock();
+		}
+
+		Path compactedPath = compactedPath(path);
+		FileChannel compacted = null;
+		try {
+			// compacted file becomes the log, whose tail is read by next compaction
+			compacted = FileChannel.open(compactedPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+			CRC32 compactionChecksum = new CRC32();
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			long written = 0;
+			for (TableEntry<K, V> entry : entries) {
+				byte operation = (entry.getValue() == null) ? PUT_NULL_VALUE : PUT;
+				out = encodeRecord(out, compactionChecksum, operation, entry.getKey(), entry.getValue());
+				if (out.position() >= BUFFER_SIZE) {
+					written += flush(compacted, out, written);
+				}
+			}
+			written += flush(compacted, out, written);
+
+			fileLock.lock();
+			try {
+				lock.lock();
+				try {
+					checkOpen();
+					checkFailure();
+					if (durablePosition < appendedPosition) {
+						ByteBuffer full = pending;
+						pending = spare;
+						spare = full;
+						writeAndForce(spare, appendedPosition);
+					}
+					// records appended during compaction follow live entries
+					long tailLength = appendedPosition - tailStart;
+					long copied = 0;
+					compacted.position(written);
+					while (copied < tailLength) {
+						copied += channel.transferTo(fileOffset(tailStart) + copied, tailLength - copied, compacted);
+					}
+					compacted.force(false);
+					Files.move(compactedPath, path, StandardCopyOption.ATOMIC_MOVE,
+							StandardCopyOption.REPLACE_EXISTING);
+					syncDirectory(path);
+
+					channel.close();
+					channel = compacted;
+					compacted = null;
+					filePosition = appendedPosition - (written + tailLength - HEADER_SIZE);
+					logRecords = entries.length + (int) (appendedRecords - tailStartRecords);
+				} finally {
+					lock.unlock();
+				}
+			} finally {
+				fileLock.unlock();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			if (compacted != null) {
+				try {
+					compacted.close();
+					Files.deleteIfExists(compactedPath);
+				} catch (IOException e) {
+					// file is deleted when log is opened next time
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens log file and replays its records. Incomplete record at the end of file
+	 * is cut off, as is file of a log that crashed before its header was written.
+	 */
+	private void recover() throws IOException {
+		Files.deleteIfExists(compactedPath(path));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		long fileSize = channel.size();
+		if (fileSize < HEADER_SIZE) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			channel.truncate(0);
+			flush(channel, header, 0);
+			channel.force(true);
+			syncDirectory(path);
+			return;
+		}
+
+		channel.position(0);
+		DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+				BUFFER_SIZE));
+		if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+			throw new IOException(FORMAT_ERROR);
+		}
+		long validEnd = HEADER_SIZE;
+		CRC32 recordChecksum = new CRC32();
+		byte[] body = new byte[64];
+		while (true) {
+			int length;
+			int expectedChecksum;
+			try {
+				length = input.readInt();
+				expectedChecksum = input.readInt();
+				if (length < 1 || length > fileSize - validEnd - RECORD_HEADER_SIZE) {
+					break;
+				}
+				if (body.length < length) {
+					body = new byte[Math.max(length, body.length * 2)];
+				}
+				input.readFully(body, 0, length);
+			} catch (EOFException e) {
+				break;
+			}
+			recordChecksum.reset();
+			recordChecksum.update(body, 0, length);
+			if ((int) recordChecksum.getValue() != expectedChecksum) {
+				break;
+			}
+			replay(ByteBuffer.wrap(body, 0, length));
+			validEnd += RECORD_HEADER_SIZE + length;
+			logRecords++;
+		}
+		if (validEnd < fileSize) {
+			channel.truncate(validEnd);
+			channel.force(true);
+		}
+		appendedPosition = validEnd - HEADER_SIZE;
+		durablePosition = appendedPosition;
+	}
+
+	/** Applies one record read from log to the map. */
+	private void replay(ByteBuffer body) throws IOException {
+		byte operation = body.get();
+		switch (operation) {
+		case PUT:
+			K key = readObject(body, keyCodec);
+			map.put(key, readObject(body, valueCodec));
+			break;
+		case PUT_NULL_VALUE:
+			map.put(readObject(body, keyCodec), null);
+			break;
+		case REMOVE:
+			map.remove(readObject(body, keyCodec));
+			break;
+		case CLEAR:
+			map.clear();
+			break;
+		default:
+			throw new IOException(FORMAT_ERROR);
+		}
+	}
+
+	/**
+	 * Writes record at the position of given buffer, doubling buffer until record
+	 * fits.
+	 *
+	 * @return buffer holding the record, not necessarily the one given.
+	 */
+	private ByteBuffer encodeRecord(ByteBuffer out, CRC32 recordChecksum, byte operation, K key, V value) {
+		int start = out.position();
+		while (true) {
+			try {
+				out.position(start);
+				// length and checksum are filled in once body is written
+				out.putInt(0);
+				out.putInt(0);
+				out.put(operation);
+				if (operation != CLEAR) {
+					writeObject(out, keyCodec, key);
+				}
+				if (operation == PUT) {
+					writeObject(out, valueCodec, value);
+				}
+				break;
+			} catch (BufferOverflowException e) {
+				ByteBuffer bigger = ByteBuffer.allocate(out.capacity() * 2);
+				ByteBuffer written = out.duplicate();
+				written.position(0);
+				written.limit(start);
+				bigger.put(written);
+				out = bigger;
+			}
+		}
+		int end = out.position();
+		ByteBuffer body = out.duplicate();
+		body.position(start + RECORD_HEADER_SIZE);
+		body.limit(end);
+		recordChecksum.reset();
+		recordChecksum.update(body);
+		out.putInt(start, end - start - RECORD_HEADER_SIZE);
+		out.putInt(start + Integer.BYTES, (int) recordChecksum.getValue());
+		return out;
+	}
+
+	/** Writes object, prefixed with its length if codec has no fixed size. */
+	private static <T> void writeObject(ByteBuffer out, Codec<T> codec, T value) {
+		if (codec.fixedSize() >= 0) {
+			codec.write(value, out);
+			return;
+		}
+		int lengthPosition = out.position();
+		out.putInt(0);
+		codec.write(value, out);
+		out.putInt(lengthPosition, out.position() - lengthPosition - Integer.BYTES);
+	}
+
+	private static <T> T readObject(ByteBuffer body, Codec<T> codec) {
+		int length = (codec.fixedSize() >= 0) ? codec.fixedSize() : body.getInt();
+		int end = body.position() + length;
+		T value = codec.read(body, length);
+		body.position(end);
+		return value;
+	}
+
+	/** Offset in current log file of given position in sequence of records. */
+	private long fileOffset(long position) {
+		return HEADER_SIZE + position - filePosition;
+	}
+
+	/**
+	 * Writes content of buffer to channel at given position and clears buffer.
+	 *
+	 * @return number of written bytes.
+	 */
+	private static long flush(FileChannel channel, ByteBuffer out, long position) throws IOException {
+		out.flip();
+		long written = 0;
+		while (out.hasRemaining()) {
+			written += channel.write(out, position + written);
+		}
+		out.clear();
+		return written;
+	}
+
+	private static Path compactedPath(Path path) {
+		return path.resolveSibling(path.getFileName() + COMPACTION_SUFFIX);
+	}
+
+	/** Forces directory of given file, so that its creation or rename is durable. */
+	private static void syncDirectory(Path path) {
+		Path directory = path.toAbsolutePath().getParent();
+		try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			directoryChannel.force(true);
+		} catch (IOException e) {
+			// not every platform can force a directory, rename itself is still atomic
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if map is closed
+	 */
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException(CLOSED_ERROR);
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if map is closed
+	 * @throws UncheckedIOException  if log could not be written before
+	 */
+	private void checkWritable() {
+		checkOpen();
+		checkFailure();
+	}
+
+	/**
+	 * @throws UncheckedIOException if log could not be written before
+	 */
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException(FAILED_ERROR, failure);
+		}
+	}
+
+}
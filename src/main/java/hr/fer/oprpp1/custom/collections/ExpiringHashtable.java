@@ -0,0 +1,444 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map whose entries expire after given time to live. Expired entries are
+ * treated as absent and are removed by hierarchical timer wheel, so there is no
+ * need for periodic scan of whole table.
+ * <p>
+ * Wheel has several levels of 64 buckets, each level with 64 times coarser
+ * buckets than the previous one. Entry is placed into the finest level whose
+ * buckets still cover its expiration time. When time passes a bucket, its
+ * entries are either removed or moved to a finer level, so every entry is
+ * moved at most once per level and expiration costs amortized constant time.
+ * Wheel is advanced on every operation, there is no background thread.
+ * <p>
+ * Time is read from {@link Clock}, which can be replaced for tests.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class ExpiringHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String TTL_NOT_POSITIVE_ERROR = "Time to live must be positive";
+
+	/** Number of buckets on every level of wheel. */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * Bucket of level <code>i</code> spans <code>2^SHIFTS[i]</code> nanoseconds:
+	 * about 1 ms, 67 ms, 4.3 s, 4.6 min and 4.9 h. The last level covers 13 days,
+	 * entries that expire later stay in it until they come close enough.
+	 */
+	private static final int[] SHIFTS = { 20, 26, 32, 38, 44 };
+
+	/** Longest time to live, so that expiration time can not overflow. */
+	private static final long MAX_TTL = Long.MAX_VALUE >>> 1;
+
+	/** Source of time in nanoseconds. Only differences between values matter. */
+	@FunctionalInterface
+	public interface Clock {
+		/** Clock that reads {@link System#nanoTime()}. */
+		Clock SYSTEM = System::nanoTime;
+
+		/**
+		 * @return current time in nanoseconds.
+		 */
+		long nanoTime();
+	}
+
+	/** Entry that is also node of list of its wheel bucket. */
+	private static class Node<K, V> extends TableEntry<K, V> {
+		private long expirationTime;
+		private Node<K, V> previous;
+		private Node<K, V> next;
+
+		private Node(K key, V value) {
+			super(key, value);
+		}
+	}
+
+	/**
+	 * Iterates over entries that have not expired, walking lists of wheel
+	 * buckets. There are only {@value #BUCKETS} buckets per level, so iteration
+	 * takes time proportional to size, not capacity.
+	 */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private final long now = wheelTime;
+		private int bucketNumber = -1;
+		private Node<K, V> sentinel;
+		private Node<K, V> nextNode;
+		private Node<K, V> lastNode;
+		private int savedModificationCount = modificationCount;
+
+		private IteratorImpl() {
+			findNext(null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			return nextNode != null;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastNode = nextNode;
+			findNext(nextNode.next);
+			return lastNode;
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastNode == null) {
+				throw new IllegalStateException();
+			}
+			removeNode(lastNode);
+			lastNode = null;
+			savedModificationCount = modificationCount;
+		}
+
+		/** Finds first node from given one that has not expired, moving through buckets. */
+		private void findNext(Node<K, V> node) {
+			while (true) {
+				for (; node != null && node != sentinel; node = node.next) {
+					if (!isExpired(node, now)) {
+						nextNode = node;
+						return;
+					}
+				}
+				if (++bucketNumber == SHIFTS.length * BUCKETS) {
+					nextNode = null;
+					return;
+				}
+				sentinel = wheel[bucketNumber / BUCKETS][bucketNumber % BUCKETS];
+				node = sentinel.next;
+			}
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/** Finds node of key. */
+	private final SimpleHashtable<K, Node<K, V>> index = new SimpleHashtable<>();
+
+	/** Sentinels of bucket lists, by level and bucket. */
+	private final Node<K, V>[][] wheel;
+
+	private final long defaultTtl;
+	private final Clock clock;
+
+	/** Time up to which wheel has been advanced. */
+	private long wheelTime;
+
+	/**
+	 * Stores number of modifications, including removal of expired entries and
+	 * moving of entries between wheel buckets.
+	 */
+	private int modificationCount = 0;
+
+	/**
+	 * Creates map whose entries by default expire after given time.
+	 *
+	 * @param defaultTtl time to live of entries stored by {@link #put(Object, Object)}.
+	 * @param unit       of time to live.
+	 * @throws IllegalArgumentException if time to live is not positive.
+	 */
+	public ExpiringHashtable(long defaultTtl, TimeUnit unit) {
+		this(defaultTtl, unit, Clock.SYSTEM);
+	}
+
+	/**
+	 * Creates map whose entries by default expire after given time, measured by
+	 * given clock.
+	 *
+	 * @param defaultTtl time to live of entries stored by {@link #put(Object, Object)}.
+	 * @param unit       of time to live.
+	 * @param clock      to read time from.
+	 * @throws IllegalArgumentException if time to live is not positive.
+	 * @throws NullPointerException     if unit or clock is null.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public ExpiringHashtable(long defaultTtl, TimeUnit unit, Clock clock) {
+		this.defaultTtl = toNanos(defaultTtl, unit);
+		this.clock = Objects.requireNonNull(clock);
+		wheel = new Node[SHIFTS.length][BUCKETS];
+		for (Node<K, V>[] level : wheel) {
+			for (int i = 0; i < BUCKETS; i++) {
+				level[i] = new Node<>(null, null);
+				level[i].previous = level[i].next = level[i];
+			}
+		}
+		wheelTime = clock.nanoTime();
+	}
+
+	/**
+	 * Returns number of stored entries. Entries are removed when wheel passes
+	 * their bucket, so entries that expired less than a millisecond ago can still
+	 * be counted.
+	 */
+	@Override
+	public int size() {
+		expireEntries();
+		return index.size();
+	}
+
+	/**
+	 * Stores key-value pair that expires after default time to live. Storing
+	 * existing key replaces its value and time to live.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key, null if there was
+	 *         none or it expired.
+	 * @throws NullPointerException if given key is null.
+	 */
+	@Override
+	public V put(K key, V value) {
+		return putWithTtl(key, value, defaultTtl);
+	}
+
+	/**
+	 * Stores key-value pair that expires after given time to live. Storing
+	 * existing key replaces its value and time to live.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @param ttl   time after which entry expires.
+	 * @param unit  of time to live.
+	 * @return value that was previously stored for that key, null if there was
+	 *         none or it expired.
+	 * @throws NullPointerException     if given key is null.
+	 * @throws IllegalArgumentException if time to live is not positive.
+	 */
+	public V put(K key, V value, long ttl, TimeUnit unit) {
+		return putWithTtl(key, value, toNanos(ttl, unit));
+	}
+
+	private V putWithTtl(K key, V value, long ttl) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		long now = expireEntries();
+		Node<K, V> node = new Node<>(key, value);
+		// single probe, node is wasted only when key is already present
+		Node<K, V> existingNode = index.putIfAbsent(key, node);
+		V previousValue = null;
+		if (existingNode != null) {
+			previousValue = isExpired(existingNode, now) ? null : existingNode.getValue();
+			existingNode.setValue(value);
+			unlink(existingNode);
+			node = existingNode;
+		}
+		node.expirationTime = now + ttl;
+		schedule(node);
+		modificationCount++;
+		return previousValue;
+	}
+
+	/**
+	 * Returns value for given key, or null if there is none or it expired.
+	 */
+	@Override
+	public V get(Object key) {
+		Node<K, V> node = findNode(key);
+		return (node == null) ? null : node.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findNode(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		long now = expireEntries();
+		for (TableEntry<K, Node<K, V>> entry : index) {
+			Node<K, V> node = entry.getValue();
+			if (!isExpired(node, now) && Objects.equals(value, node.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes entry with given key.
+	 *
+	 * @return value of removed entry, null if there was none or it expired.
+	 */
+	@Override
+	public V remove(Object key) {
+		long now = expireEntries();
+		Node<K, V> node = index.remove(key);
+		if (node == null) {
+			return null;
+		}
+		unlink(node);
+		modificationCount++;
+		return isExpired(node, now) ? null : node.getValue();
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		for (Node<K, V>[] level : wheel) {
+			for (Node<K, V> sentinel : level) {
+				sentinel.previous = sentinel.next = sentinel;
+			}
+		}
+		modificationCount++;
+	}
+
+	/**
+	 * Returns time left until entry with given key expires.
+	 *
+	 * @param key  of entry.
+	 * @param unit of returned time.
+	 * @return time left, rounded down, or -1 if there is no such entry.
+	 */
+	public long getTimeToLive(Object key, TimeUnit unit) {
+		Node<K, V> node = findNode(key);
+		return (node == null) ? -1 : unit.convert(node.expirationTime - wheelTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Removes expired entries. Every other operation does the same, so this is
+	 * needed only to release memory of map that is not used.
+	 */
+	public void cleanUp() {
+		expireEntries();
+	}
+
+	/**
+	 * Returns iterator over entries that have not expired at the time iterator
+	 * was created. Every operation on the map advances the wheel, so any of them,
+	 * including {@link #get(Object)}, can cause iterator to throw
+	 * {@link ConcurrentModificationException}.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		expireEntries();
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Finds node of given key that has not expired. Expired node is removed.
+	 *
+	 * @param key to find.
+	 * @return node or null.
+	 */
+	private Node<K, V> findNode(Object key) {
+		if (key == null) {
+			return null;
+		}
+		long now = expireEntries();
+		Node<K, V> node = index.get(key);
+		if (node != null && isExpired(node, now)) {
+			removeNode(node);
+			return null;
+		}
+		return node;
+	}
+
+	/**
+	 * Advances wheel to current time. On every level buckets that time has
+	 * passed since last advance are emptied: expired entries are removed and the
+	 * rest are scheduled again, which puts them into finer level.
+	 *
+	 * @return current time.
+	 */
+	private long expireEntries() {
+		long now = clock.nanoTime();
+		long previousTime = wheelTime;
+		wheelTime = now;
+		for (int level = 0; level < SHIFTS.length; level++) {
+			long previousTicks = previousTime >>> SHIFTS[level];
+			long ticks = now >>> SHIFTS[level];
+			if (ticks - previousTicks <= 0) {
+				break;
+			}
+			// bucket of previous tick can still hold entries, so it is included
+			int steps = (int) Math.min(ticks - previousTicks + 1, BUCKETS);
+			for (int i = 0; i < steps; i++) {
+				expireBucket(wheel[level][(int) ((previousTicks + i) & (BUCKETS - 1))], now);
+			}
+		}
+		return now;
+	}
+
+	/** Empties bucket, removing expired entries and scheduling the rest again. */
+	private void expireBucket(Node<K, V> sentinel, long now) {
+		Node<K, V> node = sentinel.next;
+		sentinel.previous = sentinel.next = sentinel;
+		while (node != sentinel) {
+			Node<K, V> nextNode = node.next;
+			node.previous = node.next = null;
+			if (isExpired(node, now)) {
+				index.remove(node.getKey());
+				modificationCount++;
+			} else {
+				// iterator could meet the node again in its new bucket
+				schedule(node);
+				modificationCount++;
+			}
+			node = nextNode;
+		}
+	}
+
+	/** Links node into bucket of the finest level that covers its expiration. */
+	private void schedule(Node<K, V> node) {
+		long delay = node.expirationTime - wheelTime;
+		int level = 0;
+		while (level < SHIFTS.length - 1 && delay >= 1L << SHIFTS[level + 1]) {
+			level++;
+		}
+		Node<K, V> sentinel = wheel[level][(int) ((node.expirationTime >>> SHIFTS[level]) & (BUCKETS - 1))];
+		node.next = sentinel;
+		node.previous = sentinel.previous;
+		sentinel.previous.next = node;
+		sentinel.previous = node;
+	}
+
+	/** Removes node from index and from its bucket. */
+	private void removeNode(Node<K, V> node) {
+		index.remove(node.getKey());
+		unlink(node);
+		modificationCount++;
+	}
+
+	private static <K, V> void unlink(Node<K, V> node) {
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		node.previous = node.next = null;
+	}
+
+	private static boolean isExpired(Node<?, ?> node, long now) {
+		return node.expirationTime - now <= 0;
+	}
+
+	private static long toNanos(long ttl, TimeUnit unit) {
+		if (ttl <= 0) {
+			throw new IllegalArgumentException(TTL_NOT_POSITIVE_ERROR);
+		}
+		return Math.min(unit.toNanos(ttl), MAX_TTL);
+	}
+}
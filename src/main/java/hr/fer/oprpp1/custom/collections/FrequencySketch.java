@@ -0,0 +1,106 @@
+package hr.fer.oprpp1.custom.collections;
+
+/**
+ * Approximate counter of how often keys were accessed (count-min sketch). Every
+ * key is counted in four 4-bit counters chosen by its hash and its frequency is
+ * the smallest of them, so collisions can only overestimate it. Counters are
+ * halved after a number of increments, so old popularity fades.
+ *
+ * @author gorsicleo
+ *
+ */
+final class FrequencySketch {
+
+	/** Highest value of one counter. */
+	private static final int MAX_COUNT = 15;
+
+	/** Multipliers that choose one of four counters for a hash. */
+	private static final long[] SEEDS = { 0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL,
+			0xCBF29CE484222325L };
+
+	/** Keeps 4 bits of every counter and clears bit that was shifted in from neighbour. */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/** 16 counters of 4 bits in every element. */
+	private final long[] table;
+
+	/** Number of increments after which all counters are halved. */
+	private final int sampleSize;
+
+	private int additions = 0;
+
+	/**
+	 * Creates sketch for cache of given capacity.
+	 *
+	 * @param capacity maximum number of entries in cache.
+	 */
+	FrequencySketch(int capacity) {
+		int length = 8;
+		while (length < capacity && length < (1 << 30)) {
+			length = length << 1;
+		}
+		table = new long[length];
+		sampleSize = (int) Math.min(10L * Math.max(capacity, 1), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns estimated number of accesses of key with given hash code.
+	 *
+	 * @param hashCode of key.
+	 * @return estimated frequency, at most {@value #MAX_COUNT}.
+	 */
+	int frequency(int hashCode) {
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < SEEDS.length; i++) {
+			long index = counterIndex(hashCode, i);
+			frequency = Math.min(frequency, counterAt(index));
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records one access of key with given hash code.
+	 *
+	 * @param hashCode of key.
+	 */
+	void increment(int hashCode) {
+		boolean added = false;
+		for (int i = 0; i < SEEDS.length; i++) {
+			long index = counterIndex(hashCode, i);
+			if (counterAt(index) < MAX_COUNT) {
+				int slot = (int) (index >>> 4);
+				table[slot] += 1L << ((index & 15) << 2);
+				added = true;
+			}
+		}
+		if (added && ++additions >= sampleSize) {
+			reset();
+		}
+	}
+
+	/** Halves all counters. */
+	private void reset() {
+		for (int i = 0; i < table.length; i++) {
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+		additions = additions >>> 1;
+	}
+
+	/**
+	 * Chooses counter for given hash code and seed.
+	 *
+	 * @return index of element shifted left by 4 bits, with number of counter
+	 *         inside of element in lowest 4 bits.
+	 */
+	private long counterIndex(int hashCode, int seedIndex) {
+		long hash = (hashCode + SEEDS[seedIndex]) * SEEDS[seedIndex];
+		hash ^= hash >>> 32;
+		int slot = (int) hash & (table.length - 1);
+		int counter = (int) (hash >>> 60);
+		return ((long) slot << 4) | counter;
+	}
+
+	private int counterAt(long index) {
+		return (int) (table[(int) (index >>> 4)] >>> ((index & 15) << 2)) & MAX_COUNT;
+	}
+}
@@ -0,0 +1,498 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Immutable hash map that finds every key with exactly one probe. Keys are
+ * placed by minimal perfect hash function built with CHD (compress, hash,
+ * displace) algorithm, so there are as many slots as keys, no empty slots and
+ * no links between entries. Memory is two arrays of keys and values, hash
+ * code of every key and one <code>int</code> for every 3 keys. Stored hash
+ * codes let lookup of missing key return without reading key object.
+ * <p>
+ * Keys are split into buckets by their hash code, about 3 keys per bucket.
+ * Buckets are placed from the largest one, and for every bucket a seed is
+ * searched for which hash function puts all its keys into free slots. Buckets
+ * with a single key are given the remaining free slots directly. Lookup hashes
+ * key once to find its bucket and once more with bucket's seed to find the
+ * slot.
+ * <p>
+ * Function is built from hash codes, so keys with equal hash codes can't be
+ * separated. Such keys share a slot, which holds small array of them.
+ * <p>
+ * Map is created by {@link SimpleHashtable#freeze()} or
+ * {@link #copyOf(Map)}. Methods that would change it throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class FrozenHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String IMMUTABLE_ERROR = "Frozen hashtable can not be changed";
+	private static final String NO_FUNCTION_ERROR = "Perfect hash function could not be found";
+
+	/** Average number of keys in bucket. */
+	private static final int BUCKET_SIZE = 3;
+
+	/** Number of seeds tried for a bucket before whole build is tried with another salt. */
+	private static final int MAX_SEED = 1 << 20;
+
+	/** Number of salts tried before build fails. */
+	private static final int MAX_ATTEMPTS = 16;
+
+	/** Returned by {@link #find(Object)} for missing key, since value can be null. */
+	private static final Object NOT_FOUND = new Object();
+
+	/** Keys with equal hash codes, stored in one slot. */
+	private static final class Collision {
+		private final Object[] keys;
+		private final Object[] values;
+
+		private Collision(Object[] keys, Object[] values) {
+			this.keys = keys;
+			this.values = values;
+		}
+	}
+
+	/** Immutable entry returned by iterator. */
+	private static final class Entry<K, V> extends TableEntry<K, V> {
+		private final Object key;
+		private final Object value;
+
+		private Entry(Object key, Object value) {
+			super(null, null);
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public K getKey() {
+			return (K) key;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V) value;
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always.
+		 */
+		@Override
+		public void setValue(V value) {
+			throw new UnsupportedOperationException(IMMUTABLE_ERROR);
+		}
+	}
+
+	/** Iterates over slots, and over keys of collision slots. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private int slot = 0;
+
+		/** Position inside collision slot. */
+		private int position = 0;
+
+		@Override
+		public boolean hasNext() {
+			return slot < keys.length;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Object key = keys[slot];
+			if (key instanceof Collision) {
+				Collision collision = (Collision) key;
+				Entry<K, V> entry = new Entry<>(collision.keys[position], collision.values[position]);
+				if (++position == collision.keys.length) {
+					position = 0;
+					slot++;
+				}
+				return entry;
+			}
+			return new Entry<>(key, values[slot++]);
+		}
+	}
+
+	/** Key of every slot, or {@link Collision} of keys with equal hash codes. */
+	private final Object[] keys;
+	private final Object[] values;
+
+	/** Hash code of key of every slot. */
+	private final int[] hashCodes;
+
+	/**
+	 * Seed of every bucket. Negative seed <code>-(slot + 1)</code> stands for
+	 * bucket with single hash code placed directly into slot.
+	 */
+	private final int[] seeds;
+
+	/** Mixed into bucket hash, changed when build has to be repeated. */
+	private final int salt;
+
+	private final int size;
+
+	/**
+	 * Creates frozen copy of given map.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 * @param map to copy.
+	 * @return new frozen map with the same entries.
+	 * @throws IllegalStateException if perfect hash function could not be found,
+	 *                               which in practice does not happen.
+	 */
+	public static <K, V> FrozenHashtable<K, V> copyOf(Map<K, V> map) {
+		Object[] entryKeys = new Object[map.size()];
+		Object[] entryValues = new Object[map.size()];
+		int count = 0;
+		for (TableEntry<K, V> entry : map) {
+			entryKeys[count] = entry.getKey();
+			entryValues[count] = entry.getValue();
+			count++;
+		}
+		return new FrozenHashtable<>(entryKeys, entryValues);
+	}
+
+	/**
+	 * Builds function and places given entries.
+	 *
+	 * @param entryKeys   distinct, non-null keys.
+	 * @param entryValues values of keys.
+	 */
+	private FrozenHashtable(Object[] entryKeys, Object[] entryValues) {
+		size = entryKeys.length;
+
+		// entries sorted by hash code, so that equal hash codes are next to each other
+		long[] sorted = new long[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = ((long) entryKeys[i].hashCode() << 32) | i;
+		}
+		Arrays.sort(sorted);
+
+		// one slot for every distinct hash code
+		int[] hashes = new int[size];
+		Object[] slotKeys = new Object[size];
+		Object[] slotValues = new Object[size];
+		int distinct = 0;
+		for (int start = 0, end; start < size; start = end) {
+			int hash = (int) (sorted[start] >> 32);
+			end = start + 1;
+			while (end < size && (int) (sorted[end] >> 32) == hash) {
+				end++;
+			}
+			hashes[distinct] = hash;
+			if (end - start == 1) {
+				slotKeys[distinct] = entryKeys[(int) sorted[start]];
+				slotValues[distinct] = entryValues[(int) sorted[start]];
+			} else {
+				Object[] collisionKeys = new Object[end - start];
+				Object[] collisionValues = new Object[end - start];
+				for (int i = start; i < end; i++) {
+					collisionKeys[i - start] = entryKeys[(int) sorted[i]];
+					collisionValues[i - start] = entryValues[(int) sorted[i]];
+				}
+				slotKeys[distinct] = new Collision(collisionKeys, collisionValues);
+			}
+			distinct++;
+		}
+
+		keys = new Object[distinct];
+		values = new Object[distinct];
+		hashCodes = new int[distinct];
+		seeds = new int[Math.max(1, (distinct + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+		int[] spreadHashes = new int[distinct];
+		for (int i = 0; i < distinct; i++) {
+			spreadHashes[i] = spread(hashes[i]);
+		}
+		int[] slots = new int[distinct];
+		int attempt = 0;
+		while (!findSeeds(spreadHashes, distinct, attempt, slots)) {
+			if (++attempt == MAX_ATTEMPTS) {
+				throw new IllegalStateException(NO_FUNCTION_ERROR);
+			}
+		}
+		salt = attempt;
+		for (int i = 0; i < distinct; i++) {
+			keys[slots[i]] = slotKeys[i];
+			values[slots[i]] = slotValues[i];
+			hashCodes[slots[i]] = hashes[i];
+		}
+	}
+
+	/**
+	 * Searches seed of every bucket, placing buckets from the largest one.
+	 *
+	 * @param hashes   spread distinct hash codes.
+	 * @param count    number of hash codes.
+	 * @param salt     mixed into bucket hash.
+	 * @param slots    receives slot of every hash code.
+	 * @return true if all buckets were placed.
+	 */
+	private boolean findSeeds(int[] hashes, int count, int salt, int[] slots) {
+		int bucketCount = seeds.length;
+		Arrays.fill(seeds, 0);
+
+		// members of every bucket, stored contiguously as in sparse matrix
+		int[] bucketStart = new int[bucketCount + 1];
+		int[] bucketOfHash = new int[count];
+		for (int i = 0; i < count; i++) {
+			bucketOfHash[i] = reduce(mix(hashes[i], salt), bucketCount);
+			bucketStart[bucketOfHash[i] + 1]++;
+		}
+		int maxBucketSize = 0;
+		for (int b = 0; b < bucketCount; b++) {
+			maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		int[] members = new int[count];
+		int[] filled = Arrays.copyOf(bucketStart, bucketCount);
+		for (int i = 0; i < count; i++) {
+			members[filled[bucketOfHash[i]]++] = i;
+		}
+
+		// buckets sorted from the largest by counting sort
+		int[] sizeStart = new int[maxBucketSize + 2];
+		for (int b = 0; b < bucketCount; b++) {
+			sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b]) + 1]++;
+		}
+		for (int s = 0; s <= maxBucketSize; s++) {
+			sizeStart[s + 1] += sizeStart[s];
+		}
+		int[] order = new int[bucketCount];
+		for (int b = 0; b < bucketCount; b++) {
+			order[sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+		}
+
+		boolean[] taken = new boolean[count];
+		int[] candidate = new int[Math.max(maxBucketSize, 1)];
+		int nextFree = 0;
+		for (int b : order) {
+			int start = bucketStart[b];
+			int bucketSize = bucketStart[b + 1] - start;
+			if (bucketSize == 0) {
+				break;
+			}
+			if (bucketSize == 1) {
+				// single hash code can take any free slot, no search needed
+				while (taken[nextFree]) {
+					nextFree++;
+				}
+				taken[nextFree] = true;
+				slots[members[start]] = nextFree;
+				seeds[b] = -(nextFree + 1);
+				continue;
+			}
+			int seed = 1;
+			while (!tryPlace(hashes, members, start, bucketSize, seed, taken, candidate)) {
+				if (++seed == MAX_SEED) {
+					return false;
+				}
+			}
+			for (int i = 0; i < bucketSize; i++) {
+				taken[candidate[i]] = true;
+				slots[members[start + i]] = candidate[i];
+			}
+			seeds[b] = seed;
+		}
+		return true;
+	}
+
+	/** Computes slots of bucket for given seed and checks they are free and distinct. */
+	private static boolean tryPlace(int[] hashes, int[] members, int start, int bucketSize, int seed, boolean[] taken,
+			int[] candidate) {
+		for (int i = 0; i < bucketSize; i++) {
+			int slot = reduce(mix(hashes[members[start + i]], seed), taken.length);
+			if (taken[slot]) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (candidate[j] == slot) {
+					return false;
+				}
+			}
+			candidate[i] = slot;
+		}
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public V put(K key, V value) {
+		throw new UnsupportedOperationException(IMMUTABLE_ERROR);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		Object value = find(key);
+		return (value == NOT_FOUND) ? null : (V) value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		return find(key) != NOT_FOUND;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] instanceof Collision) {
+				for (Object collisionValue : ((Collision) keys[slot]).values) {
+					if (Objects.equals(value, collisionValue)) {
+						return true;
+					}
+				}
+			} else if (Objects.equals(value, values[slot])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public V remove(Object key) {
+		throw new UnsupportedOperationException(IMMUTABLE_ERROR);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always.
+	 */
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException(IMMUTABLE_ERROR);
+	}
+
+	/**
+	 * Returns iterator over entries in order of slots. Entries can not be changed
+	 * and iterator does not support removal.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Gives key and value of every entry to given action.
+	 *
+	 * @param action to call for every key-value pair.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] instanceof Collision) {
+				Collision collision = (Collision) keys[slot];
+				for (int i = 0; i < collision.keys.length; i++) {
+					action.accept((K) collision.keys[i], (V) collision.values[i]);
+				}
+			} else {
+				action.accept((K) keys[slot], (V) values[slot]);
+			}
+		}
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		forEach((key, value) -> {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(key).append('=').append(value);
+		});
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Finds value of given key with a single probe.
+	 *
+	 * @param key to search for, not null.
+	 * @return value of key or {@link #NOT_FOUND} if key is not stored.
+	 */
+	private Object find(Object key) {
+		if (keys.length == 0) {
+			return NOT_FOUND;
+		}
+		int hash = key.hashCode();
+		int slot = slotOf(hash);
+		if (hashCodes[slot] != hash) {
+			return NOT_FOUND;
+		}
+		Object slotKey = keys[slot];
+		if (slotKey instanceof Collision) {
+			Collision collision = (Collision) slotKey;
+			for (int i = 0; i < collision.keys.length; i++) {
+				if (key.equals(collision.keys[i])) {
+					return collision.values[i];
+				}
+			}
+			return NOT_FOUND;
+		}
+		return (slotKey == key || key.equals(slotKey)) ? values[slot] : NOT_FOUND;
+	}
+
+	/** Evaluates perfect hash function for given hash code. */
+	private int slotOf(int hash) {
+		int spread = spread(hash);
+		int seed = seeds[reduce(mix(spread, salt), seeds.length)];
+		return (seed < 0) ? -seed - 1 : reduce(mix(spread, seed), keys.length);
+	}
+
+	/**
+	 * Spreads bits of hash code, so that hash codes that differ only in a few
+	 * bits give very different results.
+	 */
+	private static int spread(int hash) {
+		int x = hash * 0x9E3779B9;
+		return x ^ (x >>> 16);
+	}
+
+	/**
+	 * Mixes spread hash code with seed, so that different seeds give independent
+	 * results. Only high bits of result are used by {@link #reduce(int, int)},
+	 * and those depend on every bit of input, so one multiplication is enough.
+	 */
+	private static int mix(int spread, int seed) {
+		return (spread ^ seed * 0x85EBCA6B) * 0x7FEB352D;
+	}
+
+	/** Maps hash uniformly to range [0, bound) with multiplication instead of modulo. */
+	private static int reduce(int hash, int bound) {
+		return (int) (((hash & 0xFFFFFFFFL) * bound) >>> 32);
+	}
+
+}
@@ -0,0 +1,71 @@
+package hr.fer.oprpp1.custom.collections;
+
+/**
+ * Receives events from inside of hash map, for example length of every probe.
+ * Default is {@link #NONE}, which is disabled. Map then skips measuring, and
+ * since the check is a call returning constant the JIT removes it.
+ *
+ * @author gorsicleo
+ *
+ */
+public interface HashtableStatistics {
+
+	/** Operations whose probes are recorded. */
+	enum Operation {
+		GET, CONTAINS_KEY, PUT, REMOVE
+	}
+
+	/** Statistics that record nothing. */
+	HashtableStatistics NONE = new HashtableStatistics() {
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void recordProbe(Operation operation, boolean hit, int probeLength, int equalsCalls) {
+		}
+
+		@Override
+		public void recordResizeStarted(int newCapacity) {
+		}
+
+		@Override
+		public void recordResizeFinished(long migrationNanos) {
+		}
+	};
+
+	/**
+	 * Returns false if map should not measure anything for these statistics.
+	 *
+	 * @return true if statistics are recorded.
+	 */
+	default boolean isEnabled() {
+		return true;
+	}
+
+	/**
+	 * Records one search of a bucket.
+	 *
+	 * @param operation   that searched the bucket.
+	 * @param hit         true if key was found.
+	 * @param probeLength number of entries examined.
+	 * @param equalsCalls number of times <code>equals</code> was called on key.
+	 */
+	void recordProbe(Operation operation, boolean hit, int probeLength, int equalsCalls);
+
+	/**
+	 * Records start of resize.
+	 *
+	 * @param newCapacity number of slots after resize.
+	 */
+	void recordResizeStarted(int newCapacity);
+
+	/**
+	 * Records end of resize.
+	 *
+	 * @param migrationNanos time spent moving entries into new array. With
+	 *                       incremental resize this is sum over all steps.
+	 */
+	void recordResizeFinished(long migrationNanos);
+}
@@ -0,0 +1,47 @@
+package hr.fer.oprpp1.custom.collections;
+
+/**
+ * Management interface through which {@link CountingHashtableStatistics} are
+ * exported over JMX.
+ *
+ * @author gorsicleo
+ *
+ */
+public interface HashtableStatisticsMXBean {
+
+	/** @return number of get calls. */
+	long getGetCount();
+
+	/** @return number of containsKey calls. */
+	long getContainsKeyCount();
+
+	/** @return number of put calls. */
+	long getPutCount();
+
+	/** @return number of remove calls. */
+	long getRemoveCount();
+
+	/** @return share of get and containsKey calls that found the key. */
+	double getHitRatio();
+
+	/** @return average number of entries examined per probe. */
+	double getAverageProbeLength();
+
+	/** @return average number of equals calls per probe. */
+	double getAverageEqualsCalls();
+
+	/** @return number of started resizes. */
+	long getResizeCount();
+
+	/** @return total time spent moving entries during resizes, in nanoseconds. */
+	long getResizeNanos();
+
+	/**
+	 * @return number of probes by length. Last element counts all probes of that
+	 *         length or longer.
+	 */
+	long[] getProbeLengthHistogram();
+
+	/** Sets all counters to zero. */
+	void reset();
+}
@@ -0,0 +1,497 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map from <code>int</code> keys to <code>int</code> values. Keys and
+ * values are stored directly in <code>int</code> arrays with linear probing,
+ * so neither put nor iteration allocates anything. Key <code>0</code> marks an
+ * empty slot, real key <code>0</code> is kept in separate fields.
+ * <p>
+ * Since values are primitives, absence of value is reported with
+ * <i>no entry value</i> which is given in constructor (0 by default).
+ *
+ * @author gorsicleo
+ */
+public class IntIntHashtable {
+
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+
+	/** Key that marks an empty slot in keys array. */
+	private static final int EMPTY_KEY = 0;
+
+	/** Maximal ratio of occupied slots before internal arrays are doubled. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/**
+	 * Model of an object capable of performing some operation on key-value pair
+	 * of {@link IntIntHashtable}.
+	 */
+	public interface IntIntProcessor {
+
+		/**
+		 * Performs some operation on given key-value pair.
+		 *
+		 * @param key   of the pair.
+		 * @param value of the pair.
+		 */
+		void process(int key, int value);
+	}
+
+	/**
+	 * Iterates over key-value pairs of {@link IntIntHashtable} without creating
+	 * objects. Cursor starts before the first pair, {@link #next()} moves it to
+	 * the following one.
+	 */
+	public class Cursor {
+
+		/** Index of current slot, -1 stands for zero key. */
+		private int slot = -2;
+
+		/** Number of slots of keys array visited so far. */
+		private int visitedSlots = 0;
+
+		/** Empty slot at which visiting keys array starts. */
+		private final int startSlot;
+
+		/** Indicates if current pair is removed. */
+		private boolean isCurrentRemoved = true;
+
+		private int savedModificationCount = modificationCount;
+
+		private Cursor() {
+			int emptySlot = 0;
+			while (keys[emptySlot] != EMPTY_KEY) {
+				emptySlot++;
+			}
+			startSlot = emptySlot;
+		}
+
+		/**
+		 * Moves cursor to next key-value pair.
+		 *
+		 * @return true if cursor moved, false if there are no more pairs.
+		 * @throws ConcurrentModificationException if map has been modified after
+		 *                                         cursor is being created
+		 */
+		public boolean next() {
+			checkForModifications();
+			if (slot == -2) {
+				slot = -1;
+				if (hasZeroKey) {
+					isCurrentRemoved = false;
+					return true;
+				}
+			}
+			while (visitedSlots < keys.length) {
+				slot = (startSlot + visitedSlots++) & mask;
+				if (keys[slot] != EMPTY_KEY) {
+					isCurrentRemoved = false;
+					return true;
+				}
+			}
+			isCurrentRemoved = true;
+			return false;
+		}
+
+		/**
+		 * Returns key of current pair.
+		 *
+		 * @return key of current pair.
+		 * @throws NoSuchElementException if cursor is not positioned on a pair.
+		 */
+		public int key() {
+			checkCurrent();
+			return (slot == -1) ? 0 : keys[slot];
+		}
+
+		/**
+		 * Returns value of current pair.
+		 *
+		 * @return value of current pair.
+		 * @throws NoSuchElementException if cursor is not positioned on a pair.
+		 */
+		public int value() {
+			checkCurrent();
+			return (slot == -1) ? zeroValue : values[slot];
+		}
+
+		/**
+		 * Overwrites value of current pair.
+		 *
+		 * @param value new value of current pair.
+		 * @throws NoSuchElementException if cursor is not positioned on a pair.
+		 */
+		public void setValue(int value) {
+			checkCurrent();
+			if (slot == -1) {
+				zeroValue = value;
+			} else {
+				values[slot] = value;
+			}
+		}
+
+		/**
+		 * Removes current pair from map.
+		 *
+		 * @throws IllegalStateException if cursor is not positioned on a pair.
+		 */
+		public void remove() {
+			checkForModifications();
+			if (isCurrentRemoved) {
+				throw new IllegalStateException();
+			}
+			if (slot == -1) {
+				removeZeroKey();
+			} else {
+				removeAt(slot);
+				// pair shifted into removed slot has not been visited yet
+				visitedSlots--;
+			}
+			isCurrentRemoved = true;
+			savedModificationCount = modificationCount;
+		}
+
+		private void checkCurrent() {
+			checkForModifications();
+			if (isCurrentRemoved) {
+				throw new NoSuchElementException();
+			}
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/** Keys stored in map, {@link #EMPTY_KEY} marks an empty slot. */
+	private int[] keys;
+
+	/** Values stored in map, at the same slot as their keys. */
+	private int[] values;
+
+	/** Used for calculating slot, always equals keys.length - 1 */
+	private int mask;
+
+	/** True if key 0 is stored in map. */
+	private boolean hasZeroKey;
+
+	/** Value stored for key 0. */
+	private int zeroValue;
+
+	/** Value returned when there is no value for given key. */
+	private final int noEntryValue;
+
+	/** Number of key-value pairs stored in this map */
+	private int size = 0;
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	/** Creates new IntIntHashtable object with storage arrays of 16 slots. */
+	public IntIntHashtable() {
+		this(16, 0);
+	}
+
+	/**
+	 * Creates new IntIntHashtable object with storage arrays of size.
+	 *
+	 * @param size of internal storage arrays. <b>Note: size will be rounded to
+	 *             nearest power of two.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public IntIntHashtable(int size) {
+		this(size, 0);
+	}
+
+	/**
+	 * Creates new IntIntHashtable object with storage arrays of size.
+	 *
+	 * @param size         of internal storage arrays. <b>Note: size will be
+	 *                     rounded to nearest power of two.</b>
+	 * @param noEntryValue value returned when there is no value for given key.
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public IntIntHashtable(int size, int noEntryValue) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = 2;
+		while (nearestPowerOfTwo < size) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+
+		this.noEntryValue = noEntryValue;
+		keys = new int[nearestPowerOfTwo];
+		values = new int[nearestPowerOfTwo];
+		mask = nearestPowerOfTwo - 1;
+	}
+
+	/**
+	 * Returns number of elements stored in hash map.
+	 *
+	 * @return number of elements stored in hash map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if there are no key-value pairs stored in this hash map.
+	 *
+	 * @return true if hash map is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns value that is returned when there is no value for given key.
+	 *
+	 * @return no entry value of this map.
+	 */
+	public int getNoEntryValue() {
+		return noEntryValue;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair in hash map.
+	 *
+	 * @param key   to be stored.
+	 * @param value to be stored.
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         no entry value is returned.
+	 */
+	public int put(int key, int value) {
+		if (key == EMPTY_KEY) {
+			int previousValue = hasZeroKey ? zeroValue : noEntryValue;
+			if (!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+				modificationCount++;
+			}
+			zeroValue = value;
+			return previousValue;
+		}
+
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				int previousValue = values[slot];
+				values[slot] = value;
+				return previousValue;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		modificationCount++;
+		if (size > LOAD_FACTOR * keys.length) {
+			doubleTableSize();
+		}
+		return noEntryValue;
+	}
+
+	/**
+	 * Returns value that is stored in pair with given key in this hash map.
+	 *
+	 * @param key for value that needs to be returned.
+	 * @return value for given key, no entry value if key can't be found.
+	 */
+	public int get(int key) {
+		if (key == EMPTY_KEY) {
+			return hasZeroKey ? zeroValue : noEntryValue;
+		}
+		int slot = findSlot(key);
+		return (slot == -1) ? noEntryValue : values[slot];
+	}
+
+	/**
+	 * Returns true if given key can be found in hash map.
+	 *
+	 * @param key to search for.
+	 * @return true if key exists in hash map.
+	 */
+	public boolean containsKey(int key) {
+		return (key == EMPTY_KEY) ? hasZeroKey : findSlot(key) != -1;
+	}
+
+	/**
+	 * Returns true if given value can be found in hash map.
+	 *
+	 * @param value to search for.
+	 * @return true if value exists in hash map.
+	 */
+	public boolean containsValue(int value) {
+		if (hasZeroKey && zeroValue == value) {
+			return true;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY_KEY && values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes key-value pair from hash map for given key.
+	 *
+	 * @param key from key-value pair that needs to be removed.
+	 * @return value of removed key-value pair, no entry value if key can't be
+	 *         found.
+	 */
+	public int remove(int key) {
+		if (key == EMPTY_KEY) {
+			if (!hasZeroKey) {
+				return noEntryValue;
+			}
+			int value = zeroValue;
+			removeZeroKey();
+			return value;
+		}
+		int slot = findSlot(key);
+		if (slot == -1) {
+			return noEntryValue;
+		}
+		int value = values[slot];
+		removeAt(slot);
+		return value;
+	}
+
+	/** Removes all elements from hash map. <b>It doesn't change size of internal arrays.</b> */
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = EMPTY_KEY;
+		}
+		hasZeroKey = false;
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Calls processor's process method for each key-value pair, without creating
+	 * any objects.
+	 *
+	 * @param processor to call.
+	 */
+	public void forEach(IntIntProcessor processor) {
+		if (hasZeroKey) {
+			processor.process(0, zeroValue);
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY_KEY) {
+				processor.process(keys[i], values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns new cursor positioned before the first key-value pair.
+	 *
+	 * @return new cursor over this map.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Returns string representation of this hash map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		forEach((key, value) -> {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(key).append('=').append(value);
+		});
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Finds slot in which given non-zero key is stored.
+	 *
+	 * @param key to search for.
+	 * @return slot of key or -1 if key is not stored.
+	 */
+	private int findSlot(int key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY_KEY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void removeZeroKey() {
+		hasZeroKey = false;
+		size--;
+		modificationCount++;
+	}
+
+	/**
+	 * Removes pair at given slot. Following pairs of the same cluster that would
+	 * become unreachable are shifted back into the freed slot, so no tombstones
+	 * are needed.
+	 *
+	 * @param slot of pair to be removed.
+	 */
+	private void removeAt(int slot) {
+		int freeSlot = slot;
+		int currentSlot = (slot + 1) & mask;
+		while (keys[currentSlot] != EMPTY_KEY) {
+			int homeSlot = hash(keys[currentSlot]) & mask;
+			// pair can fill free slot only if its home slot is not between the two
+			if (((currentSlot - homeSlot) & mask) >= ((currentSlot - freeSlot) & mask)) {
+				keys[freeSlot] = keys[currentSlot];
+				values[freeSlot] = values[currentSlot];
+				freeSlot = currentSlot;
+			}
+			currentSlot = (currentSlot + 1) & mask;
+		}
+		keys[freeSlot] = EMPTY_KEY;
+		size--;
+		modificationCount++;
+	}
+
+	/** Creates new arrays two times bigger than previous ones and reinserts all pairs. */
+	private void doubleTableSize() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new int[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY_KEY) {
+				int slot = hash(oldKeys[i]) & mask;
+				while (keys[slot] != EMPTY_KEY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Mixes bits of key, so that consecutive keys are spread over the table.
+	 *
+	 * @param key to calculate hash for.
+	 * @return mixed key.
+	 */
+	private static int hash(int key) {
+		int hash = key * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -242,8 +242,14 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 		checkIfValueIsNull(value);
 		reportModification();
 
-		if (firstNode == null) {
+		if (position == size) {
 			add(value);
+			return;
+		}
+		if (position == 0) {
+			ListNode<T> newNode = new ListNode<T>(null, firstNode, value);
+			firstNode.previousNode = newNode;
+			firstNode = newNode;
 		} else {
 			ListNode<T> currentNode = firstNode;
 
@@ -251,7 +257,7 @@ public class LinkedListIndexedCollection<T> implements List<T> {
 				currentNode = currentNode.nextNode;
 			}
 			ListNode<T> newNode = new ListNode<T>(currentNode, currentNode.nextNode, value);
-			currentNode.nextNode.previousNode = newNode.nextNode;
+			currentNode.nextNode.previousNode = newNode;
 			currentNode.nextNode = newNode;
 		}
 		size++;
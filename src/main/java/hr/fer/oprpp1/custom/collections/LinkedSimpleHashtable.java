@@ -0,0 +1,273 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.lang.reflect.Array;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map whose entries are also linked into doubly linked list in order of
+ * insertion. Iteration follows that list, so it is deterministic, does not
+ * change when table is resized and takes time proportional to size instead of
+ * capacity. Removal unlinks entry in constant time. Overwriting value of
+ * existing key does not change its position.
+ * <p>
+ * Entries are found through {@link SimpleHashtable} that maps keys to list
+ * nodes, so all of its features (incremental resize, treeified buckets) apply.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class LinkedSimpleHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+
+	/** Entry that is also node of insertion order list. */
+	private static class Node<K, V> extends TableEntry<K, V> {
+		private Node<K, V> previous;
+		private Node<K, V> next;
+
+		private Node(K key, V value) {
+			super(key, value);
+		}
+	}
+
+	/** Iterates over entries in order of insertion. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private Node<K, V> nextNode = head.next;
+		private Node<K, V> lastNode;
+		private int savedModificationCount = modificationCount;
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			return nextNode != head;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastNode = nextNode;
+			nextNode = nextNode.next;
+			return lastNode;
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastNode == null) {
+				throw new IllegalStateException();
+			}
+			index.remove(lastNode.getKey());
+			unlink(lastNode);
+			lastNode = null;
+			modificationCount++;
+			savedModificationCount = modificationCount;
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/** Finds node of key. */
+	private final SimpleHashtable<K, Node<K, V>> index;
+
+	/**
+	 * Sentinel of circular insertion order list. Its next node is the oldest
+	 * entry, its previous node the newest.
+	 */
+	private final Node<K, V> head = new Node<>(null, null);
+
+	/** Stores number of structural modifications. */
+	private int modificationCount = 0;
+
+	/**
+	 * Creates empty map with capacity of 16 slots.
+	 */
+	public LinkedSimpleHashtable() {
+		this(16);
+	}
+
+	/**
+	 * Creates empty map with given number of slots, rounded up to power of two.
+	 *
+	 * @param size number of slots.
+	 * @throws IllegalArgumentException if size is smaller than 1.
+	 */
+	public LinkedSimpleHashtable(int size) {
+		index = new SimpleHashtable<>(size);
+		head.previous = head.next = head;
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Stores key-value pair. New keys are appended to the end of iteration
+	 * order, existing keys keep their position.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key, null if there was
+	 *         none.
+	 * @throws NullPointerException if given key is null.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		Node<K, V> node = new Node<>(key, value);
+		// single probe, node is wasted only when key is already present
+		Node<K, V> existingNode = index.putIfAbsent(key, node);
+		if (existingNode != null) {
+			V previousValue = existingNode.getValue();
+			existingNode.setValue(value);
+			return previousValue;
+		}
+		linkLast(node);
+		modificationCount++;
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		Node<K, V> node = index.get(key);
+		return (node == null) ? null : node.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return index.containsKey(key);
+	}
+
+	/** Walks only stored entries, not empty slots. */
+	@Override
+	public boolean containsValue(Object value) {
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			if (Objects.equals(value, node.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		Node<K, V> node = index.remove(key);
+		if (node == null) {
+			return null;
+		}
+		unlink(node);
+		modificationCount++;
+		return node.getValue();
+	}
+
+	@Override
+	public void clear() {
+		index.clear();
+		for (Node<K, V> node = head.next; node != head;) {
+			Node<K, V> nextNode = node.next;
+			node.previous = node.next = null;
+			node = nextNode;
+		}
+		head.previous = head.next = head;
+		modificationCount++;
+	}
+
+	/**
+	 * Creates array filled with key-value pairs in order of insertion.
+	 *
+	 * @return new array filled with all key-value pairs from this map.
+	 */
+	@SuppressWarnings("unchecked")
+	public TableEntry<K, V>[] toArray() {
+		TableEntry<K, V>[] array = (TableEntry<K, V>[]) Array.newInstance(TableEntry.class, size());
+		int i = 0;
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			array[i++] = node;
+		}
+		return array;
+	}
+
+	/**
+	 * Returns iterator over entries in order of insertion.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Gives every entry to given action in order of insertion. Action must not
+	 * modify this map.
+	 *
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	@Override
+	public void forEach(Consumer<? super TableEntry<K, V>> action) {
+		Objects.requireNonNull(action);
+		int savedModificationCount = modificationCount;
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			action.accept(node);
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/**
+	 * Gives key and value of every entry to given action in order of insertion.
+	 * Action must not modify this map.
+	 *
+	 * @param action to call for every key-value pair.
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		forEach((TableEntry<K, V> entry) -> action.accept(entry.getKey(), entry.getValue()));
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ], in order of insertion.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (Node<K, V> node = head.next; node != head; node = node.next) {
+			if (node != head.next) {
+				builder.append(", ");
+			}
+			builder.append(node.getKey()).append('=').append(node.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	private void linkLast(Node<K, V> node) {
+		node.next = head;
+		node.previous = head.previous;
+		head.previous.next = node;
+		head.previous = node;
+	}
+
+	private static <K, V> void unlink(Node<K, V> node) {
+		node.previous.next = node.next;
+		node.next.previous = node.previous;
+		node.previous = node.next = null;
+	}
+}
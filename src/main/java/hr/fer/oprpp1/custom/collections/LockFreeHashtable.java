@@ -0,0 +1,511 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Thread-safe hash map that never locks. Chains in slots are immutable: every
+ * put or remove builds new chain (copying only entries in front of changed one)
+ * and installs it with a single compare-and-set of the slot. Readers therefore
+ * always see complete chain and never wait.
+ * <p>
+ * Resize is shared between threads. Thread that notices the map is too full
+ * creates new array, and every thread that touches the map during resize
+ * claims a range of slots and moves them. Moved slot is replaced by forwarding
+ * node that points to new array, so lookups that reach it continue there.
+ * Iterators are weakly consistent.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class LockFreeHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+
+	/** Maximal ratio of entries and slots before resize is started. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/** Number of slots a thread claims at once while helping with resize. */
+	private static final int TRANSFER_STRIDE = 16;
+
+	/**
+	 * Single key-value pair in an immutable chain.
+	 *
+	 * @param <K> the type of keys in this node
+	 * @param <V> the type of values in this node
+	 */
+	private static class Node<K, V> {
+		private final int hash;
+		private final K key;
+		private final V value;
+		private final Node<K, V> next;
+
+		private Node(int hash, K key, V value, Node<K, V> next) {
+			this.hash = hash;
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Marks slot whose entries were already moved into bigger array.
+	 *
+	 * @param <K> the type of keys in moved slot
+	 * @param <V> the type of values in moved slot
+	 */
+	private static final class ForwardingNode<K, V> extends Node<K, V> {
+
+		/** Array into which entries of this slot were moved. */
+		private final AtomicReferenceArray<Node<K, V>> nextTable;
+
+		private ForwardingNode(AtomicReferenceArray<Node<K, V>> nextTable) {
+			super(0, null, null, null);
+			this.nextTable = nextTable;
+		}
+	}
+
+	/**
+	 * Current array together with array it is being moved into. A new object is
+	 * created whenever resize starts or finishes, so threads never confuse
+	 * different resizes.
+	 *
+	 * @param <K> the type of keys in arrays
+	 * @param <V> the type of values in arrays
+	 */
+	private static final class Tables<K, V> {
+		private final AtomicReferenceArray<Node<K, V>> current;
+
+		/** Array entries are being moved into, null if there is no resize. */
+		private final AtomicReferenceArray<Node<K, V>> next;
+
+		/** Slots below this index are not yet claimed by any thread. */
+		private final AtomicInteger transferIndex;
+
+		/** Number of slots that were moved. */
+		private final AtomicInteger movedSlots = new AtomicInteger();
+
+		private Tables(AtomicReferenceArray<Node<K, V>> current, AtomicReferenceArray<Node<K, V>> next) {
+			this.current = current;
+			this.next = next;
+			this.transferIndex = new AtomicInteger(current.length());
+		}
+	}
+
+	/**
+	 * Entry returned by iterator. Setting its value stores new value in the map.
+	 */
+	private final class EntryView extends TableEntry<K, V> {
+
+		public EntryView(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			put(getKey(), value);
+		}
+	}
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/** Array whose slots are visited in order. */
+		private final AtomicReferenceArray<Node<K, V>> rootTable = tables.get().current;
+
+		/** Next slot of rootTable to visit. */
+		private int rootSlot = 0;
+
+		/** Slots of bigger arrays that were reached through forwarding nodes. */
+		private final Deque<Object[]> forwardedSlots = new ArrayDeque<>();
+
+		/** Node that will be returned next. */
+		private Node<K, V> nextNode;
+
+		/** Node that was returned last. */
+		private Node<K, V> lastReturned;
+
+		public IteratorImpl() {
+			advance();
+		}
+
+		/** Moves to next node, visiting forwarded slots before continuing. */
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			if (nextNode != null) {
+				nextNode = nextNode.next;
+			}
+			while (nextNode == null) {
+				AtomicReferenceArray<Node<K, V>> slotTable;
+				int slot;
+				if (!forwardedSlots.isEmpty()) {
+					Object[] pending = forwardedSlots.pop();
+					slotTable = (AtomicReferenceArray<Node<K, V>>) pending[0];
+					slot = (Integer) pending[1];
+				} else if (rootSlot < rootTable.length()) {
+					slotTable = rootTable;
+					slot = rootSlot++;
+				} else {
+					return;
+				}
+
+				Node<K, V> head = slotTable.get(slot);
+				if (head instanceof ForwardingNode) {
+					AtomicReferenceArray<Node<K, V>> nextTable = ((ForwardingNode<K, V>) head).nextTable;
+					forwardedSlots.push(new Object[] { nextTable, slot + slotTable.length() });
+					forwardedSlots.push(new Object[] { nextTable, slot });
+				} else {
+					nextNode = head;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (nextNode == null) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = nextNode;
+			advance();
+			return new EntryView(lastReturned.key, lastReturned.value);
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			LockFreeHashtable.this.remove(lastReturned.key);
+			lastReturned = null;
+		}
+	}
+
+	/** Arrays of this map, replaced with compare-and-set. */
+	private final AtomicReference<Tables<K, V>> tables;
+
+	/** Number of key-value pairs, striped so that writers do not contend. */
+	private final LongAdder count = new LongAdder();
+
+	/** Creates new map with 16 slots. */
+	public LockFreeHashtable() {
+		this(16);
+	}
+
+	/**
+	 * Creates new map with given number of slots.
+	 *
+	 * @param size of internal array. <b>Note: size will be rounded to nearest
+	 *             power of two.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public LockFreeHashtable(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = 2;
+		while (nearestPowerOfTwo < size) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+
+		tables = new AtomicReference<>(new Tables<K, V>(new AtomicReferenceArray<>(nearestPowerOfTwo), null));
+	}
+
+	/**
+	 * Returns number of key-value pairs. When other threads are modifying the map
+	 * result is only an estimate.
+	 */
+	@Override
+	public int size() {
+		long sum = count.sum();
+		return (sum < 0) ? 0 : (int) Math.min(sum, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		int hash = hash(key);
+		AtomicReferenceArray<Node<K, V>> table = tables.get().current;
+		while (true) {
+			int slot = hash & (table.length() - 1);
+			Node<K, V> head = table.get(slot);
+			if (head instanceof ForwardingNode) {
+				helpTransfer();
+				table = ((ForwardingNode<K, V>) head).nextTable;
+				continue;
+			}
+
+			Node<K, V> found = find(head, hash, key);
+			Node<K, V> newHead = (found == null) ? new Node<K, V>(hash, key, value, head)
+					: replace(head, found, new Node<K, V>(hash, key, value, found.next));
+			if (table.compareAndSet(slot, head, newHead)) {
+				if (found != null) {
+					return found.value;
+				}
+				count.increment();
+				resizeIfNeeded();
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		Node<K, V> node = findNode(key);
+		return (node == null) ? null : node.value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return findNode(key) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (TableEntry<K, V> entry : this) {
+			V entryValue = entry.getValue();
+			if (value == null ? entryValue == null : value.equals(entryValue)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int hash = hash(key);
+		AtomicReferenceArray<Node<K, V>> table = tables.get().current;
+		while (true) {
+			int slot = hash & (table.length() - 1);
+			Node<K, V> head = table.get(slot);
+			if (head instanceof ForwardingNode) {
+				helpTransfer();
+				table = ((ForwardingNode<K, V>) head).nextTable;
+				continue;
+			}
+
+			Node<K, V> found = find(head, hash, key);
+			if (found == null) {
+				return null;
+			}
+			if (table.compareAndSet(slot, head, replace(head, found, found.next))) {
+				count.decrement();
+				return found.value;
+			}
+		}
+	}
+
+	/**
+	 * Removes all elements from map. Entries put by other threads at the same
+	 * time may remain.
+	 */
+	@Override
+	public void clear() {
+		AtomicReferenceArray<Node<K, V>> table = tables.get().current;
+		for (int slot = 0; slot < table.length(); slot++) {
+			Node<K, V> head = table.get(slot);
+			if (head == null) {
+				continue;
+			}
+			if (head instanceof ForwardingNode) {
+				helpTransfer();
+				table = tables.get().current;
+				slot = -1;
+				continue;
+			}
+			if (table.compareAndSet(slot, head, null)) {
+				for (Node<K, V> node = head; node != null; node = node.next) {
+					count.decrement();
+				}
+			} else {
+				slot--;
+			}
+		}
+	}
+
+	/**
+	 * Returns weakly consistent iterator over this map. Setting value of returned
+	 * entry stores it in the map.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (TableEntry<K, V> entry : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Finds node with given key, following forwarding nodes into bigger arrays.
+	 *
+	 * @param key to search for. <b>Must not be null.</b>
+	 * @return node with given key or null if key is not stored.
+	 */
+	private Node<K, V> findNode(Object key) {
+		int hash = hash(key);
+		AtomicReferenceArray<Node<K, V>> table = tables.get().current;
+		while (true) {
+			Node<K, V> head = table.get(hash & (table.length() - 1));
+			if (head instanceof ForwardingNode) {
+				table = ((ForwardingNode<K, V>) head).nextTable;
+			} else {
+				return find(head, hash, key);
+			}
+		}
+	}
+
+	/**
+	 * Walks chain starting with given node until it finds node with given key.
+	 *
+	 * @return node with given key or null if key is not in chain.
+	 */
+	private static <K, V> Node<K, V> find(Node<K, V> node, int hash, Object key) {
+		while (node != null && !(node.hash == hash && (node.key == key || key.equals(node.key)))) {
+			node = node.next;
+		}
+		return node;
+	}
+
+	/**
+	 * Builds new chain in which given node is replaced by given replacement
+	 * chain. Nodes in front of replaced node are copied, nodes behind it are
+	 * shared with old chain.
+	 *
+	 * @param head        of old chain.
+	 * @param replaced    node of old chain.
+	 * @param replacement chain that takes place of replaced node.
+	 * @return head of new chain.
+	 */
+	private static <K, V> Node<K, V> replace(Node<K, V> head, Node<K, V> replaced, Node<K, V> replacement) {
+		if (head == replaced) {
+			return replacement;
+		}
+		return new Node<K, V>(head.hash, head.key, head.value, replace(head.next, replaced, replacement));
+	}
+
+	/** Starts resize if there are too many entries, and helps with it. */
+	private void resizeIfNeeded() {
+		Tables<K, V> current = tables.get();
+		if (current.next == null) {
+			if (count.sum() < current.current.length() * LOAD_FACTOR) {
+				return;
+			}
+			Tables<K, V> resizing = new Tables<K, V>(current.current,
+					new AtomicReferenceArray<>(current.current.length() * 2));
+			tables.compareAndSet(current, resizing);
+		}
+		helpTransfer();
+	}
+
+	/**
+	 * If resize is in progress, claims ranges of unmoved slots and moves them
+	 * until there are no more unclaimed slots. Thread that moves the last slot
+	 * makes new array current.
+	 */
+	private void helpTransfer() {
+		Tables<K, V> resizing = tables.get();
+		if (resizing.next == null) {
+			return;
+		}
+		int length = resizing.current.length();
+		while (true) {
+			int end = resizing.transferIndex.get();
+			if (end <= 0) {
+				return;
+			}
+			int start = Math.max(0, end - TRANSFER_STRIDE);
+			if (!resizing.transferIndex.compareAndSet(end, start)) {
+				continue;
+			}
+			for (int slot = start; slot < end; slot++) {
+				moveSlot(resizing, slot);
+			}
+			if (resizing.movedSlots.addAndGet(end - start) == length) {
+				tables.compareAndSet(resizing, new Tables<K, V>(resizing.next, null));
+			}
+		}
+	}
+
+	/**
+	 * Moves entries of given slot into slots <code>slot</code> and
+	 * <code>slot + length</code> of bigger array, then replaces old slot with
+	 * forwarding node. Only the thread that claimed the slot writes to those two
+	 * slots of bigger array, so they are simply overwritten if chain changed in
+	 * the meantime and moving has to be repeated.
+	 *
+	 * @param resizing arrays of resize in progress.
+	 * @param slot     to move.
+	 */
+	private static <K, V> void moveSlot(Tables<K, V> resizing, int slot) {
+		int length = resizing.current.length();
+		ForwardingNode<K, V> forwardingNode = new ForwardingNode<K, V>(resizing.next);
+		while (true) {
+			Node<K, V> head = resizing.current.get(slot);
+			Node<K, V> lo = null;
+			Node<K, V> hi = null;
+			for (Node<K, V> node = head; node != null; node = node.next) {
+				if ((node.hash & length) == 0) {
+					lo = new Node<K, V>(node.hash, node.key, node.value, lo);
+				} else {
+					hi = new Node<K, V>(node.hash, node.key, node.value, hi);
+				}
+			}
+			resizing.next.set(slot, lo);
+			resizing.next.set(slot + length, hi);
+			if (resizing.current.compareAndSet(slot, head, forwardingNode)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 *
+	 * @param key to calculate hash for.
+	 * @return spread hash code of key.
+	 * @throws NullPointerException if key is null.
+	 */
+	private static int hash(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hashCode = key.hashCode();
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
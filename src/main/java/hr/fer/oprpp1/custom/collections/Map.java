@@ -0,0 +1,76 @@
+package hr.fer.oprpp1.custom.collections;
+
+/**
+ * An object that maps keys to values. Keys must not be null and each key can
+ * map to at most one value. Iterating over map delivers its key-value pairs.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public interface Map<K, V> extends Iterable<SimpleHashtable.TableEntry<K, V>> {
+
+	/**
+	 * Returns number of key-value pairs stored in map.
+	 *
+	 * @return number of key-value pairs stored in map.
+	 */
+	int size();
+
+	/**
+	 * Returns true if there are no key-value pairs stored in this map.
+	 *
+	 * @return true if map is empty.
+	 */
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair in map.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         null is returned.
+	 * @throws NullPointerException if given key is null.
+	 */
+	V put(K key, V value);
+
+	/**
+	 * Returns value that is stored in pair with given key.
+	 *
+	 * @param key for value that needs to be returned.
+	 * @return value for given key, null if key can't be found.
+	 */
+	V get(Object key);
+
+	/**
+	 * Returns true if given key can be found in map.
+	 *
+	 * @param key <b>must not be null!</b>
+	 * @return true if key exists in map.
+	 * @throws NullPointerException if given key is null.
+	 */
+	boolean containsKey(Object key);
+
+	/**
+	 * Returns true if given value can be found in map.
+	 *
+	 * @param value <b>can be null!</b>
+	 * @return true if value exists in map.
+	 */
+	boolean containsValue(Object value);
+
+	/**
+	 * Removes key-value pair for given key.
+	 *
+	 * @param key from key-value pair that needs to be removed.
+	 * @return value of removed key-value pair, null if key can't be found.
+	 */
+	V remove(Object key);
+
+	/** Removes all key-value pairs from map. */
+	void clear();
+}
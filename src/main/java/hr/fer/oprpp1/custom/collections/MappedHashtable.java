@@ -0,0 +1,665 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map read directly from a memory-mapped snapshot file. Snapshot is
+ * written by {@link #save(Map, Path, Codec, Codec)} and opened by
+ * {@link #load(Path, Codec, Codec, Mode)}. Opening only maps the file, so it
+ * takes the same time for any number of entries; keys and values are
+ * deserialized when they are first accessed.
+ * <p>
+ * Snapshot file consists of:
+ * <ul>
+ * <li>header: magic number, version, number of slots, number of entries and
+ * offset of entry region,</li>
+ * <li>slot table: for every slot offset of the first entry in its chain, or
+ * -1,</li>
+ * <li>entry region: entries, each holding its hash, offset of next entry in
+ * chain, ordinal, flags, key and value.</li>
+ * </ul>
+ * Keys are compared by their bytes and their hash codes must be the same in
+ * every run of the program (as they are for strings and boxed primitives).
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class MappedHashtable<K, V> implements Map<K, V>, AutoCloseable {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String READ_ONLY_ERROR = "Snapshot is opened read-only";
+	private static final String CLOSED_ERROR = "Hashtable is closed";
+	private static final String FORMAT_ERROR = "File is not a hashtable snapshot";
+	private static final String TOO_LARGE_ERROR = "Snapshot must not be larger than 2 GiB";
+
+	/** Number written at the start of every snapshot file ("SHT1"). */
+	private static final int MAGIC = 0x53485431;
+
+	private static final int VERSION = 1;
+
+	/** Header: magic, version, slot count, entry count (ints) and entry region offset (long). */
+	private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+	/** Entry header: hash, next offset, ordinal (ints) and flags (byte). */
+	private static final int ENTRY_HEADER_SIZE = 3 * Integer.BYTES + 1;
+
+	/** Offset of flags inside entry header. */
+	private static final int FLAGS_OFFSET = 3 * Integer.BYTES;
+
+	/** Flag of entry that was removed or overwritten after loading. */
+	private static final byte REMOVED_FLAG = 1;
+
+	/** Flag of entry whose value is null. */
+	private static final byte NULL_VALUE_FLAG = 2;
+
+	/** Marks end of chain and empty slot. */
+	private static final int NO_ENTRY = -1;
+
+	/** Number of decoded values kept in one page of value cache. */
+	private static final int CACHE_PAGE_SIZE = 4096;
+
+	/** Way in which snapshot file is mapped. */
+	public enum Mode {
+		/** Map can only be read. Modifying methods throw exception. */
+		READ_ONLY,
+		/**
+		 * Map can be modified, but changes are never written to the file. Removed
+		 * entries are marked in private copy of mapped pages, new values are kept
+		 * on heap.
+		 */
+		COPY_ON_WRITE
+	}
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/** Offset of next entry of entry region to examine. */
+		private int offset = 0;
+
+		/** Ordinal of entry at offset. */
+		private int ordinal = 0;
+
+		/** Offset of last returned entry of entry region, -1 if there is none. */
+		private int lastReturnedOffset = -1;
+
+		/** Iterator over entries that were put after loading. */
+		private Iterator<TableEntry<K, V>> overlayIterator;
+
+		/** Iterator that returned last entry. */
+		private Iterator<TableEntry<K, V>> lastIterator;
+
+		private int savedModificationCount = modificationCount;
+
+		private void checkForModifications() {
+			checkOpen();
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			while (ordinal < entryCount && isRemoved(offset)) {
+				offset += entryLength(offset);
+				ordinal++;
+			}
+			if (ordinal < entryCount) {
+				return true;
+			}
+			if (overlayIterator == null) {
+				overlayIterator = overlay.iterator();
+			}
+			return overlayIterator.hasNext();
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (ordinal < entryCount) {
+				lastReturnedOffset = offset;
+				lastIterator = null;
+				TableEntry<K, V> entry = new TableEntry<K, V>(readKey(offset), readValue(offset));
+				offset += entryLength(offset);
+				ordinal++;
+				return entry;
+			}
+			lastReturnedOffset = -1;
+			lastIterator = overlayIterator;
+			return overlayIterator.next();
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			checkWritable();
+			if (lastIterator != null) {
+				lastIterator.remove();
+				lastIterator = null;
+			} else if (lastReturnedOffset != -1) {
+				markRemoved(lastReturnedOffset);
+				lastReturnedOffset = -1;
+			} else {
+				throw new IllegalStateException();
+			}
+			modificationCount++;
+			savedModificationCount = modificationCount;
+		}
+	}
+
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+	private final Mode mode;
+
+	/** Mapped part of file that holds slot table and entry region. */
+	private MappedByteBuffer buffer;
+
+	/** Offset of entry region inside buffer. */
+	private final int entryRegionOffset;
+
+	/** Number of slots in slot table, always power of two. */
+	private final int slotCount;
+
+	/** Number of entries in entry region, including removed ones. */
+	private final int entryCount;
+
+	/** Number of entries in entry region that are not removed. */
+	private int liveEntryCount;
+
+	/** Entries put after loading. */
+	private final SimpleHashtable<K, V> overlay = new SimpleHashtable<>();
+
+	/** Pages of decoded values, indexed by entry ordinal. Created on first use. */
+	private final Object[][] valueCache;
+
+	/** Reused buffer for converting searched keys to bytes. */
+	private ByteBuffer keyScratch = ByteBuffer.allocate(64);
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	private MappedHashtable(MappedByteBuffer buffer, Codec<K> keyCodec, Codec<V> valueCodec, Mode mode) {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IllegalArgumentException(FORMAT_ERROR);
+		}
+		this.buffer = buffer;
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.mode = mode;
+		slotCount = buffer.getInt(2 * Integer.BYTES);
+		entryCount = buffer.getInt(3 * Integer.BYTES);
+		entryRegionOffset = (int) buffer.getLong(4 * Integer.BYTES);
+		liveEntryCount = entryCount;
+		valueCache = new Object[(entryCount + CACHE_PAGE_SIZE - 1) / CACHE_PAGE_SIZE][];
+	}
+
+	/**
+	 * Writes all entries of given map into snapshot file. Existing file is
+	 * overwritten.
+	 *
+	 * @param map        to be written.
+	 * @param path       of snapshot file.
+	 * @param keyCodec   converts keys to bytes.
+	 * @param valueCodec converts values to bytes.
+	 * @throws IOException              if file can't be written.
+	 * @throws IllegalArgumentException if snapshot would be larger than 2 GiB.
+	 */
+	public static <K, V> void save(Map<K, V> map, Path path, Codec<K> keyCodec, Codec<V> valueCodec)
+			throws IOException {
+		int slotCount = 2;
+		while (slotCount * 0.75 < map.size()) {
+			slotCount = slotCount << 1;
+		}
+		int[] heads = new int[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			heads[i] = NO_ENTRY;
+		}
+		long entryRegionOffset = HEADER_SIZE + (long) slotCount * Integer.BYTES;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer out = ByteBuffer.allocate(1 << 16);
+			ByteBuffer keyBytes = ByteBuffer.allocate(64);
+			ByteBuffer valueBytes = ByteBuffer.allocate(64);
+			long position = entryRegionOffset;
+			int entryCount = 0;
+
+			for (TableEntry<K, V> entry : map) {
+				int hash = hash(entry.getKey());
+				int slot = hash & (slotCount - 1);
+				keyBytes = encode(keyCodec, entry.getKey(), keyBytes);
+				boolean nullValue = entry.getValue() == null;
+				if (!nullValue) {
+					valueBytes = encode(valueCodec, entry.getValue(), valueBytes);
+				}
+
+				int length = ENTRY_HEADER_SIZE + encodedLength(keyCodec, keyBytes)
+						+ (nullValue ? 0 : encodedLength(valueCodec, valueBytes));
+				long offset = position + out.position() - entryRegionOffset;
+				if (offset + length > Integer.MAX_VALUE - entryRegionOffset) {
+					throw new IllegalArgumentException(TOO_LARGE_ERROR);
+				}
+				if (out.remaining() < length) {
+					position += flush(channel, out, position);
+					if (out.capacity() < length) {
+						out = ByteBuffer.allocate(length);
+					}
+				}
+
+				out.putInt(hash).putInt(heads[slot]).putInt(entryCount).put(nullValue ? NULL_VALUE_FLAG : 0);
+				putEncoded(out, keyCodec, keyBytes);
+				if (!nullValue) {
+					putEncoded(out, valueCodec, valueBytes);
+				}
+				heads[slot] = (int) offset;
+				entryCount++;
+			}
+			flush(channel, out, position);
+
+			ByteBuffer header = ByteBuffer.allocate((int) entryRegionOffset);
+			header.putInt(MAGIC).putInt(VERSION).putInt(slotCount).putInt(entryCount).putLong(entryRegionOffset);
+			for (int head : heads) {
+				header.putInt(head);
+			}
+			header.flip();
+			long headerPosition = 0;
+			while (header.hasRemaining()) {
+				headerPosition += channel.write(header, headerPosition);
+			}
+		}
+	}
+
+	/**
+	 * Maps snapshot file into memory. Returned map is usable immediately, file
+	 * itself is never modified through it.
+	 *
+	 * @param path       of snapshot file.
+	 * @param keyCodec   converts keys to bytes, same as used for saving.
+	 * @param valueCodec converts values to bytes, same as used for saving.
+	 * @param mode       in which file is mapped.
+	 * @return map backed by the file.
+	 * @throws IOException              if file can't be read.
+	 * @throws IllegalArgumentException if file is not a snapshot or is larger than
+	 *                                  2 GiB.
+	 */
+	public static <K, V> MappedHashtable<K, V> load(Path path, Codec<K> keyCodec, Codec<V> valueCodec, Mode mode)
+			throws IOException {
+		// private mapping needs channel opened for writing, even though file is never written
+		StandardOpenOption[] options = (mode == Mode.READ_ONLY) ? new StandardOpenOption[] { StandardOpenOption.READ }
+				: new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+		try (FileChannel channel = FileChannel.open(path, options)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(TOO_LARGE_ERROR);
+			}
+			if (channel.size() < HEADER_SIZE) {
+				throw new IllegalArgumentException(FORMAT_ERROR);
+			}
+			FileChannel.MapMode mapMode = (mode == Mode.READ_ONLY) ? FileChannel.MapMode.READ_ONLY
+					: FileChannel.MapMode.PRIVATE;
+			// mapping stays valid after channel is closed
+			return new MappedHashtable<K, V>(channel.map(mapMode, 0, channel.size()), keyCodec, valueCodec, mode);
+		}
+	}
+
+	@Override
+	public int size() {
+		return liveEntryCount + overlay.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair. If key is stored in the
+	 * file, its entry there is marked as removed and pair is kept on heap.
+	 *
+	 * @throws UnsupportedOperationException if map is opened read-only.
+	 */
+	@Override
+	public V put(K key, V value) {
+		checkOpen();
+		checkWritable();
+		int offset = findEntry(hash(key), key);
+		if (offset == NO_ENTRY) {
+			int sizeBefore = overlay.size();
+			V previousValue = overlay.put(key, value);
+			if (overlay.size() != sizeBefore) {
+				modificationCount++;
+			}
+			return previousValue;
+		}
+		V previousValue = readValue(offset);
+		markRemoved(offset);
+		overlay.put(key, value);
+		modificationCount++;
+		return previousValue;
+	}
+
+	@Override
+	public V get(Object key) {
+		checkOpen();
+		if (key == null) {
+			return null;
+		}
+		if (!overlay.isEmpty() && overlay.containsKey(key)) {
+			return overlay.get(key);
+		}
+		int offset = findEntry(hash(key), key);
+		return (offset == NO_ENTRY) ? null : readValue(offset);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		checkOpen();
+		return findEntry(hash(key), key) != NO_ENTRY || (!overlay.isEmpty() && overlay.containsKey(key));
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (TableEntry<K, V> entry : this) {
+			if (value == null ? entry.getValue() == null : value.equals(entry.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes key-value pair for given key.
+	 *
+	 * @throws UnsupportedOperationException if map is opened read-only.
+	 */
+	@Override
+	public V remove(Object key) {
+		checkOpen();
+		checkWritable();
+		if (key == null) {
+			return null;
+		}
+		if (overlay.containsKey(key)) {
+			modificationCount++;
+			return overlay.remove(key);
+		}
+		int offset = findEntry(hash(key), key);
+		if (offset == NO_ENTRY) {
+			return null;
+		}
+		V value = readValue(offset);
+		markRemoved(offset);
+		modificationCount++;
+		return value;
+	}
+
+	/**
+	 * Removes all key-value pairs. Entries in the file are marked as removed one
+	 * by one.
+	 *
+	 * @throws UnsupportedOperationException if map is opened read-only.
+	 */
+	@Override
+	public void clear() {
+		checkOpen();
+		checkWritable();
+		int offset = 0;
+		for (int i = 0; i < entryCount; i++) {
+			if (!isRemoved(offset)) {
+				markRemoved(offset);
+			}
+			offset += entryLength(offset);
+		}
+		overlay.clear();
+		modificationCount++;
+	}
+
+	/**
+	 * Releases mapped file. On Java 9 and later file is unmapped at once, on
+	 * older runtimes when garbage collector collects the mapping. Objects read
+	 * by codecs must not keep views of mapped bytes. Closing closed map has no
+	 * effect.
+	 */
+	@Override
+	public void close() {
+		DirectBuffers.free(buffer);
+		buffer = null;
+		keyScratch = null;
+	}
+
+	/**
+	 * Returns the iterator for this map. Entries of the file are returned first,
+	 * in order in which they were saved, followed by entries put after loading.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		checkOpen();
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (TableEntry<K, V> entry : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Walks chain of slot of given key in the file.
+	 *
+	 * @return offset of entry with given key that is not removed, or
+	 *         {@link #NO_ENTRY}.
+	 */
+	@SuppressWarnings("unchecked")
+	private int findEntry(int hash, Object key) {
+		try {
+			keyScratch = encode(keyCodec, (K) key, keyScratch);
+		} catch (ClassCastException e) {
+			return NO_ENTRY;
+		}
+		int offset = buffer.getInt(HEADER_SIZE + (hash & (slotCount - 1)) * Integer.BYTES);
+		while (offset != NO_ENTRY) {
+			int position = entryRegionOffset + offset;
+			if (buffer.getInt(position) == hash && !isRemoved(offset) && keyEquals(position + ENTRY_HEADER_SIZE)) {
+				return offset;
+			}
+			offset = buffer.getInt(position + Integer.BYTES);
+		}
+		return NO_ENTRY;
+	}
+
+	/** Compares key at given position with bytes in {@link #keyScratch}. */
+	private boolean keyEquals(int position) {
+		int length = keyScratch.remaining();
+		if (keyCodec.fixedSize() < 0) {
+			if (buffer.getInt(position) != length) {
+				return false;
+			}
+			position += Integer.BYTES;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buffer.get(position + i) != keyScratch.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isRemoved(int offset) {
+		return (flags(offset) & REMOVED_FLAG) != 0;
+	}
+
+	private byte flags(int offset) {
+		return buffer.get(entryRegionOffset + offset + FLAGS_OFFSET);
+	}
+
+	/** Marks entry as removed in private copy of mapped page. */
+	private void markRemoved(int offset) {
+		buffer.put(entryRegionOffset + offset + FLAGS_OFFSET, (byte) (flags(offset) | REMOVED_FLAG));
+		liveEntryCount--;
+	}
+
+	/** Returns number of bytes entry at given offset takes. */
+	private int entryLength(int offset) {
+		int position = entryRegionOffset + offset + ENTRY_HEADER_SIZE;
+		int length = ENTRY_HEADER_SIZE + storedLength(keyCodec, position);
+		if ((flags(offset) & NULL_VALUE_FLAG) == 0) {
+			length += storedLength(valueCodec, entryRegionOffset + offset + length);
+		}
+		return length;
+	}
+
+	private K readKey(int offset) {
+		return read(keyCodec, entryRegionOffset + offset + ENTRY_HEADER_SIZE);
+	}
+
+	/**
+	 * Reads value of entry at given offset. Value is decoded only the first time
+	 * it is read, after that it is taken from cache.
+	 *
+	 * @param offset of entry.
+	 * @return value of entry.
+	 */
+	@SuppressWarnings("unchecked")
+	private V readValue(int offset) {
+		if ((flags(offset) & NULL_VALUE_FLAG) != 0) {
+			return null;
+		}
+		int ordinal = buffer.getInt(entryRegionOffset + offset + 2 * Integer.BYTES);
+		Object[] page = valueCache[ordinal / CACHE_PAGE_SIZE];
+		if (page == null) {
+			page = valueCache[ordinal / CACHE_PAGE_SIZE] = new Object[CACHE_PAGE_SIZE];
+		}
+		Object cached = page[ordinal % CACHE_PAGE_SIZE];
+		if (cached == null) {
+			cached = page[ordinal % CACHE_PAGE_SIZE] = decodeValue(offset);
+		}
+		return (V) cached;
+	}
+
+	private V decodeValue(int offset) {
+		int position = entryRegionOffset + offset + ENTRY_HEADER_SIZE;
+		return read(valueCodec, position + storedLength(keyCodec, position));
+	}
+
+	/** Returns number of bytes object at given position takes, including its length. */
+	private int storedLength(Codec<?> codec, int position) {
+		int length = codec.fixedSize();
+		return (length < 0) ? Integer.BYTES + buffer.getInt(position) : length;
+	}
+
+	private <T> T read(Codec<T> codec, int position) {
+		int length = codec.fixedSize();
+		if (length < 0) {
+			length = buffer.getInt(position);
+			position += Integer.BYTES;
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.limit(position + length).position(position);
+		return codec.read(view, length);
+	}
+
+	/** Writes encoded object, prefixed with its length if codec has no fixed size. */
+	private static void putEncoded(ByteBuffer out, Codec<?> codec, ByteBuffer bytes) {
+		if (codec.fixedSize() < 0) {
+			out.putInt(bytes.remaining());
+		}
+		out.put(bytes.duplicate());
+	}
+
+	private static int encodedLength(Codec<?> codec, ByteBuffer bytes) {
+		return (codec.fixedSize() < 0) ? Integer.BYTES + bytes.remaining() : bytes.remaining();
+	}
+
+	/**
+	 * Writes object into given buffer using codec, doubling buffer until object
+	 * fits.
+	 *
+	 * @return flipped buffer holding bytes of object, not necessarily the one
+	 *         given.
+	 */
+	private static <T> ByteBuffer encode(Codec<T> codec, T value, ByteBuffer buffer) {
+		while (true) {
+			buffer.clear();
+			try {
+				codec.write(value, buffer);
+				buffer.flip();
+				return buffer;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	/**
+	 * Writes content of buffer to channel at given position and clears buffer.
+	 *
+	 * @return number of written bytes.
+	 */
+	private static long flush(FileChannel channel, ByteBuffer out, long position) throws IOException {
+		out.flip();
+		long written = 0;
+		while (out.hasRemaining()) {
+			written += channel.write(out, position + written);
+		}
+		out.clear();
+		return written;
+	}
+
+	/**
+	 * @throws IllegalStateException if map is closed
+	 */
+	private void checkOpen() {
+		if (buffer == null) {
+			throw new IllegalStateException(CLOSED_ERROR);
+		}
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if map is opened read-only
+	 */
+	private void checkWritable() {
+		if (mode == Mode.READ_ONLY) {
+			throw new UnsupportedOperationException(READ_ONLY_ERROR);
+		}
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 *
+	 * @param key to calculate hash for.
+	 * @return spread hash code of key.
+	 * @throws NullPointerException if key is null.
+	 */
+	private static int hash(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hashCode = key.hashCode();
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
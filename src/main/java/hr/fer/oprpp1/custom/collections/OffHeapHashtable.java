@@ -0,0 +1,722 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map that keeps its contents outside of Java heap, in direct
+ * {@link ByteBuffer}s, so that garbage collector does not have to deal with
+ * its entries. Keys and values are converted to bytes by given {@link Codec}s.
+ * <p>
+ * Entries are written one after another into slabs of fixed size. Index is a
+ * separate set of direct buffers with linear probing, each slot holding hash
+ * of key and address of its entry. Index is split into pages of
+ * {@value #INDEX_PAGE_SLOTS} slots, so it can have up to 2^30 slots and hold
+ * about 800 million entries. Overwritten and removed entries are left in slabs as
+ * garbage, when there is more garbage than live data slabs are compacted.
+ * <p>
+ * Keys are compared by their bytes, so equal keys must be written as equal
+ * bytes. Null values are not supported. Map has to be closed when it is no
+ * longer used, after that none of its methods can be called. Closing frees
+ * off-heap memory at once where runtime allows it, see {@link #close()}.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class OffHeapHashtable<K, V> implements Map<K, V>, AutoCloseable {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String NULL_VALUE_ERROR = "Value must not be null";
+	private static final String NULL_CODEC_ERROR = "Codec must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+	private static final String CLOSED_ERROR = "Hashtable is closed";
+	private static final String FULL_ERROR = "Hashtable is full";
+
+	/** Default number of bytes in one slab. */
+	private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+	/** Number of bytes in one index slot: hash (int) and address (long). */
+	private static final int INDEX_SLOT_SIZE = 12;
+
+	/** Maximal ratio of occupied index slots before index is doubled. */
+	private static final double LOAD_FACTOR = 0.75;
+
+	/** Number of slots in one page of index, page takes 768 MiB. */
+	private static final int INDEX_PAGE_SLOTS = 1 << 26;
+
+	/** Largest number of slots in index. */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/** Empty index slot at which iteration starts. */
+		private int startSlot = 0;
+
+		/** Number of index slots visited so far. */
+		private int visitedSlots = 0;
+
+		/** Index slot of last returned entry, -1 if there is none. */
+		private int lastReturnedSlot = -1;
+
+		private int savedModificationCount = modificationCount;
+
+		public IteratorImpl() {
+			checkOpen();
+			while (address(startSlot) != 0) {
+				startSlot++;
+			}
+		}
+
+		private void checkForModifications() {
+			checkOpen();
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			while (visitedSlots < capacity && address((startSlot + visitedSlots) & mask) == 0) {
+				visitedSlots++;
+			}
+			return visitedSlots < capacity;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastReturnedSlot = (startSlot + visitedSlots++) & mask;
+			long address = address(lastReturnedSlot);
+			return new EntryView(readKey(address), readValue(address));
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastReturnedSlot == -1) {
+				throw new IllegalStateException();
+			}
+			removeAt(lastReturnedSlot);
+			lastReturnedSlot = -1;
+			savedModificationCount = modificationCount;
+			// entry shifted into removed slot has not been visited yet
+			visitedSlots--;
+		}
+	}
+
+	/** Entry returned by iterator. Setting its value stores new value in the map. */
+	private final class EntryView extends TableEntry<K, V> {
+
+		public EntryView(K key, V value) {
+			super(key, value);
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			put(getKey(), value);
+		}
+	}
+
+	private final Codec<K> keyCodec;
+	private final Codec<V> valueCodec;
+
+	/**
+	 * Pages of index of entries, {@link #INDEX_SLOT_SIZE} bytes per slot. Slot is
+	 * in page <code>slot / INDEX_PAGE_SLOTS</code>.
+	 */
+	private ByteBuffer[] index;
+
+	/** Number of slots in index, always power of two. */
+	private int capacity;
+
+	/** Used for calculating slot, always equals capacity - 1 */
+	private int mask;
+
+	/** Slabs holding entries, only the last one is written into. */
+	private ByteBuffer[] slabs;
+
+	/** Number of slabs in use. */
+	private int slabCount;
+
+	/** Number of bytes in one slab. */
+	private final int slabSize;
+
+	/** Bytes of slabs taken by entries that are still in the map. */
+	private long liveBytes = 0;
+
+	/** Bytes of slabs taken by overwritten or removed entries. */
+	private long garbageBytes = 0;
+
+	/** Reused buffers for converting keys and values to bytes. */
+	private ByteBuffer keyScratch = ByteBuffer.allocate(64);
+	private ByteBuffer valueScratch = ByteBuffer.allocate(64);
+
+	/** Number of key-value pairs stored in this map */
+	private int size = 0;
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	/**
+	 * Creates new map with index of 16 slots and slabs of 1 MiB.
+	 *
+	 * @param keyCodec   converts keys to bytes.
+	 * @param valueCodec converts values to bytes.
+	 * @throws NullPointerException if any codec is null.
+	 */
+	public OffHeapHashtable(Codec<K> keyCodec, Codec<V> valueCodec) {
+		this(keyCodec, valueCodec, 16, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * Creates new map.
+	 *
+	 * @param keyCodec   converts keys to bytes.
+	 * @param valueCodec converts values to bytes.
+	 * @param size       number of index slots. <b>Note: size will be rounded to
+	 *                   nearest power of two, at most 2^30.</b>
+	 * @param slabSize   number of bytes in one slab. Entries bigger than that get
+	 *                   a slab of their own.
+	 * @throws NullPointerException     if any codec is null.
+	 * @throws IllegalArgumentException if size or slabSize is smaller than 1
+	 */
+	public OffHeapHashtable(Codec<K> keyCodec, Codec<V> valueCodec, int size, int slabSize) {
+		if (keyCodec == null || valueCodec == null) {
+			throw new NullPointerException(NULL_CODEC_ERROR);
+		}
+		if (size < 1 || slabSize < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = 2;
+		while (nearestPowerOfTwo < size && nearestPowerOfTwo < MAXIMUM_CAPACITY) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		this.slabSize = slabSize;
+		allocateIndex(nearestPowerOfTwo);
+		slabs = new ByteBuffer[4];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns number of bytes this map has allocated outside of Java heap.
+	 *
+	 * @return number of allocated bytes.
+	 */
+	public long offHeapBytes() {
+		checkOpen();
+		long bytes = 0;
+		for (ByteBuffer page : index) {
+			bytes += page.capacity();
+		}
+		for (int i = 0; i < slabCount; i++) {
+			bytes += slabs[i].capacity();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair in map. New pair is
+	 * always written at the end of last slab.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Must not be null.</b>
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         null is returned.
+	 * @throws NullPointerException  if given key or value is null.
+	 * @throws IllegalStateException if map is closed, or if it has as many
+	 *                               entries as index of 2^30 slots can hold.
+	 */
+	@Override
+	public V put(K key, V value) {
+		checkOpen();
+		if (value == null) {
+			throw new NullPointerException(NULL_VALUE_ERROR);
+		}
+		int hash = hash(key);
+		int slot = probe(hash, key);
+		if (slot < 0 && capacity == MAXIMUM_CAPACITY && size + 1 >= capacity) {
+			// linear probing needs at least one empty slot
+			throw new IllegalStateException(FULL_ERROR);
+		}
+		valueScratch = encode(valueCodec, value, valueScratch);
+		long address = appendEntry();
+
+		if (slot >= 0) {
+			long previousAddress = address(slot);
+			V previousValue = readValue(previousAddress);
+			discardEntry(previousAddress);
+			setAddress(slot, address);
+			compactIfNeeded();
+			return previousValue;
+		}
+
+		setSlot(-slot - 1, hash, address);
+		size++;
+		modificationCount++;
+		if (size > LOAD_FACTOR * capacity && capacity < MAXIMUM_CAPACITY) {
+			doubleIndexSize();
+		}
+		compactIfNeeded();
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		checkOpen();
+		if (key == null) {
+			return null;
+		}
+		int slot = probe(hash(key), key);
+		return (slot < 0) ? null : readValue(address(slot));
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		checkOpen();
+		return probe(hash(key), key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (TableEntry<K, V> entry : this) {
+			if (entry.getValue().equals(value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		checkOpen();
+		if (key == null) {
+			return null;
+		}
+		int slot = probe(hash(key), key);
+		if (slot < 0) {
+			return null;
+		}
+		V value = readValue(address(slot));
+		removeAt(slot);
+		compactIfNeeded();
+		return value;
+	}
+
+	/** Removes all elements from map and releases all slabs but the first one. */
+	@Override
+	public void clear() {
+		checkOpen();
+		for (int i = 0; i < capacity; i++) {
+			setSlot(i, 0, 0);
+		}
+		for (int i = 1; i < slabCount; i++) {
+			DirectBuffers.free(slabs[i]);
+			slabs[i] = null;
+		}
+		if (slabCount > 0) {
+			slabs[0].clear();
+			slabCount = 1;
+		}
+		liveBytes = garbageBytes = 0;
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Releases all buffers of this map. On Java 9 and later their memory is freed
+	 * at once, on older runtimes it is given back when garbage collector collects
+	 * them. Closing closed map has no effect.
+	 */
+	@Override
+	public void close() {
+		if (index == null) {
+			return;
+		}
+		freeIndex(index);
+		for (int i = 0; i < slabCount; i++) {
+			DirectBuffers.free(slabs[i]);
+		}
+		index = null;
+		slabs = null;
+		keyScratch = valueScratch = null;
+		slabCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the iterator for this map. Keys and values are read from slabs for
+	 * every returned entry, setting value of returned entry stores it in the map.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (TableEntry<K, V> entry : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Searches index for given key. Key is written to {@link #keyScratch} and its
+	 * bytes are compared only with entries whose hash matches.
+	 *
+	 * @param hash spread hash code of key.
+	 * @param key  to search for.
+	 * @return slot of key if it is found, otherwise <code>-(emptySlot + 1)</code>
+	 *         where emptySlot is slot at which key would be stored.
+	 */
+	@SuppressWarnings("unchecked")
+	private int probe(int hash, Object key) {
+		try {
+			keyScratch = encode(keyCodec, (K) key, keyScratch);
+		} catch (ClassCastException e) {
+			return -1 - (hash & mask);
+		}
+		int slot = hash & mask;
+		long address;
+		while ((address = address(slot)) != 0) {
+			if (hash(index, slot) == hash && keyEquals(address)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -slot - 1;
+	}
+
+	/**
+	 * Compares bytes of key in {@link #keyScratch} with bytes of key of entry at
+	 * given address.
+	 */
+	private boolean keyEquals(long address) {
+		ByteBuffer slab = slab(address);
+		int position = offset(address);
+		int length = keyScratch.remaining();
+		if (keyCodec.fixedSize() < 0) {
+			if (slab.getInt(position) != length) {
+				return false;
+			}
+			position += Integer.BYTES;
+		}
+		for (int i = 0; i < length; i++) {
+			if (slab.get(position + i) != keyScratch.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes key from {@link #keyScratch} and value from {@link #valueScratch}
+	 * at the end of last slab, starting new slab if there is not enough space.
+	 *
+	 * @return address of written entry.
+	 */
+	private long appendEntry() {
+		int length = entryLength(keyScratch.remaining(), valueScratch.remaining());
+		ByteBuffer slab = slabWithSpace(length);
+		long address = ((long) slabCount << 32) | slab.position();
+		if (keyCodec.fixedSize() < 0) {
+			slab.putInt(keyScratch.remaining());
+		}
+		slab.put(keyScratch.duplicate());
+		if (valueCodec.fixedSize() < 0) {
+			slab.putInt(valueScratch.remaining());
+		}
+		slab.put(valueScratch.duplicate());
+		liveBytes += length;
+		return address;
+	}
+
+	/**
+	 * Returns last slab if it has enough space for entry of given length,
+	 * otherwise allocates new slab and returns it.
+	 */
+	private ByteBuffer slabWithSpace(int length) {
+		if (slabCount == 0 || slabs[slabCount - 1].remaining() < length) {
+			if (slabCount == slabs.length) {
+				ByteBuffer[] newSlabs = new ByteBuffer[slabs.length * 2];
+				System.arraycopy(slabs, 0, newSlabs, 0, slabs.length);
+				slabs = newSlabs;
+			}
+			slabs[slabCount++] = ByteBuffer.allocateDirect(Math.max(slabSize, length));
+		}
+		return slabs[slabCount - 1];
+	}
+
+	/** Marks entry at given address as garbage. */
+	private void discardEntry(long address) {
+		int length = storedEntryLength(address);
+		liveBytes -= length;
+		garbageBytes += length;
+	}
+
+	/**
+	 * Rewrites all live entries into new slabs when more than half of used slab
+	 * space is garbage. Slots of index stay the same, only addresses change.
+	 */
+	private void compactIfNeeded() {
+		if (garbageBytes <= liveBytes || garbageBytes < slabSize) {
+			return;
+		}
+		ByteBuffer[] oldSlabs = slabs;
+		int oldSlabCount = slabCount;
+		slabs = new ByteBuffer[4];
+		slabCount = 0;
+		liveBytes = garbageBytes = 0;
+		for (int slot = 0; slot < capacity; slot++) {
+			long address = address(slot);
+			if (address == 0) {
+				continue;
+			}
+			ByteBuffer oldSlab = oldSlabs[(int) (address >>> 32) - 1];
+			int position = offset(address);
+			int length = storedEntryLength(oldSlab, position);
+			ByteBuffer entry = oldSlab.duplicate();
+			entry.limit(position + length).position(position);
+
+			ByteBuffer slab = slabWithSpace(length);
+			setAddress(slot, ((long) slabCount << 32) | slab.position());
+			slab.put(entry);
+			liveBytes += length;
+		}
+		for (int i = 0; i < oldSlabCount; i++) {
+			DirectBuffers.free(oldSlabs[i]);
+			oldSlabs[i] = null;
+		}
+	}
+
+	/**
+	 * Removes entry in given index slot. Following entries of the same cluster
+	 * that would become unreachable are shifted back into the freed slot.
+	 *
+	 * @param slot of entry to be removed.
+	 */
+	private void removeAt(int slot) {
+		discardEntry(address(slot));
+		int freeSlot = slot;
+		int currentSlot = (slot + 1) & mask;
+		long address;
+		while ((address = address(currentSlot)) != 0) {
+			int hash = hash(index, currentSlot);
+			// entry can fill free slot only if its home slot is not between the two
+			if (((currentSlot - (hash & mask)) & mask) >= ((currentSlot - freeSlot) & mask)) {
+				setSlot(freeSlot, hash, address);
+				freeSlot = currentSlot;
+			}
+			currentSlot = (currentSlot + 1) & mask;
+		}
+		setSlot(freeSlot, 0, 0);
+		size--;
+		modificationCount++;
+	}
+
+	/** Creates index two times bigger than current one and moves all slots into it. */
+	private void doubleIndexSize() {
+		ByteBuffer[] oldIndex = index;
+		int oldCapacity = capacity;
+		allocateIndex(capacity * 2);
+		for (int i = 0; i < oldCapacity; i++) {
+			long address = address(oldIndex, i);
+			if (address != 0) {
+				int hash = hash(oldIndex, i);
+				int slot = hash & mask;
+				while (address(slot) != 0) {
+					slot = (slot + 1) & mask;
+				}
+				setSlot(slot, hash, address);
+			}
+		}
+		freeIndex(oldIndex);
+	}
+
+	private void allocateIndex(int capacity) {
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		int pageSlots = Math.min(capacity, INDEX_PAGE_SLOTS);
+		index = new ByteBuffer[capacity / pageSlots];
+		for (int i = 0; i < index.length; i++) {
+			index[i] = ByteBuffer.allocateDirect(pageSlots * INDEX_SLOT_SIZE);
+		}
+	}
+
+	private static void freeIndex(ByteBuffer[] index) {
+		for (ByteBuffer page : index) {
+			DirectBuffers.free(page);
+		}
+	}
+
+	private void setSlot(int slot, int hash, long address) {
+		ByteBuffer page = index[slot / INDEX_PAGE_SLOTS];
+		int position = (slot % INDEX_PAGE_SLOTS) * INDEX_SLOT_SIZE;
+		page.putInt(position, hash);
+		page.putLong(position + 4, address);
+	}
+
+	private void setAddress(int slot, long address) {
+		index[slot / INDEX_PAGE_SLOTS].putLong((slot % INDEX_PAGE_SLOTS) * INDEX_SLOT_SIZE + 4, address);
+	}
+
+	/** Returns address of entry in given index slot, 0 if slot is empty. */
+	private long address(int slot) {
+		return address(index, slot);
+	}
+
+	private static long address(ByteBuffer[] index, int slot) {
+		return index[slot / INDEX_PAGE_SLOTS].getLong((slot % INDEX_PAGE_SLOTS) * INDEX_SLOT_SIZE + 4);
+	}
+
+	/** Returns spread hash of key in given index slot. */
+	private static int hash(ByteBuffer[] index, int slot) {
+		return index[slot / INDEX_PAGE_SLOTS].getInt((slot % INDEX_PAGE_SLOTS) * INDEX_SLOT_SIZE);
+	}
+
+	private ByteBuffer slab(long address) {
+		return slabs[(int) (address >>> 32) - 1];
+	}
+
+	private static int offset(long address) {
+		return (int) address;
+	}
+
+	private K readKey(long address) {
+		ByteBuffer slab = slab(address);
+		int position = offset(address);
+		int length = keyCodec.fixedSize();
+		if (length < 0) {
+			length = slab.getInt(position);
+			position += Integer.BYTES;
+		}
+		return read(keyCodec, slab, position, length);
+	}
+
+	private V readValue(long address) {
+		ByteBuffer slab = slab(address);
+		int position = offset(address) + storedKeyLength(slab, offset(address));
+		int length = valueCodec.fixedSize();
+		if (length < 0) {
+			length = slab.getInt(position);
+			position += Integer.BYTES;
+		}
+		return read(valueCodec, slab, position, length);
+	}
+
+	private static <T> T read(Codec<T> codec, ByteBuffer slab, int position, int length) {
+		ByteBuffer view = slab.duplicate();
+		view.limit(position + length).position(position);
+		return codec.read(view, length);
+	}
+
+	/** Returns number of bytes key part of entry takes, including length. */
+	private int storedKeyLength(ByteBuffer slab, int position) {
+		int length = keyCodec.fixedSize();
+		return (length < 0) ? Integer.BYTES + slab.getInt(position) : length;
+	}
+
+	private int storedEntryLength(long address) {
+		return storedEntryLength(slab(address), offset(address));
+	}
+
+	/** Returns number of bytes entry at given position takes. */
+	private int storedEntryLength(ByteBuffer slab, int position) {
+		int keyLength = storedKeyLength(slab, position);
+		int valueLength = valueCodec.fixedSize();
+		if (valueLength < 0) {
+			valueLength = Integer.BYTES + slab.getInt(position + keyLength);
+		}
+		return keyLength + valueLength;
+	}
+
+	/** Returns number of bytes entry with given key and value sizes takes. */
+	private int entryLength(int keyLength, int valueLength) {
+		int length = keyLength + valueLength;
+		if (keyCodec.fixedSize() < 0) {
+			length += Integer.BYTES;
+		}
+		if (valueCodec.fixedSize() < 0) {
+			length += Integer.BYTES;
+		}
+		return length;
+	}
+
+	/**
+	 * Writes object into given buffer using codec, doubling buffer until object
+	 * fits.
+	 *
+	 * @return flipped buffer holding bytes of object, not necessarily the one
+	 *         given.
+	 */
+	private static <T> ByteBuffer encode(Codec<T> codec, T value, ByteBuffer buffer) {
+		while (true) {
+			buffer.clear();
+			try {
+				codec.write(value, buffer);
+				buffer.flip();
+				return buffer;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+	}
+
+	/**
+	 * @throws IllegalStateException if map is closed
+	 */
+	private void checkOpen() {
+		if (index == null) {
+			throw new IllegalStateException(CLOSED_ERROR);
+		}
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 *
+	 * @param key to calculate hash for.
+	 * @return spread hash code of key.
+	 * @throws NullPointerException if key is null.
+	 */
+	private static int hash(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
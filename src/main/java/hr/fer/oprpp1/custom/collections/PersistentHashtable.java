@@ -0,0 +1,903 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Immutable hash map implemented as hash array mapped trie (HAMT). Every
+ * update returns a new version of the map, which shares all nodes that were
+ * not on the path to changed key with the previous version. Update therefore
+ * copies at most one node per level, and there are at most 7 levels.
+ * <p>
+ * Every node holds up to 32 children, chosen by 5 bits of key's hash, and a
+ * bitmap of children that are present, so only present children take space.
+ * Child is either key-value pair or another node. Keys whose whole hashes are
+ * equal are kept in a collision node.
+ * <p>
+ * Versions are never changed, so they can be given to other threads without
+ * copying or locking. For building a map with many puts there is
+ * {@link Builder}, which changes nodes it created in place and turns into
+ * persistent map in constant time.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public final class PersistentHashtable<K, V> implements Iterable<TableEntry<K, V>> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String IMMUTABLE_ENTRY_ERROR = "Entries of persistent map can not be changed";
+
+	/** Number of hash bits used on each level of trie. */
+	private static final int BITS = 5;
+
+	/** Mask of hash bits used on one level. */
+	private static final int LEVEL_MASK = (1 << BITS) - 1;
+
+	/** Maximal depth of trie, 32 hash bits with 5 per level. */
+	private static final int MAX_DEPTH = 7;
+
+	/** Returned by node search when key is not found, since values can be null. */
+	private static final Object NOT_FOUND = new Object();
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentHashtable EMPTY = new PersistentHashtable<>(null, 0);
+
+	/**
+	 * Map that can be changed in place and turned into {@link PersistentHashtable}
+	 * in constant time by {@link #build()}. Builder changes only nodes it created
+	 * since the last build, other nodes are copied as in persistent map, so maps
+	 * built earlier are never affected by later changes.
+	 * <p>
+	 * Builder is not thread safe, but maps it builds are.
+	 *
+	 * @param <K> the type of keys maintained by this map
+	 * @param <V> the type of mapped values
+	 */
+	public static final class Builder<K, V> implements Map<K, V> {
+
+		/** Iterates over entries of trie frozen at creation of iterator. */
+		private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+			private final NodeIterator iterator;
+			private Object lastKey;
+			private boolean canRemove = false;
+			private int savedModificationCount = modificationCount;
+
+			private IteratorImpl() {
+				// nodes reachable now are not changed in place any more
+				owner = new Object();
+				iterator = new NodeIterator(root);
+			}
+
+			@Override
+			public boolean hasNext() {
+				checkForModifications();
+				return iterator.hasNext();
+			}
+
+			@Override
+			public TableEntry<K, V> next() {
+				checkForModifications();
+				iterator.next();
+				lastKey = iterator.key;
+				canRemove = true;
+				return new Entry<>(iterator.key, iterator.value);
+			}
+
+			/** Removes last returned key, copying nodes so that iterated trie stays the same. */
+			@Override
+			public void remove() {
+				checkForModifications();
+				if (!canRemove) {
+					throw new IllegalStateException();
+				}
+				Builder.this.remove(lastKey);
+				canRemove = false;
+				savedModificationCount = modificationCount;
+			}
+
+			private void checkForModifications() {
+				if (modificationCount != savedModificationCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+
+		/** Marks nodes this builder may change in place. */
+		private Object owner = new Object();
+
+		private Node root;
+		private int size;
+
+		/** Stores number of structural modifications. */
+		private int modificationCount = 0;
+
+		private Builder(Node root, int size) {
+			this.root = root;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public V put(K key, V value) {
+			if (key == null) {
+				throw new NullPointerException(NULL_KEY_ERROR);
+			}
+			Change change = new Change();
+			root = assoc(root, owner, hash(key), key, value, change);
+			if (change.added) {
+				size++;
+				modificationCount++;
+			}
+			return change.previousValue();
+		}
+
+		@Override
+		public V get(Object key) {
+			return find(root, key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return contains(root, key);
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			return PersistentHashtable.containsValue(root, value);
+		}
+
+		@Override
+		public V remove(Object key) {
+			if (key == null || root == null) {
+				return null;
+			}
+			Change change = new Change();
+			root = root.without(owner, 0, hash(key), key, change);
+			if (change.removed) {
+				size--;
+				modificationCount++;
+			}
+			return change.previousValue();
+		}
+
+		@Override
+		public void clear() {
+			root = null;
+			size = 0;
+			modificationCount++;
+		}
+
+		/**
+		 * Returns iterator over entries. Entries can not be changed, but iterator
+		 * supports removal.
+		 */
+		@Override
+		public Iterator<TableEntry<K, V>> iterator() {
+			return new IteratorImpl();
+		}
+
+		/**
+		 * Returns persistent map with current entries in constant time. Builder can
+		 * still be used, its later changes do not affect returned map.
+		 *
+		 * @return persistent map with entries of this builder.
+		 */
+		public PersistentHashtable<K, V> build() {
+			owner = new Object();
+			return (root == null) ? empty() : new PersistentHashtable<>(root, size);
+		}
+
+		@Override
+		public String toString() {
+			return PersistentHashtable.toString(root);
+		}
+	}
+
+	/** Immutable entry returned by iterators. */
+	private static final class Entry<K, V> extends TableEntry<K, V> {
+		private final Object key;
+		private final Object value;
+
+		private Entry(Object key, Object value) {
+			super(null, null);
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public K getKey() {
+			return (K) key;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V getValue() {
+			return (V) value;
+		}
+
+		/**
+		 * @throws UnsupportedOperationException always.
+		 */
+		@Override
+		public void setValue(V value) {
+			throw new UnsupportedOperationException(IMMUTABLE_ENTRY_ERROR);
+		}
+	}
+
+	/** Outcome of one update, filled in by nodes. */
+	private static final class Change {
+		private boolean added;
+		private boolean removed;
+		private Object previousValue;
+
+		@SuppressWarnings("unchecked")
+		private <V> V previousValue() {
+			return (V) previousValue;
+		}
+	}
+
+	/**
+	 * Node of trie. Nodes are immutable, except those whose owner is the owner
+	 * passed to update, which belong to a builder and are changed in place.
+	 */
+	private abstract static class Node {
+		/** Builder that may change this node, null for nodes of persistent maps. */
+		final Object owner;
+
+		Node(Object owner) {
+			this.owner = owner;
+		}
+
+		/**
+		 * Returns node with given key stored.
+		 *
+		 * @param owner  of update, null for persistent update.
+		 * @param shift  of hash bits used on level of this node.
+		 * @param hash   of key.
+		 * @param key    to store.
+		 * @param value  to store.
+		 * @param change that records outcome.
+		 * @return this node if it was changed in place or not changed, new node
+		 *         otherwise.
+		 */
+		abstract Node assoc(Object owner, int shift, int hash, Object key, Object value, Change change);
+
+		/**
+		 * Returns node without given key.
+		 *
+		 * @return as in {@link #assoc}, or null if node became empty.
+		 */
+		abstract Node without(Object owner, int shift, int hash, Object key, Change change);
+
+		/**
+		 * Searches for value of given key.
+		 *
+		 * @return value or {@link PersistentHashtable#NOT_FOUND}.
+		 */
+		abstract Object find(int shift, int hash, Object key);
+
+		/**
+		 * @return number of children.
+		 */
+		abstract int entryCount();
+
+		/**
+		 * @return key of child with given index, null if child is a node.
+		 */
+		abstract Object keyAt(int index);
+
+		/**
+		 * @return value or node of child with given index.
+		 */
+		abstract Object valueAt(int index);
+
+		boolean isEditable(Object owner) {
+			return owner != null && this.owner == owner;
+		}
+	}
+
+	/**
+	 * Node whose children are chosen by 5 bits of hash. Bitmap has a bit set for
+	 * every present child and array holds key and value of every child, in order
+	 * of bits. Child that is a node has null key and node as value.
+	 */
+	private static final class BitmapNode extends Node {
+		private int bitmap;
+
+		/** Nodes of builders can have unused space at the end of array. */
+		private Object[] array;
+
+		BitmapNode(Object owner, int bitmap, Object[] array) {
+			super(owner);
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		@Override
+		Node assoc(Object owner, int shift, int hash, Object key, Object value, Change change) {
+			int bit = bitFor(hash, shift);
+			int index = indexOf(bit);
+			if ((bitmap & bit) != 0) {
+				Object childKey = array[2 * index];
+				Object childValue = array[2 * index + 1];
+				if (childKey == null) {
+					Node child = (Node) childValue;
+					Node newChild = child.assoc(owner, shift + BITS, hash, key, value, change);
+					return (newChild == child) ? this : edit(owner).set(2 * index + 1, newChild);
+				}
+				if (keyEquals(key, childKey)) {
+					change.previousValue = childValue;
+					return (childValue == value) ? this : edit(owner).set(2 * index + 1, value);
+				}
+				change.added = true;
+				Node newChild = createNode(owner, shift + BITS, childKey, childValue, hash, key, value);
+				return edit(owner).set(2 * index, null).set(2 * index + 1, newChild);
+			}
+
+			change.added = true;
+			int count = entryCount();
+			if (isEditable(owner) && array.length >= 2 * (count + 1)) {
+				System.arraycopy(array, 2 * index, array, 2 * index + 2, 2 * (count - index));
+				array[2 * index] = key;
+				array[2 * index + 1] = value;
+				bitmap |= bit;
+				return this;
+			}
+			// builders get spare room, so that following puts do not copy again
+			int capacity = (owner == null) ? count + 1 : Math.min(2 * count + 2, 1 << BITS);
+			Object[] newArray = new Object[2 * capacity];
+			System.arraycopy(array, 0, newArray, 0, 2 * index);
+			newArray[2 * index] = key;
+			newArray[2 * index + 1] = value;
+			System.arraycopy(array, 2 * index, newArray, 2 * index + 2, 2 * (count - index));
+			return new BitmapNode(owner, bitmap | bit, newArray);
+		}
+
+		@Override
+		Node without(Object owner, int shift, int hash, Object key, Change change) {
+			int bit = bitFor(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			int index = indexOf(bit);
+			Object childKey = array[2 * index];
+			Object childValue = array[2 * index + 1];
+			if (childKey == null) {
+				Node child = (Node) childValue;
+				Node newChild = child.without(owner, shift + BITS, hash, key, change);
+				if (newChild == child) {
+					return this;
+				}
+				if (newChild == null) {
+					return removeChild(owner, bit, index);
+				}
+				if (newChild.entryCount() == 1 && newChild.keyAt(0) != null) {
+					// single pair left in child is moved up, so trie stays shallow
+					return edit(owner).set(2 * index, newChild.keyAt(0)).set(2 * index + 1, newChild.valueAt(0));
+				}
+				return edit(owner).set(2 * index + 1, newChild);
+			}
+			if (!keyEquals(key, childKey)) {
+				return this;
+			}
+			change.removed = true;
+			change.previousValue = childValue;
+			return removeChild(owner, bit, index);
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			int bit = bitFor(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return NOT_FOUND;
+			}
+			int index = indexOf(bit);
+			Object childKey = array[2 * index];
+			Object childValue = array[2 * index + 1];
+			if (childKey == null) {
+				return ((Node) childValue).find(shift + BITS, hash, key);
+			}
+			return keyEquals(key, childKey) ? childValue : NOT_FOUND;
+		}
+
+		@Override
+		int entryCount() {
+			return Integer.bitCount(bitmap);
+		}
+
+		@Override
+		Object keyAt(int index) {
+			return array[2 * index];
+		}
+
+		@Override
+		Object valueAt(int index) {
+			return array[2 * index + 1];
+		}
+
+		/** Returns index of child with given bit among present children. */
+		private int indexOf(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		private Node removeChild(Object owner, int bit, int index) {
+			if (bitmap == bit) {
+				return null;
+			}
+			int count = entryCount();
+			if (isEditable(owner)) {
+				System.arraycopy(array, 2 * index + 2, array, 2 * index, 2 * (count - index - 1));
+				array[2 * count - 2] = null;
+				array[2 * count - 1] = null;
+				bitmap ^= bit;
+				return this;
+			}
+			Object[] newArray = new Object[2 * (count - 1)];
+			System.arraycopy(array, 0, newArray, 0, 2 * index);
+			System.arraycopy(array, 2 * index + 2, newArray, 2 * index, 2 * (count - index - 1));
+			return new BitmapNode(owner, bitmap ^ bit, newArray);
+		}
+
+		/** Returns this node if owner may change it, otherwise its copy owned by owner. */
+		private BitmapNode edit(Object owner) {
+			if (isEditable(owner)) {
+				return this;
+			}
+			int length = (owner == null) ? 2 * entryCount() : array.length;
+			return new BitmapNode(owner, bitmap, Arrays.copyOf(array, length));
+		}
+
+		private BitmapNode set(int index, Object object) {
+			array[index] = object;
+			return this;
+		}
+	}
+
+	/** Node of keys whose whole hashes are equal. */
+	private static final class CollisionNode extends Node {
+		private final int hash;
+		private int count;
+		private Object[] array;
+
+		CollisionNode(Object owner, int hash, int count, Object[] array) {
+			super(owner);
+			this.hash = hash;
+			this.count = count;
+			this.array = array;
+		}
+
+		@Override
+		Node assoc(Object owner, int shift, int hash, Object key, Object value, Change change) {
+			if (hash != this.hash) {
+				// this node moves one level down, below node that separates the hashes
+				BitmapNode parent = new BitmapNode(owner, bitFor(this.hash, shift), new Object[] { null, this });
+				return parent.assoc(owner, shift, hash, key, value, change);
+			}
+			int index = indexOf(key);
+			if (index != -1) {
+				change.previousValue = array[index + 1];
+				if (array[index + 1] == value) {
+					return this;
+				}
+				CollisionNode node = edit(owner);
+				node.array[index + 1] = value;
+				return node;
+			}
+
+			change.added = true;
+			if (isEditable(owner) && array.length >= 2 * (count + 1)) {
+				array[2 * count] = key;
+				array[2 * count + 1] = value;
+				count++;
+				return this;
+			}
+			Object[] newArray = Arrays.copyOf(array, 2 * ((owner == null) ? count + 1 : 2 * count + 2));
+			newArray[2 * count] = key;
+			newArray[2 * count + 1] = value;
+			return new CollisionNode(owner, hash, count + 1, newArray);
+		}
+
+		@Override
+		Node without(Object owner, int shift, int hash, Object key, Change change) {
+			int index = (hash == this.hash) ? indexOf(key) : -1;
+			if (index == -1) {
+				return this;
+			}
+			change.removed = true;
+			change.previousValue = array[index + 1];
+			if (count == 1) {
+				return null;
+			}
+			CollisionNode node = edit(owner);
+			// last pair fills the hole, order of colliding keys does not matter
+			node.array[index] = node.array[2 * count - 2];
+			node.array[index + 1] = node.array[2 * count - 1];
+			node.array[2 * count - 2] = null;
+			node.array[2 * count - 1] = null;
+			node.count--;
+			return node;
+		}
+
+		@Override
+		Object find(int shift, int hash, Object key) {
+			if (hash != this.hash) {
+				return NOT_FOUND;
+			}
+			int index = indexOf(key);
+			return (index == -1) ? NOT_FOUND : array[index + 1];
+		}
+
+		@Override
+		int entryCount() {
+			return count;
+		}
+
+		@Override
+		Object keyAt(int index) {
+			return array[2 * index];
+		}
+
+		@Override
+		Object valueAt(int index) {
+			return array[2 * index + 1];
+		}
+
+		/** Returns index of key in array or -1. */
+		private int indexOf(Object key) {
+			for (int i = 0; i < 2 * count; i += 2) {
+				if (keyEquals(key, array[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private CollisionNode edit(Object owner) {
+			if (isEditable(owner)) {
+				return this;
+			}
+			int length = (owner == null) ? 2 * count : array.length;
+			return new CollisionNode(owner, hash, count, Arrays.copyOf(array, length));
+		}
+	}
+
+	/**
+	 * Walks trie depth first. Position on every level is kept in arrays, whose
+	 * length is bounded by depth of trie.
+	 */
+	private static final class NodeIterator {
+		private final Node[] nodes = new Node[MAX_DEPTH + 1];
+		private final int[] positions = new int[MAX_DEPTH + 1];
+		private int depth;
+
+		/** Key and value of the entry returned by last call of next. */
+		private Object key;
+		private Object value;
+
+		private NodeIterator(Node root) {
+			nodes[0] = root;
+			depth = (root == null) ? -1 : 0;
+			advance();
+		}
+
+		private boolean hasNext() {
+			return depth >= 0;
+		}
+
+		private void next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node node = nodes[depth];
+			int position = positions[depth]++;
+			key = node.keyAt(position);
+			value = node.valueAt(position);
+			advance();
+		}
+
+		/** Moves to next pair, descending into child nodes and leaving finished ones. */
+		private void advance() {
+			while (depth >= 0) {
+				Node node = nodes[depth];
+				int position = positions[depth];
+				if (position == node.entryCount()) {
+					depth--;
+				} else if (node.keyAt(position) == null) {
+					positions[depth]++;
+					depth++;
+					nodes[depth] = (Node) node.valueAt(position);
+					positions[depth] = 0;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+	/** Iterates over entries, removal is not supported. */
+	private static final class IteratorImpl<K, V> implements Iterator<TableEntry<K, V>> {
+		private final NodeIterator iterator;
+
+		private IteratorImpl(Node root) {
+			iterator = new NodeIterator(root);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			iterator.next();
+			return new Entry<>(iterator.key, iterator.value);
+		}
+	}
+
+	/** Root of trie, null for empty map. */
+	private final Node root;
+
+	private final int size;
+
+	private PersistentHashtable(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns empty map.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 * @return empty map.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashtable<K, V> empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Returns new empty builder.
+	 *
+	 * @param <K> the type of keys
+	 * @param <V> the type of values
+	 * @return new builder.
+	 */
+	public static <K, V> Builder<K, V> builder() {
+		return new Builder<>(null, 0);
+	}
+
+	/**
+	 * Returns builder that starts with entries of this map, in constant time.
+	 *
+	 * @return new builder.
+	 */
+	public Builder<K, V> toBuilder() {
+		return new Builder<>(root, size);
+	}
+
+	/**
+	 * Returns number of stored key-value pairs.
+	 *
+	 * @return number of pairs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if there are no key-value pairs in this map.
+	 *
+	 * @return true if map is empty.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns map with given key-value pair stored. This map is not changed.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return new map, or this map if it already holds the same pair.
+	 * @throws NullPointerException if given key is null.
+	 */
+	public PersistentHashtable<K, V> put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		Change change = new Change();
+		Node newRoot = assoc(root, null, hash(key), key, value, change);
+		if (newRoot == root) {
+			return this;
+		}
+		return new PersistentHashtable<>(newRoot, change.added ? size + 1 : size);
+	}
+
+	/**
+	 * Returns map without given key. This map is not changed.
+	 *
+	 * @param key to be removed.
+	 * @return new map, or this map if it does not hold given key.
+	 */
+	public PersistentHashtable<K, V> remove(Object key) {
+		if (key == null || root == null) {
+			return this;
+		}
+		Change change = new Change();
+		Node newRoot = root.without(null, 0, hash(key), key, change);
+		if (!change.removed) {
+			return this;
+		}
+		return (newRoot == null) ? empty() : new PersistentHashtable<>(newRoot, size - 1);
+	}
+
+	/**
+	 * Returns value stored for given key.
+	 *
+	 * @param key to search for.
+	 * @return value or null if key is not stored.
+	 */
+	public V get(Object key) {
+		return find(root, key);
+	}
+
+	/**
+	 * Returns true if given key is stored in this map.
+	 *
+	 * @param key to search for.
+	 * @return true if key is stored.
+	 */
+	public boolean containsKey(Object key) {
+		return contains(root, key);
+	}
+
+	/**
+	 * Returns true if given value is stored in this map.
+	 *
+	 * @param value to search for, <b>can be null</b>.
+	 * @return true if value is stored.
+	 */
+	public boolean containsValue(Object value) {
+		return containsValue(root, value);
+	}
+
+	/**
+	 * Returns iterator over entries. Entries can not be changed and iterator does
+	 * not support removal.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl<>(root);
+	}
+
+	/**
+	 * Gives key and value of every entry to given action.
+	 *
+	 * @param action to call for every key-value pair.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		NodeIterator iterator = new NodeIterator(root);
+		while (iterator.hasNext()) {
+			iterator.next();
+			action.accept((K) iterator.key, (V) iterator.value);
+		}
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		return toString(root);
+	}
+
+	private static Node assoc(Node root, Object owner, int hash, Object key, Object value, Change change) {
+		if (root == null) {
+			change.added = true;
+			return new BitmapNode(owner, bitFor(hash, 0), new Object[] { key, value });
+		}
+		return root.assoc(owner, 0, hash, key, value, change);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V find(Node root, Object key) {
+		if (key == null || root == null) {
+			return null;
+		}
+		Object value = root.find(0, hash(key), key);
+		return (value == NOT_FOUND) ? null : (V) value;
+	}
+
+	private static boolean contains(Node root, Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		return root != null && root.find(0, hash(key), key) != NOT_FOUND;
+	}
+
+	private static boolean containsValue(Node root, Object value) {
+		NodeIterator iterator = new NodeIterator(root);
+		while (iterator.hasNext()) {
+			iterator.next();
+			if (Objects.equals(value, iterator.value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String toString(Node root) {
+		StringBuilder builder = new StringBuilder("[");
+		NodeIterator iterator = new NodeIterator(root);
+		while (iterator.hasNext()) {
+			iterator.next();
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(iterator.key).append('=').append(iterator.value);
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Creates node that holds two pairs with different keys, nesting nodes while
+	 * their hashes agree on the bits of level.
+	 */
+	private static Node createNode(Object owner, int shift, Object firstKey, Object firstValue, int secondHash,
+			Object secondKey, Object secondValue) {
+		int firstHash = hash(firstKey);
+		if (firstHash == secondHash) {
+			return new CollisionNode(owner, firstHash, 2, new Object[] { firstKey, firstValue, secondKey, secondValue });
+		}
+		int firstBit = bitFor(firstHash, shift);
+		int secondBit = bitFor(secondHash, shift);
+		if (firstBit == secondBit) {
+			Node child = createNode(owner, shift + BITS, firstKey, firstValue, secondHash, secondKey, secondValue);
+			return new BitmapNode(owner, firstBit, new Object[] { null, child });
+		}
+		// bit of chunk 31 is negative, so bits are compared as unsigned
+		Object[] array = (Integer.compareUnsigned(firstBit, secondBit) < 0)
+				? new Object[] { firstKey, firstValue, secondKey, secondValue }
+				: new Object[] { secondKey, secondValue, firstKey, firstValue };
+		return new BitmapNode(owner, firstBit | secondBit, array);
+	}
+
+	/** Returns bit of bitmap that hash selects on level with given shift. */
+	private static int bitFor(int hash, int shift) {
+		return 1 << ((hash >>> shift) & LEVEL_MASK);
+	}
+
+	private static boolean keyEquals(Object key, Object storedKey) {
+		return key == storedKey || key.equals(storedKey);
+	}
+
+	/**
+	 * Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since trie uses low bits first.
+	 *
+	 * @param key to calculate hash for
+	 * @return spread hash code of key
+	 */
+	private static int hash(Object key) {
+		int hashCode = key.hashCode();
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+}
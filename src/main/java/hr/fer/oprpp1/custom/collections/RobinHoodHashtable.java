@@ -0,0 +1,444 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.lang.reflect.Array;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map that uses open addressing with Robin Hood linear probing. Keys,
+ * values and hashes are stored in parallel arrays, so no entry objects are
+ * allocated. On insert, entry that is further from its home slot takes the
+ * place of entry that is closer to its own. Removed entries are not marked
+ * with tombstones, following entries are shifted one slot back instead.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class RobinHoodHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+
+	/** Maximal ratio of occupied slots before internal arrays are doubled. */
+	private static final double MAX_LOAD_FACTOR = 0.875;
+
+	/**
+	 * Entry returned by iterator. Setting its value writes into the map, through
+	 * its slot while the slot still holds its key.
+	 */
+	private class EntryView extends TableEntry<K, V> {
+
+		/** Slot from which this entry was read. */
+		private int slot;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param slot from which entry is read.
+		 */
+		public EntryView(int slot) {
+			super(keys[slot], values[slot]);
+			this.slot = slot;
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			// removals shift other keys into the slot since entry was read
+			if (keys[slot] == getKey()) {
+				values[slot] = value;
+			} else {
+				put(getKey(), value);
+			}
+		}
+	}
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/**
+		 * Slot at which iteration starts. It is always empty, so backward shift on
+		 * removal never moves visited entries past it.
+		 */
+		private int startSlot;
+
+		/** Number of slots visited so far. */
+		private int visitedSlots = 0;
+
+		/** Slot of last returned entry, -1 if there is none. */
+		private int lastReturnedSlot = -1;
+
+		private int savedModificationCount;
+
+		/**
+		 * Constructor. Creates new iterator for RobinHoodHashtable.
+		 *
+		 * @param modificationCount of collection.
+		 */
+		public IteratorImpl(int modificationCount) {
+			savedModificationCount = modificationCount;
+			while (startSlot < keys.length && keys[startSlot] != null) {
+				startSlot++;
+			}
+		}
+
+		/**
+		 * @throws ConcurrentModificationException if collection has been modified after
+		 *                                         iterator is being created
+		 */
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			while (visitedSlots < keys.length && keys[currentSlot()] == null) {
+				visitedSlots++;
+			}
+			return visitedSlots < keys.length;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastReturnedSlot = currentSlot();
+			visitedSlots++;
+			return new EntryView(lastReturnedSlot);
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastReturnedSlot == -1) {
+				throw new IllegalStateException();
+			}
+			removeAt(lastReturnedSlot);
+			lastReturnedSlot = -1;
+			savedModificationCount = modificationCount;
+			// entry shifted into removed slot has not been visited yet
+			visitedSlots--;
+		}
+
+		/** Returns slot that iterator is currently looking at. */
+		private int currentSlot() {
+			return (startSlot + visitedSlots) & mask;
+		}
+	}
+
+	/** Keys stored in map, null marks an empty slot. */
+	private K[] keys;
+
+	/** Values stored in map, at the same slot as their keys. */
+	private V[] values;
+
+	/** Spread hash codes of stored keys, at the same slot as their keys. */
+	private int[] hashes;
+
+	/** Used for calculating slot, always equals keys.length - 1 */
+	private int mask;
+
+	/** Number of key-value pairs stored in this map */
+	private int size = 0;
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	/** Creates new RobinHoodHashtable object with storage arrays of 16 slots. */
+	public RobinHoodHashtable() {
+		this(16);
+	}
+
+	/**
+	 * Creates new RobinHoodHashtable object with storage arrays of size.
+	 *
+	 * @param size of internal storage arrays. <b>Note: size will be rounded to
+	 *             nearest power of two.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public RobinHoodHashtable(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = 2;
+		while (nearestPowerOfTwo < size) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+
+		allocate(nearestPowerOfTwo);
+	}
+
+	/**
+	 * Creates empty storage arrays of given capacity.
+	 *
+	 * @param capacity power of two.
+	 */
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = (K[]) new Object[capacity];
+		values = (V[]) new Object[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		checkKeyValidity(key);
+		int hash = spread(key.hashCode());
+		int slot = findSlot(key, hash);
+		if (slot != -1) {
+			V previousValue = values[slot];
+			values[slot] = value;
+			return previousValue;
+		}
+
+		if (size + 1 > MAX_LOAD_FACTOR * keys.length) {
+			doubleTableSize();
+		}
+		insert(key, value, hash);
+		size++;
+		modificationCount++;
+		return null;
+	}
+
+	/**
+	 * Inserts key that is not yet stored in map. Walking from home slot, whenever
+	 * resident entry is closer to its home slot than the one being inserted they
+	 * swap places and insertion continues with the displaced entry.
+	 *
+	 * @param key   to be stored.
+	 * @param value to be stored.
+	 * @param hash  spread hash code of key.
+	 */
+	private void insert(K key, V value, int hash) {
+		int slot = hash & mask;
+		int distance = 0;
+		while (keys[slot] != null) {
+			int residentDistance = probeDistance(slot, hashes[slot]);
+			if (residentDistance < distance) {
+				K residentKey = keys[slot];
+				V residentValue = values[slot];
+				int residentHash = hashes[slot];
+				keys[slot] = key;
+				values[slot] = value;
+				hashes[slot] = hash;
+				key = residentKey;
+				value = residentValue;
+				hash = residentHash;
+				distance = residentDistance;
+			}
+			slot = (slot + 1) & mask;
+			distance++;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		hashes[slot] = hash;
+	}
+
+	/**
+	 * Creates new arrays two times bigger than previous ones and reinserts all
+	 * entries. Stored hashes are reused.
+	 */
+	private void doubleTableSize() {
+		K[] oldKeys = keys;
+		V[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(keys.length * 2);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				insert(oldKeys[i], oldValues[i], oldHashes[i]);
+			}
+		}
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int slot = findSlot(key, spread(key.hashCode()));
+		return (slot == -1) ? null : values[slot];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		checkKeyValidity(key);
+		return findSlot(key, spread(key.hashCode())) != -1;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null && (value == null ? values[i] == null : value.equals(values[i]))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int slot = findSlot(key, spread(key.hashCode()));
+		if (slot == -1) {
+			return null;
+		}
+		V value = values[slot];
+		removeAt(slot);
+		return value;
+	}
+
+	/**
+	 * Removes entry at given slot and shifts following entries of the same probe
+	 * sequence one slot back, until empty slot or entry in its home slot is found.
+	 *
+	 * @param slot of entry to be removed.
+	 */
+	private void removeAt(int slot) {
+		int nextSlot = (slot + 1) & mask;
+		while (keys[nextSlot] != null && probeDistance(nextSlot, hashes[nextSlot]) > 0) {
+			keys[slot] = keys[nextSlot];
+			values[slot] = values[nextSlot];
+			hashes[slot] = hashes[nextSlot];
+			slot = nextSlot;
+			nextSlot = (nextSlot + 1) & mask;
+		}
+		keys[slot] = null;
+		values[slot] = null;
+		size--;
+		modificationCount++;
+	}
+
+	/**
+	 * Finds slot in which given key is stored. Search stops early when it reaches
+	 * entry that is closer to its home slot than searched key would be.
+	 *
+	 * @param key  to search for.
+	 * @param hash spread hash code of key.
+	 * @return slot of key or -1 if key is not stored.
+	 */
+	private int findSlot(Object key, int hash) {
+		int slot = hash & mask;
+		int distance = 0;
+		while (keys[slot] != null && distance <= probeDistance(slot, hashes[slot])) {
+			if (hashes[slot] == hash && key.equals(keys[slot])) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+			distance++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns how far is given slot from home slot of given hash.
+	 *
+	 * @param slot in which entry is stored.
+	 * @param hash of entry.
+	 * @return number of slots between home slot and given slot.
+	 */
+	private int probeDistance(int slot, int hash) {
+		return (slot - (hash & mask)) & mask;
+	}
+
+	/**
+	 * Mixes high bits of hash code into low bits, which are used for choosing
+	 * slot. Without it keys whose hash codes differ only in high bits would form
+	 * long probe sequences.
+	 *
+	 * @param hashCode of key.
+	 * @return spread hash code.
+	 */
+	private static int spread(int hashCode) {
+		int hash = hashCode * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**Validator for key - <b>key must not be null!</b>
+	 * @throws NullPointerException if key is null*/
+	private static void checkKeyValidity(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+	}
+
+	/**
+	 * Removes all elements from hash map. <b>It doesn't change size of internal
+	 * arrays.</b>
+	 */
+	@Override
+	public void clear() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = null;
+			values[i] = null;
+		}
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Creates array filled with key-value pairs that are stored in this hash map.
+	 *
+	 * @return new array filled with all key-value pairs from this hash-map.
+	 */
+	@SuppressWarnings("unchecked")
+	public TableEntry<K, V>[] toArray() {
+		TableEntry<K, V>[] array = (TableEntry<K, V>[]) Array.newInstance(TableEntry.class, size);
+		int index = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				array[index++] = new TableEntry<K, V>(keys[i], values[i]);
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Returns string representation of this hash map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				builder.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Returns the iterator for this RobinHoodHashtable. Returned entries are
+	 * created on demand.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl(modificationCount);
+	}
+
+}
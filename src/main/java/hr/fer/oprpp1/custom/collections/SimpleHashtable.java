@@ -5,6 +5,14 @@ import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Models simple hash map that can be iterated.
@@ -14,10 +22,34 @@ import java.util.NoSuchElementException;
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of mapped values
  */
-public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntry<K, V>> {
+public class SimpleHashtable<K, V> implements Map<K, V> {
 
 	private static final String NULL_KEY_ERROR = "Key must not be null";
 	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+	private static final String FALSE_POSITIVE_RATE_ERROR = "False positive rate must be between 0 and 1";
+	private static final String MEMORY_BUDGET_ERROR = "Memory budget must be at least 1 byte";
+
+	/** Number of buckets moved from old array on each put or remove during resize. */
+	private static final int MIGRATION_STEP = 4;
+
+	/** Number of entries in a slot at which list in that slot is converted into tree. */
+	private static final int TREEIFY_THRESHOLD = 8;
+
+	/** Number of entries in a slot below which tree in that slot is converted back into list. */
+	private static final int UNTREEIFY_THRESHOLD = 6;
+
+	/** Smallest number of entries Bloom filter is sized for. */
+	private static final int MIN_BLOOM_CAPACITY = 64;
+
+	/** Decides when function given to {@link #computeEntry} is called. */
+	private enum ComputeMode {
+		/** Function is always called. */
+		ALWAYS,
+		/** Function is called if key is not stored or its value is null. */
+		IF_ABSENT,
+		/** Function is called if key is stored with value that is not null. */
+		IF_PRESENT
+	}
 
 	/**
 	 * Class that models single key-value pair for maps or dictionaries.
@@ -32,6 +64,9 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		private V value;
 		private TableEntry<K, V> next;
 
+		/** Spread hash code of key, cached so it is never computed twice. */
+		private final int hash;
+
 		/**
 		 * Constructor. Creates new key-value pair.
 		 * 
@@ -39,8 +74,20 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		 * @param value to be stored
 		 */
 		public TableEntry(K key, V value) {
+			this(key, value, (key == null) ? 0 : hash(key));
+		}
+
+		/**
+		 * Constructor. Creates new key-value pair with already calculated hash.
+		 * 
+		 * @param key   to be stored
+		 * @param value to be stored
+		 * @param hash  spread hash code of key
+		 */
+		private TableEntry(K key, V value, int hash) {
 			this.key = key;
 			this.value = value;
+			this.hash = hash;
 		}
 
 		/**
@@ -71,18 +118,180 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		}
 	}
 
+	/**
+	 * Entry of a slot whose entries are kept in balanced (AVL) tree. Entries of
+	 * such slot are still linked through <code>next</code> in the same way as in
+	 * ordinary slot, so iteration does not depend on tree shape. Tree is ordered
+	 * by hash and then by {@link Comparable} order of key, if key implements it.
+	 * 
+	 * @param <K> the type of keys in this entry
+	 * @param <V> the type of values in this entry
+	 */
+	private static final class TreeNode<K, V> extends TableEntry<K, V> {
+		private TreeNode<K, V> left;
+		private TreeNode<K, V> right;
+
+		/** Previous entry in slot, used for unlinking in constant time. */
+		private TreeNode<K, V> prev;
+
+		/**
+		 * Root of the tree. It is set only in the first entry of a treeified slot,
+		 * in every other entry it is null.
+		 */
+		private TreeNode<K, V> root;
+
+		/** Height of subtree rooted in this node. */
+		private int height = 1;
+
+		/** Number of nodes in subtree rooted in this node. */
+		private int weight = 1;
+
+		/**
+		 * Constructor. Creates new tree node.
+		 * 
+		 * @param key   to be stored
+		 * @param value to be stored
+		 * @param hash  spread hash code of key
+		 */
+		private TreeNode(K key, V value, int hash) {
+			super(key, value, hash);
+		}
+	}
+
+	/**
+	 * Spliterator over a range of slots (as numbered by {@link #slotCount()}).
+	 * Splitting halves the range, so parts can be traversed by different threads
+	 * while map is not modified.
+	 *
+	 * @param <T> type of elements produced from entries
+	 */
+	private class SlotSpliterator<T> implements Spliterator<T> {
+
+		/** Produces element from entry, for example its key. */
+		private final Function<TableEntry<K, V>, ? extends T> mapper;
+
+		/** Characteristics that do not depend on splitting. */
+		private final int baseCharacteristics;
+
+		/** Next slot to be opened. */
+		private int slot;
+
+		/** First slot that does not belong to this spliterator. */
+		private final int endSlot;
+
+		/** Next entry in last opened slot. */
+		private TableEntry<K, V> currentEntry;
+
+		/** Number of remaining entries, exact until spliterator is split. */
+		private long estimatedSize;
+
+		/** True while estimated size is exact. */
+		private boolean sized;
+
+		private final int savedModificationCount;
+
+		private SlotSpliterator(Function<TableEntry<K, V>, ? extends T> mapper, int baseCharacteristics, int slot,
+				int endSlot, long estimatedSize, boolean sized, int modificationCount) {
+			this.mapper = mapper;
+			this.baseCharacteristics = baseCharacteristics;
+			this.slot = slot;
+			this.endSlot = endSlot;
+			this.estimatedSize = estimatedSize;
+			this.sized = sized;
+			this.savedModificationCount = modificationCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			while (currentEntry == null && slot < endSlot) {
+				currentEntry = bucketAt(slot++);
+			}
+			if (currentEntry == null) {
+				return false;
+			}
+			TableEntry<K, V> entry = currentEntry;
+			currentEntry = currentEntry.next;
+			action.accept(mapper.apply(entry));
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			Objects.requireNonNull(action);
+			TableEntry<K, V> entry = currentEntry;
+			currentEntry = null;
+			while (true) {
+				for (; entry != null; entry = entry.next) {
+					action.accept(mapper.apply(entry));
+				}
+				if (slot >= endSlot) {
+					break;
+				}
+				entry = bucketAt(slot++);
+			}
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int middleSlot = (slot + endSlot) >>> 1;
+			if (middleSlot <= slot) {
+				return null;
+			}
+			sized = false;
+			estimatedSize >>>= 1;
+			SlotSpliterator<T> prefix = new SlotSpliterator<T>(mapper, baseCharacteristics, slot, middleSlot,
+					estimatedSize, false, savedModificationCount);
+			prefix.currentEntry = currentEntry;
+			currentEntry = null;
+			slot = middleSlot;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return estimatedSize;
+		}
+
+		@Override
+		public int characteristics() {
+			// parts of split spliterator only estimate their sizes, so it is never SUBSIZED
+			return sized ? baseCharacteristics | Spliterator.SIZED : baseCharacteristics;
+		}
+	}
+
+	/**
+	 * Iterator that always knows next entry, so hasNext does no work. It also
+	 * remembers predecessor of every entry in its chain, so remove unlinks entry
+	 * without searching for it.
+	 */
 	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
 
-		/** Last visited slot in array of entries */
-		private int lastVisitedSlot = 0;
+		/** Entry that next() returns, null if there is none. */
+		private TableEntry<K, V> nextEntry;
 
-		/** Last visited key-value pair in current slot */
-		private TableEntry<K, V> lastVisitedEntry = null;
+		/** Entry before nextEntry in its chain, null if nextEntry is first. */
+		private TableEntry<K, V> nextPredecessor;
 
-		private int savedModificationCount;
+		/** Slot of nextEntry, as numbered by {@link #slotCount()}. */
+		private int nextSlot = -1;
+
+		/** Entry returned by last call of next(), null if it was removed. */
+		private TableEntry<K, V> lastEntry;
 
-		/** Indicates if current element is removed */
-		private boolean isLastRemoved = false;
+		/** Entry before lastEntry in its chain. */
+		private TableEntry<K, V> lastPredecessor;
+
+		/** Slot of lastEntry. */
+		private int lastSlot;
+
+		private int savedModificationCount;
 
 		/**
 		 * Constructor. Creates new Iterator for SimpleHashTable.
@@ -91,6 +300,7 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		 */
 		public IteratorImpl(int modificationCount) {
 			savedModificationCount = modificationCount;
+			advanceToSlot(0);
 		}
 
 		/**
@@ -103,57 +313,71 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 			}
 		}
 
-		@Override
-		public boolean hasNext() {
-			checkForModifications();
-			int savedLastVisitedSlot = lastVisitedSlot;
-			if (lastVisitedEntry != null && lastVisitedEntry.next != null) {
-				return true;
-			} else {
-				savedLastVisitedSlot++;
-				while (savedLastVisitedSlot < table.length) {
-					if (table[savedLastVisitedSlot] == null) {
-						savedLastVisitedSlot++;
-					} else {
-						return true;
-					}
+		/** Sets next entry to first entry of first non-empty slot starting with given slot. */
+		private void advanceToSlot(int slot) {
+			nextPredecessor = null;
+			nextEntry = null;
+			int slots = slotCount();
+			for (; slot < slots; slot++) {
+				TableEntry<K, V> entry = bucketAt(slot);
+				if (entry != null) {
+					nextEntry = entry;
+					nextSlot = slot;
+					return;
 				}
-				return false;
 			}
+		}
 
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			return nextEntry != null;
 		}
 
 		@Override
 		public TableEntry<K, V> next() {
 			checkForModifications();
-			if (lastVisitedEntry != null && lastVisitedEntry.next != null) {
-				lastVisitedEntry = lastVisitedEntry.next;
-				isLastRemoved = false;
-				return lastVisitedEntry;
-			} else {
-				lastVisitedSlot++;
-				while (lastVisitedSlot < table.length) {
-					if (table[lastVisitedSlot] == null) {
-						lastVisitedSlot++;
-					} else {
-						lastVisitedEntry = table[lastVisitedSlot];
-						isLastRemoved = false;
-						return lastVisitedEntry;
-					}
-				}
+			if (nextEntry == null) {
 				throw new NoSuchElementException();
 			}
+			lastEntry = nextEntry;
+			lastPredecessor = nextPredecessor;
+			lastSlot = nextSlot;
+			if (nextEntry.next != null) {
+				nextPredecessor = nextEntry;
+				nextEntry = nextEntry.next;
+			} else {
+				advanceToSlot(nextSlot + 1);
+			}
+			return lastEntry;
 		}
 
+		/**
+		 * Removes last returned entry by unlinking it from its predecessor. Removal
+		 * does not advance incremental resize, so entries that are not yet visited
+		 * stay in their slots.
+		 */
 		public void remove() {
 			checkForModifications();
-			if (isLastRemoved == true) {
+			if (lastEntry == null) {
 				throw new IllegalStateException();
+			}
+			TableEntry<K, V>[] bucketTable = arrayOfSlot(lastSlot);
+			int slot = indexOfSlot(lastSlot);
+			if (isTreeBin(bucketTable[slot])) {
+				treeRemove(bucketTable, slot, (TreeNode<K, V>) lastEntry);
+			} else if (lastPredecessor == null) {
+				bucketTable[slot] = lastEntry.next;
 			} else {
-				SimpleHashtable.this.remove(lastVisitedEntry.key);
-				isLastRemoved = true;
-				savedModificationCount++;
+				lastPredecessor.next = lastEntry.next;
+			}
+			if (nextPredecessor == lastEntry) {
+				nextPredecessor = lastPredecessor;
 			}
+			lastEntry = null;
+			size--;
+			modificationCount++;
+			savedModificationCount++;
 		}
 
 	}
@@ -161,12 +385,44 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	/** Array in which entries are stored */
 	private TableEntry<K, V>[] table;
 
+	/**
+	 * Array from which entries are being moved while table is resized. It is null
+	 * when no resize is in progress.
+	 */
+	private TableEntry<K, V>[] oldTable;
+
+	/** First slot of oldTable whose entries have not been moved yet. */
+	private int migrationIndex = 0;
+
 	/** Number of key-value pairs stored in this map */
 	private int size = 0;
 
 	/** Stores number of structural modifications on this hash map. */
 	private int modificationCount = 0;
 
+	/** Receives probe lengths and resizes, disabled by default. */
+	private HashtableStatistics statistics = HashtableStatistics.NONE;
+
+	/** Time spent migrating buckets during current resize, measured only when statistics are enabled. */
+	private long migrationNanos = 0;
+
+	/** Answers definite misses before table is read, null when disabled. */
+	private BlockedBloomFilter bloomFilter;
+
+	private double bloomFalsePositiveRate;
+
+	private long bloomMaxBytes;
+
+	/** Number of entries Bloom filter was sized for, it is rebuilt bigger once more keys are added. */
+	private int bloomCapacity;
+
+	/**
+	 * Number of keys added into Bloom filter since it was last filled. Keys that
+	 * were removed since are still counted, so difference to size is number of
+	 * stale keys in filter.
+	 */
+	private int bloomAdditions;
+
 	/** Creates new SimpleHashTeable object with storage array of 16 slots. */
 	@SuppressWarnings("unchecked")
 	public SimpleHashtable() {
@@ -202,6 +458,81 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return size;
 	}
 
+	/**
+	 * Returns true if entries are still being moved from old internal array into
+	 * the new one.
+	 * 
+	 * @return true if incremental resize is in progress.
+	 */
+	public boolean isResizing() {
+		return oldTable != null;
+	}
+
+	/**
+	 * Sets statistics that receive probe lengths and resizes of this map. Use
+	 * {@link HashtableStatistics#NONE} to disable them. Lookups answered by Bloom
+	 * filter do not probe the table and are not recorded.
+	 * 
+	 * @param statistics to record into.
+	 * @throws NullPointerException if statistics are null.
+	 */
+	public void setStatistics(HashtableStatistics statistics) {
+		this.statistics = Objects.requireNonNull(statistics);
+	}
+
+	/**
+	 * Puts Bloom filter in front of this map, so that most lookups of keys that
+	 * are not stored return without reading the table. Worth it when most
+	 * lookups are misses and table does not fit into cache. Filter is kept in
+	 * sync on every insert, and rebuilt when map grows past its capacity or when
+	 * many of its keys were removed.
+	 * 
+	 * @param falsePositiveRate probability that lookup of missing key still
+	 *                          searches the table.
+	 * @throws IllegalArgumentException if rate is not between 0 and 1.
+	 */
+	public void enableBloomFilter(double falsePositiveRate) {
+		enableBloomFilter(falsePositiveRate, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Puts Bloom filter in front of this map, which takes at most given number
+	 * of bytes. If budget is too small for wanted rate, filter uses all of it and
+	 * its false positive rate is higher.
+	 * 
+	 * @param falsePositiveRate probability that lookup of missing key still
+	 *                          searches the table.
+	 * @param maxBytes          upper bound on memory of filter.
+	 * @throws IllegalArgumentException if rate is not between 0 and 1 or budget
+	 *                                  is smaller than 1.
+	 * @see #enableBloomFilter(double)
+	 */
+	public void enableBloomFilter(double falsePositiveRate, long maxBytes) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException(FALSE_POSITIVE_RATE_ERROR);
+		}
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException(MEMORY_BUDGET_ERROR);
+		}
+		bloomFalsePositiveRate = falsePositiveRate;
+		bloomMaxBytes = maxBytes;
+		rebuildBloomFilter();
+	}
+
+	/** Removes Bloom filter, so that every lookup searches the table. */
+	public void disableBloomFilter() {
+		bloomFilter = null;
+	}
+
+	/**
+	 * Returns memory taken by Bloom filter.
+	 * 
+	 * @return size of Bloom filter in bytes, 0 if it is disabled.
+	 */
+	public long bloomFilterSize() {
+		return (bloomFilter == null) ? 0 : bloomFilter.byteSize();
+	}
+
 	/**
 	 * Stores new or overwrites existing key-value pair in hash map.
 	 * 
@@ -213,64 +544,361 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public V put(K key, V value) {
 		checkKeyValidity(key);
+		prepareForInsert();
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.PUT, key);
+		}
+		return putEntryToTable(key, value, false);
+	}
+
+	/**
+	 * Stores key-value pair if key is not already stored, or if it is stored with
+	 * null value.
+	 * 
+	 * @param key   to be stored in dictionary. <b>Must not be null.</b>
+	 * @param value to be stored in dictionary. <b>Can be null.</b>
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         null is returned.
+	 * @throws NullPointerException if given key is null.
+	 */
+	public V putIfAbsent(K key, V value) {
+		checkKeyValidity(key);
+		prepareForInsert();
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.PUT, key);
+		}
+		return putEntryToTable(key, value, true);
+	}
+
+	/**
+	 * Computes value for given key if it is not stored, or if it is stored with
+	 * null value. If function returns null nothing is stored.
+	 * 
+	 * @param key             for which value is computed. <b>Must not be
+	 *                        null.</b>
+	 * @param mappingFunction computes value from key.
+	 * @return value stored for given key after this call.
+	 * @throws NullPointerException if key or function is null.
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		Objects.requireNonNull(mappingFunction);
+		return computeEntry(key, (k, oldValue) -> mappingFunction.apply(k), ComputeMode.IF_ABSENT);
+	}
+
+	/**
+	 * Computes new value for given key if it is stored with value that is not
+	 * null. If function returns null pair is removed.
+	 * 
+	 * @param key               for which value is computed. <b>Must not be
+	 *                          null.</b>
+	 * @param remappingFunction computes new value from key and old value.
+	 * @return new value stored for given key or null if there is none.
+	 * @throws NullPointerException if key or function is null.
+	 */
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return computeEntry(key, remappingFunction, ComputeMode.IF_PRESENT);
+	}
+
+	/**
+	 * Computes new value for given key from its current value (null if key is not
+	 * stored). If function returns null pair is removed.
+	 * 
+	 * @param key               for which value is computed. <b>Must not be
+	 *                          null.</b>
+	 * @param remappingFunction computes new value from key and old value.
+	 * @return new value stored for given key or null if there is none.
+	 * @throws NullPointerException if key or function is null.
+	 */
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(remappingFunction);
+		return computeEntry(key, remappingFunction, ComputeMode.ALWAYS);
+	}
+
+	/**
+	 * Stores given value if key is not stored or is stored with null value.
+	 * Otherwise stores value that function computes from old and given value. If
+	 * function returns null pair is removed.
+	 * 
+	 * @param key               for which value is merged. <b>Must not be
+	 *                          null.</b>
+	 * @param value             to be merged. <b>Must not be null.</b>
+	 * @param remappingFunction computes new value from old and given value.
+	 * @return new value stored for given key or null if there is none.
+	 * @throws NullPointerException if key, value or function is null.
+	 */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		Objects.requireNonNull(value);
+		Objects.requireNonNull(remappingFunction);
+		return computeEntry(key,
+				(k, oldValue) -> (oldValue == null) ? value : remappingFunction.apply(oldValue, value),
+				ComputeMode.ALWAYS);
+	}
+
+	/**
+	 * Moves buckets of incremental resize and starts new resize if load factor
+	 * is reached. Called before every operation that can store new entry.
+	 */
+	private void prepareForInsert() {
+		migrateBuckets();
 		if (Double.valueOf(size) / Double.valueOf(table.length) >= 0.75) {
 			doubleTableSize();
 		}
-		size++;
-		modificationCount++;
-		return putEntryToTable(key, value);
 	}
 
 	/**
 	 * Manager for storing elements in hash map. If key exists its value will be
-	 * overwritten, otherwise new pair will be appended to the end of table.
+	 * overwritten, otherwise new pair will be appended to the end of table. Bucket
+	 * is walked only once.
 	 * 
-	 * @param key   to be stored.
-	 * @param value to be stored.
+	 * @param key          to be stored.
+	 * @param value        to be stored.
+	 * @param onlyIfAbsent if true, value that is not null is never overwritten.
 	 * @return value that was previously stored for given key.
 	 */
-	private V putEntryToTable(K key, V value) {
-		int slot = calculateSlot(key);
-		TableEntry<K, V> foundEntry = findEntry(slot, key);
+	private V putEntryToTable(K key, V value, boolean onlyIfAbsent) {
+		int hash = hash(key);
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		int slot = calculateSlot(hash, bucketTable);
+		TableEntry<K, V> currentEntry = bucketTable[slot];
 
-		if (foundEntry == null) {
-			putEntryOnEnd(slot, key, value);
+		if (isTreeBin(currentEntry)) {
+			TreeNode<K, V> foundNode = treeFind(((TreeNode<K, V>) currentEntry).root, hash, key);
+			if (foundNode != null) {
+				return overwriteEntry(foundNode, value, onlyIfAbsent);
+			}
+			insertEntry(bucketTable, slot, null, 0, hash, key, value);
 			return null;
-		} else {
-			return overwriteEntry(value, foundEntry);
 		}
 
+		TableEntry<K, V> lastEntry = null;
+		int binSize = 0;
+		while (currentEntry != null) {
+			if (keyMatches(currentEntry, hash, key)) {
+				return overwriteEntry(currentEntry, value, onlyIfAbsent);
+			}
+			lastEntry = currentEntry;
+			currentEntry = currentEntry.next;
+			binSize++;
+		}
+		insertEntry(bucketTable, slot, lastEntry, binSize, hash, key, value);
+		return null;
 	}
 
 	/**
 	 * Overwrites found tableEntry with new given <code>value</code>.
 	 * 
-	 * @param value      to overwrite existing.
-	 * @param foundEntry to be overwritten.
+	 * @param foundEntry   to be overwritten.
+	 * @param value        to overwrite existing.
+	 * @param onlyIfAbsent if true, value that is not null is not overwritten.
 	 * @return value that was previously stored for given key.
 	 */
-	private V overwriteEntry(V value, TableEntry<K, V> foundEntry) {
-		size--;
-		modificationCount--;
+	private V overwriteEntry(TableEntry<K, V> foundEntry, V value, boolean onlyIfAbsent) {
 		V previousValue = foundEntry.value;
-		foundEntry.value = value;
+		if (!onlyIfAbsent || previousValue == null) {
+			foundEntry.value = value;
+		}
 		return previousValue;
 	}
 
 	/**
-	 * Creates new array for storing key-value pairs but size two times bigger than
-	 * previous array. <b>All elements are copied into new array but with new slot
-	 * numbers!</b>
+	 * Finds entry for given key and replaces, removes or creates it using given
+	 * function, walking the bucket only once. Function returning null means that
+	 * key should not be stored.
+	 * 
+	 * @param key      for which value is computed.
+	 * @param function computes new value from key and old value.
+	 * @param mode     decides when function is called.
+	 * @return value stored for given key after this call.
+	 */
+	private V computeEntry(K key, BiFunction<? super K, ? super V, ? extends V> function, ComputeMode mode) {
+		checkKeyValidity(key);
+		prepareForInsert();
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.PUT, key);
+		}
+		int hash = hash(key);
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		int slot = calculateSlot(hash, bucketTable);
+		TableEntry<K, V> currentEntry = bucketTable[slot];
+		TableEntry<K, V> previousEntry = null;
+		int binSize = 0;
+
+		if (isTreeBin(currentEntry)) {
+			currentEntry = treeFind(((TreeNode<K, V>) currentEntry).root, hash, key);
+		} else {
+			while (currentEntry != null && !keyMatches(currentEntry, hash, key)) {
+				previousEntry = currentEntry;
+				currentEntry = currentEntry.next;
+				binSize++;
+			}
+		}
+
+		V oldValue = (currentEntry == null) ? null : currentEntry.value;
+		if (mode == ComputeMode.IF_ABSENT && oldValue != null || mode == ComputeMode.IF_PRESENT && oldValue == null) {
+			return oldValue;
+		}
+		int savedModificationCount = modificationCount;
+		V newValue = function.apply(key, oldValue);
+		if (modificationCount != savedModificationCount) {
+			throw new ConcurrentModificationException();
+		}
+
+		if (currentEntry == null) {
+			if (newValue != null) {
+				insertEntry(bucketTable, slot, previousEntry, binSize, hash, key, newValue);
+			}
+		} else if (newValue != null) {
+			currentEntry.value = newValue;
+		} else if (mode == ComputeMode.IF_ABSENT) {
+			// key mapped to null is left as it is, like absent key
+		} else if (currentEntry instanceof TreeNode && isTreeBin(bucketTable[slot])) {
+			treeRemove(bucketTable, slot, (TreeNode<K, V>) currentEntry);
+			size--;
+			modificationCount++;
+		} else {
+			if (previousEntry == null) {
+				bucketTable[slot] = currentEntry.next;
+			} else {
+				previousEntry.next = currentEntry.next;
+			}
+			size--;
+			modificationCount++;
+		}
+		return newValue;
+	}
+
+	/**
+	 * Starts resize by creating new array for storing key-value pairs two times
+	 * bigger than previous array. Entries are not copied here, they are moved
+	 * bucket by bucket on later puts and removes (see {@link #migrateBuckets()}).
+	 * If previous resize is still in progress it is finished first.
 	 */
 	@SuppressWarnings("unchecked")
 	private void doubleTableSize() {
-		TableEntry<K, V>[] oldEntries = toArray();
+		while (oldTable != null) {
+			migrateBuckets();
+		}
+		oldTable = table;
+		migrationIndex = 0;
 		table = (TableEntry<K, V>[]) Array.newInstance(TableEntry.class, table.length * 2);
-		for (TableEntry<K, V> entry : oldEntries) {
-			if (entry != null) {
-				putEntryToTable(entry.key, entry.value);
+		migrationNanos = 0;
+		statistics.recordResizeStarted(table.length);
+	}
+
+	/**
+	 * Moves at most {@link #MIGRATION_STEP} buckets from old array into the new
+	 * one. Entries are relinked, not copied. Once the last bucket is moved old
+	 * array is released.
+	 * <p>
+	 * Entries of old slot <code>i</code> can only land in new slots
+	 * <code>i</code> and <code>i + oldTable.length</code>, which one is decided
+	 * by a single bit of cached hash. Order of entries is preserved.
+	 */
+	private void migrateBuckets() {
+		if (oldTable == null) {
+			return;
+		}
+		long start = statistics.isEnabled() ? System.nanoTime() : 0;
+		int oldLength = oldTable.length;
+		int end = Math.min(migrationIndex + MIGRATION_STEP, oldLength);
+		for (; migrationIndex < end; migrationIndex++) {
+			TableEntry<K, V> currentEntry = oldTable[migrationIndex];
+			oldTable[migrationIndex] = null;
+			TableEntry<K, V> loHead = null, loTail = null, hiHead = null, hiTail = null;
+			while (currentEntry != null) {
+				TableEntry<K, V> nextEntry = currentEntry.next;
+				currentEntry.next = null;
+				if ((currentEntry.hash & oldLength) == 0) {
+					if (loTail == null) {
+						loHead = currentEntry;
+					} else {
+						loTail.next = currentEntry;
+					}
+					loTail = currentEntry;
+				} else {
+					if (hiTail == null) {
+						hiHead = currentEntry;
+					} else {
+						hiTail.next = currentEntry;
+					}
+					hiTail = currentEntry;
+				}
+				currentEntry = nextEntry;
 			}
+			table[migrationIndex] = loHead;
+			table[migrationIndex + oldLength] = hiHead;
+			adjustBinType(table, migrationIndex);
+			adjustBinType(table, migrationIndex + oldLength);
 		}
+		if (statistics.isEnabled()) {
+			migrationNanos += System.nanoTime() - start;
+		}
+		if (migrationIndex == oldTable.length) {
+			oldTable = null;
+			migrationIndex = 0;
+			statistics.recordResizeFinished(migrationNanos);
+		}
+	}
+
+	/**
+	 * Returns array that holds bucket for given key. While resize is in progress
+	 * keys whose bucket has not been moved yet are still found in old array.
+	 * 
+	 * @param hash spread hash code of key to find array for.
+	 * @return array that holds bucket for given key.
+	 */
+	private TableEntry<K, V>[] tableFor(int hash) {
+		if (oldTable != null && calculateSlot(hash, oldTable) >= migrationIndex) {
+			return oldTable;
+		}
+		return table;
+	}
+
+	/**
+	 * Returns number of slots that are visited when iterating over this map. While
+	 * resize is in progress slots of old array come first.
+	 * 
+	 * @return number of slots in old and new array.
+	 */
+	private int slotCount() {
+		return (oldTable == null) ? table.length : oldTable.length + table.length;
+	}
+
+	/**
+	 * Returns first entry in given slot, where slots are numbered as described in
+	 * {@link #slotCount()}.
+	 * 
+	 * @param slot to read.
+	 * @return first entry in slot or null if slot is empty.
+	 */
+	private TableEntry<K, V> bucketAt(int slot) {
+		if (oldTable == null) {
+			return table[slot];
+		}
+		return (slot < oldTable.length) ? oldTable[slot] : table[slot - oldTable.length];
+	}
+
+	/**
+	 * Returns array that holds given slot, where slots are numbered as described
+	 * in {@link #slotCount()}.
+	 * 
+	 * @param slot to find array for.
+	 * @return old or new array.
+	 */
+	private TableEntry<K, V>[] arrayOfSlot(int slot) {
+		return (oldTable == null || slot >= oldTable.length) ? table : oldTable;
+	}
+
+	/**
+	 * Returns index of given slot inside array returned by
+	 * {@link #arrayOfSlot(int)}.
+	 * 
+	 * @param slot to find index for.
+	 * @return index inside array.
+	 */
+	private int indexOfSlot(int slot) {
+		return (oldTable == null || slot < oldTable.length) ? slot : slot - oldTable.length;
 	}
 
 	/**
@@ -281,17 +909,15 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 */
 	public boolean containsKey(Object key) {
 		checkKeyValidity(key);
-		int slot = calculateSlot(key);
-		TableEntry<K, V> currentEntry = table[slot];
-
-		while (currentEntry != null) {
-			if (currentEntry.key.equals(key)) {
-				return true;
-			} else {
-				currentEntry = currentEntry.next;
-			}
+		int hash = hash(key);
+		if (bloomFilter != null && !bloomFilter.mightContain(hash)) {
+			return false;
 		}
-		return false;
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.CONTAINS_KEY, key);
+		}
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		return findEntry(bucketTable, calculateSlot(hash, bucketTable), hash, key) != null;
 	}
 
 	/**
@@ -301,7 +927,8 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 * @return true if value exists in hash map.
 	 */
 	public boolean containsValue(Object value) {
-		for (TableEntry<K, V> currentEntry : table) {
+		for (int slot = 0; slot < slotCount(); slot++) {
+			TableEntry<K, V> currentEntry = bucketAt(slot);
 
 			while (currentEntry != null) {
 				if (currentEntry.value.equals(value)) {
@@ -330,7 +957,8 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	@Override
 	public String toString() {
 		String string = new String("[");
-		for (TableEntry<K, V> currentEntry : table) {
+		for (int slot = 0; slot < slotCount(); slot++) {
+			TableEntry<K, V> currentEntry = bucketAt(slot);
 			while (currentEntry != null) {
 				string += currentEntry.key + "=" + currentEntry.value + ", ";
 				currentEntry = currentEntry.next;
@@ -348,7 +976,8 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	public TableEntry<K, V>[] toArray() {
 		TableEntry<K, V>[] array = (TableEntry<K, V>[]) Array.newInstance(TableEntry.class, size);
 		int index = 0;
-		for (TableEntry<K, V> currentEntry : table) {
+		for (int slot = 0; slot < slotCount(); slot++) {
+			TableEntry<K, V> currentEntry = bucketAt(slot);
 			while (currentEntry != null) {
 				array[index++] = currentEntry;
 				currentEntry = currentEntry.next;
@@ -357,6 +986,18 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return array;
 	}
 
+	/**
+	 * Creates immutable copy of this hash map that finds every key with a single
+	 * probe. Meant for maps that are filled once and only read afterwards. Later
+	 * changes of this map are not visible in the copy.
+	 *
+	 * @return new frozen map with all key-value pairs from this hash map.
+	 * @see FrozenHashtable
+	 */
+	public FrozenHashtable<K, V> freeze() {
+		return FrozenHashtable.copyOf(this);
+	}
+
 	/**
 	 * Removes key-value pair from hash map for given key. If key cannot be found
 	 * nothing is removed and null value is returns. Otherwise pair is removed and
@@ -369,18 +1010,55 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		if (key == null) {
 			return null;
 		}
-		int slot = calculateSlot(key);
-		TableEntry<K, V> currentEntry = table[slot];
-		if (currentEntry.key.equals(key)) {
-			V value = table[slot].value;
-			table[slot] = table[slot].next;
+		if (bloomFilter != null && !bloomFilter.mightContain(hash(key))) {
+			return null;
+		}
+		migrateBuckets();
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.REMOVE, key);
+		}
+		V value = removeEntry(key);
+		if (bloomFilter != null && bloomAdditions - size > size) {
+			// more than half of keys in filter are stale
+			rebuildBloomFilter();
+		}
+		return value;
+	}
+
+	/**
+	 * Unlinks key-value pair with given key from its bucket.
+	 * 
+	 * @param key from key-value pair that needs to be removed.
+	 * @return value of removed key-value pair or null if key cannot be found.
+	 */
+	private V removeEntry(Object key) {
+		int hash = hash(key);
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		int slot = calculateSlot(hash, bucketTable);
+		TableEntry<K, V> currentEntry = bucketTable[slot];
+		if (currentEntry == null) {
+			return null;
+		}
+		if (isTreeBin(currentEntry)) {
+			TreeNode<K, V> foundNode = treeFind(((TreeNode<K, V>) currentEntry).root, hash, key);
+			if (foundNode == null) {
+				return null;
+			}
+			treeRemove(bucketTable, slot, foundNode);
+			size--;
+			modificationCount++;
+			return foundNode.getValue();
+		}
+		if (keyMatches(currentEntry, hash, key)) {
+			V value = currentEntry.value;
+			bucketTable[slot] = currentEntry.next;
 			size--;
 			modificationCount++;
 			return value;
 		}
 
 		while (currentEntry.next != null) {
-			if (currentEntry.next.key.equals(key)) {
+			if (keyMatches(currentEntry.next, hash, key)) {
 				V value = currentEntry.next.value;
 				currentEntry.next = currentEntry.next.next;
 				size--;
@@ -398,58 +1076,451 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	 * @param key for value that needs to be returned.
 	 * @return value to return for given key.
 	 */
-	@SuppressWarnings("unchecked")
 	public V get(Object key) {
 		if (key == null) {
 			return null;
 		}
-		int slot = calculateSlot(key);
-		try {
-			TableEntry<K, V> foundEntry = findEntry(slot, (K) key);
-			return (foundEntry == null) ? null : foundEntry.value;
-		} catch (ClassCastException e) {
+		int hash = hash(key);
+		if (bloomFilter != null && !bloomFilter.mightContain(hash)) {
 			return null;
 		}
+		if (statistics.isEnabled()) {
+			recordProbe(HashtableStatistics.Operation.GET, key);
+		}
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		TableEntry<K, V> foundEntry = findEntry(bucketTable, calculateSlot(hash, bucketTable), hash, key);
+		return (foundEntry == null) ? null : foundEntry.value;
 	}
 
-	/**Creates new entry and stores it in array (at the beginning if slot is empty, otherwise at the end of list in that slot.)
+	/**Creates new entry and stores it in given slot (at the beginning if slot is empty, otherwise after the last entry of the slot.)
+	 * @param bucketTable array that holds the slot
 	 * @param slot place in array to store new entry
+	 * @param lastEntry last entry of the slot, ignored if slot is treeified
+	 * @param binSize number of entries in the slot, ignored if slot is treeified
+	 * @param hash spread hash code of key
 	 * @param key for new entry
 	 * @param value for new entry
 	 */
-	private void putEntryOnEnd(int slot, K key, V value) {
-		if (table[slot] == null) {
-			table[slot] = new TableEntry<K, V>(key, value);
+	private void insertEntry(TableEntry<K, V>[] bucketTable, int slot, TableEntry<K, V> lastEntry, int binSize,
+			int hash, K key, V value) {
+		size++;
+		modificationCount++;
+		if (bloomFilter != null) {
+			addToBloomFilter(hash);
+		}
+		if (isTreeBin(bucketTable[slot])) {
+			treeInsert((TreeNode<K, V>) bucketTable[slot], new TreeNode<K, V>(key, value, hash));
+			return;
+		}
+
+		TableEntry<K, V> entry = new TableEntry<K, V>(key, value, hash);
+		if (lastEntry == null) {
+			bucketTable[slot] = entry;
 		} else {
-			TableEntry<K, V> currentEntry = table[slot];
-			while (currentEntry.next != null) {
-				currentEntry = currentEntry.next;
+			lastEntry.next = entry;
+			if (binSize + 1 >= TREEIFY_THRESHOLD) {
+				treeify(bucketTable, slot);
 			}
-			currentEntry.next = new TableEntry<K, V>(key, value);
 		}
 	}
 
-	/**Uses hashCode function of given key and calculates slot for array.
-	 * @param key to calculate slot for
-	 * @return number in range 0-table.length-1
+	/**Adds hash of new entry into Bloom filter. If filter already holds as many
+	 * keys as it was sized for, it is rebuilt bigger instead.
+	 * @param hash spread hash code of new key
+	 */
+	private void addToBloomFilter(int hash) {
+		if (++bloomAdditions > bloomCapacity) {
+			rebuildBloomFilter();
+		}
+		bloomFilter.add(hash);
+	}
+
+	/**Creates new Bloom filter sized for twice the current number of entries and
+	 * fills it with hashes of all entries, which also drops removed keys.
 	 */
-	private int calculateSlot(Object key) {
+	private void rebuildBloomFilter() {
+		bloomCapacity = Math.max(MIN_BLOOM_CAPACITY, 2 * size);
+		bloomFilter = new BlockedBloomFilter(bloomCapacity, bloomFalsePositiveRate, bloomMaxBytes);
+		for (int slot = 0; slot < slotCount(); slot++) {
+			for (TableEntry<K, V> currentEntry = bucketAt(slot); currentEntry != null; currentEntry = currentEntry.next) {
+				bloomFilter.add(currentEntry.hash);
+			}
+		}
+		bloomAdditions = size;
+	}
+
+	/**Uses hashCode function of given key and mixes its high bits into low bits,
+	 * since only low bits are used for choosing slot.
+	 * @param key to calculate hash for
+	 * @return spread hash code of key
+	 * @throws NullPointerException if key is null
+	 */
+	private static int hash(Object key) {
 		checkKeyValidity(key);
-		return Math.abs(key.hashCode()) % table.length;
+		int hashCode = key.hashCode();
+		return hashCode ^ (hashCode >>> 16);
+	}
+
+	/**Calculates slot for given hash. Array length is always power of two, so
+	 * masking is used instead of modulo.
+	 * @param hash spread hash code of key
+	 * @param bucketTable array to calculate slot in
+	 * @return number in range 0-bucketTable.length-1
+	 */
+	private static int calculateSlot(int hash, Object[] bucketTable) {
+		return hash & (bucketTable.length - 1);
+	}
+
+	/**Searches bucket of given key once more, counting examined entries and
+	 * equals calls, and records the result. Called only when statistics are
+	 * enabled, so ordinary lookups are not slowed down by counting. For treeified
+	 * bucket height of the tree is recorded as probe length, since that bounds
+	 * the number of nodes a search examines.
+	 * @param operation that is about to search the bucket
+	 * @param key to search for
+	 */
+	private void recordProbe(HashtableStatistics.Operation operation, Object key) {
+		int hash = hash(key);
+		TableEntry<K, V>[] bucketTable = tableFor(hash);
+		TableEntry<K, V> currentEntry = bucketTable[calculateSlot(hash, bucketTable)];
+		if (isTreeBin(currentEntry)) {
+			TreeNode<K, V> root = ((TreeNode<K, V>) currentEntry).root;
+			boolean hit = treeFind(root, hash, key) != null;
+			statistics.recordProbe(operation, hit, root.height, hit ? 1 : 0);
+			return;
+		}
+
+		int probeLength = 0, equalsCalls = 0;
+		boolean hit = false;
+		while (currentEntry != null) {
+			probeLength++;
+			if (currentEntry.hash == hash) {
+				if (currentEntry.key != key) {
+					equalsCalls++;
+				}
+				if (currentEntry.key == key || key.equals(currentEntry.key)) {
+					hit = true;
+					break;
+				}
+			}
+			currentEntry = currentEntry.next;
+		}
+		statistics.recordProbe(operation, hit, probeLength, equalsCalls);
 	}
 
-	
-	/**Iterates over all entires in slot until it finds entry with the same key.*/
-	private TableEntry<K, V> findEntry(int slot, K key) {
-		TableEntry<K, V> currentEntry = table[slot];
+	/**Checks if entry holds given key. Cached hashes are compared first, so
+	 * equals is called only for probable matches.
+	 * @param entry to check
+	 * @param hash spread hash code of key
+	 * @param key to compare with
+	 * @return true if entry holds given key
+	 */
+	private static boolean keyMatches(TableEntry<?, ?> entry, int hash, Object key) {
+		return entry.hash == hash && (entry.key == key || key.equals(entry.key));
+	}
 
-		while (currentEntry != null && !(key.equals(currentEntry.key))) {
+	/**Iterates over all entires in slot until it finds entry with the same key.
+	 * Treeified slots are searched through their tree.*/
+	private TableEntry<K, V> findEntry(TableEntry<K, V>[] bucketTable, int slot, int hash, Object key) {
+		TableEntry<K, V> currentEntry = bucketTable[slot];
+		if (isTreeBin(currentEntry)) {
+			return treeFind(((TreeNode<K, V>) currentEntry).root, hash, key);
+		}
+
+		while (currentEntry != null && !keyMatches(currentEntry, hash, key)) {
 			currentEntry = currentEntry.next;
 		}
 
 		return currentEntry;
 	}
 
+	/**Returns true if given first entry of a slot is the head of a tree.
+	 * @param first entry of a slot, can be null
+	 * @return true if slot is treeified
+	 */
+	private static boolean isTreeBin(TableEntry<?, ?> first) {
+		return first instanceof TreeNode && ((TreeNode<?, ?>) first).root != null;
+	}
+
+	/**Converts list in given slot into tree if it is long enough, or converts tree
+	 * back into list if it is too short. Used after slot is split on resize.
+	 * @param bucketTable array that holds the slot
+	 * @param slot to adjust
+	 */
+	private static <K, V> void adjustBinType(TableEntry<K, V>[] bucketTable, int slot) {
+		int binSize = 0;
+		for (TableEntry<K, V> currentEntry = bucketTable[slot]; currentEntry != null; currentEntry = currentEntry.next) {
+			binSize++;
+		}
+		if (binSize >= TREEIFY_THRESHOLD) {
+			treeify(bucketTable, slot);
+		} else if (bucketTable[slot] instanceof TreeNode) {
+			untreeify((TreeNode<K, V>) bucketTable[slot]);
+		}
+	}
+
+	/**Builds tree out of entries in given slot. Order of entries in list is
+	 * preserved, entries that are not yet tree nodes are replaced by tree nodes.
+	 * @param bucketTable array that holds the slot
+	 * @param slot to treeify
+	 */
+	private static <K, V> void treeify(TableEntry<K, V>[] bucketTable, int slot) {
+		TreeNode<K, V> head = null, tail = null, root = null;
+		TableEntry<K, V> currentEntry = bucketTable[slot];
+		while (currentEntry != null) {
+			TableEntry<K, V> nextEntry = currentEntry.next;
+			TreeNode<K, V> node = (currentEntry instanceof TreeNode) ? (TreeNode<K, V>) currentEntry
+					: new TreeNode<K, V>(currentEntry.key, currentEntry.value, currentEntry.hash);
+			node.left = node.right = node.root = null;
+			node.height = node.weight = 1;
+			node.prev = tail;
+			if (tail == null) {
+				head = node;
+			} else {
+				link(tail, node);
+			}
+			tail = node;
+			root = avlInsert(root, node);
+			currentEntry = nextEntry;
+		}
+		link(tail, null);
+		head.root = root;
+		bucketTable[slot] = head;
+	}
+
+	/**Turns treeified slot back into ordinary list. Entries stay the same objects,
+	 * so iterators that are walking the slot are not affected. Slot that was
+	 * already turned back into list can also hold ordinary entries added later,
+	 * those are skipped.
+	 * @param head first entry of the slot
+	 */
+	private static <K, V> void untreeify(TreeNode<K, V> head) {
+		head.root = null;
+		for (TableEntry<K, V> currentEntry = head; currentEntry != null; currentEntry = currentEntry.next) {
+			if (currentEntry instanceof TreeNode) {
+				TreeNode<K, V> node = (TreeNode<K, V>) currentEntry;
+				node.left = node.right = null;
+			}
+		}
+	}
+
+	/**Links new node into treeified slot, right after the head of the slot.
+	 * @param head first entry of the slot
+	 * @param node to be inserted
+	 */
+	private static <K, V> void treeInsert(TreeNode<K, V> head, TreeNode<K, V> node) {
+		TreeNode<K, V> second = nextNode(head);
+		link(node, second);
+		node.prev = head;
+		if (second != null) {
+			second.prev = node;
+		}
+		link(head, node);
+		head.root = avlInsert(head.root, node);
+	}
+
+	/**Unlinks given node from treeified slot. Removed node keeps its
+	 * <code>next</code> reference, so iterator positioned on it can continue.
+	 * @param bucketTable array that holds the slot
+	 * @param slot of the node
+	 * @param node to be removed
+	 */
+	private static <K, V> void treeRemove(TableEntry<K, V>[] bucketTable, int slot, TreeNode<K, V> node) {
+		TreeNode<K, V> head = (TreeNode<K, V>) bucketTable[slot];
+		TreeNode<K, V> root = avlRemove(head.root, node);
+		TreeNode<K, V> next = nextNode(node);
+		if (node == head) {
+			head.root = null;
+			head = next;
+			bucketTable[slot] = head;
+		} else {
+			link(node.prev, next);
+		}
+		if (next != null) {
+			next.prev = node.prev;
+		}
+
+		if (head == null) {
+			return;
+		}
+		head.root = root;
+		if (root.weight < UNTREEIFY_THRESHOLD) {
+			untreeify(head);
+		}
+	}
+
+	/**Sets next entry of given entry.*/
+	private static <K, V> void link(TableEntry<K, V> entry, TableEntry<K, V> next) {
+		entry.next = next;
+	}
+
+	/**Returns next entry of given entry in treeified slot.*/
+	private static <K, V> TreeNode<K, V> nextNode(TableEntry<K, V> entry) {
+		return (TreeNode<K, V>) entry.next;
+	}
+
+	/**Searches tree for entry with given key.
+	 * @param node root of the tree
+	 * @param hash spread hash code of key
+	 * @param key to search for
+	 * @return node with given key or null if there is no such node
+	 */
+	private static <K, V> TreeNode<K, V> treeFind(TreeNode<K, V> node, int hash, Object key) {
+		while (node != null) {
+			TableEntry<K, V> entry = node;
+			int comparison = compareKeys(hash, key, entry.hash, entry.key);
+			if (comparison < 0) {
+				node = node.left;
+			} else if (comparison > 0) {
+				node = node.right;
+			} else if (entry.key == key || key.equals(entry.key)) {
+				return node;
+			} else {
+				// order of keys is unknown, both subtrees have to be searched
+				TreeNode<K, V> foundNode = treeFind(node.right, hash, key);
+				if (foundNode != null) {
+					return foundNode;
+				}
+				node = node.left;
+			}
+		}
+		return null;
+	}
+
+	/**Compares two keys in order used by tree: by hash and then by
+	 * {@link Comparable} order, if keys are of the same class that implements it.
+	 * @return negative, zero or positive number as first key is less than, equal to
+	 *         or greater than second. Zero is returned also when order of keys is
+	 *         unknown.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareKeys(int firstHash, Object firstKey, int secondHash, Object secondKey) {
+		if (firstHash != secondHash) {
+			return Integer.compare(firstHash, secondHash);
+		}
+		if (firstKey instanceof Comparable && firstKey.getClass() == secondKey.getClass()) {
+			return ((Comparable) firstKey).compareTo(secondKey);
+		}
+		return 0;
+	}
+
+	/**Compares two nodes for placing them in tree. Unlike {@link #compareKeys}, ties
+	 * are broken by class name of keys and then by their identity hash code.*/
+	private static int compareNodes(TableEntry<?, ?> first, TableEntry<?, ?> second) {
+		int comparison = compareKeys(first.hash, first.key, second.hash, second.key);
+		if (comparison != 0) {
+			return comparison;
+		}
+		comparison = first.key.getClass().getName().compareTo(second.key.getClass().getName());
+		if (comparison != 0) {
+			return comparison;
+		}
+		return Integer.compare(System.identityHashCode(first.key), System.identityHashCode(second.key));
+	}
+
+	/**Inserts node into AVL tree.
+	 * @return new root of the tree*/
+	private static <K, V> TreeNode<K, V> avlInsert(TreeNode<K, V> root, TreeNode<K, V> node) {
+		if (root == null) {
+			return node;
+		}
+		if (compareNodes(node, root) <= 0) {
+			root.left = avlInsert(root.left, node);
+		} else {
+			root.right = avlInsert(root.right, node);
+		}
+		return rebalance(root);
+	}
+
+	/**Removes node from AVL tree.
+	 * @return new root of the tree*/
+	private static <K, V> TreeNode<K, V> avlRemove(TreeNode<K, V> root, TreeNode<K, V> node) {
+		if (root == null) {
+			return null;
+		}
+		if (root == node) {
+			if (root.left == null) {
+				return root.right;
+			}
+			if (root.right == null) {
+				return root.left;
+			}
+			TreeNode<K, V> successor = root.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = avlRemove(root.right, successor);
+			successor.left = root.left;
+			return rebalance(successor);
+		}
+
+		int comparison = compareNodes(node, root);
+		if (comparison < 0 || (comparison == 0 && containsNode(root.left, node))) {
+			root.left = avlRemove(root.left, node);
+		} else {
+			root.right = avlRemove(root.right, node);
+		}
+		return rebalance(root);
+	}
+
+	/**Checks if given node is in given subtree, by walking the whole subtree.
+	 * Used only for nodes that can't be ordered.*/
+	private static boolean containsNode(TreeNode<?, ?> root, TreeNode<?, ?> node) {
+		return root != null && (root == node || containsNode(root.left, node) || containsNode(root.right, node));
+	}
+
+	/**Recalculates height and weight of node and rotates it if its subtrees
+	 * differ in height by more than one.
+	 * @return new root of subtree*/
+	private static <K, V> TreeNode<K, V> rebalance(TreeNode<K, V> node) {
+		updateNode(node);
+		int balance = height(node.left) - height(node.right);
+		if (balance > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (balance < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private static <K, V> TreeNode<K, V> rotateLeft(TreeNode<K, V> node) {
+		TreeNode<K, V> newRoot = node.right;
+		node.right = newRoot.left;
+		newRoot.left = node;
+		updateNode(node);
+		updateNode(newRoot);
+		return newRoot;
+	}
+
+	private static <K, V> TreeNode<K, V> rotateRight(TreeNode<K, V> node) {
+		TreeNode<K, V> newRoot = node.left;
+		node.left = newRoot.right;
+		newRoot.right = node;
+		updateNode(node);
+		updateNode(newRoot);
+		return newRoot;
+	}
+
+	private static void updateNode(TreeNode<?, ?> node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+		node.weight = 1 + weight(node.left) + weight(node.right);
+	}
+
+	private static int height(TreeNode<?, ?> node) {
+		return (node == null) ? 0 : node.height;
+	}
+
+	private static int weight(TreeNode<?, ?> node) {
+		return (node == null) ? 0 : node.weight;
+	}
+
 	/**Validator for key - <b>key must not be null!</b>
 	 * @throws NullPointerException if key is null*/
 	private static void checkKeyValidity(Object key) {
@@ -459,11 +1530,20 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 	}
 
 	/**Removes all elements from hash maps and puts null <b>it doesn't the change size of internal array.</b>
-	 * 
+	 * Resize that is in progress is abandoned.
 	 */
 	public void clear() {
 		Arrays.fill(table, null);
+		if (oldTable != null) {
+			statistics.recordResizeFinished(migrationNanos);
+		}
+		oldTable = null;
+		migrationIndex = 0;
 		size = 0;
+		if (bloomFilter != null) {
+			bloomFilter.clear();
+			bloomAdditions = 0;
+		}
 	}
 
 	/**Returns the iterator for this SimpleHashTable*/
@@ -472,4 +1552,97 @@ public class SimpleHashtable<K, V> implements Iterable<SimpleHashtable.TableEntr
 		return new IteratorImpl(modificationCount);
 	}
 
+	/**
+	 * Gives every entry to given action, walking buckets directly without an
+	 * iterator. Existing {@link Processor} can be passed as
+	 * <code>processor::process</code>. Action must not modify this map.
+	 * 
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	@Override
+	public void forEach(Consumer<? super TableEntry<K, V>> action) {
+		Objects.requireNonNull(action);
+		int savedModificationCount = modificationCount;
+		int slots = slotCount();
+		for (int slot = 0; slot < slots; slot++) {
+			for (TableEntry<K, V> entry = bucketAt(slot); entry != null; entry = entry.next) {
+				action.accept(entry);
+			}
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/**
+	 * Gives key and value of every entry to given action, walking buckets directly
+	 * without an iterator. Action must not modify this map.
+	 * 
+	 * @param action to call for every key-value pair.
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		forEach((TableEntry<K, V> entry) -> action.accept(entry.key, entry.value));
+	}
+
+	/**
+	 * Returns spliterator over entries of this map. It splits over ranges of
+	 * slots and knows exact size until it is split.
+	 */
+	@Override
+	public Spliterator<TableEntry<K, V>> spliterator() {
+		return slotSpliterator(Function.identity(), Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	/**
+	 * Returns sequential stream of entries of this map.
+	 * 
+	 * @return stream of entries.
+	 */
+	public Stream<TableEntry<K, V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns parallel stream of entries of this map, which is split over ranges
+	 * of slots and processed in common fork-join pool. Map must not be modified
+	 * while stream is processed.
+	 * 
+	 * @return parallel stream of entries.
+	 */
+	public Stream<TableEntry<K, V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Returns stream of keys of this map.
+	 * 
+	 * @param parallel if true, returned stream is parallel.
+	 * @return stream of keys.
+	 */
+	public Stream<K> keyStream(boolean parallel) {
+		return StreamSupport.stream(slotSpliterator(TableEntry::getKey, Spliterator.DISTINCT | Spliterator.NONNULL),
+				parallel);
+	}
+
+	/**
+	 * Returns stream of values of this map. Values can be null.
+	 * 
+	 * @param parallel if true, returned stream is parallel.
+	 * @return stream of values.
+	 */
+	public Stream<V> valueStream(boolean parallel) {
+		return StreamSupport.stream(slotSpliterator(TableEntry::getValue, 0), parallel);
+	}
+
+	/**Creates spliterator over all slots of this map.
+	 * @param mapper produces elements from entries
+	 * @param characteristics of produced elements, without SIZED
+	 * @return new spliterator
+	 */
+	private <T> Spliterator<T> slotSpliterator(Function<TableEntry<K, V>, ? extends T> mapper, int characteristics) {
+		return new SlotSpliterator<T>(mapper, characteristics, 0, slotCount(), size, true, modificationCount);
+	}
+
 }
@@ -0,0 +1,511 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Hash map with open addressing in the style of SwissTable. Every slot has a
+ * control byte that tells whether it is empty, deleted or full, and for full
+ * slots holds 7 bits of key's hash. Slots are probed in groups of 16, whose
+ * control bytes are packed into two <code>long</code>s and compared 8 at once
+ * with bit tricks (SWAR). Key is read and compared only for slots whose
+ * control byte matches, so most lookups of missing keys end without calling
+ * <code>equals</code>.
+ * <p>
+ * Hash code is split in two: higher bits choose the first group and lower 7
+ * bits are stored in control byte. Groups are probed with growing steps
+ * (1, 2, 3, ...), which visits every group since their number is a power of
+ * two. Probing stops at first group that has an empty slot.
+ * <p>
+ * Removed slot becomes empty if its group still has an empty slot, since no
+ * probe could have passed that group. Otherwise it is marked deleted and is
+ * reused by later puts or dropped on next rehash.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class SwissHashtable<K, V> implements Map<K, V> {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+
+	/** Number of slots in group, which is probed at once. */
+	private static final int GROUP_SIZE = 16;
+
+	/** Number of control bytes in one long. */
+	private static final int WORD_SIZE = 8;
+
+	/** Control byte of slot that was never used. */
+	private static final long EMPTY = 0x80;
+
+	/** Control byte of slot whose entry was removed. */
+	private static final long DELETED = 0xFE;
+
+	/** Lowest bit of every byte. */
+	private static final long LSB = 0x0101010101010101L;
+
+	/** Highest bit of every byte. */
+	private static final long MSB = 0x8080808080808080L;
+
+	/** Element of control in which all slots are empty. */
+	private static final long EMPTY_WORD = EMPTY * LSB;
+
+	/**
+	 * Entry returned by iterator, holding key and value read from given slot.
+	 * Setting its value writes into this map.
+	 */
+	private class EntryView extends TableEntry<K, V> {
+
+		/** Slot from which entry was read. */
+		private final int slot;
+
+		private EntryView(int slot) {
+			super(keyAt(slot), valueAt(slot));
+			this.slot = slot;
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			// slot can be emptied and reused by another key since entry was read
+			if (keys[slot] == getKey()) {
+				values[slot] = value;
+			} else {
+				put(getKey(), value);
+			}
+		}
+	}
+
+	/** Iterates over full slots, reading 8 control bytes at a time. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private int word = -1;
+
+		/** One bit set for every full slot of current word not yet returned. */
+		private long fullSlots = 0;
+		private int lastSlot = -1;
+		private int savedModificationCount = modificationCount;
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			while (fullSlots == 0) {
+				if (++word == control.length) {
+					word--;
+					return false;
+				}
+				fullSlots = matchFull(control[word]);
+			}
+			return true;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastSlot = slotOf(word, fullSlots);
+			fullSlots &= fullSlots - 1;
+			return new EntryView(lastSlot);
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastSlot == -1) {
+				throw new IllegalStateException();
+			}
+			removeAt(lastSlot);
+			lastSlot = -1;
+			savedModificationCount = modificationCount;
+		}
+
+		private void checkForModifications() {
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+	/**
+	 * Control bytes, {@value #WORD_SIZE} slots per element. Group <code>g</code>
+	 * is made of elements <code>2g</code> and <code>2g + 1</code>.
+	 */
+	private long[] control;
+
+	private Object[] keys;
+	private Object[] values;
+
+	/** Number of empty slots that can still be filled before rehash. */
+	private int growthLeft;
+
+	/** Number of key-value pairs stored in this map */
+	private int size = 0;
+
+	/** Stores number of structural modifications on this hash map. */
+	private int modificationCount = 0;
+
+	/** Creates new SwissHashtable object with 16 slots. */
+	public SwissHashtable() {
+		this(16);
+	}
+
+	/**
+	 * Creates new SwissHashtable object with given number of slots.
+	 *
+	 * @param size number of slots. <b>Note: size will be rounded to nearest power
+	 *             of two, and at least one group of {@value #GROUP_SIZE} slots.</b>
+	 * @throws IllegalArgumentException if size is smaller than 1
+	 */
+	public SwissHashtable(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+
+		int nearestPowerOfTwo = GROUP_SIZE;
+		while (nearestPowerOfTwo < size) {
+			nearestPowerOfTwo = nearestPowerOfTwo << 1;
+		}
+		allocate(nearestPowerOfTwo);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair in hash map.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key. In case of new entry
+	 *         null is returned.
+	 * @throws NullPointerException if given key is null.
+	 */
+	@Override
+	public V put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		int hash = hash(key);
+		int slot = findSlot(hash, key);
+		if (slot >= 0) {
+			V previousValue = valueAt(slot);
+			values[slot] = value;
+			return previousValue;
+		}
+
+		slot = findFreeSlot(hash);
+		if (controlByte(slot) == EMPTY) {
+			if (growthLeft == 0) {
+				rehash();
+				slot = findFreeSlot(hash);
+			}
+			growthLeft--;
+		}
+		setControlByte(slot, hash & 0x7F);
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		modificationCount++;
+		return null;
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int slot = findSlot(hash(key), key);
+		return (slot < 0) ? null : valueAt(slot);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		return findSlot(hash(key), key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int word = 0; word < control.length; word++) {
+			for (long full = matchFull(control[word]); full != 0; full &= full - 1) {
+				int slot = slotOf(word, full);
+				if (Objects.equals(value, values[slot])) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			return null;
+		}
+		int slot = findSlot(hash(key), key);
+		if (slot < 0) {
+			return null;
+		}
+		V value = valueAt(slot);
+		removeAt(slot);
+		return value;
+	}
+
+	/** Removes all elements from hash map. <b>It doesn't change size of internal arrays.</b> */
+	@Override
+	public void clear() {
+		Arrays.fill(control, EMPTY_WORD);
+		Arrays.fill(keys, null);
+		Arrays.fill(values, null);
+		growthLeft = maxLoad(keys.length);
+		size = 0;
+		modificationCount++;
+	}
+
+	/**
+	 * Returns iterator over entries in order of slots. Every call of next creates
+	 * a small view of entry.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Gives key and value of every entry to given action, without creating any
+	 * objects. Action must not modify this map.
+	 *
+	 * @param action to call for every key-value pair.
+	 * @throws ConcurrentModificationException if action modified this map.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		Objects.requireNonNull(action);
+		int savedModificationCount = modificationCount;
+		for (int word = 0; word < control.length; word++) {
+			for (long full = matchFull(control[word]); full != 0; full &= full - 1) {
+				int slot = slotOf(word, full);
+				action.accept(keyAt(slot), valueAt(slot));
+				if (modificationCount != savedModificationCount) {
+					throw new ConcurrentModificationException();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns string representation of this hash map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		forEach((key, value) -> {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(key).append('=').append(value);
+		});
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * Probes groups for given key. Within a group all control bytes equal to 7
+	 * bits of hash are found at once, and only their keys are compared.
+	 *
+	 * @param hash mixed hash code of key.
+	 * @param key  to search for.
+	 * @return slot of key or -1 if key is not stored.
+	 */
+	private int findSlot(int hash, Object key) {
+		int groupMask = (control.length >>> 1) - 1;
+		int word = ((hash >>> 7) & groupMask) << 1;
+		long pattern = (hash & 0x7F) * LSB;
+		for (int step = 1;; step++) {
+			long low = control[word];
+			long high = control[word + 1];
+			for (long matches = interleave(matchByte(low, pattern), matchByte(high, pattern)); matches != 0; matches &= matches - 1) {
+				int slot = slotOfGroup(word, matches);
+				Object slotKey = keys[slot];
+				if (slotKey == key || key.equals(slotKey)) {
+					return slot;
+				}
+			}
+			if (interleave(matchEmpty(low), matchEmpty(high)) != 0) {
+				return -1;
+			}
+			word = (word + (step << 1)) & (control.length - 1);
+		}
+	}
+
+	/**
+	 * Finds first deleted or empty slot of probe sequence of given hash. Such
+	 * slot exists, since table is never full.
+	 */
+	private int findFreeSlot(int hash) {
+		int groupMask = (control.length >>> 1) - 1;
+		int word = ((hash >>> 7) & groupMask) << 1;
+		for (int step = 1;; step++) {
+			long free = matchFree(control[word]);
+			if (free != 0) {
+				return slotOf(word, free);
+			}
+			free = matchFree(control[word + 1]);
+			if (free != 0) {
+				return slotOf(word + 1, free);
+			}
+			word = (word + (step << 1)) & (control.length - 1);
+		}
+	}
+
+	/**
+	 * Removes entry in given slot. Slot becomes empty if its group has an empty
+	 * slot, otherwise it is marked deleted so that probes continue past it.
+	 */
+	private void removeAt(int slot) {
+		int word = (slot / GROUP_SIZE) << 1;
+		if ((matchEmpty(control[word]) | matchEmpty(control[word + 1])) != 0) {
+			setControlByte(slot, EMPTY);
+			growthLeft++;
+		} else {
+			setControlByte(slot, DELETED);
+		}
+		keys[slot] = null;
+		values[slot] = null;
+		size--;
+		modificationCount++;
+	}
+
+	/**
+	 * Inserts all entries into new arrays. Capacity is doubled unless most of
+	 * used slots are only deleted, then deleted slots are just dropped.
+	 */
+	private void rehash() {
+		long[] oldControl = control;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int capacity = (size <= maxLoad(oldKeys.length) / 2) ? oldKeys.length : oldKeys.length * 2;
+		allocate(capacity);
+		for (int word = 0; word < oldControl.length; word++) {
+			for (long full = matchFull(oldControl[word]); full != 0; full &= full - 1) {
+				int oldSlot = slotOf(word, full);
+				int hash = hash(oldKeys[oldSlot]);
+				int slot = findFreeSlot(hash);
+				setControlByte(slot, hash & 0x7F);
+				keys[slot] = oldKeys[oldSlot];
+				values[slot] = oldValues[oldSlot];
+				growthLeft--;
+			}
+		}
+	}
+
+	/** Creates empty arrays for given number of slots. */
+	private void allocate(int capacity) {
+		control = new long[capacity / WORD_SIZE];
+		Arrays.fill(control, EMPTY_WORD);
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		growthLeft = maxLoad(capacity);
+	}
+
+	/** Returns number of slots that can be full or deleted, 7/8 of capacity. */
+	private static int maxLoad(int capacity) {
+		return capacity - capacity / 8;
+	}
+
+	private long controlByte(int slot) {
+		return (control[slot / WORD_SIZE] >>> ((slot % WORD_SIZE) << 3)) & 0xFF;
+	}
+
+	private void setControlByte(int slot, long controlByte) {
+		int shift = (slot % WORD_SIZE) << 3;
+		int word = slot / WORD_SIZE;
+		control[word] = (control[word] & ~(0xFFL << shift)) | (controlByte << shift);
+	}
+
+	/**
+	 * Returns highest bit set in every byte of word equal to given byte. Bytes
+	 * that are 1 above a match can be reported too, which only costs one extra
+	 * key comparison.
+	 *
+	 * @param word    8 control bytes.
+	 * @param pattern searched byte repeated in every byte.
+	 */
+	private static long matchByte(long word, long pattern) {
+		long x = word ^ pattern;
+		return (x - LSB) & ~x & MSB;
+	}
+
+	/**
+	 * Returns highest bit set in every empty byte. Only empty (0x80) has highest
+	 * bit set and second lowest bit clear.
+	 */
+	private static long matchEmpty(long word) {
+		return word & ~(word << 6) & MSB;
+	}
+
+	/** Returns highest bit set in every empty or deleted byte. */
+	private static long matchFree(long word) {
+		return word & MSB;
+	}
+
+	/** Returns highest bit set in every full byte, full bytes have highest bit clear. */
+	private static long matchFull(long word) {
+		return ~word & MSB;
+	}
+
+	/** Returns slot of the lowest byte reported by a match on given element of control. */
+	private static int slotOf(int word, long match) {
+		return word * WORD_SIZE + (Long.numberOfTrailingZeros(match) >>> 3);
+	}
+
+	/**
+	 * Packs matches of both elements of a group into one long, so that group is
+	 * walked by a single loop. Match of byte <code>i</code> of low element becomes
+	 * bit <code>8i</code>, match of byte <code>i</code> of high element bit
+	 * <code>8i + 1</code>.
+	 */
+	private static long interleave(long lowMatches, long highMatches) {
+		return (lowMatches >>> 7) | (highMatches >>> 6);
+	}
+
+	/** Returns slot of the lowest bit of matches packed by {@link #interleave(long, long)}. */
+	private static int slotOfGroup(int word, long matches) {
+		int bit = Long.numberOfTrailingZeros(matches);
+		return (word + (bit & 1)) * WORD_SIZE + (bit >>> 3);
+	}
+
+	@SuppressWarnings("unchecked")
+	private K keyAt(int slot) {
+		return (K) keys[slot];
+	}
+
+	@SuppressWarnings("unchecked")
+	private V valueAt(int slot) {
+		return (V) values[slot];
+	}
+
+	/**
+	 * Mixes hash code of key, so that both low 7 bits stored in control bytes and
+	 * higher bits that choose group depend on all bits of hash code.
+	 *
+	 * @param key to calculate hash for
+	 * @return mixed hash code of key
+	 */
+	private static int hash(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+}
@@ -0,0 +1,530 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Map with two tiers, for key sets too big for Java heap of which only a small
+ * part is used often. Hot tier is a {@link SimpleHashtable} on heap holding at
+ * most given number of entries. Other entries are in cold tier, appended into
+ * a memory-mapped spill file with an index outside of Java heap, so heap usage
+ * is bounded by size of hot tier.
+ * <p>
+ * New entries go into hot tier. When it is full, a few of its entries are
+ * sampled and the least recently used of them is demoted into cold tier
+ * (approximate LRU, without a list that every access would have to update).
+ * Cold entry is promoted back into hot tier on its second read or write since
+ * it became cold, so that a single scan over cold keys doesn't push hot ones
+ * out.
+ * <p>
+ * Keys of cold entries are compared by their bytes, so equal keys must be
+ * written as equal bytes. Since get can move entries between tiers, it is
+ * treated as modification by iterators. Spill file is deleted when map is
+ * closed, after that none of its methods can be called.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class TieredHashtable<K, V> implements Map<K, V>, AutoCloseable {
+
+	private static final String NULL_KEY_ERROR = "Key must not be null";
+	private static final String CAPACITY_TOO_SMALL_ERROR = "Capacity must not be smaller than 1";
+	private static final String SIZE_TOO_SMALL_ERROR = "Size must not be smaller than 1";
+	private static final String CLOSED_ERROR = "Hashtable is closed";
+
+	/** Default number of bytes of spill file mapped at once. */
+	private static final int DEFAULT_SEGMENT_SIZE = 16 << 20;
+
+	/** Number of hot entries sampled to find one to demote. */
+	private static final int SAMPLE_SIZE = 5;
+
+	/** Number of accesses of cold entry after which it is promoted. */
+	private static final int PROMOTION_HITS = 2;
+
+	/** Entry of hot tier, which knows when it was used and where it is in array of hot entries. */
+	private static class HotEntry<K, V> extends TableEntry<K, V> {
+		private long lastAccess;
+		private int position;
+
+		private HotEntry(K key, V value) {
+			super(key, value);
+		}
+	}
+
+	/** Entry of cold tier returned by iterator. Setting its value stores it in the map. */
+	private final class EntryView extends TableEntry<K, V> {
+		private final int slot;
+
+		private EntryView(K key, V value, int slot) {
+			super(key, value);
+			this.slot = slot;
+		}
+
+		@Override
+		public void setValue(V value) {
+			checkOpen();
+			super.setValue(value);
+			if (cold.holds(slot, getKey())) {
+				// stays cold, so iteration is not disturbed
+				cold.replace(slot, getKey(), value);
+			} else {
+				// entry was removed or moved since it was read, slot can hold another key
+				put(getKey(), value);
+			}
+		}
+	}
+
+	/** Iterates over hot entries, then over cold ones in order of index slots. */
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+
+		/** Position of next hot entry. */
+		private int hotPosition = 0;
+
+		/** Empty index slot of cold tier at which iteration of cold entries starts. */
+		private int startSlot = 0;
+
+		/** Number of index slots visited so far. */
+		private int visitedSlots = 0;
+
+		/** Last returned hot entry, null if there is none. */
+		private HotEntry<K, V> lastHotEntry;
+
+		/** Index slot of last returned cold entry, -1 if there is none. */
+		private int lastReturnedSlot = -1;
+
+		private int savedModificationCount = modificationCount;
+
+		public IteratorImpl() {
+			checkOpen();
+			while (cold.occupied(startSlot)) {
+				startSlot++;
+			}
+		}
+
+		private void checkForModifications() {
+			checkOpen();
+			if (modificationCount != savedModificationCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkForModifications();
+			if (hotPosition < hotSize) {
+				return true;
+			}
+			int capacity = cold.capacity();
+			while (visitedSlots < capacity && !cold.occupied((startSlot + visitedSlots) & (capacity - 1))) {
+				visitedSlots++;
+			}
+			return visitedSlots < capacity;
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastHotEntry = null;
+			lastReturnedSlot = -1;
+			if (hotPosition < hotSize) {
+				lastHotEntry = hotEntries[hotPosition++];
+				return lastHotEntry;
+			}
+			lastReturnedSlot = (startSlot + visitedSlots++) & (cold.capacity() - 1);
+			return new EntryView(cold.key(lastReturnedSlot), cold.value(lastReturnedSlot), lastReturnedSlot);
+		}
+
+		@Override
+		public void remove() {
+			checkForModifications();
+			if (lastHotEntry != null) {
+				hot.remove(lastHotEntry.getKey());
+				removeHotEntry(lastHotEntry);
+				lastHotEntry = null;
+				// last hot entry was moved into freed position and has not been visited yet
+				hotPosition--;
+			} else if (lastReturnedSlot != -1) {
+				cold.removeAt(lastReturnedSlot);
+				lastReturnedSlot = -1;
+				// entry shifted into removed slot has not been visited yet
+				visitedSlots--;
+			} else {
+				throw new IllegalStateException();
+			}
+			modificationCount++;
+			savedModificationCount = modificationCount;
+		}
+	}
+
+	/** Maximum number of entries in hot tier. */
+	private final int hotCapacity;
+
+	/** Hot tier. */
+	private SimpleHashtable<K, HotEntry<K, V>> hot;
+
+	/** Hot entries in no particular order, for sampling. */
+	private HotEntry<K, V>[] hotEntries;
+
+	/** Number of hot entries. */
+	private int hotSize = 0;
+
+	/** Cold tier. */
+	private ColdSegment<K, V> cold;
+
+	/** Incremented on every access of hot entry, value of last access is stored in entry. */
+	private long clock = 0;
+
+	/** State of xorshift generator used for sampling. */
+	private int randomState = 0x9E3779B9;
+
+	private long promotionCount = 0;
+	private long demotionCount = 0;
+
+	/** Stores number of modifications, including moves between tiers. */
+	private int modificationCount = 0;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private TieredHashtable(ColdSegment<K, V> cold, int hotCapacity) {
+		this.cold = cold;
+		this.hotCapacity = hotCapacity;
+		hot = new SimpleHashtable<>((int) Math.min(hotCapacity * 4L / 3 + 1, 1 << 30));
+		hotEntries = (HotEntry<K, V>[]) new HotEntry[hotCapacity + 1];
+	}
+
+	/**
+	 * Creates empty map whose cold tier is in given spill file, mapped in segments
+	 * of 16 MiB.
+	 *
+	 * @param <K>         the type of keys
+	 * @param <V>         the type of values
+	 * @param path        of spill file. Existing file is truncated.
+	 * @param keyCodec    converts keys to bytes.
+	 * @param valueCodec  converts values to bytes.
+	 * @param hotCapacity maximum number of entries on heap.
+	 * @return empty map.
+	 * @throws IOException              if spill file can't be created.
+	 * @throws IllegalArgumentException if hotCapacity is smaller than 1.
+	 */
+	public static <K, V> TieredHashtable<K, V> open(Path path, Codec<K> keyCodec, Codec<V> valueCodec,
+			int hotCapacity) throws IOException {
+		return open(path, keyCodec, valueCodec, hotCapacity, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates empty map whose cold tier is in given spill file.
+	 *
+	 * @param <K>         the type of keys
+	 * @param <V>         the type of values
+	 * @param path        of spill file. Existing file is truncated.
+	 * @param keyCodec    converts keys to bytes.
+	 * @param valueCodec  converts values to bytes.
+	 * @param hotCapacity maximum number of entries on heap.
+	 * @param segmentSize number of bytes of spill file mapped at once. Entries
+	 *                    bigger than that get a segment of their own.
+	 * @return empty map.
+	 * @throws IOException              if spill file can't be created.
+	 * @throws IllegalArgumentException if hotCapacity or segmentSize is smaller
+	 *                                  than 1.
+	 */
+	public static <K, V> TieredHashtable<K, V> open(Path path, Codec<K> keyCodec, Codec<V> valueCodec,
+			int hotCapacity, int segmentSize) throws IOException {
+		if (hotCapacity < 1) {
+			throw new IllegalArgumentException(CAPACITY_TOO_SMALL_ERROR);
+		}
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException(SIZE_TOO_SMALL_ERROR);
+		}
+		return new TieredHashtable<>(new ColdSegment<>(path, keyCodec, valueCodec, segmentSize), hotCapacity);
+	}
+
+	public int getHotCapacity() {
+		return hotCapacity;
+	}
+
+	/** Returns number of entries on heap. */
+	public int getHotSize() {
+		return hotSize;
+	}
+
+	/** Returns number of entries in spill file. */
+	public int getColdSize() {
+		checkOpen();
+		return cold.size();
+	}
+
+	/** Returns number of entries moved from cold to hot tier. */
+	public long getPromotionCount() {
+		return promotionCount;
+	}
+
+	/** Returns number of entries moved from hot to cold tier. */
+	public long getDemotionCount() {
+		return demotionCount;
+	}
+
+	/** Returns number of bytes of spill file that are mapped into memory. */
+	public long getMappedBytes() {
+		checkOpen();
+		return cold.mappedBytes();
+	}
+
+	@Override
+	public int size() {
+		checkOpen();
+		return hotSize + cold.size();
+	}
+
+	/**
+	 * Stores new or overwrites existing key-value pair. New key is stored in hot
+	 * tier. Value of cold key is overwritten in cold tier, unless the write
+	 * promotes it.
+	 *
+	 * @param key   to be stored. <b>Must not be null.</b>
+	 * @param value to be stored. <b>Can be null.</b>
+	 * @return value that was previously stored for that key.
+	 * @throws NullPointerException  if given key is null.
+	 * @throws IllegalStateException if map is closed.
+	 */
+	@Override
+	public V put(K key, V value) {
+		checkOpen();
+		if (key == null) {
+			throw new NullPointerException(NULL_KEY_ERROR);
+		}
+		HotEntry<K, V> entry = hot.get(key);
+		if (entry != null) {
+			V previousValue = entry.getValue();
+			entry.setValue(value);
+			entry.lastAccess = ++clock;
+			return previousValue;
+		}
+		if (cold.size() > 0) {
+			int slot = cold.find(key);
+			if (slot >= 0) {
+				V previousValue = cold.value(slot);
+				if (cold.recordHit(slot) >= PROMOTION_HITS) {
+					cold.removeAt(slot);
+					insertHot(key, value);
+					promotionCount++;
+					modificationCount++;
+				} else {
+					cold.replace(slot, key, value);
+				}
+				return previousValue;
+			}
+		}
+		insertHot(key, value);
+		modificationCount++;
+		return null;
+	}
+
+	/**
+	 * Returns value stored for given key. Hot entry is marked as used, cold entry
+	 * is promoted if it was accessed before.
+	 *
+	 * @throws IllegalStateException if map is closed.
+	 */
+	@Override
+	public V get(Object key) {
+		checkOpen();
+		if (key == null) {
+			return null;
+		}
+		HotEntry<K, V> entry = hot.get(key);
+		if (entry != null) {
+			entry.lastAccess = ++clock;
+			return entry.getValue();
+		}
+		if (cold.size() == 0) {
+			return null;
+		}
+		int slot = cold.find(key);
+		if (slot < 0) {
+			return null;
+		}
+		V value = cold.value(slot);
+		if (cold.recordHit(slot) >= PROMOTION_HITS) {
+			K storedKey = cold.key(slot);
+			cold.removeAt(slot);
+			insertHot(storedKey, value);
+			promotionCount++;
+			modificationCount++;
+		}
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		checkOpen();
+		if (key == null) {
+			return false;
+		}
+		return hot.containsKey(key) || (cold.size() > 0 && cold.find(key) >= 0);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (TableEntry<K, V> entry : this) {
+			if (value == null ? entry.getValue() == null : value.equals(entry.getValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V remove(Object key) {
+		checkOpen();
+		if (key == null) {
+			return null;
+		}
+		HotEntry<K, V> entry = hot.remove(key);
+		if (entry != null) {
+			removeHotEntry(entry);
+			modificationCount++;
+			return entry.getValue();
+		}
+		if (cold.size() == 0) {
+			return null;
+		}
+		int slot = cold.find(key);
+		if (slot < 0) {
+			return null;
+		}
+		V value = cold.value(slot);
+		cold.removeAt(slot);
+		modificationCount++;
+		return value;
+	}
+
+	/** Removes all entries of both tiers. Mapped part of spill file is kept for reuse. */
+	@Override
+	public void clear() {
+		checkOpen();
+		hot.clear();
+		Arrays.fill(hotEntries, 0, hotSize, null);
+		hotSize = 0;
+		cold.clear();
+		modificationCount++;
+	}
+
+	/**
+	 * Closes and deletes spill file. Closing closed map has no effect.
+	 *
+	 * @throws IOException if spill file can't be closed or deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (cold == null) {
+			return;
+		}
+		ColdSegment<K, V> segment = cold;
+		cold = null;
+		hot = null;
+		hotEntries = null;
+		hotSize = 0;
+		segment.close();
+	}
+
+	/**
+	 * Returns the iterator for this map. Hot entries are returned first, setting
+	 * value of any returned entry stores it in the map.
+	 */
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Returns string representation of this map in format of [key1=value1,
+	 * key2=value2, ... ]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (TableEntry<K, V> entry : this) {
+			if (builder.length() > 1) {
+				builder.append(", ");
+			}
+			builder.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.append(']').toString();
+	}
+
+	/** Stores new entry in hot tier, demoting another entry if tier is full. */
+	private void insertHot(K key, V value) {
+		HotEntry<K, V> entry = new HotEntry<>(key, value);
+		entry.lastAccess = ++clock;
+		entry.position = hotSize;
+		hotEntries[hotSize++] = entry;
+		hot.put(key, entry);
+		if (hotSize > hotCapacity) {
+			demote(sampleVictim(entry));
+		}
+	}
+
+	/**
+	 * Samples {@value #SAMPLE_SIZE} hot entries and returns the least recently
+	 * used one.
+	 *
+	 * @param newEntry entry that was just inserted, never returned.
+	 */
+	private HotEntry<K, V> sampleVictim(HotEntry<K, V> newEntry) {
+		HotEntry<K, V> victim = null;
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			HotEntry<K, V> candidate = hotEntries[nextRandom(hotSize)];
+			if (candidate != newEntry && (victim == null || candidate.lastAccess < victim.lastAccess)) {
+				victim = candidate;
+			}
+		}
+		if (victim == null) {
+			victim = hotEntries[(newEntry.position == 0) ? 1 : 0];
+		}
+		return victim;
+	}
+
+	private void demote(HotEntry<K, V> entry) {
+		hot.remove(entry.getKey());
+		removeHotEntry(entry);
+		cold.insert(entry.getKey(), entry.getValue());
+		demotionCount++;
+	}
+
+	/** Removes entry from array of hot entries, moving the last entry into its position. */
+	private void removeHotEntry(HotEntry<K, V> entry) {
+		HotEntry<K, V> last = hotEntries[--hotSize];
+		hotEntries[entry.position] = last;
+		last.position = entry.position;
+		hotEntries[hotSize] = null;
+	}
+
+	/** Returns pseudo-random number between 0 (inclusive) and bound (exclusive). */
+	private int nextRandom(int bound) {
+		int x = randomState;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		randomState = x;
+		return (int) (((x & 0xFFFFFFFFL) * bound) >>> 32);
+	}
+
+	/**
+	 * @throws IllegalStateException if map is closed
+	 */
+	private void checkOpen() {
+		if (cold == null) {
+			throw new IllegalStateException(CLOSED_ERROR);
+		}
+	}
+
+}
@@ -0,0 +1,302 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+/**
+ * Map that passes every operation to wrapped map and records it into trace
+ * file. Trace can later be replayed on any map by {@link TraceReplayer}.
+ * <p>
+ * Trace does not contain keys and values, only their IDs. Equal keys get the
+ * same ID, as do equal values. Trace file starts with magic number and
+ * version, followed by operations. Every operation is written as its code
+ * (byte), nanoseconds since previous operation, key ID and, for put, value ID.
+ * Numbers are written as variable length integers, so most operations take 3
+ * to 6 bytes.
+ * <p>
+ * Recorder remembers keys and values it gave IDs to, at most
+ * <code>dictionarySize</code> of each. Once dictionary is full, every further
+ * object gets one of <code>dictionarySize</code> overflow IDs chosen by its
+ * hash code. Equal objects still get equal IDs, but different objects may
+ * share one, so trace of more distinct keys than dictionary size replays on
+ * fewer keys.
+ * <p>
+ * Recorder is not thread safe, same as maps it wraps.
+ *
+ * @author gorsicleo
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ */
+public class TraceRecorder<K, V> implements Map<K, V>, AutoCloseable {
+
+	/** Number written at the start of every trace file ("HTR1"). */
+	static final int MAGIC = 0x48545231;
+
+	static final int VERSION = 1;
+
+	/** Value ID written for null values. */
+	static final int NULL_VALUE_ID = 0;
+
+	/** Number of keys, and of values, remembered by default. */
+	private static final int DEFAULT_DICTIONARY_SIZE = 1 << 20;
+
+	/** Recorded operations. */
+	public enum Operation {
+		PUT, GET, REMOVE, CONTAINS_KEY, CLEAR;
+
+		private static final Operation[] VALUES = values();
+
+		/**
+		 * Returns operation with given code.
+		 *
+		 * @param code of operation.
+		 * @return operation with given code.
+		 * @throws IllegalArgumentException if there is no such operation.
+		 */
+		static Operation fromCode(int code) {
+			if (code < 0 || code >= VALUES.length) {
+				throw new IllegalArgumentException("Unknown operation code " + code);
+			}
+			return VALUES[code];
+		}
+	}
+
+	/** Entry returned by iterator, setting its value is recorded as put. */
+	private class EntryView extends TableEntry<K, V> {
+		private final TableEntry<K, V> entry;
+
+		private EntryView(TableEntry<K, V> entry) {
+			super(entry.getKey(), entry.getValue());
+			this.entry = entry;
+		}
+
+		@Override
+		public void setValue(V value) {
+			super.setValue(value);
+			entry.setValue(value);
+			recordPut(getKey(), value);
+		}
+	}
+
+	private class IteratorImpl implements Iterator<TableEntry<K, V>> {
+		private final Iterator<TableEntry<K, V>> iterator = map.iterator();
+		private TableEntry<K, V> lastEntry;
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public TableEntry<K, V> next() {
+			lastEntry = new EntryView(iterator.next());
+			return lastEntry;
+		}
+
+		@Override
+		public void remove() {
+			// key is read before removal, wrapped entry may forget it afterwards
+			K key = (lastEntry == null) ? null : lastEntry.getKey();
+			iterator.remove();
+			record(Operation.REMOVE, key);
+		}
+	}
+
+	private final Map<K, V> map;
+	private DataOutputStream output;
+
+	/** IDs given to keys. */
+	private final SimpleHashtable<Object, Integer> keyIds = new SimpleHashtable<>();
+
+	/** IDs given to values, starting from 1 since 0 is used for null. */
+	private final SimpleHashtable<Object, Integer> valueIds = new SimpleHashtable<>();
+
+	/** Maximal number of entries in each of {@link #keyIds} and {@link #valueIds}. */
+	private final int dictionarySize;
+
+	/** Time of previous recorded operation. */
+	private long lastTimestamp = System.nanoTime();
+
+	/**
+	 * Creates recorder that writes trace into given file and remembers up to
+	 * 2^20 keys and values. Existing file is overwritten.
+	 *
+	 * @param map  to which operations are passed.
+	 * @param path of trace file.
+	 * @throws IOException if file can't be created.
+	 */
+	public TraceRecorder(Map<K, V> map, Path path) throws IOException {
+		this(map, path, DEFAULT_DICTIONARY_SIZE);
+	}
+
+	/**
+	 * Creates recorder that writes trace into given file. Existing file is
+	 * overwritten.
+	 *
+	 * @param map            to which operations are passed.
+	 * @param path           of trace file.
+	 * @param dictionarySize maximal number of keys, and of values, that get
+	 *                       their own ID.
+	 * @throws IOException              if file can't be created.
+	 * @throws IllegalArgumentException if dictionarySize is less than 1.
+	 */
+	public TraceRecorder(Map<K, V> map, Path path, int dictionarySize) throws IOException {
+		if (dictionarySize < 1) {
+			throw new IllegalArgumentException("Dictionary size must be at least 1");
+		}
+		this.map = map;
+		this.dictionarySize = dictionarySize;
+		output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public V put(K key, V value) {
+		V previousValue = map.put(key, value);
+		recordPut(key, value);
+		return previousValue;
+	}
+
+	@Override
+	public V get(Object key) {
+		V value = map.get(key);
+		if (key != null) {
+			record(Operation.GET, key);
+		}
+		return value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		boolean contains = map.containsKey(key);
+		record(Operation.CONTAINS_KEY, key);
+		return contains;
+	}
+
+	/** Passed to wrapped map, but not recorded. */
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		V value = map.remove(key);
+		if (key != null) {
+			record(Operation.REMOVE, key);
+		}
+		return value;
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+		record(Operation.CLEAR, null);
+	}
+
+	@Override
+	public Iterator<TableEntry<K, V>> iterator() {
+		return new IteratorImpl();
+	}
+
+	/**
+	 * Writes remaining operations and closes trace file. Wrapped map stays
+	 * usable. Closing closed recorder has no effect.
+	 *
+	 * @throws IOException if trace can't be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (output != null) {
+			output.close();
+			output = null;
+		}
+	}
+
+	/**
+	 * Writes operation code, time since previous operation and key ID.
+	 *
+	 * @param operation to write.
+	 * @param key       of operation, null for {@link Operation#CLEAR}.
+	 * @throws IllegalStateException if recorder is closed.
+	 * @throws UncheckedIOException  if trace can't be written.
+	 */
+	private void record(Operation operation, Object key) {
+		if (output == null) {
+			throw new IllegalStateException("Recorder is closed");
+		}
+		long timestamp = System.nanoTime();
+		try {
+			output.writeByte(operation.ordinal());
+			writeVarLong(timestamp - lastTimestamp);
+			if (key != null) {
+				writeVarInt(idOf(keyIds, key, 0));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		lastTimestamp = timestamp;
+	}
+
+	/** Writes put of given key and value. */
+	private void recordPut(K key, V value) {
+		record(Operation.PUT, key);
+		writeVarInt(value == null ? NULL_VALUE_ID : idOf(valueIds, value, 1));
+	}
+
+	/**
+	 * Returns ID of given object, giving it next free ID if it has none. Once
+	 * dictionary is full, object that is not in it gets overflow ID by its hash
+	 * code.
+	 *
+	 * @param ids     already given.
+	 * @param object  to get ID for.
+	 * @param firstId ID given to first object.
+	 * @return ID of object.
+	 */
+	private int idOf(SimpleHashtable<Object, Integer> ids, Object object, int firstId) {
+		Integer id = ids.get(object);
+		if (id != null) {
+			return id;
+		}
+		if (ids.size() == dictionarySize) {
+			int hash = object.hashCode() * 0x9E3779B9;
+			return firstId + dictionarySize + (int) ((hash & 0xFFFFFFFFL) % dictionarySize);
+		}
+		id = ids.size() + firstId;
+		ids.put(object, id);
+		return id;
+	}
+
+	private void writeVarInt(int value) {
+		writeVarLong(value & 0xFFFFFFFFL);
+	}
+
+	/** Writes non-negative number, 7 bits per byte with highest bit marking that more bytes follow. */
+	private void writeVarLong(long value) {
+		try {
+			while ((value & ~0x7FL) != 0) {
+				output.writeByte((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			output.writeByte((int) value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
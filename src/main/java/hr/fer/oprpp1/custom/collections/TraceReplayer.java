@@ -0,0 +1,264 @@
+package hr.fer.oprpp1.custom.collections;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+import hr.fer.oprpp1.custom.collections.TraceRecorder.Operation;
+
+/**
+ * Replays trace written by {@link TraceRecorder} on any map. Whole trace is
+ * read into memory before replay, so reading the file is not measured. Keys
+ * and values are replaced by their IDs, so replayed map holds integers.
+ *
+ * @author gorsicleo
+ *
+ */
+public class TraceReplayer {
+
+	private static final String FORMAT_ERROR = "File is not an operation trace";
+
+	/** Result of one replay. */
+	public static class ReplayResult {
+		private final int operationCount;
+		private final long elapsedNanos;
+
+		/** Sorted latencies of all operations. */
+		private final long[] latencies;
+
+		private ReplayResult(int operationCount, long elapsedNanos, long[] latencies) {
+			this.operationCount = operationCount;
+			this.elapsedNanos = elapsedNanos;
+			this.latencies = latencies;
+			Arrays.sort(latencies);
+		}
+
+		/**
+		 * @return number of replayed operations.
+		 */
+		public int getOperationCount() {
+			return operationCount;
+		}
+
+		/**
+		 * @return time whole replay took in nanoseconds.
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return number of operations per second.
+		 */
+		public double getThroughput() {
+			return elapsedNanos == 0 ? 0 : operationCount * 1e9 / elapsedNanos;
+		}
+
+		/**
+		 * Returns latency that given percentage of operations did not exceed.
+		 *
+		 * @param percentile between 0 and 100.
+		 * @return latency in nanoseconds, 0 if trace is empty.
+		 * @throws IllegalArgumentException if percentile is out of range.
+		 */
+		public long getLatencyPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("Percentile must be between 0 and 100");
+			}
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.max(index, 0)];
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d operations, %.0f ops/s, latency p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+					operationCount, getThroughput(), getLatencyPercentile(50), getLatencyPercentile(90),
+					getLatencyPercentile(99), getLatencyPercentile(99.9), getLatencyPercentile(100));
+		}
+	}
+
+	private byte[] operations = new byte[1024];
+	private int[] keyIds = new int[1024];
+	private int[] valueIds = new int[1024];
+
+	/** Time of every operation in nanoseconds since first operation. */
+	private long[] timestamps = new long[1024];
+
+	private int operationCount = 0;
+
+	/** Results of reads, published so that they are not optimized away. */
+	private volatile long sink;
+
+	/** Number of distinct keys in trace. */
+	private final int keyCount;
+
+	/** Boxed IDs, so replay does not measure boxing. */
+	private final Integer[] keys;
+	private final Integer[] values;
+
+	/**
+	 * Reads trace from given file.
+	 *
+	 * @param path of trace file.
+	 * @throws IOException              if file can't be read.
+	 * @throws IllegalArgumentException if file is not a trace.
+	 */
+	public TraceReplayer(Path path) throws IOException {
+		int maxKeyId = -1, maxValueId = 0;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+			try {
+				if (input.readInt() != TraceRecorder.MAGIC || input.readInt() != TraceRecorder.VERSION) {
+					throw new IllegalArgumentException(FORMAT_ERROR);
+				}
+			} catch (EOFException e) {
+				throw new IllegalArgumentException(FORMAT_ERROR);
+			}
+
+			long timestamp = 0;
+			int code;
+			while ((code = input.read()) != -1) {
+				Operation operation = Operation.fromCode(code);
+				ensureCapacity();
+				timestamp += readVarLong(input);
+				operations[operationCount] = (byte) code;
+				timestamps[operationCount] = timestamp;
+				if (operation != Operation.CLEAR) {
+					keyIds[operationCount] = (int) readVarLong(input);
+					maxKeyId = Math.max(maxKeyId, keyIds[operationCount]);
+				}
+				if (operation == Operation.PUT) {
+					valueIds[operationCount] = (int) readVarLong(input);
+					maxValueId = Math.max(maxValueId, valueIds[operationCount]);
+				}
+				operationCount++;
+			}
+		}
+
+		keyCount = maxKeyId + 1;
+		// at least one key, since operations without key use ID 0
+		keys = new Integer[Math.max(keyCount, 1)];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i;
+		}
+		values = new Integer[maxValueId + 1];
+		for (int i = 1; i < values.length; i++) {
+			values[i] = i;
+		}
+	}
+
+	/**
+	 * @return number of operations in trace.
+	 */
+	public int getOperationCount() {
+		return operationCount;
+	}
+
+	/**
+	 * @return number of distinct keys in trace.
+	 */
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	/**
+	 * Replays all operations on given map as fast as possible.
+	 *
+	 * @param map to replay operations on, usually empty.
+	 * @return throughput and latencies of replay.
+	 */
+	public ReplayResult replay(Map<Integer, Integer> map) {
+		return replay(map, false);
+	}
+
+	/**
+	 * Replays all operations on given map.
+	 * <p>
+	 * When paced, each operation is started at the same time after start of
+	 * replay as it was after start of recording. Latency is then measured from
+	 * that time, not from actual start, so operations that are late because
+	 * previous operations were slow are counted as slow too.
+	 *
+	 * @param map   to replay operations on, usually empty.
+	 * @param paced if true, recorded time between operations is kept.
+	 * @return throughput and latencies of replay.
+	 */
+	public ReplayResult replay(Map<Integer, Integer> map, boolean paced) {
+		long[] latencies = new long[operationCount];
+		long sink = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < operationCount; i++) {
+			long operationStart;
+			if (paced) {
+				operationStart = start + timestamps[i];
+				waitUntil(operationStart);
+			} else {
+				operationStart = System.nanoTime();
+			}
+
+			Integer key = keys[keyIds[i]];
+			switch (Operation.fromCode(operations[i])) {
+			case PUT:
+				map.put(key, values[valueIds[i]]);
+				break;
+			case GET:
+				Integer value = map.get(key);
+				sink += (value == null) ? 0 : value;
+				break;
+			case REMOVE:
+				map.remove(key);
+				break;
+			case CONTAINS_KEY:
+				sink += map.containsKey(key) ? 1 : 0;
+				break;
+			case CLEAR:
+				map.clear();
+				break;
+			}
+			latencies[i] = System.nanoTime() - operationStart;
+		}
+		long elapsed = System.nanoTime() - start;
+		this.sink = sink;
+		return new ReplayResult(operationCount, elapsed, latencies);
+	}
+
+	/** Parks, and spins for the last few microseconds, until given time. */
+	private static void waitUntil(long time) {
+		long remaining;
+		while ((remaining = time - System.nanoTime()) > 0) {
+			if (remaining > 50_000) {
+				LockSupport.parkNanos(remaining - 50_000);
+			}
+		}
+	}
+
+	private void ensureCapacity() {
+		if (operationCount == operations.length) {
+			int capacity = operations.length * 2;
+			operations = Arrays.copyOf(operations, capacity);
+			keyIds = Arrays.copyOf(keyIds, capacity);
+			valueIds = Arrays.copyOf(valueIds, capacity);
+			timestamps = Arrays.copyOf(timestamps, capacity);
+		}
+	}
+
+	/** Reads number written by {@link TraceRecorder}. */
+	private static long readVarLong(DataInputStream input) throws IOException {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = input.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,26 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.ArrayIndexedCollection;
+
+public class ArrayIndexedCollectionTest {
+
+	@Test
+	public void insertTest() {
+		ArrayIndexedCollection<Integer> collection = new ArrayIndexedCollection<>();
+		java.util.ArrayList<Integer> expected = new java.util.ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			int position = (i % 3 == 0) ? 0 : (i % 3 == 1) ? collection.size() : collection.size() / 2;
+			collection.insert(i, position);
+			expected.add(position, i);
+		}
+		assertEquals(expected.size(), collection.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), collection.get(i));
+		}
+	}
+
+}
@@ -0,0 +1,112 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.BoundedCache;
+import hr.fer.oprpp1.custom.collections.BoundedCache.AdmissionPolicy;
+import hr.fer.oprpp1.custom.collections.BoundedCache.RemovalCause;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class BoundedCacheTest {
+
+	@Test
+	public void lruEvictionTest() {
+		BoundedCache<Integer, String> cache = new BoundedCache<>(3);
+		List<String> removals = new ArrayList<>();
+		cache.setRemovalListener((key, value, cause) -> removals.add(key + "=" + value + " " + cause));
+
+		cache.put(1, "one");
+		cache.put(2, "two");
+		cache.put(3, "three");
+		assertEquals("one", cache.get(1));
+		cache.put(4, "four");
+
+		assertEquals(3, cache.size());
+		assertFalse(cache.containsKey(2));
+		assertEquals("[4=four, 1=one, 3=three]", cache.toString());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals("[2=two EVICTED]", removals.toString());
+
+		assertEquals("four", cache.put(4, "FOUR"));
+		assertEquals("three", cache.remove(3));
+		assertEquals("[2=two EVICTED, 4=four REPLACED, 3=three EXPLICIT]", removals.toString());
+	}
+
+	@Test
+	public void countersTest() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+		cache.put(1, 1);
+		cache.get(1);
+		cache.get(1);
+		cache.get(2);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	public void tinyLfuRejectsRareKeysTest() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(10, AdmissionPolicy.TINY_LFU);
+		for (int i = 0; i < 10; i++) {
+			cache.put(i, i);
+			for (int j = 0; j < 3; j++) {
+				cache.get(i);
+			}
+		}
+		// keys used once should not push out popular keys
+		for (int i = 100; i < 200; i++) {
+			cache.put(i, i);
+		}
+		for (int i = 0; i < 10; i++) {
+			assertTrue(cache.containsKey(i));
+		}
+		assertEquals(100, cache.getRejectionCount());
+		assertEquals(0, cache.getEvictionCount());
+
+		// key that became popular is admitted
+		for (int j = 0; j < 10; j++) {
+			cache.get(500);
+		}
+		cache.put(500, 500);
+		assertTrue(cache.containsKey(500));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(10, cache.size());
+	}
+
+	@Test
+	public void iteratorTest() {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(5);
+		List<RemovalCause> causes = new ArrayList<>();
+		cache.setRemovalListener((key, value, cause) -> causes.add(cause));
+		for (int i = 0; i < 5; i++) {
+			cache.put(i, i);
+		}
+
+		Iterator<TableEntry<Integer, Integer>> iterator = cache.iterator();
+		assertEquals(4, iterator.next().getKey());
+		iterator.remove();
+		assertEquals(3, iterator.next().getKey());
+		assertEquals(4, cache.size());
+		assertEquals(RemovalCause.EXPLICIT, causes.get(0));
+
+		cache.get(0);
+		assertThrows(ConcurrentModificationException.class, iterator::next);
+
+		cache.clear();
+		assertTrue(cache.isEmpty());
+		assertEquals(5, causes.size());
+	}
+
+	@Test
+	public void invalidArgumentsTest() {
+		assertThrows(IllegalArgumentException.class, () -> new BoundedCache<>(0));
+		assertThrows(NullPointerException.class, () -> new BoundedCache<>(1).put(null, 1));
+	}
+}
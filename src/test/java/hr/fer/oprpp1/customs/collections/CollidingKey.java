@@ -0,0 +1,31 @@
+package hr.fer.oprpp1.customs.collections;
+
+/**
+ * Key whose hash code depends only on <code>id % buckets</code>, so that many
+ * keys share a chain, probe sequence or trie path. Keys are equal when they
+ * are of the same class and have the same id.
+ */
+class CollidingKey {
+	final int id;
+	final int buckets;
+
+	CollidingKey(int id, int buckets) {
+		this.id = id;
+		this.buckets = buckets;
+	}
+
+	@Override
+	public int hashCode() {
+		return id % buckets;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj != null && obj.getClass() == getClass() && ((CollidingKey) obj).id == id;
+	}
+
+	@Override
+	public String toString() {
+		return "k" + id;
+	}
+}
@@ -0,0 +1,135 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.CompactHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class CompactHashtableTest {
+
+	@Test
+	public void randomOperationsTest() {
+		// colliding keys make long chains, removed from and refilled through free list
+		CompactHashtable<CollidingKey, Integer> map = new CompactHashtable<>(1);
+		HashMap<CollidingKey, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			CollidingKey key = new CollidingKey(random.nextInt(2_000), 64);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), map.put(key, i));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (int id = 0; id < 2_000; id++) {
+			CollidingKey key = new CollidingKey(id, 64);
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+		}
+		int count = 0;
+		for (TableEntry<CollidingKey, Integer> entry : map) {
+			assertEquals(expected.get(entry.getKey()), entry.getValue());
+			count++;
+		}
+		assertEquals(expected.size(), count);
+	}
+
+	@Test
+	public void freeIndexesAreReusedTest() {
+		// 16 slots hold 12 entries before arrays are doubled
+		CompactHashtable<CollidingKey, Integer> map = new CompactHashtable<>(16);
+		for (int i = 0; i < 12; i++) {
+			map.put(new CollidingKey(i, 3), i);
+		}
+		assertEquals(3, map.remove(new CollidingKey(3, 3)));
+		assertEquals(7, map.remove(new CollidingKey(7, 3)));
+		// iterator walks indexes in order, last freed index is reused first
+		map.put(new CollidingKey(100, 3), 100);
+		map.put(new CollidingKey(101, 3), 101);
+		assertEquals("[k0=0, k1=1, k2=2, k101=101, k4=4, k5=5, k6=6, k100=100, k8=8, k9=9, k10=10, k11=11]",
+				map.toString());
+
+		// free list is empty, so arrays are doubled and entries keep their indexes
+		map.put(new CollidingKey(102, 3), 102);
+		assertEquals("[k0=0, k1=1, k2=2, k101=101, k4=4, k5=5, k6=6, k100=100, k8=8, k9=9, k10=10, k11=11, k102=102]",
+				map.toString());
+		assertNull(map.get(new CollidingKey(3, 3)));
+		assertEquals(101, map.get(new CollidingKey(101, 3)));
+		assertEquals(13, map.size());
+	}
+
+	@Test
+	public void iteratorTest() {
+		CompactHashtable<Integer, String> map = new CompactHashtable<>();
+		for (int i = 0; i < 10; i++) {
+			map.put(i, "v" + i);
+		}
+		Iterator<TableEntry<Integer, String>> iterator = map.iterator();
+		while (iterator.hasNext()) {
+			TableEntry<Integer, String> entry = iterator.next();
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue("w" + entry.getKey());
+			}
+		}
+		assertEquals(5, map.size());
+		assertEquals("w3", map.get(3));
+		assertFalse(map.containsKey(4));
+		assertTrue(map.containsValue("w9"));
+		assertFalse(map.containsValue("v9"));
+
+		Iterator<TableEntry<Integer, String>> other = map.iterator();
+		map.put(20, "v20");
+		assertThrows(ConcurrentModificationException.class, other::next);
+	}
+
+	@Test
+	public void staleEntryTest() {
+		CompactHashtable<String, Integer> map = new CompactHashtable<>();
+		map.put("a", 1);
+		map.put("b", 2);
+		TableEntry<String, Integer> entry = map.iterator().next();
+		String key = entry.getKey();
+		map.remove(key);
+		assertEquals(key, entry.getKey());
+		// freed index is reused by another key
+		map.put("zzz", 26);
+		entry.setValue(-1);
+		assertEquals(key, entry.getKey());
+		assertEquals(-1, entry.getValue());
+		assertEquals(26, map.get("zzz"));
+		assertEquals(-1, map.get(key));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void clearTest() {
+		CompactHashtable<String, Integer> map = new CompactHashtable<>();
+		map.put("a", 1);
+		map.put("b", null);
+		assertEquals("[a=1, b=null]", map.toString());
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.iterator().hasNext());
+		map.put("c", 3);
+		assertEquals("[c=3]", map.toString());
+	}
+
+	@Test
+	public void invalidArgumentsTest() {
+		assertThrows(IllegalArgumentException.class, () -> new CompactHashtable<>(0));
+		CompactHashtable<String, Integer> map = new CompactHashtable<>();
+		assertThrows(NullPointerException.class, () -> map.put(null, 1));
+		assertNull(map.get(null));
+		assertNull(map.remove(null));
+	}
+}
@@ -0,0 +1,85 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.ConcurrentSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class ConcurrentSimpleHashtableTest {
+
+	@Test
+	public void putGetRemoveTest() {
+		ConcurrentSimpleHashtable<String, String> table = new ConcurrentSimpleHashtable<String, String>(2, 4);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(null, table.put("key" + i, "value" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("value" + i, table.get("key" + i));
+			if (i % 2 == 0) {
+				assertEquals("value" + i, table.remove("key" + i));
+			}
+		}
+		assertEquals(500, table.size());
+		assertEquals(false, table.containsKey("key0"));
+		assertEquals(true, table.containsKey("key1"));
+		assertEquals(true, table.containsValue("value1"));
+		assertThrows(NullPointerException.class, () -> table.put(null, "this Should break!"));
+	}
+
+	@Test
+	public void concurrentPutTest() throws InterruptedException {
+		ConcurrentSimpleHashtable<Integer, Integer> table = new ConcurrentSimpleHashtable<>();
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			int offset = t * 10_000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					table.put(offset + i, i);
+					assertEquals(i, table.get(offset + i));
+				}
+				for (int i = 0; i < 10_000; i += 2) {
+					assertEquals(i, table.remove(offset + i));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, table.size());
+		for (int key = 0; key < 80_000; key++) {
+			assertEquals((key % 2 == 0) ? null : key % 10_000, table.get(key));
+		}
+	}
+
+	@Test
+	public void iteratorTest() {
+		ConcurrentSimpleHashtable<Integer, Integer> table = new ConcurrentSimpleHashtable<>();
+		for (int i = 0; i < 100; i++) {
+			table.put(i, i);
+		}
+		int count = 0;
+		Iterator<TableEntry<Integer, Integer>> iter = table.iterator();
+		while (iter.hasNext()) {
+			TableEntry<Integer, Integer> pair = iter.next();
+			count++;
+			// modification while iterating is allowed
+			table.put(pair.getKey() + 1000, 0);
+			if (pair.getKey() % 2 == 0) {
+				iter.remove();
+			} else {
+				pair.setValue(-1);
+			}
+		}
+		assertEquals(true, count >= 100);
+		for (int i = 0; i < 100; i++) {
+			assertEquals((i % 2 == 0) ? null : -1, table.get(i));
+		}
+	}
+
+}
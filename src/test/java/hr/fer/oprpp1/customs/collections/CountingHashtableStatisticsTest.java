@@ -0,0 +1,116 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.CountingHashtableStatistics;
+import hr.fer.oprpp1.custom.collections.CountingHashtableStatistics.Snapshot;
+import hr.fer.oprpp1.custom.collections.HashtableStatistics;
+import hr.fer.oprpp1.custom.collections.HashtableStatistics.Operation;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+
+public class CountingHashtableStatisticsTest {
+
+	/** Key whose hash code puts all keys into the same bucket. */
+	private static class ConstantHashKey {
+		private final int id;
+
+		ConstantHashKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return 7;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ConstantHashKey && ((ConstantHashKey) obj).id == id;
+		}
+	}
+
+	@Test
+	public void countersTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(2);
+		CountingHashtableStatistics statistics = new CountingHashtableStatistics();
+		table.setStatistics(statistics);
+		for (int i = 0; i < 100; i++) {
+			table.put("key" + i, i);
+		}
+		for (int i = 0; i < 200; i++) {
+			table.get("key" + i);
+		}
+		table.containsKey("key1");
+		table.remove("key2");
+		table.remove("missing");
+
+		Snapshot snapshot = statistics.snapshot();
+		assertEquals(100, snapshot.getCount(Operation.PUT));
+		assertEquals(0, snapshot.getHitCount(Operation.PUT));
+		assertEquals(200, snapshot.getCount(Operation.GET));
+		assertEquals(100, snapshot.getHitCount(Operation.GET));
+		assertEquals(1, snapshot.getCount(Operation.CONTAINS_KEY));
+		assertEquals(1, snapshot.getHitCount(Operation.REMOVE));
+		assertEquals(101.0 / 201, snapshot.getHitRatio(), 1e-9);
+		assertEquals(true, snapshot.getResizeCount() > 0);
+		assertEquals(snapshot.getProbeCount(), sum(snapshot.getProbeLengthHistogram()));
+
+		statistics.reset();
+		assertEquals(0, statistics.snapshot().getProbeCount());
+	}
+
+	@Test
+	public void badHashCodeTest() {
+		SimpleHashtable<ConstantHashKey, Integer> table = new SimpleHashtable<>();
+		CountingHashtableStatistics statistics = new CountingHashtableStatistics();
+		for (int i = 0; i < 5; i++) {
+			table.put(new ConstantHashKey(i), i);
+		}
+		table.setStatistics(statistics);
+		table.get(new ConstantHashKey(4));
+		Snapshot snapshot = statistics.snapshot();
+		assertEquals(5.0, snapshot.getAverageProbeLength());
+		assertEquals(5.0, snapshot.getAverageEqualsCalls());
+		assertEquals(1, snapshot.getProbeLengthHistogram()[5]);
+
+		table.setStatistics(HashtableStatistics.NONE);
+		table.get(new ConstantHashKey(4));
+		assertEquals(1, statistics.snapshot().getCount(Operation.GET));
+		assertThrows(NullPointerException.class, () -> table.setStatistics(null));
+	}
+
+	@Test
+	public void jmxTest() throws Exception {
+		CountingHashtableStatistics statistics = new CountingHashtableStatistics();
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+		table.setStatistics(statistics);
+		table.put("key", 1);
+		table.get("key");
+
+		ObjectName name = statistics.registerMBean("jmxTest");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			assertEquals(1L, server.getAttribute(name, "GetCount"));
+			assertEquals(1.0, server.getAttribute(name, "HitRatio"));
+			assertThrows(IllegalStateException.class, () -> statistics.registerMBean("jmxTest"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+
+	private static long sum(long[] values) {
+		long sum = 0;
+		for (long value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,298 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.DurableHashtable;
+import hr.fer.oprpp1.custom.collections.DurableHashtable.Durability;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class DurableHashtableTest {
+
+	@TempDir
+	Path directory;
+
+	private DurableHashtable<String, Integer> open(Path path) throws IOException {
+		return DurableHashtable.open(path, Codec.STRING, Codec.INTEGER);
+	}
+
+	@Test
+	public void recoveryTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(true, table.isEmpty());
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+			}
+			assertEquals(Integer.valueOf(5), table.put("key5", 50));
+			assertEquals(Integer.valueOf(7), table.remove("key7"));
+			assertEquals(null, table.remove("missing"));
+			table.put("nullValue", null);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(100, table.size());
+			assertEquals(Integer.valueOf(50), table.get("key5"));
+			assertEquals(false, table.containsKey("key7"));
+			assertEquals(true, table.containsKey("nullValue"));
+			assertEquals(Integer.valueOf(99), table.get("key99"));
+			table.clear();
+			table.put("afterClear", 1);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(1, table.size());
+			assertEquals(Integer.valueOf(1), table.get("afterClear"));
+		}
+	}
+
+	@Test
+	public void tornTailTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			table.put("first", 1);
+			table.put("second", 2);
+		}
+		long completeSize = Files.size(path);
+		// half of third record reached the disk
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			table.put("third", 3);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(completeSize + 7);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(2, table.size());
+			assertEquals(false, table.containsKey("third"));
+		}
+		assertEquals(completeSize, Files.size(path));
+
+		// garbage after the last record
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 9, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13 }),
+					completeSize);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(2, table.size());
+			table.put("third", 3);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(3, table.size());
+			assertEquals(Integer.valueOf(3), table.get("third"));
+		}
+	}
+
+	@Test
+	public void notALogTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+		assertThrows(IOException.class, () -> open(path));
+	}
+
+	@Test
+	public void closedTest() throws IOException {
+		DurableHashtable<String, Integer> table = open(directory.resolve("table.log"));
+		table.close();
+		table.close();
+		assertThrows(IllegalStateException.class, () -> table.put("key", 1));
+		assertThrows(IllegalStateException.class, () -> table.get("key"));
+	}
+
+	@Test
+	public void iteratorTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			for (int i = 0; i < 10; i++) {
+				table.put("key" + i, i);
+			}
+			Iterator<TableEntry<String, Integer>> iterator = table.iterator();
+			while (iterator.hasNext()) {
+				TableEntry<String, Integer> entry = iterator.next();
+				if (entry.getValue() % 2 == 0) {
+					iterator.remove();
+				} else {
+					entry.setValue(-entry.getValue());
+				}
+			}
+			assertThrows(IllegalStateException.class, () -> iterator.remove());
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(5, table.size());
+			assertEquals(Integer.valueOf(-3), table.get("key3"));
+			assertEquals(false, table.containsKey("key4"));
+		}
+	}
+
+	@Test
+	public void compactionTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		HashMap<String, Integer> expected = new HashMap<>();
+		long sizeBefore;
+		try (DurableHashtable<String, Integer> table = DurableHashtable.open(path, Codec.STRING, Codec.INTEGER,
+				Durability.ASYNC)) {
+			// few enough records that background compaction is never started
+			Random random = new Random(42);
+			for (int i = 0; i < 1_000; i++) {
+				String key = "key" + random.nextInt(100);
+				if (random.nextInt(4) == 0) {
+					table.remove(key);
+					expected.remove(key);
+				} else {
+					table.put(key, i);
+					expected.put(key, i);
+				}
+			}
+			table.sync();
+			sizeBefore = Files.size(path);
+			table.compact();
+			assertTrue(Files.size(path) < sizeBefore);
+			table.put("afterCompaction", 1);
+			expected.put("afterCompaction", 1);
+		}
+		assertEquals(false, Files.exists(directory.resolve("table.log.compact")));
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(expected.size(), table.size());
+			for (java.util.Map.Entry<String, Integer> entry : expected.entrySet()) {
+				assertEquals(entry.getValue(), table.get(entry.getKey()));
+			}
+		}
+	}
+
+	/** Codec of integers that runs given action once, the next time it writes a value. */
+	private static class HookedCodec implements Codec<Integer> {
+		private Runnable hook;
+
+		@Override
+		public void write(Integer value, ByteBuffer buffer) {
+			Runnable action = hook;
+			hook = null;
+			if (action != null) {
+				action.run();
+			}
+			Codec.INTEGER.write(value, buffer);
+		}
+
+		@Override
+		public Integer read(ByteBuffer buffer, int length) {
+			return Codec.INTEGER.read(buffer, length);
+		}
+
+		@Override
+		public int fixedSize() {
+			return Integer.BYTES;
+		}
+	}
+
+	@Test
+	public void repeatedCompactionWithWritesTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		HookedCodec codec = new HookedCodec();
+		HashMap<String, Integer> expected = new HashMap<>();
+		try (DurableHashtable<String, Integer> table = DurableHashtable.open(path, Codec.STRING, codec,
+				Durability.ASYNC)) {
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+				expected.put("key" + i, i);
+			}
+			for (int round = 0; round < 3; round++) {
+				int value = 1000 + round;
+				// put while compaction writes live entries, so its record is copied
+				// from the tail of old log
+				codec.hook = () -> {
+					table.put("key" + value % 100, value);
+					table.remove("key" + (value + 50) % 100);
+				};
+				expected.put("key" + value % 100, value);
+				expected.remove("key" + (value + 50) % 100);
+				table.compact();
+				assertEquals(null, codec.hook);
+				assertEquals(expected.size(), table.size());
+			}
+		}
+		try (DurableHashtable<String, Integer> table = DurableHashtable.open(path, Codec.STRING, codec)) {
+			assertEquals(expected.size(), table.size());
+			for (java.util.Map.Entry<String, Integer> entry : expected.entrySet()) {
+				assertEquals(entry.getValue(), table.get(entry.getKey()));
+			}
+		}
+	}
+
+	@Test
+	public void backgroundCompactionTest() throws IOException, InterruptedException {
+		Path path = directory.resolve("table.log");
+		int i = 0;
+		try (DurableHashtable<String, Integer> table = DurableHashtable.open(path, Codec.STRING, Codec.INTEGER,
+				Durability.ASYNC)) {
+			for (; i < 100_000; i++) {
+				table.put("key" + (i % 10), i);
+			}
+			// compaction runs in background, so writes continue slowly until it is done
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (Files.size(path) > 50_000 && System.currentTimeMillis() < deadline) {
+				table.put("key" + (i % 10), i);
+				i++;
+				Thread.sleep(1);
+			}
+			// 100 000 records would take more than a megabyte
+			assertTrue(Files.size(path) <= 50_000);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(10, table.size());
+			assertEquals(Integer.valueOf(i - 1), table.get("key" + ((i - 1) % 10)));
+		}
+	}
+
+	@Test
+	public void groupCommitTest() throws IOException, InterruptedException {
+		Path path = directory.resolve("table.log");
+		int threadCount = 8;
+		int perThread = 200;
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				int thread = t;
+				threads[t] = new Thread(() -> {
+					for (int i = 0; i < perThread; i++) {
+						table.put(thread + ":" + i, i);
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertEquals(threadCount * perThread, table.size());
+			assertTrue(table.syncCount() <= threadCount * perThread);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(threadCount * perThread, table.size());
+			assertEquals(Integer.valueOf(perThread - 1), table.get("3:" + (perThread - 1)));
+		}
+	}
+
+	@Test
+	public void asyncCloseTest() throws IOException {
+		Path path = directory.resolve("table.log");
+		try (DurableHashtable<String, Integer> table = DurableHashtable.open(path, Codec.STRING, Codec.INTEGER,
+				Durability.ASYNC)) {
+			for (int i = 0; i < 1000; i++) {
+				table.put("key" + i, i);
+			}
+			assertTrue(table.syncCount() < 1000);
+		}
+		try (DurableHashtable<String, Integer> table = open(path)) {
+			assertEquals(1000, table.size());
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.ExpiringHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class ExpiringHashtableTest {
+
+	/** Clock that moves only when told to. */
+	private static class ManualClock implements ExpiringHashtable.Clock {
+		private long time = 1_000_000_000L;
+
+		@Override
+		public long nanoTime() {
+			return time;
+		}
+
+		void advance(long amount, TimeUnit unit) {
+			time += unit.toNanos(amount);
+		}
+	}
+
+	@Test
+	public void defaultTtlTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<String, Integer> map = new ExpiringHashtable<>(10, TimeUnit.SECONDS, clock);
+		map.put("a", 1);
+		clock.advance(9, TimeUnit.SECONDS);
+		assertEquals(1, map.get("a"));
+		assertEquals(1, map.getTimeToLive("a", TimeUnit.SECONDS));
+
+		clock.advance(1, TimeUnit.SECONDS);
+		assertNull(map.get("a"));
+		assertFalse(map.containsKey("a"));
+		assertEquals(0, map.size());
+		assertEquals(-1, map.getTimeToLive("a", TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void perEntryTtlTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<Integer, Integer> map = new ExpiringHashtable<>(1, TimeUnit.HOURS, clock);
+		// times that land on different levels of wheel
+		long[] ttls = { 1, 50, 3_000, 200_000, 10_000_000, 100_000_000_000L };
+		for (int i = 0; i < ttls.length; i++) {
+			map.put(i, i, ttls[i], TimeUnit.MILLISECONDS);
+		}
+		assertEquals(ttls.length, map.size());
+
+		long elapsed = 0;
+		for (int i = 0; i < ttls.length; i++) {
+			clock.advance(ttls[i] - elapsed - 1, TimeUnit.MILLISECONDS);
+			assertTrue(map.containsKey(i), "entry " + i + " expired too early");
+			clock.advance(1, TimeUnit.MILLISECONDS);
+			elapsed = ttls[i];
+			assertFalse(map.containsKey(i));
+			// wheel removes the entry within a millisecond
+			clock.advance(2, TimeUnit.MILLISECONDS);
+			elapsed += 2;
+			assertEquals(ttls.length - i - 1, map.size());
+		}
+	}
+
+	@Test
+	public void overwriteResetsTtlTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<String, Integer> map = new ExpiringHashtable<>(10, TimeUnit.SECONDS, clock);
+		map.put("a", 1);
+		clock.advance(8, TimeUnit.SECONDS);
+		assertEquals(1, map.put("a", 2));
+		clock.advance(8, TimeUnit.SECONDS);
+		assertEquals(2, map.get("a"));
+		clock.advance(3, TimeUnit.SECONDS);
+		assertNull(map.put("a", 3));
+		assertEquals(3, map.remove("a"));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void manyEntriesExpireTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<Integer, Integer> map = new ExpiringHashtable<>(1, TimeUnit.MINUTES, clock);
+		for (int i = 0; i < 10_000; i++) {
+			map.put(i, i, 1 + i % 100, TimeUnit.SECONDS);
+			clock.advance(1, TimeUnit.MILLISECONDS);
+		}
+		clock.advance(91, TimeUnit.SECONDS);
+		long now = 101_000;
+		for (int i = 0; i < 10_000; i++) {
+			long expirationTime = i + (1 + i % 100) * 1000L;
+			assertEquals(expirationTime > now, map.containsKey(i), "key " + i);
+		}
+		clock.advance(10, TimeUnit.SECONDS);
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void iteratorTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<Integer, Integer> map = new ExpiringHashtable<>(10, TimeUnit.SECONDS, clock);
+		for (int i = 0; i < 10; i++) {
+			map.put(i, i, i + 1, TimeUnit.SECONDS);
+		}
+		clock.advance(5, TimeUnit.SECONDS);
+		int count = 0;
+		Iterator<TableEntry<Integer, Integer>> iterator = map.iterator();
+		while (iterator.hasNext()) {
+			TableEntry<Integer, Integer> entry = iterator.next();
+			assertTrue(entry.getKey() >= 5);
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			}
+			count++;
+		}
+		assertEquals(5, count);
+		assertEquals(3, map.size());
+		assertFalse(map.containsKey(6));
+		assertTrue(map.containsValue(7));
+
+		Iterator<TableEntry<Integer, Integer>> other = map.iterator();
+		map.put(20, 20);
+		assertThrows(ConcurrentModificationException.class, other::next);
+
+		map.clear();
+		assertFalse(map.iterator().hasNext());
+	}
+
+	@Test
+	public void iteratorWithMovedEntriesTest() {
+		ManualClock clock = new ManualClock();
+		ExpiringHashtable<String, Integer> map = new ExpiringHashtable<>(1, TimeUnit.SECONDS, clock);
+		map.put("x", 1, 100, TimeUnit.MILLISECONDS);
+		map.put("y", 2, 120, TimeUnit.MILLISECONDS);
+		Iterator<TableEntry<String, Integer>> iter = map.iterator();
+		iter.next();
+		// advancing the wheel moves both entries into finer buckets
+		clock.advance(80, TimeUnit.MILLISECONDS);
+		assertEquals(1, map.get("x"));
+		assertThrows(ConcurrentModificationException.class, () -> iter.next());
+	}
+
+	@Test
+	public void invalidArgumentsTest() {
+		assertThrows(IllegalArgumentException.class, () -> new ExpiringHashtable<>(0, TimeUnit.SECONDS));
+		ExpiringHashtable<String, String> map = new ExpiringHashtable<>(1, TimeUnit.SECONDS);
+		assertThrows(IllegalArgumentException.class, () -> map.put("a", "b", -1, TimeUnit.SECONDS));
+		assertThrows(NullPointerException.class, () -> map.put(null, "b"));
+	}
+}
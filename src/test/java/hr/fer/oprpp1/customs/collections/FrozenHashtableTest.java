@@ -0,0 +1,120 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.FrozenHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class FrozenHashtableTest {
+
+	@Test
+	public void freezeFindsEveryKeyTest() {
+		Random random = new Random(42);
+		for (int size : new int[] { 1, 2, 5, 17, 1_000, 100_000 }) {
+			SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+			HashMap<Integer, Integer> expected = new HashMap<>();
+			while (table.size() < size) {
+				int key = random.nextInt();
+				table.put(key, key ^ 0x5555);
+				expected.put(key, key ^ 0x5555);
+			}
+			FrozenHashtable<Integer, Integer> frozen = table.freeze();
+			assertEquals(size, frozen.size());
+			for (Integer key : expected.keySet()) {
+				assertEquals(expected.get(key), frozen.get(key));
+				assertTrue(frozen.containsKey(key));
+			}
+			for (int i = 0; i < 1_000; i++) {
+				int key = random.nextInt();
+				assertEquals(expected.get(key), frozen.get(key));
+			}
+		}
+	}
+
+	@Test
+	public void emptyMapTest() {
+		FrozenHashtable<String, Integer> frozen = new SimpleHashtable<String, Integer>().freeze();
+		assertTrue(frozen.isEmpty());
+		assertNull(frozen.get("a"));
+		assertFalse(frozen.containsKey("a"));
+		assertFalse(frozen.iterator().hasNext());
+		assertEquals("[]", frozen.toString());
+	}
+
+	@Test
+	public void equalHashCodesTest() {
+		SimpleHashtable<Object, String> table = new SimpleHashtable<>();
+		for (int i = 0; i < 50; i++) {
+			table.put(new CollidingKey(i, 7), "v" + i);
+		}
+		// "Aa" and "BB" have equal hash codes
+		table.put("Aa", "first");
+		table.put("BB", "second");
+		FrozenHashtable<Object, String> frozen = table.freeze();
+		assertEquals(52, frozen.size());
+		for (int i = 0; i < 50; i++) {
+			assertEquals("v" + i, frozen.get(new CollidingKey(i, 7)));
+		}
+		assertNull(frozen.get(new CollidingKey(50, 7)));
+		assertEquals("first", frozen.get("Aa"));
+		assertEquals("second", frozen.get("BB"));
+		assertTrue(frozen.containsValue("v49"));
+		assertFalse(frozen.containsValue("v50"));
+
+		int count = 0;
+		for (TableEntry<Object, String> entry : frozen) {
+			assertEquals(table.get(entry.getKey()), entry.getValue());
+			count++;
+		}
+		assertEquals(52, count);
+	}
+
+	@Test
+	public void nullValuesTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+		table.put("a", null);
+		table.put("b", 2);
+		FrozenHashtable<String, Integer> frozen = table.freeze();
+		assertTrue(frozen.containsKey("a"));
+		assertNull(frozen.get("a"));
+		assertTrue(frozen.containsValue(null));
+		assertNull(frozen.get(null));
+		assertThrows(NullPointerException.class, () -> frozen.containsKey(null));
+	}
+
+	@Test
+	public void copyIsNotChangedByOriginalTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+		table.put("a", 1);
+		FrozenHashtable<String, Integer> frozen = table.freeze();
+		table.put("a", 2);
+		table.put("b", 3);
+		assertEquals(1, frozen.get("a"));
+		assertFalse(frozen.containsKey("b"));
+		assertEquals(1, FrozenHashtable.copyOf(frozen).size());
+	}
+
+	@Test
+	public void mutatorsThrowTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+		table.put("a", 1);
+		FrozenHashtable<String, Integer> frozen = table.freeze();
+		assertThrows(UnsupportedOperationException.class, () -> frozen.put("b", 2));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.remove("a"));
+		assertThrows(UnsupportedOperationException.class, () -> frozen.clear());
+
+		Iterator<TableEntry<String, Integer>> iterator = frozen.iterator();
+		TableEntry<String, Integer> entry = iterator.next();
+		assertThrows(UnsupportedOperationException.class, () -> entry.setValue(5));
+		assertThrows(UnsupportedOperationException.class, () -> iterator.remove());
+		assertEquals("[a=1]", frozen.toString());
+	}
+
+}
@@ -0,0 +1,80 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.IntIntHashtable;
+
+public class IntIntHashtableTest {
+
+	@Test
+	public void putGetRemoveTest() {
+		IntIntHashtable table = new IntIntHashtable(2, -1);
+		assertEquals(-1, table.put(0, 10));
+		assertEquals(-1, table.put(5, 50));
+		assertEquals(10, table.put(0, 11));
+		assertEquals(11, table.get(0));
+		assertEquals(50, table.get(5));
+		assertEquals(-1, table.get(6));
+		assertEquals(2, table.size());
+		assertEquals(true, table.containsKey(0));
+		assertEquals(true, table.containsValue(50));
+		assertEquals(11, table.remove(0));
+		assertEquals(-1, table.remove(0));
+		assertEquals(false, table.containsKey(0));
+		assertEquals(1, table.size());
+	}
+
+	@Test
+	public void randomOperationsTest() {
+		IntIntHashtable table = new IntIntHashtable();
+		HashMap<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			int key = random.nextInt(3000) - 1000;
+			if (random.nextInt(3) == 0) {
+				Integer value = expected.remove(key);
+				assertEquals(value == null ? 0 : value, table.remove(key));
+			} else {
+				Integer value = expected.put(key, i);
+				assertEquals(value == null ? 0 : value, table.put(key, i));
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (int key = -1000; key < 2000; key++) {
+			assertEquals(expected.containsKey(key), table.containsKey(key));
+		}
+	}
+
+	@Test
+	public void cursorTest() {
+		IntIntHashtable table = new IntIntHashtable(2);
+		for (int i = 0; i < 1000; i++) {
+			table.put(i, i);
+		}
+		int count = 0;
+		IntIntHashtable.Cursor cursor = table.cursor();
+		assertThrows(java.util.NoSuchElementException.class, () -> cursor.key());
+		while (cursor.next()) {
+			count++;
+			assertEquals(cursor.key(), cursor.value());
+			if (cursor.key() % 2 == 0) {
+				cursor.remove();
+				assertThrows(IllegalStateException.class, () -> cursor.remove());
+			} else {
+				cursor.setValue(-cursor.key());
+			}
+		}
+		assertEquals(1000, count);
+		assertEquals(500, table.size());
+
+		long[] sum = new long[1];
+		table.forEach((key, value) -> sum[0] += key + value);
+		assertEquals(0, sum[0]);
+	}
+
+}
@@ -0,0 +1,94 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.LinkedSimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class LinkedSimpleHashtableTest {
+
+	@Test
+	public void insertionOrderTest() {
+		LinkedSimpleHashtable<Integer, Integer> map = new LinkedSimpleHashtable<>(2);
+		for (int i = 1000; i > 0; i -= 7) {
+			map.put(i, i);
+		}
+		// order survives resizes
+		List<Integer> keys = new ArrayList<>();
+		for (TableEntry<Integer, Integer> entry : map) {
+			keys.add(entry.getKey());
+		}
+		assertEquals(143, keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			assertEquals(1000 - 7 * i, keys.get(i));
+		}
+
+		TableEntry<Integer, Integer>[] array = map.toArray();
+		assertEquals(1000, array[0].getKey());
+		assertEquals(6, array[array.length - 1].getKey());
+	}
+
+	@Test
+	public void overwriteAndRemoveTest() {
+		LinkedSimpleHashtable<String, Integer> map = new LinkedSimpleHashtable<>();
+		map.put("a", 1);
+		map.put("b", 2);
+		map.put("c", 3);
+		assertEquals(1, map.put("a", 10));
+		assertEquals("[a=10, b=2, c=3]", map.toString());
+
+		assertEquals(2, map.remove("b"));
+		assertNull(map.remove("b"));
+		map.put("b", 20);
+		assertEquals("[a=10, c=3, b=20]", map.toString());
+		assertTrue(map.containsValue(20));
+		assertFalse(map.containsValue(2));
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals("[]", map.toString());
+		map.put("d", null);
+		assertEquals("[d=null]", map.toString());
+		assertTrue(map.containsValue(null));
+	}
+
+	@Test
+	public void iteratorRemoveTest() {
+		LinkedSimpleHashtable<Integer, String> map = new LinkedSimpleHashtable<>();
+		for (int i = 0; i < 10; i++) {
+			map.put(i, Integer.toString(i));
+		}
+		Iterator<TableEntry<Integer, String>> iterator = map.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().getKey() % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		assertEquals("[1=1, 3=3, 5=5, 7=7, 9=9]", map.toString());
+		assertFalse(map.containsKey(4));
+
+		Iterator<TableEntry<Integer, String>> other = map.iterator();
+		other.next();
+		map.put(11, "11");
+		assertThrows(ConcurrentModificationException.class, other::next);
+	}
+
+	@Test
+	public void forEachTest() {
+		LinkedSimpleHashtable<Integer, Integer> map = new LinkedSimpleHashtable<>();
+		map.put(3, 30);
+		map.put(1, 10);
+		map.put(2, 20);
+		StringBuilder builder = new StringBuilder();
+		map.forEach((Integer key, Integer value) -> builder.append(key).append(value));
+		assertEquals("330110220", builder.toString());
+		assertThrows(ConcurrentModificationException.class, () -> map.forEach((Integer key, Integer value) -> map.remove(key)));
+	}
+}
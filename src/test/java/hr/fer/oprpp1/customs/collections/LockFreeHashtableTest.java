@@ -0,0 +1,113 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.LockFreeHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class LockFreeHashtableTest {
+
+	@Test
+	public void putGetRemoveTest() {
+		LockFreeHashtable<String, String> table = new LockFreeHashtable<String, String>(2);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(null, table.put("key" + i, "value" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("value" + i, table.get("key" + i));
+			if (i % 2 == 0) {
+				assertEquals("value" + i, table.remove("key" + i));
+			}
+		}
+		assertEquals(500, table.size());
+		assertEquals(false, table.containsKey("key0"));
+		assertEquals(true, table.containsKey("key1"));
+		assertEquals(true, table.containsValue("value1"));
+		assertThrows(NullPointerException.class, () -> table.put(null, "this Should break!"));
+	}
+
+	@Test
+	public void concurrentPutTest() throws InterruptedException {
+		LockFreeHashtable<Integer, Integer> table = new LockFreeHashtable<>(2);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			int offset = t * 10_000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					table.put(offset + i, i);
+					assertEquals(i, table.get(offset + i));
+				}
+				for (int i = 0; i < 10_000; i += 2) {
+					assertEquals(i, table.remove(offset + i));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, table.size());
+		for (int key = 0; key < 80_000; key++) {
+			assertEquals((key % 2 == 0) ? null : key % 10_000, table.get(key));
+		}
+	}
+
+	@Test
+	public void iteratorTest() {
+		LockFreeHashtable<Integer, Integer> table = new LockFreeHashtable<>(2);
+		for (int i = 0; i < 100; i++) {
+			table.put(i, i);
+		}
+		int count = 0;
+		Iterator<TableEntry<Integer, Integer>> iter = table.iterator();
+		while (iter.hasNext()) {
+			TableEntry<Integer, Integer> pair = iter.next();
+			count++;
+			// modification while iterating is allowed
+			table.put(pair.getKey() + 1000, 0);
+			if (pair.getKey() % 2 == 0) {
+				iter.remove();
+			} else {
+				pair.setValue(-1);
+			}
+		}
+		assertEquals(true, count >= 100);
+		for (int i = 0; i < 100; i++) {
+			assertEquals((i % 2 == 0) ? null : -1, table.get(i));
+		}
+	}
+
+	@Test
+	public void concurrentOverwriteTest() throws InterruptedException {
+		LockFreeHashtable<Integer, Integer> table = new LockFreeHashtable<>(2);
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 20_000; i++) {
+					table.put(i % 5000, i);
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(5000, table.size());
+		int count = 0;
+		for (TableEntry<Integer, Integer> pair : table) {
+			assertEquals(pair.getKey().intValue(), pair.getValue() % 5000);
+			count++;
+		}
+		assertEquals(5000, count);
+		table.clear();
+		assertEquals(0, table.size());
+		assertEquals(null, table.get(1));
+	}
+
+}
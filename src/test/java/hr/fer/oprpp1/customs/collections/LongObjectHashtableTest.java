@@ -0,0 +1,63 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.LongObjectHashtable;
+
+public class LongObjectHashtableTest {
+
+	@Test
+	public void randomOperationsTest() {
+		LongObjectHashtable<String> table = new LongObjectHashtable<>(2);
+		HashMap<Long, String> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			long key = (random.nextInt(3000) - 1000) * 0x1_0000_0001L;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), table.remove(key));
+			} else {
+				assertEquals(expected.put(key, "value" + i), table.put(key, "value" + i));
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (long key : expected.keySet()) {
+			assertEquals(expected.get(key), table.get(key));
+		}
+		assertEquals(null, table.get(123456789L));
+	}
+
+	@Test
+	public void cursorAndForEachTest() {
+		LongObjectHashtable<String> table = new LongObjectHashtable<>();
+		table.put(0L, "zero");
+		table.put(Long.MAX_VALUE, "max");
+		table.put(-1L, null);
+		assertEquals(true, table.containsKey(-1L));
+		assertEquals(true, table.containsValue(null));
+
+		int count = 0;
+		LongObjectHashtable<String>.Cursor cursor = table.cursor();
+		while (cursor.next()) {
+			count++;
+			if (cursor.key() == 0L) {
+				assertEquals("zero", cursor.value());
+				cursor.remove();
+			}
+		}
+		assertEquals(3, count);
+		assertEquals(2, table.size());
+		assertEquals(null, table.get(0L));
+
+		StringBuilder builder = new StringBuilder();
+		table.forEach((key, value) -> builder.append(value));
+		assertEquals(true, builder.toString().contains("max"));
+		table.clear();
+		assertEquals(true, table.isEmpty());
+	}
+
+}
@@ -0,0 +1,137 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.MappedHashtable;
+import hr.fer.oprpp1.custom.collections.MappedHashtable.Mode;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class MappedHashtableTest {
+
+	@TempDir
+	Path directory;
+
+	private Path saveSnapshot(int count) throws IOException {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>();
+		for (int i = 0; i < count; i++) {
+			table.put("key" + i, i);
+		}
+		table.put("nullValue", null);
+		Path path = directory.resolve("table.snapshot");
+		MappedHashtable.save(table, path, Codec.STRING, Codec.INTEGER);
+		return path;
+	}
+
+	@Test
+	public void saveLoadTest() throws IOException {
+		Path path = saveSnapshot(10_000);
+		try (MappedHashtable<String, Integer> table = MappedHashtable.load(path, Codec.STRING, Codec.INTEGER,
+				Mode.READ_ONLY)) {
+			assertEquals(10_001, table.size());
+			for (int i = 0; i < 10_000; i++) {
+				assertEquals(Integer.valueOf(i), table.get("key" + i));
+			}
+			assertEquals(null, table.get("key10000"));
+			assertEquals(false, table.containsKey("key10000"));
+			assertEquals(true, table.containsKey("nullValue"));
+			assertEquals(null, table.get("nullValue"));
+			assertEquals(null, table.get(5));
+			assertEquals(true, table.containsValue(9_999));
+
+			HashMap<String, Integer> iterated = new HashMap<>();
+			for (TableEntry<String, Integer> entry : table) {
+				iterated.put(entry.getKey(), entry.getValue());
+			}
+			assertEquals(10_001, iterated.size());
+			assertEquals(Integer.valueOf(42), iterated.get("key42"));
+		}
+	}
+
+	@Test
+	public void readOnlyTest() throws IOException {
+		Path path = saveSnapshot(10);
+		try (MappedHashtable<String, Integer> table = MappedHashtable.load(path, Codec.STRING, Codec.INTEGER,
+				Mode.READ_ONLY)) {
+			assertThrows(UnsupportedOperationException.class, () -> table.put("key1", 5));
+			assertThrows(UnsupportedOperationException.class, () -> table.remove("key1"));
+			assertThrows(UnsupportedOperationException.class, () -> table.clear());
+			assertEquals(Integer.valueOf(1), table.get("key1"));
+		}
+	}
+
+	@Test
+	public void copyOnWriteTest() throws IOException {
+		Path path = saveSnapshot(100);
+		byte[] original = Files.readAllBytes(path);
+		try (MappedHashtable<String, Integer> table = MappedHashtable.load(path, Codec.STRING, Codec.INTEGER,
+				Mode.COPY_ON_WRITE)) {
+			assertEquals(Integer.valueOf(1), table.put("key1", -1));
+			assertEquals(Integer.valueOf(2), table.remove("key2"));
+			assertEquals(null, table.put("new", 7));
+			assertEquals(Integer.valueOf(7), table.put("new", 8));
+			assertEquals(101, table.size());
+			assertEquals(Integer.valueOf(-1), table.get("key1"));
+			assertEquals(null, table.get("key2"));
+			assertEquals(false, table.containsKey("key2"));
+			assertEquals(Integer.valueOf(8), table.get("new"));
+
+			int count = 0;
+			Iterator<TableEntry<String, Integer>> iter = table.iterator();
+			while (iter.hasNext()) {
+				TableEntry<String, Integer> entry = iter.next();
+				count++;
+				if (entry.getKey().equals("key3") || entry.getKey().equals("new")) {
+					iter.remove();
+				}
+			}
+			assertEquals(101, count);
+			assertEquals(99, table.size());
+			assertEquals(false, table.containsKey("key3"));
+			assertEquals(false, table.containsKey("new"));
+
+			table.clear();
+			assertEquals(0, table.size());
+			assertEquals(false, table.iterator().hasNext());
+		}
+		assertArrayEquals(original, Files.readAllBytes(path));
+	}
+
+	@Test
+	public void invalidFileTest() throws IOException {
+		Path path = directory.resolve("invalid");
+		Files.write(path, new byte[100]);
+		assertThrows(IllegalArgumentException.class,
+				() -> MappedHashtable.load(path, Codec.STRING, Codec.STRING, Mode.READ_ONLY));
+	}
+
+	@Test
+	public void closeTest() throws IOException {
+		Path path = saveSnapshot(10);
+		MappedHashtable<String, Integer> table = MappedHashtable.load(path, Codec.STRING, Codec.INTEGER,
+				Mode.READ_ONLY);
+		Iterator<TableEntry<String, Integer>> iter = table.iterator();
+		table.close();
+		assertThrows(IllegalStateException.class, () -> table.get("key1"));
+		assertThrows(IllegalStateException.class, () -> iter.hasNext());
+		table.close();
+		// file is unmapped, so it can be replaced
+		Files.delete(path);
+		saveSnapshot(5);
+		try (MappedHashtable<String, Integer> reloaded = MappedHashtable.load(path, Codec.STRING, Codec.INTEGER,
+				Mode.READ_ONLY)) {
+			assertEquals(6, reloaded.size());
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.OffHeapHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class OffHeapHashtableTest {
+
+	@Test
+	public void putGetRemoveTest() {
+		try (OffHeapHashtable<String, String> table = new OffHeapHashtable<>(Codec.STRING, Codec.STRING)) {
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(null, table.put("key" + i, "value" + i));
+			}
+			for (int i = 0; i < 1000; i++) {
+				assertEquals("value" + i, table.get("key" + i));
+				assertEquals("value" + i, table.put("key" + i, "xxx" + i));
+			}
+			assertEquals("xxx5", table.remove("key5"));
+			assertEquals(null, table.get("key5"));
+			assertEquals(false, table.containsKey("key5"));
+			assertEquals(true, table.containsValue("xxx6"));
+			assertEquals(999, table.size());
+			assertThrows(NullPointerException.class, () -> table.put(null, "value"));
+			assertThrows(NullPointerException.class, () -> table.put("key", null));
+		}
+	}
+
+	@Test
+	public void randomOperationsWithCompactionTest() {
+		try (OffHeapHashtable<Integer, String> table = new OffHeapHashtable<>(Codec.INTEGER, Codec.STRING, 2, 256)) {
+			HashMap<Integer, String> expected = new HashMap<>();
+			Random random = new Random(42);
+			for (int i = 0; i < 50_000; i++) {
+				int key = random.nextInt(500);
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(key), table.remove(key));
+				} else {
+					String value = "value" + i + new String(new char[random.nextInt(300)]).replace('\0', '-');
+					assertEquals(expected.put(key, value), table.put(key, value));
+				}
+			}
+			assertEquals(expected.size(), table.size());
+			for (int key = 0; key < 500; key++) {
+				assertEquals(expected.get(key), table.get(key));
+			}
+			// compaction keeps slabs proportional to live data
+			assertEquals(true, table.offHeapBytes() < 2 * 500 * 330 + 64 * 1024);
+		}
+	}
+
+	@Test
+	public void iteratorTest() {
+		try (OffHeapHashtable<Long, Integer> table = new OffHeapHashtable<>(Codec.LONG, Codec.INTEGER)) {
+			for (long i = 0; i < 100; i++) {
+				table.put(i, (int) i);
+			}
+			int count = 0;
+			Iterator<TableEntry<Long, Integer>> iter = table.iterator();
+			while (iter.hasNext()) {
+				TableEntry<Long, Integer> pair = iter.next();
+				count++;
+				if (pair.getKey() % 2 == 0) {
+					iter.remove();
+				} else {
+					pair.setValue(-1);
+				}
+			}
+			assertEquals(100, count);
+			for (long i = 0; i < 100; i++) {
+				assertEquals((i % 2 == 0) ? null : Integer.valueOf(-1), table.get(i));
+			}
+		}
+	}
+
+	@Test
+	public void closeTest() {
+		OffHeapHashtable<String, String> table = new OffHeapHashtable<>(Codec.STRING, Codec.STRING);
+		table.put("key", "value");
+		table.close();
+		assertThrows(IllegalStateException.class, () -> table.get("key"));
+		assertThrows(IllegalStateException.class, () -> table.put("key", "value"));
+		assertThrows(IllegalStateException.class, () -> table.iterator());
+		table.close();
+	}
+
+	@Test
+	public void clearTest() {
+		try (OffHeapHashtable<Integer, String> table = new OffHeapHashtable<>(Codec.INTEGER, Codec.STRING, 2, 256)) {
+			for (int i = 0; i < 1000; i++) {
+				table.put(i, "value" + i);
+			}
+			table.clear();
+			assertEquals(0, table.size());
+			assertEquals(null, table.get(5));
+			// slabs dropped by clear are freed, map keeps working on the first one
+			for (int i = 0; i < 1000; i++) {
+				table.put(i, "new" + i);
+			}
+			for (int i = 0; i < 1000; i++) {
+				assertEquals("new" + i, table.get(i));
+			}
+		}
+	}
+
+}
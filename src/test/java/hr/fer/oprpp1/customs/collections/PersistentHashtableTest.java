@@ -0,0 +1,202 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.PersistentHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class PersistentHashtableTest {
+
+	@Test
+	public void randomOperationsTest() {
+		for (int seed = 0; seed < 20; seed++) {
+			PersistentHashtable<Integer, Integer> map = PersistentHashtable.empty();
+			HashMap<Integer, Integer> expected = new HashMap<>();
+			Random random = new Random(seed);
+			for (int i = 0; i < 20_000; i++) {
+				int key = random.nextInt(3_000) - 1_000;
+				if (random.nextInt(3) == 0) {
+					expected.remove(key);
+					map = map.remove(key);
+				} else {
+					expected.put(key, i);
+					map = map.put(key, i);
+				}
+				assertEquals(expected.size(), map.size());
+			}
+			assertMapEquals(expected, map);
+		}
+	}
+
+	@Test
+	public void lastBitOfLevelTest() {
+		// hashes of 15 and 1007 differ on the first level, one of them in chunk 31
+		PersistentHashtable<Integer, String> map = PersistentHashtable.<Integer, String>empty().put(15, "a")
+				.put(1007, "b");
+		assertEquals("a", map.get(15));
+		assertEquals("b", map.get(1007));
+		assertTrue(map.containsKey(1007));
+		assertEquals(1, map.remove(15).size());
+		assertEquals("b", map.remove(15).get(1007));
+
+		PersistentHashtable<String, Integer> strings = PersistentHashtable.empty();
+		for (int i = 0; i < 10_000; i++) {
+			strings = strings.put("key" + i, i);
+		}
+		for (int i = 0; i < 10_000; i++) {
+			assertEquals(i, strings.get("key" + i));
+		}
+	}
+
+	@Test
+	public void versionsAreIndependentTest() {
+		PersistentHashtable<String, Integer> empty = PersistentHashtable.empty();
+		PersistentHashtable<String, Integer> first = empty.put("a", 1).put("b", 2);
+		PersistentHashtable<String, Integer> second = first.put("a", 10).remove("b").put("c", 3);
+
+		assertTrue(empty.isEmpty());
+		assertEquals(1, first.get("a"));
+		assertEquals(2, first.get("b"));
+		assertNull(first.get("c"));
+		assertEquals(10, second.get("a"));
+		assertFalse(second.containsKey("b"));
+		assertEquals(2, second.size());
+
+		assertSame(first, first.put("a", 1));
+		assertSame(first, first.remove("missing"));
+		assertSame(PersistentHashtable.empty(), first.remove("a").remove("b"));
+	}
+
+	@Test
+	public void collidingKeysTest() {
+		PersistentHashtable<CollidingKey, Integer> map = PersistentHashtable.empty();
+		for (int i = 0; i < 100; i++) {
+			map = map.put(new CollidingKey(i, 5), i);
+		}
+		PersistentHashtable<CollidingKey, Integer> full = map;
+		for (int i = 0; i < 100; i += 2) {
+			map = map.remove(new CollidingKey(i, 5));
+		}
+		assertEquals(50, map.size());
+		assertEquals(100, full.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i % 2 == 1, map.containsKey(new CollidingKey(i, 5)));
+			assertEquals(i, full.get(new CollidingKey(i, 5)));
+		}
+	}
+
+	@Test
+	public void nullValuesTest() {
+		PersistentHashtable<String, String> map = PersistentHashtable.<String, String>empty().put("a", null);
+		assertTrue(map.containsKey("a"));
+		assertTrue(map.containsValue(null));
+		assertNull(map.get("a"));
+		assertEquals("[a=null]", map.toString());
+		assertThrows(NullPointerException.class, () -> map.put(null, "b"));
+	}
+
+	@Test
+	public void builderTest() {
+		PersistentHashtable.Builder<Integer, Integer> builder = PersistentHashtable.builder();
+		HashMap<Integer, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 10_000; i++) {
+			assertEquals(expected.put(i * 7, i), builder.put(i * 7, i));
+		}
+		PersistentHashtable<Integer, Integer> snapshot = builder.build();
+		HashMap<Integer, Integer> expectedSnapshot = new HashMap<>(expected);
+
+		// changes after build do not reach the snapshot
+		for (int i = 0; i < 10_000; i += 3) {
+			assertEquals(expected.remove(i * 7), builder.remove(i * 7));
+			expected.put(i, -i);
+			builder.put(i, -i);
+		}
+		assertEquals(expected.size(), builder.size());
+		assertMapEquals(expectedSnapshot, snapshot);
+		assertMapEquals(expected, builder.build());
+
+		PersistentHashtable.Builder<Integer, Integer> other = snapshot.toBuilder();
+		other.clear();
+		assertTrue(other.isEmpty());
+		assertEquals(10_000, snapshot.size());
+	}
+
+	@Test
+	public void builderSnapshotsTest() {
+		PersistentHashtable.Builder<CollidingKey, Integer> builder = PersistentHashtable.builder();
+		HashMap<CollidingKey, Integer> expected = new HashMap<>();
+		List<PersistentHashtable<CollidingKey, Integer>> snapshots = new ArrayList<>();
+		List<HashMap<CollidingKey, Integer>> expectedSnapshots = new ArrayList<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 20_000; i++) {
+			CollidingKey key = new CollidingKey(random.nextInt(200), 5);
+			if (random.nextBoolean()) {
+				assertEquals(expected.put(key, i), builder.put(key, i));
+			} else {
+				assertEquals(expected.remove(key), builder.remove(key));
+			}
+			if (i % 1000 == 0) {
+				snapshots.add(builder.build());
+				expectedSnapshots.add(new HashMap<>(expected));
+			}
+		}
+		for (int i = 0; i < snapshots.size(); i++) {
+			PersistentHashtable<CollidingKey, Integer> snapshot = snapshots.get(i);
+			HashMap<CollidingKey, Integer> expectedSnapshot = expectedSnapshots.get(i);
+			assertEquals(expectedSnapshot.size(), snapshot.size());
+			for (int id = 0; id < 200; id++) {
+				CollidingKey key = new CollidingKey(id, 5);
+				assertEquals(expectedSnapshot.get(key), snapshot.get(key));
+			}
+		}
+	}
+
+	@Test
+	public void builderIteratorTest() {
+		PersistentHashtable.Builder<Integer, Integer> builder = PersistentHashtable.builder();
+		for (int i = 0; i < 100; i++) {
+			builder.put(i, i);
+		}
+		List<Integer> seen = new ArrayList<>();
+		Iterator<TableEntry<Integer, Integer>> iterator = builder.iterator();
+		while (iterator.hasNext()) {
+			TableEntry<Integer, Integer> entry = iterator.next();
+			seen.add(entry.getKey());
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		assertEquals(100, seen.size());
+		assertEquals(50, builder.size());
+		assertFalse(builder.containsKey(10));
+		assertTrue(builder.containsKey(11));
+
+		Iterator<TableEntry<Integer, Integer>> other = builder.iterator();
+		TableEntry<Integer, Integer> entry = other.next();
+		assertThrows(UnsupportedOperationException.class, () -> entry.setValue(0));
+		builder.put(1000, 1000);
+		assertThrows(ConcurrentModificationException.class, other::next);
+	}
+
+	private static void assertMapEquals(HashMap<Integer, Integer> expected, PersistentHashtable<Integer, Integer> map) {
+		assertEquals(expected.size(), map.size());
+		int count = 0;
+		for (TableEntry<Integer, Integer> entry : map) {
+			assertEquals(expected.get(entry.getKey()), entry.getValue());
+			count++;
+		}
+		assertEquals(expected.size(), count);
+		for (Integer key : expected.keySet()) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+	}
+}
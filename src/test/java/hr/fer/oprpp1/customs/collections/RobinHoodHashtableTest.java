@@ -0,0 +1,144 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.RobinHoodHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class RobinHoodHashtableTest {
+
+	@Test
+	public void putAndGetTest() {
+		RobinHoodHashtable<String, String> table = new RobinHoodHashtable<String, String>();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(null, table.put("key" + i, "value" + i));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("value" + i, table.get("key" + i));
+		}
+		assertEquals(1000, table.size());
+	}
+
+	@Test
+	public void putOverwriteTest() {
+		RobinHoodHashtable<String, String> table = new RobinHoodHashtable<String, String>();
+		for (int i = 0; i < 100; i++) {
+			table.put("key" + i, "value" + i);
+			assertEquals("value" + i, table.put("key" + i, "xxx"));
+		}
+		assertEquals(100, table.size());
+		assertEquals(true, table.containsValue("xxx"));
+		assertEquals(false, table.containsValue("value1"));
+	}
+
+	@Test
+	public void nullKeyTest() {
+		RobinHoodHashtable<String, String> table = new RobinHoodHashtable<String, String>();
+		assertThrows(NullPointerException.class, () -> table.put(null, "this Should break!"));
+		assertThrows(NullPointerException.class, () -> table.containsKey(null));
+		assertEquals(null, table.get(null));
+		assertEquals(null, table.remove(null));
+	}
+
+	@Test
+	public void randomOperationsTest() {
+		RobinHoodHashtable<Integer, Integer> table = new RobinHoodHashtable<>(2);
+		HashMap<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			int key = random.nextInt(2000);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), table.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), table.put(key, i));
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (int key = 0; key < 2000; key++) {
+			assertEquals(expected.get(key), table.get(key));
+			assertEquals(expected.containsKey(key), table.containsKey(key));
+		}
+	}
+
+	@Test
+	public void iteratorRemoveTest() {
+		RobinHoodHashtable<Integer, Integer> table = new RobinHoodHashtable<>(2);
+		for (int i = 0; i < 1000; i++) {
+			table.put(i, i);
+		}
+
+		int count = 0;
+		Iterator<TableEntry<Integer, Integer>> iter = table.iterator();
+		while (iter.hasNext()) {
+			TableEntry<Integer, Integer> pair = iter.next();
+			count++;
+			if (pair.getKey() % 2 == 0) {
+				iter.remove();
+				assertThrows(IllegalStateException.class, () -> iter.remove());
+			}
+		}
+		assertEquals(1000, count);
+		assertEquals(500, table.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i % 2 != 0, table.containsKey(i));
+		}
+	}
+
+	@Test
+	public void iteratorSetValueTest() {
+		RobinHoodHashtable<String, Integer> table = new RobinHoodHashtable<>();
+		table.put("Ivana", 2);
+		table.put("Ante", 2);
+		for (TableEntry<String, Integer> pair : table) {
+			pair.setValue(5);
+		}
+		assertEquals(5, table.get("Ivana"));
+		assertEquals(5, table.get("Ante"));
+	}
+
+	@Test
+	public void staleEntrySetValueTest() {
+		RobinHoodHashtable<Integer, Integer> table = new RobinHoodHashtable<>();
+		for (int i = 0; i < 12; i++) {
+			table.put(i * 16, i);
+		}
+		// removal shifts following keys of the cluster back into slot of entry
+		TableEntry<Integer, Integer> entry = table.iterator().next();
+		int key = entry.getKey();
+		table.remove(key);
+		entry.setValue(-1);
+		assertEquals(-1, table.get(key));
+		assertEquals(12, table.size());
+		for (int i = 0; i < 12; i++) {
+			assertEquals(i * 16 == key ? -1 : i, table.get(i * 16));
+		}
+	}
+
+	@Test
+	public void iteratorInvalidRemoveTest() {
+		RobinHoodHashtable<String, Integer> table = new RobinHoodHashtable<>();
+		table.put("Ivana", 2);
+		table.put("Ante", 2);
+		Iterator<TableEntry<String, Integer>> iter = table.iterator();
+		iter.next();
+		table.remove("Ivana");
+		assertThrows(ConcurrentModificationException.class, () -> iter.hasNext());
+	}
+
+	@Test
+	public void toStringTest() {
+		RobinHoodHashtable<String, String> table = new RobinHoodHashtable<String, String>();
+		assertEquals("[]", table.toString());
+		table.put("key1", "value1");
+		assertEquals("[key1=value1]", table.toString());
+	}
+
+}
@@ -8,6 +8,8 @@ import java.util.Iterator;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import hr.fer.oprpp1.custom.collections.CountingHashtableStatistics;
+import hr.fer.oprpp1.custom.collections.HashtableStatistics.Operation;
 import hr.fer.oprpp1.custom.collections.SimpleHashtable;
 import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
 
@@ -120,14 +122,10 @@ public class SimpleHashtableTest {
 
 		TableEntry<String, String>[] array = table.toArray();
 		assertEquals(3, array.length);
-		assertEquals("key0", array[0].getKey());
-		assertEquals("key1", array[1].getKey());
-		assertEquals("key2", array[2].getKey());
-
-		for (int i = 0; i < 16; i++) {
-			if (i < 3) {
-				assertEquals("key" + i, array[i].getKey());
-			}
+		// order of entries follows slots, which depend on spread hash codes
+		String keys = array[0].getKey() + array[1].getKey() + array[2].getKey();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(true, keys.contains("key" + i));
 		}
 		
 		table.clear();
@@ -140,6 +138,20 @@ public class SimpleHashtableTest {
 		assertEquals(100, array.length);
 	}
 
+	@Test
+	public void minValueHashCodeTest() {
+		SimpleHashtable<Object, String> table = new SimpleHashtable<Object, String>();
+		Object key = new Object() {
+			@Override
+			public int hashCode() {
+				return Integer.MIN_VALUE;
+			}
+		};
+		table.put(key, "value");
+		assertEquals("value", table.get(key));
+		assertEquals("value", table.remove(key));
+	}
+
 	@Test
 	public void toStringTest() {
 		SimpleHashtable<String, String> table = new SimpleHashtable<String, String>();
@@ -265,4 +277,376 @@ public class SimpleHashtableTest {
 		assertEquals(0,examMarks.size());
 	}
 
+	@Test
+	public void incrementalResizeTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(64);
+		boolean resizeObserved = false;
+		for (int i = 0; i < 1000; i++) {
+			table.put("key" + i, i);
+			if (table.isResizing()) {
+				resizeObserved = true;
+				for (int j = 0; j <= i; j++) {
+					assertEquals(j, table.get("key" + j));
+				}
+				assertEquals(i + 1, table.toArray().length);
+			}
+		}
+		assertEquals(true, resizeObserved);
+		assertEquals(1000, table.size());
+	}
+
+	@Test
+	public void removeDuringResizeTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(64);
+		for (int i = 0; i < 48; i++) {
+			table.put("key" + i, i);
+		}
+		table.put("key48", 48);
+		assertEquals(true, table.isResizing());
+		for (int i = 0; i <= 48; i += 2) {
+			assertEquals(i, table.remove("key" + i));
+		}
+		assertEquals(null, table.remove("missing"));
+		int count = 0;
+		for (SimpleHashtable.TableEntry<String, Integer> pair : table) {
+			assertEquals(1, pair.getValue() % 2);
+			count++;
+		}
+		assertEquals(24, count);
+		assertEquals(24, table.size());
+	}
+
+	/** Comparable version of {@link CollidingKey}. */
+	private static class ComparableCollidingKey extends CollidingKey implements Comparable<ComparableCollidingKey> {
+		public ComparableCollidingKey(int id, int buckets) {
+			super(id, buckets);
+		}
+
+		@Override
+		public int compareTo(ComparableCollidingKey other) {
+			return Integer.compare(id, other.id);
+		}
+	}
+
+	@Test
+	public void resizeAfterUntreeifiedBucketGrowsTest() {
+		// multiples of 1024 fill few slots, which are treeified, split back into
+		// lists and then extended with ordinary entries before splitting again
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		for (int i = 0; i < 200_000; i++) {
+			table.put(i * 1024, i);
+		}
+		assertEquals(200_000, table.size());
+		for (int i = 0; i < 200_000; i++) {
+			assertEquals(i, table.get(i * 1024));
+		}
+	}
+
+	@Test
+	public void treeifiedBucketsTest() {
+		SimpleHashtable<CollidingKey, Integer> table = new SimpleHashtable<>();
+		java.util.HashMap<CollidingKey, Integer> expected = new java.util.HashMap<>();
+		java.util.Random random = new java.util.Random(7);
+		for (int i = 0; i < 50_000; i++) {
+			int id = random.nextInt(400);
+			CollidingKey key = (id % 2 == 0) ? new ComparableCollidingKey(id, 3) : new CollidingKey(id, 3);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), table.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), table.put(key, i));
+			}
+			if (i % 5000 == 0) {
+				assertEquals(expected.size(), table.toArray().length);
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (int id = 0; id < 400; id++) {
+			CollidingKey key = new CollidingKey(id, 3);
+			CollidingKey comparableKey = new ComparableCollidingKey(id, 3);
+			assertEquals(expected.get(key), table.get(key));
+			assertEquals(expected.get(comparableKey), table.get(comparableKey));
+		}
+	}
+
+	@Test
+	public void treeifiedBucketIteratorRemoveTest() {
+		SimpleHashtable<CollidingKey, Integer> table = new SimpleHashtable<>();
+		for (int id = 0; id < 100; id++) {
+			table.put(new ComparableCollidingKey(id, 1), id);
+		}
+		int count = 0;
+		Iterator<SimpleHashtable.TableEntry<CollidingKey, Integer>> iter = table.iterator();
+		while (iter.hasNext()) {
+			SimpleHashtable.TableEntry<CollidingKey, Integer> pair = iter.next();
+			count++;
+			if (pair.getValue() % 3 != 0) {
+				iter.remove();
+			}
+		}
+		assertEquals(100, count);
+		assertEquals(34, table.size());
+		for (int id = 0; id < 100; id++) {
+			assertEquals(id % 3 == 0, table.containsKey(new ComparableCollidingKey(id, 1)));
+		}
+	}
+
+	@Test
+	public void computeAndMergeTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(2);
+		for (int i = 0; i < 100; i++) {
+			table.merge("key" + (i % 10), 1, Integer::sum);
+		}
+		assertEquals(10, table.size());
+		assertEquals(Integer.valueOf(10), table.get("key3"));
+
+		assertEquals(Integer.valueOf(10), table.putIfAbsent("key3", 0));
+		assertEquals(null, table.putIfAbsent("new", 5));
+		assertEquals(Integer.valueOf(5), table.get("new"));
+		assertEquals(Integer.valueOf(5), table.computeIfAbsent("new", key -> 7));
+		assertEquals(Integer.valueOf(5), table.computeIfAbsent("other", String::length));
+		assertEquals(null, table.computeIfAbsent("none", key -> null));
+		assertEquals(false, table.containsKey("none"));
+
+		assertEquals(null, table.computeIfPresent("none", (key, value) -> 1));
+		assertEquals(Integer.valueOf(11), table.computeIfPresent("key3", (key, value) -> value + 1));
+		assertEquals(null, table.computeIfPresent("key3", (key, value) -> null));
+		assertEquals(false, table.containsKey("key3"));
+
+		assertEquals(Integer.valueOf(1), table.compute("key3", (key, value) -> value == null ? 1 : value + 1));
+		assertEquals(null, table.compute("key3", (key, value) -> null));
+		assertEquals(null, table.merge("key4", 1, (oldValue, value) -> null));
+		assertEquals(10, table.size());
+
+		table.put("nullValue", null);
+		assertEquals(null, table.putIfAbsent("nullValue", 1));
+		assertEquals(Integer.valueOf(1), table.get("nullValue"));
+		table.put("keptNull", null);
+		int size = table.size();
+		assertEquals(null, table.computeIfAbsent("keptNull", key -> null));
+		assertEquals(true, table.containsKey("keptNull"));
+		assertEquals(size, table.size());
+
+		assertThrows(NullPointerException.class, () -> table.compute(null, (key, value) -> 1));
+		assertThrows(NullPointerException.class, () -> table.merge("key1", null, Integer::sum));
+		assertThrows(ConcurrentModificationException.class, () -> table.computeIfAbsent("key", key -> {
+			table.put("sneaky", 1);
+			return 1;
+		}));
+	}
+
+	@Test
+	public void computeInTreeifiedBucketTest() {
+		SimpleHashtable<CollidingKey, Integer> table = new SimpleHashtable<>();
+		java.util.HashMap<CollidingKey, Integer> expected = new java.util.HashMap<>();
+		java.util.Random random = new java.util.Random(11);
+		for (int i = 0; i < 20_000; i++) {
+			CollidingKey key = new ComparableCollidingKey(random.nextInt(200), 2);
+			int delta = random.nextInt(5) - 2;
+			java.util.function.BiFunction<Integer, Integer, Integer> sum = (a, b) -> (a + b == 0) ? null : a + b;
+			assertEquals(expected.merge(key, delta, sum), table.merge(key, delta, sum));
+		}
+		assertEquals(expected.size(), table.size());
+		for (java.util.Map.Entry<CollidingKey, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), table.get(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void streamTest() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		for (int i = 0; i < 100_000; i++) {
+			table.put(i, i % 7 == 0 ? null : i);
+		}
+		long expectedSum = 0;
+		for (int i = 0; i < 100_000; i++) {
+			expectedSum += i;
+		}
+
+		assertEquals(100_000, table.stream().count());
+		assertEquals(100_000, table.parallelStream().count());
+		assertEquals(expectedSum, table.keyStream(true).mapToLong(Integer::longValue).sum());
+		assertEquals(expectedSum, table.keyStream(false).mapToLong(Integer::longValue).sum());
+		assertEquals(100_000 / 7 + 1, table.valueStream(true).filter(value -> value == null).count());
+		assertEquals(100_000, table.parallelStream().map(TableEntry::getKey).distinct().count());
+	}
+
+	@Test
+	public void parallelToArrayOnSparseTableTest() {
+		// entries fill few slots, so halves of split spliterator have very
+		// different sizes than their estimates
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>(1 << 16);
+		for (int i = 0; i < 1000; i++) {
+			table.put(i, i);
+		}
+		assertEquals(1000, table.parallelStream().toArray().length);
+		assertEquals(1000, table.keyStream(true).map(key -> key).toArray().length);
+		java.util.List<Integer> keys = table.keyStream(true).collect(java.util.stream.Collectors.toList());
+		assertEquals(1000, keys.size());
+		assertEquals(1000, new java.util.HashSet<>(keys).size());
+	}
+
+	@Test
+	public void spliteratorTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(2);
+		for (int i = 0; i < 1000; i++) {
+			table.put("key" + i, i);
+		}
+		java.util.Spliterator<TableEntry<String, Integer>> spliterator = table.spliterator();
+		assertEquals(1000, spliterator.getExactSizeIfKnown());
+		assertTrue(spliterator.hasCharacteristics(java.util.Spliterator.SIZED));
+		assertFalse(spliterator.hasCharacteristics(java.util.Spliterator.SUBSIZED));
+
+		java.util.Spliterator<TableEntry<String, Integer>> prefix = spliterator.trySplit();
+		assertEquals(-1, spliterator.getExactSizeIfKnown());
+		java.util.Set<String> keys = new java.util.HashSet<>();
+		assertTrue(prefix.tryAdvance(entry -> keys.add(entry.getKey())));
+		prefix.forEachRemaining(entry -> assertTrue(keys.add(entry.getKey())));
+		spliterator.forEachRemaining(entry -> assertTrue(keys.add(entry.getKey())));
+		assertEquals(1000, keys.size());
+
+		java.util.Spliterator<TableEntry<String, Integer>> modified = table.spliterator();
+		table.put("new", 1);
+		assertThrows(ConcurrentModificationException.class, () -> modified.forEachRemaining(entry -> {
+		}));
+	}
+
+	@Test
+	public void iteratorRemoveInChainsTest() {
+		SimpleHashtable<CollidingKey, Integer> table = new SimpleHashtable<>(64);
+		for (int id = 0; id < 40; id++) {
+			table.put(new CollidingKey(id, 8), id);
+		}
+		Iterator<TableEntry<CollidingKey, Integer>> iter = table.iterator();
+		int count = 0;
+		while (iter.hasNext()) {
+			TableEntry<CollidingKey, Integer> pair = iter.next();
+			count++;
+			if (pair.getValue() % 4 != 1) {
+				iter.remove();
+			}
+		}
+		assertEquals(40, count);
+		assertEquals(10, table.size());
+		for (int id = 0; id < 40; id++) {
+			assertEquals(id % 4 == 1, table.containsKey(new CollidingKey(id, 8)));
+		}
+		assertEquals(10, table.stream().count());
+	}
+
+	@Test
+	public void forEachTest() {
+		SimpleHashtable<String, Integer> table = new SimpleHashtable<>(1024);
+		for (int i = 0; i < 100; i++) {
+			table.put("key" + i, i);
+		}
+		int[] sum = new int[1];
+		table.forEach((TableEntry<String, Integer> entry) -> sum[0] += entry.getValue());
+		assertEquals(4950, sum[0]);
+		table.forEach((key, value) -> assertEquals("key" + value, key));
+		assertThrows(ConcurrentModificationException.class,
+				() -> table.forEach((key, value) -> table.remove(key)));
+	}
+
+	@Test
+	public void bloomFilterRandomOperationsTest() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		table.enableBloomFilter(0.01);
+		java.util.HashMap<Integer, Integer> expected = new java.util.HashMap<>();
+		java.util.Random random = new java.util.Random(11);
+		for (int i = 0; i < 200_000; i++) {
+			int key = random.nextInt(20_000);
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				assertEquals(expected.remove(key), table.remove(key));
+				break;
+			case 2:
+				assertEquals(expected.get(key), table.get(key));
+				assertEquals(expected.containsKey(key), table.containsKey(key));
+				break;
+			case 3:
+				assertEquals(expected.computeIfAbsent(key, k -> -k), table.computeIfAbsent(key, k -> -k));
+				break;
+			default:
+				assertEquals(expected.put(key, i), table.put(key, i));
+			}
+			if (i == 100_000) {
+				table.clear();
+				expected.clear();
+			}
+		}
+		assertEquals(expected.size(), table.size());
+		for (int key = 0; key < 20_000; key++) {
+			assertEquals(expected.get(key), table.get(key));
+		}
+	}
+
+	@Test
+	public void bloomFilterSkipsMissesTest() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		table.enableBloomFilter(0.01);
+		// filter grows together with the map
+		for (int i = 0; i < 100_000; i++) {
+			table.put(i, i);
+		}
+		CountingHashtableStatistics statistics = new CountingHashtableStatistics();
+		table.setStatistics(statistics);
+		for (int i = 100_000; i < 200_000; i++) {
+			assertNull(table.get(i));
+		}
+		long searches = statistics.snapshot().getCount(Operation.GET);
+		assertTrue(searches < 2_000, "table was searched " + searches + " times");
+
+		for (int i = 0; i < 100_000; i++) {
+			assertEquals(i, table.get(i));
+		}
+		assertEquals(100_000 + searches, statistics.snapshot().getCount(Operation.GET));
+	}
+
+	@Test
+	public void bloomFilterRebuiltAfterRemovalsTest() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		table.enableBloomFilter(0.01);
+		for (int i = 0; i < 100_000; i++) {
+			table.put(i, i);
+		}
+		long sizeBefore = table.bloomFilterSize();
+		for (int i = 0; i < 90_000; i++) {
+			table.remove(i);
+		}
+		assertTrue(table.bloomFilterSize() < sizeBefore);
+
+		CountingHashtableStatistics statistics = new CountingHashtableStatistics();
+		table.setStatistics(statistics);
+		for (int i = 0; i < 90_000; i++) {
+			assertFalse(table.containsKey(i));
+		}
+		// without rebuilds every removed key would still pass the filter, with them
+		// at most as many stale keys as stored ones are left
+		long searches = statistics.snapshot().getCount(Operation.CONTAINS_KEY);
+		assertTrue(searches < 10_000 + 1_800, "table was searched " + searches + " times");
+	}
+
+	@Test
+	public void bloomFilterMemoryBudgetTest() {
+		SimpleHashtable<Integer, Integer> table = new SimpleHashtable<>();
+		assertEquals(0, table.bloomFilterSize());
+		table.enableBloomFilter(0.0001, 1024);
+		for (int i = 0; i < 10_000; i++) {
+			table.put(i, i);
+		}
+		assertTrue(table.bloomFilterSize() <= 1024);
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(table.containsKey(i));
+		}
+
+		table.disableBloomFilter();
+		assertEquals(0, table.bloomFilterSize());
+		assertEquals(5, table.get(5));
+
+		assertThrows(IllegalArgumentException.class, () -> table.enableBloomFilter(0));
+		assertThrows(IllegalArgumentException.class, () -> table.enableBloomFilter(1));
+		assertThrows(IllegalArgumentException.class, () -> table.enableBloomFilter(0.01, 0));
+	}
+
 }
@@ -0,0 +1,234 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hr.fer.oprpp1.custom.collections.SwissHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+
+public class SwissHashtableTest {
+
+	@Test
+	public void randomOperationsTest() {
+		// many removes leave deleted slots, which are reused or dropped by rehash
+		SwissHashtable<Integer, Integer> map = new SwissHashtable<>(1);
+		HashMap<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			int key = random.nextInt(2_000);
+			if (random.nextBoolean()) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), map.put(key, i));
+			}
+		}
+		assertEquals(expected.size(), map.size());
+		for (int key = 0; key < 2_000; key++) {
+			assertEquals(expected.get(key), map.get(key));
+			assertEquals(expected.containsKey(key), map.containsKey(key));
+		}
+		int count = 0;
+		for (TableEntry<Integer, Integer> entry : map) {
+			assertEquals(expected.get(entry.getKey()), entry.getValue());
+			count++;
+		}
+		assertEquals(expected.size(), count);
+	}
+
+	/**
+	 * Returns Integer keys, starting from given one, whose mixed hash has given
+	 * 7 bits stored in control byte and chooses given group. Mixing is the same
+	 * as in SwissHashtable.
+	 */
+	private static int[] keysWith(int controlByte, int group, int groupMask, int count, int from) {
+		int[] keys = new int[count];
+		for (int key = from, found = 0; found < count; key++) {
+			int hash = key * 0x9E3779B9;
+			hash ^= hash >>> 16;
+			if ((hash & 0x7F) == controlByte && ((hash >>> 7) & groupMask) == group) {
+				keys[found++] = key;
+			}
+		}
+		return keys;
+	}
+
+	@Test
+	public void controlByteFalsePositiveTest() {
+		// single group; byte one above a matching byte is also reported by SWAR
+		// match, so lookups of missing keys compare the key in the next slot too
+		SwissHashtable<Integer, Integer> map = new SwissHashtable<>();
+		int[] matching = keysWith(0x24, 0, 0, 2, 0);
+		int[] aboveMatching = keysWith(0x25, 0, 0, 3, 0);
+		map.put(matching[0], 0);
+		for (int key : aboveMatching) {
+			map.put(key, key);
+		}
+		assertNull(map.get(matching[1]));
+		assertFalse(map.containsKey(matching[1]));
+		for (int key : aboveMatching) {
+			assertEquals(key, map.get(key));
+		}
+		assertEquals(0, map.remove(matching[0]));
+		assertNull(map.remove(matching[1]));
+		for (int key : aboveMatching) {
+			assertEquals(key, map.get(key));
+		}
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void deletedSlotContinuesProbeTest() {
+		// two groups; 16 keys fill group 0 and the 17th overflows into group 1
+		SwissHashtable<Integer, Integer> map = new SwissHashtable<>(32);
+		int[] keys = new int[18];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = keysWith(i, 0, 1, 1, 0)[0];
+		}
+		for (int i = 0; i < 17; i++) {
+			map.put(keys[i], i);
+		}
+		// group 0 has no empty slot, so removed slot is marked deleted and
+		// lookup of overflowed key must continue past it
+		assertEquals(3, map.remove(keys[3]));
+		assertEquals(16, map.get(keys[16]));
+		assertNull(map.get(keys[3]));
+		// put reuses deleted slot, so overflowed key is still found
+		map.put(keys[17], 17);
+		assertEquals(17, map.get(keys[17]));
+		assertEquals(16, map.get(keys[16]));
+		// group 1 has empty slots, so removed slot becomes empty again and
+		// lookups of missing keys stop there
+		assertEquals(16, map.remove(keys[16]));
+		assertNull(map.get(keys[16]));
+		assertNull(map.get(keys[3]));
+		assertEquals(16, map.size());
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i == 3 || i == 16 ? null : Integer.valueOf(i), map.get(keys[i]));
+		}
+	}
+
+	/** Key that counts calls of equals. */
+	private static class CountingKey {
+		private static int equalsCalls = 0;
+		private final int id;
+
+		CountingKey(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			return id;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			equalsCalls++;
+			return obj instanceof CountingKey && ((CountingKey) obj).id == id;
+		}
+	}
+
+	@Test
+	public void missesRarelyCallEqualsTest() {
+		SwissHashtable<CountingKey, Integer> map = new SwissHashtable<>();
+		for (int i = 0; i < 10_000; i++) {
+			map.put(new CountingKey(i), i);
+		}
+		CountingKey.equalsCalls = 0;
+		for (int i = 10_000; i < 20_000; i++) {
+			assertNull(map.get(new CountingKey(i)));
+		}
+		// about one in 128 candidates has matching control byte
+		assertTrue(CountingKey.equalsCalls < 1_000, "equals called " + CountingKey.equalsCalls + " times");
+	}
+
+	@Test
+	public void churnTest() {
+		// distinct keys are put and removed, leaving deleted slots behind
+		SwissHashtable<Integer, Integer> map = new SwissHashtable<>(64);
+		for (int i = 0; i < 100_000; i++) {
+			map.put(i, i);
+			if (i >= 20) {
+				assertEquals(i - 20, map.remove(i - 20));
+			}
+		}
+		assertEquals(20, map.size());
+		for (int i = 100_000 - 20; i < 100_000; i++) {
+			assertEquals(i, map.get(i));
+		}
+		assertNull(map.get(0));
+	}
+
+	@Test
+	public void iteratorTest() {
+		SwissHashtable<Integer, String> map = new SwissHashtable<>();
+		for (int i = 0; i < 10; i++) {
+			map.put(i, "v" + i);
+		}
+		Iterator<TableEntry<Integer, String>> iterator = map.iterator();
+		while (iterator.hasNext()) {
+			TableEntry<Integer, String> entry = iterator.next();
+			if (entry.getKey() % 2 == 0) {
+				iterator.remove();
+			} else {
+				entry.setValue("w" + entry.getKey());
+			}
+		}
+		assertEquals(5, map.size());
+		assertEquals("w3", map.get(3));
+		assertFalse(map.containsKey(4));
+		assertTrue(map.containsValue("w9"));
+		assertFalse(map.containsValue("v9"));
+
+		Iterator<TableEntry<Integer, String>> other = map.iterator();
+		map.put(20, "v20");
+		assertThrows(ConcurrentModificationException.class, other::next);
+	}
+
+	@Test
+	public void staleEntryTest() {
+		SwissHashtable<String, Integer> map = new SwissHashtable<>();
+		map.put("a", 1);
+		map.put("b", 2);
+		TableEntry<String, Integer> entry = map.iterator().next();
+		String key = entry.getKey();
+		map.remove(key);
+		assertEquals(key, entry.getKey());
+		// freed slot is reused by another key
+		map.put("zzz", 26);
+		entry.setValue(-1);
+		assertEquals(key, entry.getKey());
+		assertEquals(-1, entry.getValue());
+		assertEquals(26, map.get("zzz"));
+		assertEquals(-1, map.get(key));
+		assertEquals(3, map.size());
+	}
+
+	@Test
+	public void clearTest() {
+		SwissHashtable<String, Integer> map = new SwissHashtable<>();
+		map.put("a", 1);
+		map.put("b", null);
+		assertEquals("[a=1, b=null]", map.toString());
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.iterator().hasNext());
+		map.put("c", 3);
+		assertEquals("[c=3]", map.toString());
+	}
+
+	@Test
+	public void invalidArgumentsTest() {
+		assertThrows(IllegalArgumentException.class, () -> new SwissHashtable<>(0));
+		SwissHashtable<String, Integer> map = new SwissHashtable<>();
+		assertThrows(NullPointerException.class, () -> map.put(null, 1));
+		assertNull(map.get(null));
+		assertNull(map.remove(null));
+	}
+}
@@ -0,0 +1,220 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.oprpp1.custom.collections.Codec;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+import hr.fer.oprpp1.custom.collections.TieredHashtable;
+
+public class TieredHashtableTest {
+
+	@TempDir
+	Path directory;
+
+	private TieredHashtable<String, Integer> open(int hotCapacity) throws IOException {
+		return TieredHashtable.open(directory.resolve("table.spill"), Codec.STRING, Codec.INTEGER, hotCapacity);
+	}
+
+	@Test
+	public void demotionTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(100)) {
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(null, table.put("key" + i, i));
+			}
+			assertEquals(1000, table.size());
+			assertEquals(100, table.getHotSize());
+			assertEquals(900, table.getColdSize());
+			assertEquals(900, table.getDemotionCount());
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(true, table.containsKey("key" + i));
+			}
+			assertEquals(false, table.containsKey("key1000"));
+			assertEquals(false, table.containsKey(5));
+			assertEquals(null, table.get("key1000"));
+		}
+	}
+
+	@Test
+	public void promotionTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(10)) {
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+			}
+			// first read of cold entry leaves it cold, second promotes it
+			String coldKey = null;
+			for (int i = 0; i < 100 && coldKey == null; i++) {
+				long promotions = table.getPromotionCount();
+				table.get("key" + i);
+				if (table.getPromotionCount() == promotions) {
+					coldKey = "key" + i;
+				}
+			}
+			assertNotNull(coldKey);
+			long promotions = table.getPromotionCount();
+			assertEquals(Integer.valueOf(coldKey.substring(3)), table.get(coldKey));
+			assertEquals(promotions + 1, table.getPromotionCount());
+			assertEquals(10, table.getHotSize());
+			assertEquals(100, table.size());
+		}
+	}
+
+	@Test
+	public void hotKeysStayHotTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(100)) {
+			int hotReads = 0;
+			for (int i = 0; i < 10_000; i++) {
+				table.put("key" + i, i);
+				// keys 0 to 49 take most of the traffic
+				for (int j = 0; j < 10; j++) {
+					table.get("key" + (hotReads++ % 50));
+				}
+			}
+			// hot key is demoted rarely, only when all sampled entries are hot
+			assertTrue(table.getPromotionCount() < hotReads / 100);
+			long promotions = table.getPromotionCount();
+			for (int i = 0; i < 50; i++) {
+				assertEquals(Integer.valueOf(i), table.get("key" + i));
+				assertEquals(Integer.valueOf(i), table.get("key" + i));
+			}
+			long demotions = table.getDemotionCount();
+			for (int i = 0; i < 50; i++) {
+				assertEquals(Integer.valueOf(i), table.get("key" + i));
+			}
+			assertEquals(demotions, table.getDemotionCount());
+			assertTrue(table.getPromotionCount() - promotions <= 50);
+		}
+	}
+
+	@Test
+	public void randomOperationsTest() throws IOException {
+		HashMap<String, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		// small segments, so that cold tier is compacted many times
+		try (TieredHashtable<String, Integer> table = TieredHashtable.open(directory.resolve("table.spill"),
+				Codec.STRING, Codec.INTEGER, 50, 4096)) {
+			for (int i = 0; i < 100_000; i++) {
+				String key = "key" + random.nextInt(2000);
+				switch (random.nextInt(4)) {
+				case 0:
+					assertEquals(expected.remove(key), table.remove(key));
+					break;
+				case 1:
+					assertEquals(expected.get(key), table.get(key));
+					break;
+				default:
+					Integer value = random.nextInt(10) == 0 ? null : i;
+					assertEquals(expected.put(key, value), table.put(key, value));
+				}
+				assertEquals(expected.size(), table.size());
+			}
+			HashMap<String, Integer> iterated = new HashMap<>();
+			for (TableEntry<String, Integer> entry : table) {
+				assertFalse(iterated.containsKey(entry.getKey()));
+				iterated.put(entry.getKey(), entry.getValue());
+			}
+			assertEquals(expected, iterated);
+			assertTrue(table.getMappedBytes() < 100 * 4096);
+		}
+	}
+
+	@Test
+	public void iteratorTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(10)) {
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+			}
+			Iterator<TableEntry<String, Integer>> iterator = table.iterator();
+			int visited = 0;
+			while (iterator.hasNext()) {
+				TableEntry<String, Integer> entry = iterator.next();
+				visited++;
+				if (entry.getValue() % 2 == 0) {
+					iterator.remove();
+				} else {
+					entry.setValue(-entry.getValue());
+				}
+			}
+			assertEquals(100, visited);
+			assertEquals(50, table.size());
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i % 2 == 0 ? null : Integer.valueOf(-i), table.get("key" + i));
+			}
+
+			Iterator<TableEntry<String, Integer>> concurrent = table.iterator();
+			concurrent.next();
+			table.put("new", 1);
+			assertThrows(ConcurrentModificationException.class, () -> concurrent.next());
+		}
+	}
+
+	@Test
+	public void staleEntryTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(10)) {
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+			}
+			Iterator<TableEntry<String, Integer>> iterator = table.iterator();
+			TableEntry<String, Integer> entry = null;
+			while (iterator.hasNext()) {
+				entry = iterator.next();
+			}
+			// last entry is cold, its slot is freed and reused by other cold keys
+			String key = entry.getKey();
+			table.remove(key);
+			entry.setValue(-1);
+			assertEquals(Integer.valueOf(-1), table.get(key));
+			table.remove(key);
+			for (int i = 0; i < 50; i++) {
+				table.put("x" + i, i);
+			}
+			entry.setValue(-2);
+			assertEquals(Integer.valueOf(-2), table.get(key));
+			for (int i = 0; i < 50; i++) {
+				assertEquals(Integer.valueOf(i), table.get("x" + i));
+			}
+			assertEquals(150, table.size());
+		}
+	}
+
+	@Test
+	public void closeTest() throws IOException {
+		Path path = directory.resolve("table.spill");
+		TieredHashtable<String, Integer> table = TieredHashtable.open(path, Codec.STRING, Codec.INTEGER, 10);
+		for (int i = 0; i < 100; i++) {
+			table.put("key" + i, i);
+		}
+		assertTrue(Files.exists(path));
+		table.close();
+		table.close();
+		assertFalse(Files.exists(path));
+		assertThrows(IllegalStateException.class, () -> table.get("key1"));
+		assertThrows(IllegalArgumentException.class,
+				() -> TieredHashtable.open(path, Codec.STRING, Codec.INTEGER, 0));
+	}
+
+	@Test
+	public void clearTest() throws IOException {
+		try (TieredHashtable<String, Integer> table = open(10)) {
+			for (int i = 0; i < 100; i++) {
+				table.put("key" + i, i);
+			}
+			table.clear();
+			assertEquals(0, table.size());
+			assertEquals(null, table.get("key5"));
+			table.put("key5", 5);
+			assertEquals(Integer.valueOf(5), table.get("key5"));
+			assertEquals("[key5=5]", table.toString());
+		}
+	}
+}
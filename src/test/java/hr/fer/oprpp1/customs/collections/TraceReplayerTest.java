@@ -0,0 +1,142 @@
+package hr.fer.oprpp1.customs.collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hr.fer.oprpp1.custom.collections.CompactHashtable;
+import hr.fer.oprpp1.custom.collections.RobinHoodHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable;
+import hr.fer.oprpp1.custom.collections.SimpleHashtable.TableEntry;
+import hr.fer.oprpp1.custom.collections.TraceRecorder;
+import hr.fer.oprpp1.custom.collections.TraceReplayer;
+import hr.fer.oprpp1.custom.collections.TraceReplayer.ReplayResult;
+
+public class TraceReplayerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void recordAndReplayTest() throws IOException {
+		Path path = directory.resolve("trace");
+		SimpleHashtable<String, String> table = new SimpleHashtable<>();
+		try (TraceRecorder<String, String> recorder = new TraceRecorder<>(table, path)) {
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(null, recorder.put("key" + i, "value" + (i % 10)));
+			}
+			for (int i = 0; i < 1000; i += 2) {
+				assertEquals("value" + (i % 10), recorder.get("key" + i));
+				assertEquals(true, recorder.containsKey("key" + i));
+			}
+			assertEquals("value5", recorder.remove("key5"));
+			recorder.put("nullValue", null);
+			Iterator<TableEntry<String, String>> iter = recorder.iterator();
+			while (iter.hasNext()) {
+				if (iter.next().getKey().endsWith("7")) {
+					iter.remove();
+				}
+			}
+		}
+		assertEquals(900, table.size());
+
+		TraceReplayer replayer = new TraceReplayer(path);
+		assertEquals(1000 + 1000 + 1 + 1 + 100, replayer.getOperationCount());
+		assertEquals(1001, replayer.getKeyCount());
+
+		SimpleHashtable<Integer, Integer> replayed = new SimpleHashtable<>();
+		ReplayResult result = replayer.replay(replayed);
+		assertEquals(900, replayed.size());
+		assertEquals(2102, result.getOperationCount());
+		assertEquals(true, result.getThroughput() > 0);
+		assertEquals(true, result.getLatencyPercentile(50) <= result.getLatencyPercentile(99));
+		assertEquals(true, result.getLatencyPercentile(99) <= result.getLatencyPercentile(100));
+
+		RobinHoodHashtable<Integer, Integer> paced = new RobinHoodHashtable<>();
+		assertEquals(2102, replayer.replay(paced, true).getOperationCount());
+		assertEquals(900, paced.size());
+	}
+
+	@Test
+	public void iteratorOnViewsTest() throws IOException {
+		Path path = directory.resolve("trace");
+		CompactHashtable<String, String> table = new CompactHashtable<>();
+		try (TraceRecorder<String, String> recorder = new TraceRecorder<>(table, path)) {
+			for (int i = 0; i < 100; i++) {
+				recorder.put("key" + i, "value" + i);
+			}
+			// entries of CompactHashtable are views into its arrays
+			Iterator<TableEntry<String, String>> iter = recorder.iterator();
+			while (iter.hasNext()) {
+				TableEntry<String, String> entry = iter.next();
+				if (entry.getKey().endsWith("0")) {
+					iter.remove();
+				} else if (entry.getKey().endsWith("1")) {
+					entry.setValue(null);
+				}
+			}
+			recorder.get("key5");
+		}
+		assertEquals(90, table.size());
+
+		TraceReplayer replayer = new TraceReplayer(path);
+		assertEquals(100 + 10 + 10 + 1, replayer.getOperationCount());
+		assertEquals(100, replayer.getKeyCount());
+		SimpleHashtable<Integer, Integer> replayed = new SimpleHashtable<>();
+		replayer.replay(replayed);
+		assertEquals(90, replayed.size());
+		int nullValues = 0;
+		for (TableEntry<Integer, Integer> entry : replayed) {
+			if (entry.getValue() == null) {
+				nullValues++;
+			}
+		}
+		assertEquals(10, nullValues);
+	}
+
+	@Test
+	public void boundedDictionaryTest() throws IOException {
+		Path path = directory.resolve("trace");
+		try (TraceRecorder<String, String> recorder = new TraceRecorder<>(new SimpleHashtable<>(), path, 10)) {
+			for (int i = 0; i < 1000; i++) {
+				recorder.put("key" + i, "value" + i);
+			}
+			for (int i = 0; i < 1000; i++) {
+				recorder.remove("key" + i);
+			}
+		}
+		TraceReplayer replayer = new TraceReplayer(path);
+		assertEquals(2000, replayer.getOperationCount());
+		assertEquals(true, replayer.getKeyCount() <= 20);
+
+		// keys sharing overflow ID are still removed by remove of any of them
+		SimpleHashtable<Integer, Integer> replayed = new SimpleHashtable<>();
+		replayer.replay(replayed);
+		assertEquals(0, replayed.size());
+		assertThrows(IllegalArgumentException.class,
+				() -> new TraceRecorder<>(new SimpleHashtable<>(), directory.resolve("other"), 0));
+	}
+
+	@Test
+	public void invalidTraceTest() throws IOException {
+		Path path = directory.resolve("invalid");
+		Files.write(path, new byte[] { 1, 2, 3 });
+		assertThrows(IllegalArgumentException.class, () -> new TraceReplayer(path));
+	}
+
+	@Test
+	public void closedRecorderTest() throws IOException {
+		TraceRecorder<String, String> recorder = new TraceRecorder<>(new SimpleHashtable<>(),
+				directory.resolve("trace"));
+		recorder.close();
+		assertThrows(IllegalStateException.class, () -> recorder.put("key", "value"));
+		recorder.close();
+	}
+
+}